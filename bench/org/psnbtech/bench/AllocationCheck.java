@@ -0,0 +1,360 @@
+package org.psnbtech.bench;
+
+import java.lang.management.ManagementFactory;
+
+import org.psnbtech.GameEngine;
+import org.psnbtech.GameSnapshot;
+import org.psnbtech.Input;
+import org.psnbtech.WorldPanel;
+import org.psnbtech.entity.Asteroid;
+import org.psnbtech.entity.AsteroidSize;
+import org.psnbtech.entity.EntityStore;
+import org.psnbtech.entity.PlayerState;
+import org.psnbtech.util.GameRandom;
+import org.psnbtech.util.Torus;
+import org.psnbtech.util.Vector2;
+
+/**
+ * <p>The {@code AllocationCheck} makes sure that the code run every tick
+ * doesn't create any garbage once it has warmed up. As well as stepping a
+ * whole game, the {@code Vector2} math is checked on its own, along with the
+ * entity code that uses it, so that a temporary vector that only shows up
+ * now and then in a game can't hide.</p>
+ *
+ * <p>Each check is run once to warm up, then rewound to where it started
+ * and run again while the number of bytes allocated by the thread is
+ * measured. The second run takes exactly the same path as the first, so the
+ * pools and lists have already grown as large as they need to be, and the
+ * JIT compiler has finished with the code. If any check allocates more than
+ * {@code MAX_BYTES_PER_OPERATION} on average, the check exits with a status
+ * of 1, so it can be run alongside the benchmarks to catch a change that
+ * brings the garbage back.</p>
+ * @author Brendan Jones
+ *
+ */
+public class AllocationCheck {
+	
+	/**
+	 * The number of operations run to warm up, and then again while
+	 * measuring.
+	 */
+	private static final int OPERATIONS = 20000;
+	
+	/**
+	 * The most bytes that can be allocated per operation, on average. This
+	 * isn't quite zero, so that the few bytes reading the allocation counter
+	 * might take don't fail the check, but a single small object created on
+	 * even one tick in a hundred is enough to.
+	 */
+	private static final double MAX_BYTES_PER_OPERATION = 0.01;
+	
+	/**
+	 * The seed used for every check, so each run is the same.
+	 */
+	private static final long SEED = 42L;
+	
+	/**
+	 * Creates the checks to run.
+	 * @return The checks.
+	 */
+	private static Check[] createChecks() {
+		return new Check[] {
+			new TickCheck(),
+			new SpawnCheck(),
+			new PredictCheck(),
+			new Vector2Check()
+		};
+	}
+	
+	/**
+	 * Runs every check, and prints the number of bytes each one allocated
+	 * per operation. Exits with a status of 1 if any check allocated.
+	 * @param args Unused.
+	 */
+	public static void main(String[] args) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		
+		boolean failed = false;
+		System.out.printf("%-24s %14s %8s%n", "Check", "Bytes/op", "Result");
+		for(Check check : createChecks()) {
+			check.setUp();
+			for(int i = 0; i < OPERATIONS; i++) {
+				check.run();
+			}
+			check.rewind();
+			
+			long before = threads.getThreadAllocatedBytes(thread);
+			for(int i = 0; i < OPERATIONS; i++) {
+				check.run();
+			}
+			long after = threads.getThreadAllocatedBytes(thread);
+			
+			double bytes = (double) (after - before) / OPERATIONS;
+			boolean passed = (bytes <= MAX_BYTES_PER_OPERATION);
+			failed |= !passed;
+			System.out.printf("%-24s %14.2f %8s%n", check.name, bytes, passed ? "ok" : "FAILED");
+		}
+		
+		if(failed) {
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * A piece of code that shouldn't allocate anything once it has warmed up.
+	 */
+	private abstract static class Check {
+		
+		/**
+		 * The name of this Check.
+		 */
+		private final String name;
+		
+		/**
+		 * Creates a new Check.
+		 * @param name The name of the Check.
+		 */
+		protected Check(String name) {
+			this.name = name;
+		}
+		
+		/**
+		 * Prepares this Check to be run.
+		 */
+		protected abstract void setUp();
+		
+		/**
+		 * Puts this Check back into the state it was in after {@code setUp},
+		 * so that the next operations are the same as the first ones. This
+		 * does nothing by default, for checks that do the same thing every
+		 * operation.
+		 */
+		protected void rewind() {
+		}
+		
+		/**
+		 * Performs a single operation.
+		 */
+		protected abstract void run();
+	
+	}
+	
+	/**
+	 * Steps an endless game in which the player flies in circles with the gun
+	 * held down, so that bullets are fired, asteroids are split, and the
+	 * player dies and respawns over and over.
+	 */
+	private static class TickCheck extends Check {
+		
+		/**
+		 * The engine being stepped.
+		 */
+		private GameEngine engine;
+		
+		/**
+		 * The input passed to the engine.
+		 */
+		private Input input;
+		
+		/**
+		 * The state of the engine once it has been set up.
+		 */
+		private GameSnapshot start;
+		
+		/**
+		 * Creates a new TickCheck.
+		 */
+		private TickCheck() {
+			super("tick");
+		}
+		
+		@Override
+		protected void setUp() {
+			this.engine = new GameEngine(SEED);
+			this.input = new Input();
+			input.thrust = true;
+			input.rotateLeft = true;
+			input.fire = true;
+			engine.setEndless(true);
+			this.start = new GameSnapshot();
+			start.capture(engine);
+		}
+		
+		@Override
+		protected void rewind() {
+			start.restore(engine);
+		}
+		
+		@Override
+		protected void run() {
+			engine.step(input);
+		}
+	
+	}
+	
+	/**
+	 * Spawns an Asteroid from the pool, breaks two children off of it, reads
+	 * back where it is and where it's going, and returns all three to the
+	 * pool. This covers the spawn position and velocity that each Asteroid
+	 * works out with its own vectors.
+	 */
+	private static class SpawnCheck extends Check {
+		
+		/**
+		 * The store the Asteroids are taken from.
+		 */
+		private EntityStore store;
+		
+		/**
+		 * The Random instance the Asteroids are spawned with.
+		 */
+		private GameRandom random;
+		
+		/**
+		 * The vector the position of the Asteroid is read into.
+		 */
+		private Vector2 position;
+		
+		/**
+		 * The vector the velocity of the Asteroid is read into.
+		 */
+		private Vector2 velocity;
+		
+		/**
+		 * Creates a new SpawnCheck.
+		 */
+		private SpawnCheck() {
+			super("asteroid.spawn");
+		}
+		
+		@Override
+		protected void setUp() {
+			this.store = new EntityStore();
+			this.random = new GameRandom(SEED);
+			this.position = new Vector2(0.0, 0.0);
+			this.velocity = new Vector2(0.0, 0.0);
+		}
+		
+		@Override
+		protected void run() {
+			Asteroid parent = store.acquireAsteroid(random);
+			Asteroid first = store.acquireAsteroid(parent, AsteroidSize.Medium, random);
+			Asteroid second = store.acquireAsteroid(parent, AsteroidSize.Medium, random);
+			parent.getPosition(position);
+			parent.getVelocity(velocity);
+			store.remove(second);
+			store.remove(first);
+			store.remove(parent);
+		}
+	
+	}
+	
+	/**
+	 * Flies a ship in circles with the gun held down, in the same way as the
+	 * Player does, which thrusts with the ship's own vectors.
+	 */
+	private static class PredictCheck extends Check {
+		
+		/**
+		 * The state of the ship.
+		 */
+		private PlayerState state;
+		
+		/**
+		 * The input the ship is flown with.
+		 */
+		private Input input;
+		
+		/**
+		 * Creates a new PredictCheck.
+		 */
+		private PredictCheck() {
+			super("player.predict");
+		}
+		
+		@Override
+		protected void setUp() {
+			this.state = new PlayerState();
+			this.input = new Input();
+			input.thrust = true;
+			input.rotateLeft = true;
+			input.fire = true;
+		}
+		
+		@Override
+		protected void run() {
+			state.predict(input, WorldPanel.WORLD_SIZE);
+		}
+	
+	}
+	
+	/**
+	 * Runs each of the {@code Vector2} operations, both on vectors and on
+	 * plain components, along with the {@code Torus} operations that wrap
+	 * them around the world.
+	 */
+	private static class Vector2Check extends Check {
+		
+		/**
+		 * The vector being moved.
+		 */
+		private Vector2 position;
+		
+		/**
+		 * The vector the position is measured against.
+		 */
+		private Vector2 other;
+		
+		/**
+		 * The vector used for thrust.
+		 */
+		private Vector2 thrust;
+		
+		/**
+		 * The Torus the vectors are wrapped by.
+		 */
+		private Torus torus;
+		
+		/**
+		 * The sum of the lengths and distances measured, kept so that the work
+		 * isn't thrown away.
+		 */
+		private double total;
+		
+		/**
+		 * The number of operations that have been run.
+		 */
+		private int count;
+		
+		/**
+		 * Creates a new Vector2Check.
+		 */
+		private Vector2Check() {
+			super("vector2");
+		}
+		
+		@Override
+		protected void setUp() {
+			this.position = new Vector2(0.0, 0.0);
+			this.other = new Vector2(WorldPanel.WORLD_SIZE / 2.0, WorldPanel.WORLD_SIZE / 2.0);
+			this.thrust = new Vector2(0.0, 0.0);
+			this.torus = new Torus(WorldPanel.WORLD_SIZE);
+		}
+		
+		@Override
+		protected void run() {
+			double angle = count * 0.01;
+			this.count++;
+			position.addScaled(thrust.setFromAngle(angle), 0.0385).add(1.0, -1.0).wrap(torus);
+			other.set(position).subtract(thrust.setFromAngle(angle, 3.0)).add(thrust).scale(1.5).normalize();
+			this.total += position.getLength() + other.getLengthSquared() + position.getDistanceToSquared(other);
+			this.total += Vector2.getLengthSquared(position.x, position.y);
+			this.total += Vector2.getDistanceSquared(position.x, position.y, other.x, other.y);
+			this.total += torus.wrap(position.x - torus.getSize()) + torus.getDelta(position.x, other.x);
+			this.total += torus.getDistanceSquared(position, other) + torus.getDistanceSquared(position.x, position.y, other.x, other.y);
+		}
+	
+	}
+
+}
@@ -0,0 +1,175 @@
+package org.psnbtech.bench;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Properties;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>The {@code BenchmarkRunner} runs the JMH benchmarks in this package, and
+ * compares their results against a saved baseline.</p>
+ *
+ * <p>JMH takes care of forking, warming up, and keeping the results of each
+ * benchmark from being optimized away, with the settings given on each
+ * benchmark class. Once it has finished, the score of each benchmark, in
+ * nanoseconds per operation, is printed alongside the change from the
+ * baseline.</p>
+ *
+ * <p>The results can be saved, and later runs compared against them. If any
+ * benchmark has become slower than the saved result by more than the
+ * threshold, the runner exits with a status of 1, so it can be used to catch
+ * regressions before they are committed. The error JMH reports for each score
+ * is printed alongside it, as a hint of how far a change can be trusted.</p>
+ *
+ * <p>The following arguments are accepted:</p>
+ * <ul>
+ * <li>{@code -filter <regex>} only runs benchmarks whose name matches the
+ * regular expression, such as {@code Tick} or {@code CollisionBenchmark.spatialHash}.</li>
+ * <li>{@code -quick} uses a single fork and fewer iterations.</li>
+ * <li>{@code -save <file>} saves the results to a file.</li>
+ * <li>{@code -baseline <file>} compares the results against a saved file.</li>
+ * <li>{@code -threshold <percent>} sets how much slower a result can be before
+ * it counts as a regression. Defaults to 10.</li>
+ * </ul>
+ * @author Brendan Jones
+ *
+ */
+public class BenchmarkRunner {
+	
+	/**
+	 * The package the benchmarks are in, which is left off of their names.
+	 */
+	private static final String PACKAGE = BenchmarkRunner.class.getPackage().getName() + ".";
+	
+	/**
+	 * The number of warmup iterations in quick mode.
+	 */
+	private static final int QUICK_WARMUP_ITERATIONS = 2;
+	
+	/**
+	 * The number of measured iterations in quick mode.
+	 */
+	private static final int QUICK_MEASUREMENT_ITERATIONS = 3;
+	
+	/**
+	 * Entry point of the benchmarks.
+	 * @param args The command line arguments.
+	 * @throws IOException If the results could not be saved or compared.
+	 * @throws RunnerException If JMH could not run the benchmarks.
+	 */
+	public static void main(String[] args) throws IOException, RunnerException {
+		String filter = null;
+		String save = null;
+		String baseline = null;
+		double threshold = 10.0;
+		boolean quick = false;
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "-filter":
+				filter = args[++i];
+				break;
+			
+			case "-quick":
+				quick = true;
+				break;
+			
+			case "-save":
+				save = args[++i];
+				break;
+			
+			case "-baseline":
+				baseline = args[++i];
+				break;
+			
+			case "-threshold":
+				threshold = Double.parseDouble(args[++i]);
+				break;
+			
+			default:
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+		
+		Properties expected = new Properties();
+		if(baseline != null) {
+			try(InputStream in = new FileInputStream(baseline)) {
+				expected.load(in);
+			}
+		}
+		
+		ChainedOptionsBuilder options = new OptionsBuilder().include(PACKAGE.replace(".", "\\.") + ".*" + (filter != null ? filter : ""));
+		if(quick) {
+			options.forks(1).warmupIterations(QUICK_WARMUP_ITERATIONS).measurementIterations(QUICK_MEASUREMENT_ITERATIONS);
+		}
+		Collection<RunResult> runs = new Runner(options.build()).run();
+		
+		System.out.println();
+		System.out.printf("%-52s %14s %12s %10s%n", "Benchmark", "Score ns/op", "Error", "Change");
+		Properties results = new Properties();
+		int regressions = 0;
+		for(RunResult run : runs) {
+			Result<?> result = run.getPrimaryResult();
+			double score = result.getScore();
+			double error = Double.isNaN(result.getScoreError()) ? 0.0 : result.getScoreError();
+			String key = getKey(run.getParams());
+			results.setProperty(key, Double.toString(score));
+			
+			//Compare the result against the baseline, if there is one for this benchmark.
+			String change = "";
+			String previous = expected.getProperty(key);
+			if(previous != null) {
+				double expectedScore = Double.parseDouble(previous);
+				double percent = (score / expectedScore - 1.0) * 100.0;
+				change = String.format("%+.1f%%", percent);
+				if(percent > threshold) {
+					change += " !";
+					regressions++;
+				}
+			}
+			System.out.printf("%-52s %14.1f %12.1f %10s%n", key, score, error, change);
+		}
+		
+		if(save != null) {
+			try(OutputStream out = new FileOutputStream(save)) {
+				results.store(out, "JMH score in nanoseconds per operation");
+			}
+		}
+		
+		if(regressions > 0) {
+			System.out.printf("%d benchmark(s) regressed by more than %.1f%%.%n", regressions, threshold);
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Gets the name a benchmark's result is saved under, which is its class
+	 * and method followed by the value of each of its parameters, such as
+	 * {@code TickBenchmark.step[size=100]}.
+	 * @param params The parameters of the benchmark.
+	 * @return The name.
+	 */
+	private static String getKey(BenchmarkParams params) {
+		StringBuilder key = new StringBuilder(params.getBenchmark().substring(PACKAGE.length()));
+		String separator = "[";
+		for(String name : params.getParamsKeys()) {
+			key.append(separator).append(name).append('=').append(params.getParam(name));
+			separator = ",";
+		}
+		if(!params.getParamsKeys().isEmpty()) {
+			key.append(']');
+		}
+		return key.toString();
+	}
+
+}
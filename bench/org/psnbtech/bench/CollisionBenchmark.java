@@ -0,0 +1,181 @@
+package org.psnbtech.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.psnbtech.collision.BroadPhase;
+import org.psnbtech.collision.BruteForceBroadPhase;
+import org.psnbtech.collision.CollisionPairs;
+import org.psnbtech.collision.SpatialHashBroadPhase;
+import org.psnbtech.entity.Entity;
+import org.psnbtech.entity.EntityStore;
+
+/**
+ * <p>Measures finding the colliding pairs in a world full of asteroids and
+ * bullets, with either the {@code SpatialHashBroadPhase} or the
+ * {@code BruteForceBroadPhase}. Every fourth Entity is a bullet, as pairs of
+ * asteroids are never checked.</p>
+ *
+ * <p>Each BroadPhase has a world of its own, as brute force is quadratic, and
+ * isn't worth running at the largest size.</p>
+ * @author Brendan Jones
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 4, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+public class CollisionBenchmark {
+	
+	/**
+	 * The seed used to place the asteroids.
+	 */
+	private static final long SEED = 7L;
+	
+	/**
+	 * The number of Entities for each bullet.
+	 */
+	private static final int BULLET_INTERVAL = 4;
+	
+	/**
+	 * The number of times the world is moved after the bullets are fired, so
+	 * that they have left the asteroids they were fired from.
+	 */
+	private static final int FLIGHT_STEPS = 10;
+	
+	/**
+	 * Finds the colliding pairs with the spatial hash.
+	 * @param world The world.
+	 * @param blackhole The Blackhole the number of pairs is passed to.
+	 */
+	@Benchmark
+	public void spatialHash(SpatialHashWorld world, Blackhole blackhole) {
+		blackhole.consume(world.findPairs());
+	}
+	
+	/**
+	 * Finds the colliding pairs by brute force.
+	 * @param world The world.
+	 * @param blackhole The Blackhole the number of pairs is passed to.
+	 */
+	@Benchmark
+	public void bruteForce(BruteForceWorld world, Blackhole blackhole) {
+		blackhole.consume(world.findPairs());
+	}
+	
+	/**
+	 * A world of asteroids and bullets, and the BroadPhase used to search it.
+	 */
+	public abstract static class World {
+		
+		/**
+		 * The BroadPhase being measured.
+		 */
+		private BroadPhase broadPhase;
+		
+		/**
+		 * The buffer the colliding pairs are written into.
+		 */
+		private CollisionPairs pairs;
+		
+		/**
+		 * The asteroids and bullets.
+		 */
+		private List<Entity> entities;
+		
+		/**
+		 * Fills the world, and fires the bullets away from the asteroids they
+		 * were fired from.
+		 * @param size The number of Entities.
+		 * @param broadPhase The BroadPhase to search the world with.
+		 */
+		protected void setUp(int size, BroadPhase broadPhase) {
+			EntityStore store = new EntityStore();
+			Random random = new Random(SEED);
+			this.broadPhase = broadPhase;
+			this.pairs = new CollisionPairs();
+			this.entities = new ArrayList<>(size);
+			for(int i = 0; i < size; i++) {
+				if(i % BULLET_INTERVAL == BULLET_INTERVAL - 1) {
+					entities.add(store.acquireBullet(entities.get(i - 1), random.nextDouble() * Math.PI * 2));
+				} else {
+					entities.add(store.acquireAsteroid(random));
+				}
+			}
+			store.activate();
+			for(int i = 0; i < FLIGHT_STEPS; i++) {
+				store.integrate();
+			}
+		}
+		
+		/**
+		 * Finds the colliding pairs.
+		 * @return The number of pairs.
+		 */
+		int findPairs() {
+			broadPhase.findPairs(entities, pairs);
+			return pairs.size();
+		}
+	
+	}
+	
+	/**
+	 * The world searched with the {@code SpatialHashBroadPhase}.
+	 */
+	@State(Scope.Thread)
+	public static class SpatialHashWorld extends World {
+		
+		/**
+		 * The number of Entities.
+		 */
+		@Param({"10", "100", "1000", "10000"})
+		public int size;
+		
+		/**
+		 * Fills the world.
+		 */
+		@Setup
+		public void setUp() {
+			setUp(size, new SpatialHashBroadPhase());
+		}
+	
+	}
+	
+	/**
+	 * The world searched with the {@code BruteForceBroadPhase}.
+	 */
+	@State(Scope.Thread)
+	public static class BruteForceWorld extends World {
+		
+		/**
+		 * The number of Entities.
+		 */
+		@Param({"10", "100", "1000"})
+		public int size;
+		
+		/**
+		 * Fills the world.
+		 */
+		@Setup
+		public void setUp() {
+			setUp(size, new BruteForceBroadPhase());
+		}
+	
+	}
+
+}
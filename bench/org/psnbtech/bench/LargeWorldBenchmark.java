@@ -0,0 +1,220 @@
+package org.psnbtech.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.psnbtech.GameEngine;
+import org.psnbtech.Input;
+import org.psnbtech.entity.EntityKind;
+import org.psnbtech.entity.EntityStore;
+import org.psnbtech.entity.Player;
+
+/**
+ * <p>Measures a single step of the {@code GameEngine} in a large world, where
+ * the size is the number of asteroids the first level starts with.</p>
+ *
+ * <p>The world is sized to keep the same amount of space around each
+ * asteroid at every size, and is shared with one ship for every sixteen
+ * asteroids, each spawning somewhere random. Every ship flies in circles
+ * with its gun held down, so there are tens of thousands of bullets in
+ * flight at the largest size.</p>
+ *
+ * <p>The engine is either stepped on a single thread, or given a pool with a
+ * thread for each core. Setting up the largest world takes far longer than
+ * an iteration, so the world is only set up once for each fork, and carries
+ * on from one iteration to the next. The game is endless, so it stays just as
+ * busy throughout.</p>
+ *
+ * <p>Running this class on its own plays each size for a while, both ways,
+ * and prints how long the steps took, to show whether the engine keeps up
+ * with {@code TICKS_PER_SECOND}.</p>
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 4, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 7, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(2)
+public class LargeWorldBenchmark {
+	
+	/**
+	 * The number of steps the game is meant to take each second.
+	 */
+	private static final int TICKS_PER_SECOND = 60;
+	
+	/**
+	 * The seed used for every run, so each one starts from the same world.
+	 */
+	private static final long SEED = 42L;
+	
+	/**
+	 * The area of the world for each asteroid.
+	 */
+	private static final double AREA_PER_ASTEROID = 100.0 * 100.0;
+	
+	/**
+	 * The number of asteroids for each ship.
+	 */
+	private static final int ASTEROIDS_PER_PLAYER = 16;
+	
+	/**
+	 * The number of steps taken before measuring, which covers the start of
+	 * the level and gives the ships time to fill the world with bullets.
+	 */
+	private static final int WARMUP_STEPS = 180;
+	
+	/**
+	 * The number of steps played at each size when this class is run on its
+	 * own, which is one minute of play.
+	 */
+	private static final int PLAY_STEPS = TICKS_PER_SECOND * 60;
+	
+	/**
+	 * The sizes played when this class is run on its own.
+	 */
+	private static final int[] SIZES = { 10000, 30000, 100000 };
+	
+	/**
+	 * The number of asteroids the first level starts with.
+	 */
+	@Param({"10000", "30000", "100000"})
+	public int size;
+	
+	/**
+	 * Whether to step the engine on a pool with a thread for each core,
+	 * rather than on a single thread.
+	 */
+	@Param({"false", "true"})
+	public boolean parallel;
+	
+	/**
+	 * The pool the engine is stepped on, or null if it is stepped on a single
+	 * thread.
+	 */
+	private ForkJoinPool pool;
+	
+	/**
+	 * The engine being measured.
+	 */
+	private GameEngine engine;
+	
+	/**
+	 * The input passed to the engine and every ship.
+	 */
+	private Input input;
+	
+	/**
+	 * Creates the pool, if there is one, and the world, and plays until the
+	 * world is full of bullets.
+	 */
+	@Setup
+	public void setUp() {
+		this.pool = parallel ? new ForkJoinPool() : null;
+		Random random = new Random(SEED);
+		double worldSize = Math.sqrt(size * AREA_PER_ASTEROID);
+		this.engine = new GameEngine(random, worldSize);
+		engine.setPool(pool);
+		this.input = new Input();
+		input.thrust = true;
+		input.rotateLeft = true;
+		input.fire = true;
+		engine.setEndless(true);
+		engine.setWaveSize(size);
+		for(int i = 1; i < size / ASTEROIDS_PER_PLAYER; i++) {
+			Player player = engine.addPlayer();
+			player.setSpawnPoint(random.nextDouble() * worldSize, random.nextDouble() * worldSize);
+			engine.setPlayerInput(player, input);
+		}
+		for(int i = 0; i < WARMUP_STEPS; i++) {
+			engine.step(input);
+		}
+	}
+	
+	/**
+	 * Shuts down the pool, if there is one.
+	 */
+	@TearDown
+	public void tearDown() {
+		if(pool != null) {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Steps the engine once.
+	 * @param blackhole The Blackhole the number of entities is passed to.
+	 */
+	@Benchmark
+	public void step(Blackhole blackhole) {
+		engine.step(input);
+		blackhole.consume(engine.getEntities().size());
+	}
+	
+	/**
+	 * Plays each size for a minute of game time, on a single thread and then
+	 * on a pool, and prints how long the steps took along with how full the
+	 * world was.
+	 * @param args Unused.
+	 */
+	public static void main(String[] args) {
+		System.out.printf("%8s %8s %10s %10s %10s %10s %10s %10s %8s%n", "Threads", "Size", "Asteroids", "Bullets", "Mean ms", "p99 ms", "Max ms", "Ticks/s", "Late");
+		play(false, 1);
+		play(true, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Plays each size for a minute of game time, and prints how long the
+	 * steps took along with how full the world was.
+	 * @param parallel Whether to step the engine on a pool.
+	 * @param threads The number of threads the engine is stepped on.
+	 */
+	private static void play(boolean parallel, int threads) {
+		long budget = 1000000000L / TICKS_PER_SECOND;
+		LargeWorldBenchmark benchmark = new LargeWorldBenchmark();
+		benchmark.parallel = parallel;
+		for(int size : SIZES) {
+			benchmark.size = size;
+			benchmark.setUp();
+			long[] times = new long[PLAY_STEPS];
+			long asteroids = 0;
+			long bullets = 0;
+			long total = 0;
+			int late = 0;
+			EntityStore store = benchmark.engine.getStore();
+			for(int i = 0; i < PLAY_STEPS; i++) {
+				long start = System.nanoTime();
+				benchmark.engine.step(benchmark.input);
+				times[i] = System.nanoTime() - start;
+				total += times[i];
+				asteroids += store.size(EntityKind.Asteroid);
+				bullets += store.size(EntityKind.Bullet);
+				if(times[i] > budget) {
+					late++;
+				}
+			}
+			benchmark.tearDown();
+			Arrays.sort(times);
+			System.out.printf("%8d %8d %10d %10d %10.2f %10.2f %10.2f %10.0f %8d%n", threads, size, asteroids / PLAY_STEPS, bullets / PLAY_STEPS,
+					total / (PLAY_STEPS * 1e6), times[PLAY_STEPS * 99 / 100] / 1e6, times[PLAY_STEPS - 1] / 1e6,
+					PLAY_STEPS * 1e9 / total, late);
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+package org.psnbtech.bench;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.psnbtech.GameEngine;
+import org.psnbtech.GameSnapshot;
+import org.psnbtech.Input;
+import org.psnbtech.util.GameRandom;
+
+/**
+ * <p>The {@code ParallelCheck} makes sure that stepping the game on a pool
+ * gives exactly the same results as stepping it on a single thread.</p>
+ *
+ * <p>Two engines are created from the same seed, in a world large enough
+ * that every phase of the step is split up across the pool, and one of them
+ * is given a pool. Both are stepped with the same input, with the ship
+ * flying in circles with the gun held down, so that asteroids are split and
+ * the ship dies and respawns along the way. After every step, a snapshot is
+ * captured from each engine, and the two must match byte for byte.</p>
+ *
+ * <p>The pool always has at least {@code MIN_THREADS} threads, even on a
+ * machine with fewer cores, as a pool with a single thread is treated as no
+ * pool at all. If the snapshots ever differ, the check exits with a status of
+ * 1, so it can be run alongside the benchmarks to catch a change that lets
+ * the order of the threads leak into the game.</p>
+ * @author Brendan Jones
+ *
+ */
+public class ParallelCheck {
+	
+	/**
+	 * The number of asteroids the first level starts with.
+	 */
+	private static final int ASTEROIDS = 20000;
+	
+	/**
+	 * The area of the world for each asteroid.
+	 */
+	private static final double AREA_PER_ASTEROID = 100.0 * 100.0;
+	
+	/**
+	 * The number of steps that are compared, which is ten seconds of play.
+	 */
+	private static final int STEPS = 600;
+	
+	/**
+	 * The fewest threads the pool is created with.
+	 */
+	private static final int MIN_THREADS = 4;
+	
+	/**
+	 * The seed used for both engines.
+	 */
+	private static final long SEED = 42L;
+	
+	/**
+	 * Steps a game on a single thread and on a pool, and compares their
+	 * snapshots after every step. Exits with a status of 1 if they ever
+	 * differ.
+	 * @param args Unused.
+	 */
+	public static void main(String[] args) {
+		ForkJoinPool pool = new ForkJoinPool(Math.max(MIN_THREADS, Runtime.getRuntime().availableProcessors()));
+		GameEngine serial = createEngine(null);
+		GameEngine parallel = createEngine(pool);
+		GameSnapshot serialSnapshot = new GameSnapshot();
+		GameSnapshot parallelSnapshot = new GameSnapshot();
+		Input input = new Input();
+		input.thrust = true;
+		input.rotateLeft = true;
+		input.fire = true;
+		
+		int mismatch = -1;
+		try {
+			for(int i = 0; i < STEPS && mismatch < 0; i++) {
+				serial.step(input);
+				parallel.step(input);
+				
+				serialSnapshot.capture(serial);
+				parallelSnapshot.capture(parallel);
+				if(!serialSnapshot.getState().equals(parallelSnapshot.getState())) {
+					mismatch = i;
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		
+		System.out.printf("%d asteroids, %d steps on %d threads: ", ASTEROIDS, STEPS, pool.getParallelism());
+		if(mismatch >= 0) {
+			System.out.printf("the snapshots differ after step %d%n", mismatch);
+			System.exit(1);
+		}
+		System.out.printf("the snapshots match (%d entities, %d bytes)%n", serial.getEntities().size(), serialSnapshot.getSize());
+	}
+	
+	/**
+	 * Creates an endless game in a world sized for {@code ASTEROIDS}.
+	 * @param pool The pool to step the game on, or null to step it on the
+	 * calling thread.
+	 * @return The engine.
+	 */
+	private static GameEngine createEngine(ForkJoinPool pool) {
+		GameEngine engine = new GameEngine(new GameRandom(SEED), Math.sqrt(ASTEROIDS * AREA_PER_ASTEROID));
+		engine.setPool(pool);
+		engine.setEndless(true);
+		engine.setWaveSize(ASTEROIDS);
+		return engine;
+	}
+
+}
@@ -0,0 +1,106 @@
+package org.psnbtech.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.psnbtech.Input;
+import org.psnbtech.WorldPanel;
+import org.psnbtech.entity.PlayerState;
+import org.psnbtech.net.PlayerPredictor;
+
+/**
+ * Measures reconciling a {@code PlayerPredictor} with the server's state of
+ * the ship, where the size is the number of inputs the server hasn't applied
+ * yet, all of which have to be replayed.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 4, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+public class PredictionBenchmark {
+	
+	/**
+	 * The seed used to choose the inputs.
+	 */
+	private static final long SEED = 11L;
+	
+	/**
+	 * The number of ticks the ship is flown for before the server's state is
+	 * taken, so that it is moving and has bullets in flight.
+	 */
+	private static final int WARMUP_TICKS = 120;
+	
+	/**
+	 * The number of inputs the server hasn't applied yet.
+	 */
+	@Param({"6", "60", "600"})
+	public int size;
+	
+	/**
+	 * The predictor.
+	 */
+	private PlayerPredictor predictor;
+	
+	/**
+	 * The server's state of the ship.
+	 */
+	private PlayerState serverState;
+	
+	/**
+	 * The sequence number of the last input the server has applied.
+	 */
+	private int ackSequence;
+	
+	/**
+	 * Flies the ship around, then takes its state as the server's, and sends
+	 * the inputs that haven't been applied.
+	 */
+	@Setup
+	public void setUp() {
+		Random random = new Random(SEED);
+		Input input = new Input();
+		this.predictor = new PlayerPredictor(WorldPanel.WORLD_SIZE);
+		this.serverState = new PlayerState();
+		predictor.reconcile(-1, serverState);
+		
+		for(int i = 0; i < WARMUP_TICKS + size; i++) {
+			if(i == WARMUP_TICKS) {
+				serverState.set(predictor.getPredicted());
+			}
+			input.thrust = random.nextBoolean();
+			input.rotateLeft = random.nextBoolean();
+			input.rotateRight = random.nextBoolean();
+			input.fire = random.nextBoolean();
+			predictor.applyInput(input);
+		}
+		this.ackSequence = WARMUP_TICKS - 1;
+	}
+	
+	/**
+	 * Reconciles the predictor with the server's state, replaying every input
+	 * the server hasn't applied.
+	 * @param blackhole The Blackhole the predicted position is passed to.
+	 */
+	@Benchmark
+	public void replay(Blackhole blackhole) {
+		predictor.reconcile(ackSequence, serverState);
+		blackhole.consume(predictor.getPredicted().getX());
+	}
+
+}
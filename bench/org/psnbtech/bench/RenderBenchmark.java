@@ -0,0 +1,110 @@
+package org.psnbtech.bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.psnbtech.GameEngine;
+import org.psnbtech.Input;
+import org.psnbtech.WorldPanel;
+import org.psnbtech.render.FrameExchange;
+import org.psnbtech.render.FrameRenderer;
+import org.psnbtech.render.WorldFrame;
+
+/**
+ * Measures drawing a frame into an offscreen {@code BufferedImage}, either
+ * from the {@code SpriteCache} or as vectors.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 4, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+public class RenderBenchmark {
+	
+	/**
+	 * The seed used to place the asteroids.
+	 */
+	private static final long SEED = 42L;
+	
+	/**
+	 * The number of asteroids in the world.
+	 */
+	@Param({"10", "100", "1000"})
+	public int size;
+	
+	/**
+	 * Whether the renderer should draw from the SpriteCache.
+	 */
+	@Param({"true", "false"})
+	public boolean sprites;
+	
+	/**
+	 * The image being drawn to.
+	 */
+	private BufferedImage image;
+	
+	/**
+	 * The renderer.
+	 */
+	private FrameRenderer renderer;
+	
+	/**
+	 * The frame being drawn.
+	 */
+	private WorldFrame frame;
+	
+	/**
+	 * Runs the game until the asteroids are in the world, and grabs the frame
+	 * it publishes.
+	 */
+	@Setup
+	public void setUp() {
+		GameEngine engine = new GameEngine(new Random(SEED));
+		FrameExchange frames = new FrameExchange();
+		Input input = new Input();
+		engine.step(input);
+		for(int i = 0; i < size; i++) {
+			engine.registerEntity(engine.getStore().acquireAsteroid(engine.getRandom()));
+		}
+		engine.step(input);
+		engine.setFrameExchange(frames);
+		this.frame = frames.getLatestFrame();
+		
+		this.image = new BufferedImage(WorldPanel.WORLD_SIZE, WorldPanel.WORLD_SIZE, BufferedImage.TYPE_INT_RGB);
+		this.renderer = new FrameRenderer(WorldPanel.WORLD_SIZE);
+		renderer.setSpritesEnabled(sprites);
+	}
+	
+	/**
+	 * Draws the frame, part way between two updates.
+	 * @param blackhole The Blackhole a pixel of the image is passed to.
+	 */
+	@Benchmark
+	public void render(Blackhole blackhole) {
+		Graphics2D g = image.createGraphics();
+		try {
+			renderer.render(g, frame, 0.5);
+		} finally {
+			g.dispose();
+		}
+		blackhole.consume(image.getRGB(0, 0));
+	}
+
+}
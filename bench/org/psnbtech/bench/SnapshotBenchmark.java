@@ -0,0 +1,82 @@
+package org.psnbtech.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.psnbtech.GameEngine;
+import org.psnbtech.GameSnapshot;
+import org.psnbtech.Input;
+
+/**
+ * Measures capturing a {@code GameSnapshot} of an engine and restoring it,
+ * with a number of large asteroids in the world.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 4, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+public class SnapshotBenchmark {
+	
+	/**
+	 * The seed used for every run, so each one starts from the same world.
+	 */
+	private static final long SEED = 42L;
+	
+	/**
+	 * The number of asteroids in the world.
+	 */
+	@Param({"10", "100", "1000"})
+	public int size;
+	
+	/**
+	 * The engine being captured.
+	 */
+	private GameEngine engine;
+	
+	/**
+	 * The snapshot.
+	 */
+	private GameSnapshot snapshot;
+	
+	/**
+	 * Creates the world.
+	 */
+	@Setup
+	public void setUp() {
+		this.engine = new GameEngine(SEED);
+		this.snapshot = new GameSnapshot();
+		Input input = new Input();
+		engine.step(input);
+		for(int i = 0; i < size; i++) {
+			engine.registerEntity(engine.getStore().acquireAsteroid(engine.getRandom()));
+		}
+		engine.step(input);
+	}
+	
+	/**
+	 * Captures the engine, and restores it from the snapshot.
+	 * @param blackhole The Blackhole the size of the snapshot is passed to.
+	 */
+	@Benchmark
+	public void captureAndRestore(Blackhole blackhole) {
+		snapshot.capture(engine);
+		snapshot.restore(engine);
+		blackhole.consume(snapshot.getSize());
+	}
+
+}
@@ -0,0 +1,193 @@
+package org.psnbtech.bench;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.psnbtech.GameEngine;
+import org.psnbtech.Input;
+import org.psnbtech.entity.Entity;
+import org.psnbtech.net.StateEncoder;
+import org.psnbtech.net.StateFrame;
+import org.psnbtech.server.GameServer;
+
+/**
+ * <p>Measures writing the state of the world for a single client, with a
+ * number of large asteroids in the world. The state is either encoded by the
+ * {@code StateEncoder} against the state sent one broadcast earlier, or
+ * naively written out in full, with every field of every Entity at full
+ * precision.</p>
+ *
+ * <p>Running this class on its own prints the number of bytes each way
+ * writes, rather than the time taken.</p>
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 4, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+public class StateEncodingBenchmark {
+	
+	/**
+	 * The seed used to place the asteroids.
+	 */
+	private static final long SEED = 42L;
+	
+	/**
+	 * The number of steps it takes for the level to start, once the asteroids
+	 * have been added.
+	 */
+	private static final int LEVEL_START_STEPS = 61;
+	
+	/**
+	 * The number of ticks between the baseline and the state being written,
+	 * which matches the server's default broadcast rate.
+	 */
+	private static final int BROADCAST_INTERVAL = GameServer.TICKS_PER_SECOND / GameServer.DEFAULT_BROADCAST_RATE;
+	
+	/**
+	 * The number of bytes each Entity takes when written naively.
+	 */
+	private static final int NAIVE_ENTITY_SIZE = 4 + 1 + 1 + 8 * 5;
+	
+	/**
+	 * The sizes printed when this class is run on its own.
+	 */
+	private static final int[] SIZES = { 10, 100, 1000 };
+	
+	/**
+	 * The number of asteroids in the world.
+	 */
+	@Param({"10", "100", "1000"})
+	public int size;
+	
+	/**
+	 * The engine whose state is written.
+	 */
+	private GameEngine engine;
+	
+	/**
+	 * The state the client has already received.
+	 */
+	private StateFrame baseline;
+	
+	/**
+	 * The state being written.
+	 */
+	private StateFrame frame;
+	
+	/**
+	 * The buffer the state is written into.
+	 */
+	private ByteBuffer buffer;
+	
+	/**
+	 * Captures the baseline, then runs the game on to when the next state
+	 * would be sent.
+	 */
+	@Setup
+	public void setUp() {
+		this.engine = new GameEngine(SEED);
+		Input input = new Input();
+		engine.step(input);
+		for(int i = 0; i < size; i++) {
+			engine.registerEntity(engine.getStore().acquireAsteroid(engine.getRandom()));
+		}
+		for(int i = 0; i < LEVEL_START_STEPS; i++) {
+			engine.step(input);
+		}
+		
+		this.baseline = new StateFrame(engine.getWorldSize());
+		this.frame = new StateFrame(engine.getWorldSize());
+		baseline.capture(engine);
+		for(int i = 0; i < BROADCAST_INTERVAL; i++) {
+			engine.step(input);
+		}
+		frame.capture(engine);
+		this.buffer = ByteBuffer.allocateDirect(64 + engine.getEntities().size() * NAIVE_ENTITY_SIZE);
+	}
+	
+	/**
+	 * Encodes the state against the baseline.
+	 * @param blackhole The Blackhole the number of bytes written is passed to.
+	 */
+	@Benchmark
+	public void delta(Blackhole blackhole) {
+		blackhole.consume(writeDelta());
+	}
+	
+	/**
+	 * Writes the state out in full.
+	 * @param blackhole The Blackhole the number of bytes written is passed to.
+	 */
+	@Benchmark
+	public void naive(Blackhole blackhole) {
+		blackhole.consume(writeNaive());
+	}
+	
+	/**
+	 * Encodes the state against the baseline.
+	 * @return The number of bytes written.
+	 */
+	private int writeDelta() {
+		buffer.clear();
+		StateEncoder.encode(baseline, frame, buffer);
+		return buffer.position();
+	}
+	
+	/**
+	 * Writes every field of every Entity in the world at full precision.
+	 * @return The number of bytes written.
+	 */
+	private int writeNaive() {
+		buffer.clear();
+		List<Entity> entities = engine.getEntities();
+		buffer.putLong(engine.getTick());
+		buffer.putInt(entities.size());
+		for(int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			buffer.putInt(entity.getId());
+			buffer.put((byte) entity.getKind().ordinal());
+			buffer.put((byte) entity.getAppearance(engine));
+			buffer.putDouble(entity.getX());
+			buffer.putDouble(entity.getY());
+			buffer.putDouble(entity.getVelocityX());
+			buffer.putDouble(entity.getVelocityY());
+			buffer.putDouble(entity.getRotation());
+		}
+		return buffer.position();
+	}
+	
+	/**
+	 * Prints the number of bytes each client would be sent per state, both
+	 * naively and encoded, at each size.
+	 * @param args Unused.
+	 */
+	public static void main(String[] args) {
+		StateEncodingBenchmark benchmark = new StateEncodingBenchmark();
+		System.out.printf("%8s %14s %14s %10s%n", "Size", "Naive bytes", "Delta bytes", "Ratio");
+		for(int size : SIZES) {
+			benchmark.size = size;
+			benchmark.setUp();
+			int naiveBytes = benchmark.writeNaive();
+			int deltaBytes = benchmark.writeDelta();
+			System.out.printf("%8d %14d %14d %9.1fx%n", size, naiveBytes, deltaBytes, (double) naiveBytes / deltaBytes);
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package org.psnbtech.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.psnbtech.GameEngine;
+import org.psnbtech.Input;
+
+/**
+ * <p>Measures a single step of the {@code GameEngine}, with a number of large
+ * asteroids in the world.</p>
+ *
+ * <p>The game changes as it is stepped, so each iteration starts from a
+ * freshly set up world, and every one of them is measured from the same
+ * state.</p>
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 4, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+public class TickBenchmark {
+	
+	/**
+	 * The seed used for every run, so each one starts from the same world.
+	 */
+	private static final long SEED = 42L;
+	
+	/**
+	 * The number of steps it takes for the level to start, once the asteroids
+	 * have been added.
+	 */
+	private static final int LEVEL_START_STEPS = 61;
+	
+	/**
+	 * The number of asteroids in the world.
+	 */
+	@Param({"10", "100", "1000", "10000"})
+	public int size;
+	
+	/**
+	 * The engine being measured.
+	 */
+	private GameEngine engine;
+	
+	/**
+	 * The input passed to the engine, which is left empty.
+	 */
+	private Input input;
+	
+	/**
+	 * Creates the world and waits for the level to start.
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() {
+		this.engine = new GameEngine(new Random(SEED));
+		this.input = new Input();
+		
+		/*
+		 * The first step starts the first level, which clears the world. Once
+		 * that has happened we can add our own asteroids, and wait for the level
+		 * to start so that the world is actually being updated.
+		 */
+		engine.step(input);
+		for(int i = 0; i < size; i++) {
+			engine.registerEntity(engine.getStore().acquireAsteroid(engine.getRandom()));
+		}
+		for(int i = 0; i < LEVEL_START_STEPS; i++) {
+			engine.step(input);
+		}
+	}
+	
+	/**
+	 * Steps the engine once.
+	 * @param blackhole The Blackhole the number of entities is passed to.
+	 */
+	@Benchmark
+	public void step(Blackhole blackhole) {
+		engine.step(input);
+		blackhole.consume(engine.getEntities().size());
+	}
+
+}
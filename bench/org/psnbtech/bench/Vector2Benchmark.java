@@ -0,0 +1,92 @@
+package org.psnbtech.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.psnbtech.util.Torus;
+import org.psnbtech.util.Vector2;
+
+/**
+ * Measures the {@code Vector2} operations used when updating the player,
+ * applied to an array of vectors.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 4, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+public class Vector2Benchmark {
+	
+	/**
+	 * The size of the world that distances are wrapped to.
+	 */
+	private static final double WORLD_SIZE = 550.0;
+	
+	/**
+	 * The Torus of the world.
+	 */
+	private static final Torus TORUS = new Torus(WORLD_SIZE);
+	
+	/**
+	 * The number of vectors.
+	 */
+	@Param({"10", "100", "1000", "10000"})
+	public int size;
+	
+	/**
+	 * The vectors being updated.
+	 */
+	private Vector2[] vectors;
+	
+	/**
+	 * The vector used for thrust.
+	 */
+	private Vector2 thrust;
+	
+	/**
+	 * Scatters the vectors across the world.
+	 */
+	@Setup
+	public void setUp() {
+		Random random = new Random(size);
+		this.vectors = new Vector2[size];
+		for(int i = 0; i < size; i++) {
+			vectors[i] = new Vector2(random.nextDouble() * WORLD_SIZE, random.nextDouble() * WORLD_SIZE);
+		}
+		this.thrust = new Vector2(0.0, 0.0);
+	}
+	
+	/**
+	 * Thrusts and wraps each vector, and measures the distance to the one
+	 * before it.
+	 * @param blackhole The Blackhole the total distance is passed to.
+	 */
+	@Benchmark
+	public void update(Blackhole blackhole) {
+		double total = 0.0;
+		Vector2 previous = vectors[vectors.length - 1];
+		for(int i = 0; i < vectors.length; i++) {
+			Vector2 vector = vectors[i];
+			vector.addScaled(thrust.setFromAngle(i), 0.0385).wrap(TORUS);
+			total += TORUS.getDistanceSquared(vector, previous);
+			previous = vector;
+		}
+		blackhole.consume(total);
+	}
+
+}
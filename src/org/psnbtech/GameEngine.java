@@ -0,0 +1,1243 @@
+package org.psnbtech;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.psnbtech.collision.BroadPhase;
+import org.psnbtech.collision.CollisionPairs;
+import org.psnbtech.collision.SpatialHashBroadPhase;
+import org.psnbtech.entity.AsteroidSize;
+import org.psnbtech.entity.Bullet;
+import org.psnbtech.entity.Entity;
+import org.psnbtech.entity.EntityKind;
+import org.psnbtech.entity.EntityStore;
+import org.psnbtech.entity.Player;
+import org.psnbtech.jfr.GameEvents;
+import org.psnbtech.jfr.TickEvent;
+import org.psnbtech.metrics.GameMetrics;
+import org.psnbtech.metrics.Phase;
+import org.psnbtech.render.FrameExchange;
+import org.psnbtech.render.WorldFrame;
+import org.psnbtech.util.GameRandom;
+import org.psnbtech.util.ParallelLoop;
+
+/**
+ * <p>The {@code GameEngine} class holds the state of a game, and is
+ * responsible for updating it.</p>
+ * 
+ * <p>The engine has no dependencies on Swing or AWT, so it can be run
+ * without a display. The {@code Game} window is just one way of driving it,
+ * by calling {@code step} once per frame with the keyboard's input.</p>
+ * 
+ * <p>The engine is also a {@code WorldView}, which is the read-only side of
+ * it that a {@code Controller} is allowed to look at.</p>
+ * 
+ * <p>Large worlds can be stepped on several threads by giving the engine a
+ * pool with {@code setPool}. Only the work that doesn't depend on the order
+ * it's done in is handed to the pool, so a game comes out exactly the same
+ * no matter how many threads it was stepped on.</p>
+ * @author Brendan Jones
+ *
+ */
+public class GameEngine implements WorldView {
+	
+	/**
+	 * The number of frames that the "current level" message appears for.
+	 */
+	private static final int DISPLAY_LEVEL_LIMIT = 60;
+	
+	/**
+	 * The value that {@code deathCooldown} will be set to upon player death.
+	 */
+	private static final int DEATH_COOLDOWN_LIMIT = 200;
+	
+	/**
+	 * The value for {@code deathCooldown} that the Player respawns.
+	 */
+	private static final int RESPAWN_COOLDOWN_LIMIT = 100;
+	
+	/**
+	 * The value for {@code deathCooldown} that the player becomes vulnerable,
+	 * and regains the ability to fire.
+	 */
+	private static final int INVULN_COOLDOWN_LIMIT = 0;
+	
+	/**
+	 * The value that {@code resetCooldown} is set to when the player loses.
+	 */
+	private static final int RESET_COOLDOWN_LIMIT = 120;
+	
+	/**
+	 * The number of lives each player starts with.
+	 */
+	private static final int STARTING_LIVES = 3;
+	
+	/**
+	 * The number of asteroids added at the start of the first level by
+	 * default. Each level after that adds one more.
+	 */
+	public static final int DEFAULT_WAVE_SIZE = 3;
+	
+	/**
+	 * The angle between the spawn points of players that join one after
+	 * another, which is the golden angle so that the spawn points never line
+	 * up no matter how many players join.
+	 */
+	private static final double SPAWN_ANGLE = Math.PI * (3.0 - Math.sqrt(5.0));
+	
+	/**
+	 * The kinds of Entity, indexed by their ordinal.
+	 */
+	private static final EntityKind[] ENTITY_KINDS = EntityKind.values();
+	
+	/**
+	 * An input with nothing held down, which is never changed.
+	 */
+	private static final Input NO_INPUT = new Input();
+	
+	/**
+	 * The smallest number of Entities in the world that are updated on the
+	 * pool, as splitting up fewer isn't worth handing them to other threads.
+	 */
+	private static final int PARALLEL_THRESHOLD = 8192;
+		
+	/**
+	 * The Random instance for spawning entities.
+	 */
+	private Random random;
+	
+	/**
+	 * The EntityStore that holds the state of every Entity.
+	 */
+	private EntityStore store;
+	
+	/**
+	 * The list of Entity objects that exist in the game world.
+	 */
+	private List<Entity> entities;
+	
+	/**
+	 * The list of Entity objects that need to be added to the game world.
+	 */
+	private List<Entity> pendingEntities;
+	
+	/**
+	 * The BroadPhase used to find Entities that might be colliding.
+	 */
+	private BroadPhase broadPhase;
+	
+	/**
+	 * The buffer that the BroadPhase writes colliding pairs into.
+	 */
+	private CollisionPairs collisionPairs;
+	
+	/**
+	 * The loop that updates the Entities other than the Players.
+	 */
+	private UpdateLoop updateLoop;
+		
+	/**
+	 * The Player instance that is controlled by {@code step}, and whose score
+	 * and lives are shown on the HUD.
+	 */
+	private Player player;
+	
+	/**
+	 * <p>Every Player in the game, including the one controlled by
+	 * {@code step} unless it has been removed.</p>
+	 * 
+	 * <p>Each Player has its own death cooldown timer, which spreads its death
+	 * out over time so that it does not instantly spawn. Upon death, the timer
+	 * is set to {@code DEATH_COOLDOWN_LIMIT}, and is decremented each frame.</p>
+	 * 
+	 * <p>Once the value reaches {@code RESPAWN_COOLDOWN_LIMIT}, the player's ship
+	 * will be reset and the player will regain the ability to move.</p>
+	 * 
+	 * <p>Once the value reaches {@code INVULN_COOLDOWN_LIMIT}, the Player's ship
+	 * will be vulnerable to collisions and the Player will regain the ability to
+	 * shoot.</p>
+	 */
+	private List<Player> players;
+	
+	/**
+	 * <p>The show level cooldown timer is responsible for displaying the current
+	 * level briefly after the previous level has been completed.</p>
+	 */
+	private int showLevelCooldown;
+	
+	/**
+	 * <p>The reset cooldown prevents the game from instantly restarting if the
+	 * player is pressing any keys upon death, as key events are continuously
+	 * fired until the player lets go of the key.</p>
+	 * 
+	 * <p>This timer adds a short delay that must expire before the game can
+	 * be reset, giving the player time to react.</p>
+	 */
+	private int restartCooldown;
+	
+	/**
+	 * The current level the player is on.
+	 */
+	private int level;
+	
+	/**
+	 * The number of asteroids added at the start of the first level.
+	 */
+	private int waveSize;
+	
+	/**
+	 * Whether or not the game is over.
+	 */
+	private boolean isGameOver;
+	
+	/**
+	 * Whether or not the player has pressed anything to restart the game.
+	 */
+	private boolean restartGame;
+	
+	/**
+	 * Whether or not the game is paused.
+	 */
+	private boolean isPaused;
+	
+	/**
+	 * Whether or not players that run out of lives start over, rather than
+	 * the game ending.
+	 */
+	private boolean isEndless;
+	
+	/**
+	 * Whether the Player controlled by {@code step} has been removed. Removed
+	 * Players go back into the pool, so it may since have been handed out
+	 * again by {@code addPlayer}, and can't simply be looked for in the list
+	 * of players.
+	 */
+	private boolean isPlayerRemoved;
+	
+	/**
+	 * The number of players that have been added with {@code addPlayer}.
+	 */
+	private int addedPlayers;
+	
+	/**
+	 * The number of times {@code step} has been called.
+	 */
+	private long tick;
+	
+	/**
+	 * The FrameExchange that a copy of the world is published to after each
+	 * step, or null if nothing is drawing the game.
+	 */
+	private FrameExchange frames;
+	
+	/**
+	 * The GameMetrics that each step is measured with, or null if the game
+	 * isn't being measured.
+	 */
+	private GameMetrics metrics;
+	
+	/**
+	 * The number of pairs of entities tested for collisions during the current
+	 * step.
+	 */
+	private int pairsTested;
+	
+	/**
+	 * The number of pairs of entities found to collide during the current
+	 * step.
+	 */
+	private int pairsHit;
+	
+	/**
+	 * Creates a new GameEngine with a random seed.
+	 */
+	public GameEngine() {
+		this(new Random().nextLong());
+	}
+	
+	/**
+	 * <p>Creates a new GameEngine from a seed.</p>
+	 * 
+	 * <p>The seed is the only source of randomness in the game, so two engines
+	 * created with the same seed and given the same input each step will
+	 * always be in the same state.</p>
+	 * @param seed The seed for spawning entities.
+	 */
+	public GameEngine(long seed) {
+		this(new GameRandom(seed));
+	}
+	
+	/**
+	 * Creates a new GameEngine. The state of the engine can only be written
+	 * with {@code writeState} if the Random instance is a {@code GameRandom}.
+	 * @param random The Random instance for spawning entities.
+	 */
+	public GameEngine(Random random) {
+		this(random, WorldPanel.WORLD_SIZE);
+	}
+	
+	/**
+	 * <p>Creates a new GameEngine with a world of any size.</p>
+	 * 
+	 * <p>Together with {@code setWaveSize}, this allows for far larger games
+	 * than fit in the window, such as a world tens of thousands of units
+	 * across with a hundred thousand asteroids in it. Nothing about the game
+	 * itself changes, other than asteroids spawning further from the center
+	 * of a larger world.</p>
+	 * @param random The Random instance for spawning entities.
+	 * @param worldSize The size of the world.
+	 */
+	public GameEngine(Random random, double worldSize) {
+		//Initialize the engine's variables.
+		this.random = random;
+		this.store = new EntityStore(worldSize);
+		this.entities = new ArrayList<>();
+		this.pendingEntities = new ArrayList<>();
+		this.broadPhase = new SpatialHashBroadPhase(worldSize, AsteroidSize.Large.radius);
+		this.collisionPairs = new CollisionPairs();
+		this.updateLoop = new UpdateLoop(null);
+		this.waveSize = DEFAULT_WAVE_SIZE;
+		this.player = store.acquirePlayer();
+		this.players = new ArrayList<>();
+		players.add(player);
+		
+		//Set the variables to their default values.
+		resetGame();
+	}
+	
+	/**
+	 * Check the user input to see if it should be used to restart the game.
+	 * @return Whether or not the input restarted the game.
+	 */
+	private boolean checkForRestart() {
+		boolean restart = (isGameOver && restartCooldown <= 0);
+		if(restart) {
+			restartGame = true;
+		}
+		return restart;
+	}
+	
+	/**
+	 * <p>Advances the game by a single update, using the current state of the
+	 * player's input.</p>
+	 * 
+	 * <p>The {@code pause} and {@code restart} flags of the input are treated
+	 * as requests rather than held states, and are cleared once they have been
+	 * handled.</p>
+	 * @param input The player's input.
+	 */
+	public void step(Input input) {
+		long start = (metrics != null) ? System.nanoTime() : 0L;
+		this.pairsTested = 0;
+		this.pairsHit = 0;
+		
+		/*
+		 * The flight recorder event is only created while it is being
+		 * recorded, so that stepping the game normally doesn't allocate.
+		 */
+		TickEvent event = null;
+		if(GameEvents.isTickRecording()) {
+			event = new TickEvent();
+			event.tick = tick;
+			event.begin();
+		}
+		
+		/*
+		 * Any input will restart the game if the conditions are met, and if it
+		 * does, the input won't be used for anything else.
+		 */
+		boolean restarted = false;
+		if(input.restart) {
+			input.restart = false;
+			restarted = checkForRestart();
+		}
+		
+		//Toggle whether or not the game is paused.
+		if(input.pause) {
+			input.pause = false;
+			if(!restarted) {
+				this.isPaused = !isPaused;
+			}
+		}
+		
+		/*
+		 * If the input restarted the game, the player's controls are released
+		 * instead, so that whatever was held down to restart the game doesn't
+		 * carry on into the first update of the new one.
+		 */
+		if(!isPlayerRemoved) {
+			setPlayerInput(player, restarted ? NO_INPUT : input);
+		}
+		
+		//Only update the game if we're not paused.
+		if(!isPaused) {
+			updateGame();
+		}
+		this.tick++;
+		
+		//Hand a copy of the world over to whatever is drawing it.
+		if(frames != null) {
+			publishFrame();
+		}
+		
+		if(metrics != null) {
+			metrics.record(Phase.Tick, System.nanoTime() - start);
+			metrics.recordTick(entities.size(), pairsTested, pairsHit);
+		}
+		if(event != null) {
+			event.entityCount = entities.size();
+			event.pairsTested = pairsTested;
+			event.pairsHit = pairsHit;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * <p>Sets the input for one of the players. The input is used by every
+	 * following step, until it is set again.</p>
+	 * 
+	 * <p>Because the player is updated every cycle, rather than when it
+	 * receives input, we only copy the current input state over to the player
+	 * here. The actual change in the player's entity's state will be handled
+	 * when the game updates. The {@code pause} and {@code restart} requests
+	 * are ignored, as only the input passed to {@code step} can make them.</p>
+	 * @param player The Player.
+	 * @param input The player's input.
+	 */
+	public void setPlayerInput(Player player, Input input) {
+		player.setThrusting(input.thrust);
+		player.setRotateLeft(input.rotateLeft);
+		player.setRotateRight(input.rotateRight);
+		player.setFiring(input.fire);
+	}
+	
+	/**
+	 * Sets the FrameExchange that a copy of the world should be published to
+	 * after each step. The current state of the world is published straight
+	 * away.
+	 * @param frames The FrameExchange, or null to stop publishing.
+	 */
+	public void setFrameExchange(FrameExchange frames) {
+		this.frames = frames;
+		if(frames != null) {
+			publishFrame();
+		}
+	}
+	
+	/**
+	 * Sets the GameMetrics that each step should be measured with.
+	 * @param metrics The GameMetrics, or null to stop measuring.
+	 */
+	public void setMetrics(GameMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * <p>Sets the pool that the world is integrated, updated, and searched
+	 * for collisions on. Worlds with fewer than a few thousand Entities are
+	 * stepped on the calling thread regardless.</p>
+	 * 
+	 * <p>Anything that changes the rest of the world, such as firing a
+	 * bullet, splitting an asteroid, or killing a player, is still done on the
+	 * calling thread, in the same order as it would be without a pool. The
+	 * pool isn't shut down by the engine, so it can be shared between
+	 * engines.</p>
+	 * @param pool The pool, or null to step the game on the calling thread.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		store.setPool(pool);
+		broadPhase.setPool(pool);
+		this.updateLoop = new UpdateLoop(pool);
+	}
+	
+	/**
+	 * Records how long a phase of the current step took, if the game is being
+	 * measured.
+	 * @param phase The phase that has just finished.
+	 * @param start The time the phase started, as returned by the last call
+	 * to this method.
+	 * @return The time the next phase starts, or 0 if the game isn't being
+	 * measured.
+	 */
+	private long endPhase(Phase phase, long start) {
+		if(metrics == null) {
+			return 0L;
+		}
+		long now = System.nanoTime();
+		metrics.record(phase, now - start);
+		return now;
+	}
+	
+	/**
+	 * Copies the state of the world into the back frame of the FrameExchange,
+	 * and publishes it.
+	 */
+	private void publishFrame() {
+		WorldFrame frame = frames.getBackFrame();
+		frame.clear();
+		for(int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			
+			/*
+			 * We should only draw a player if it is not dead, so we need to
+			 * ensure that the entity can be rendered.
+			 */
+			if(entity.getKind() != EntityKind.Player || canDrawPlayer((Player) entity)) {
+				frame.add(entity, entity.getAppearance(this));
+			}
+		}
+		frame.setHud(player.getScore(), player.getLives(), level, isGameOver, isPaused, isShowingLevel());
+		frames.publish();
+	}
+	
+	/**
+	 * Update the game entities and states.
+	 */
+	private void updateGame() {
+		/*
+		 * Here we add any pending entities to the world.
+		 * 
+		 * Two lists are required because we will frequently add entities to the
+		 * world while we are iterating over them, which causes all sorts of
+		 * errors.
+		 * 
+		 * Throughout the update we use indexed loops rather than iterators or
+		 * addAll, as they would create garbage every frame.
+		 */
+		for(int i = 0; i < pendingEntities.size(); i++) {
+			entities.add(pendingEntities.get(i));
+		}
+		pendingEntities.clear();
+		store.activate();
+		
+		/*
+		 * Decrement the restart cooldown.
+		 */
+		if(restartCooldown > 0) {
+			this.restartCooldown--;
+		}
+		
+		/*
+		 * Decrement the show level cooldown.
+		 */
+		if(showLevelCooldown > 0) {
+			this.showLevelCooldown--;
+		}
+		
+		/*
+		 * Restart the game if needed.
+		 */
+		if(isGameOver && restartGame) {
+			resetGame();
+		}
+		
+		/*
+		 * If the game is currently in progress, and there are no enemies left alive,
+		 * we prepare the next level.
+		 */
+		if(!isGameOver && areEnemiesDead()) {
+			//Increment the current level, and set the show level cooldown.
+			this.level++;
+			this.showLevelCooldown = DISPLAY_LEVEL_LIMIT;
+			
+			//Reset the entity lists (to remove bullets).
+			resetEntityLists();
+			
+			//Reset each player's entity to it's default state, and re-enable firing.
+			for(int i = 0; i < players.size(); i++) {
+				players.get(i).reset();
+				players.get(i).setFiringEnabled(true);
+			}
+			
+			//Add the asteroids to the world.
+			for(int i = 0; i < waveSize + level - 1; i++) {
+				registerEntity(store.acquireAsteroid(random));
+			}
+		}
+		
+		/*
+		 * If any of the players have recently died, decrement their cooldowns.
+		 */
+		for(int i = 0; i < players.size(); i++) {
+			updateDeathCooldown(players.get(i));
+		}
+		
+		/*
+		 * Only run any of the update code if we're not currently displaying the
+		 * level to the player.
+		 */
+		if(showLevelCooldown == 0) {
+			long time = (metrics != null) ? System.nanoTime() : 0L;
+			
+			//Move every Entity in the world by it's velocity.
+			store.integrate();
+			time = endPhase(Phase.Integrate, time);
+			
+			/*
+			 * Iterate through the Entities and update their states.
+			 * 
+			 * The Players fire bullets, which are taken from the store and added
+			 * to the world, so they are updated one at a time, in the same order
+			 * as the list. Every other Entity only changes itself, so they can be
+			 * updated on the pool. A Player's bullets always come after it in the
+			 * list, so updating the Players first leaves them seeing their bullets
+			 * just as they would have in a single pass over the list.
+			 */
+			for(int i = 0; i < players.size(); i++) {
+				players.get(i).update(this);
+			}
+			updateLoop.run(entities.size(), entities.size() >= PARALLEL_THRESHOLD);
+			time = endPhase(Phase.Update, time);
+			
+			/*
+			 * Handle any collisions that take place.
+			 * 
+			 * Rather than checking every Entity against every other Entity, we
+			 * let the BroadPhase find the pairs that are close enough to possibly
+			 * collide, and measure only those. It reports the pairs that really
+			 * are colliding, along with how many candidates it measured.
+			 * 
+			 * The pairs are sorted in the same order as a nested loop over the
+			 * entity list, where the inner loop only visits Entities later in the
+			 * list than the outer Entity. This ensures that the same collision
+			 * isn't handled multiple times, which allows us to make changes to an
+			 * entity without it interfering with other collision results.
+			 * 
+			 * The BroadPhase may search for pairs on the pool, but the pairs are
+			 * always handled here, in order, as handling them adds Entities, draws
+			 * from the Random instance, and changes the Players.
+			 */
+			broadPhase.findPairs(entities, collisionPairs);
+			for(int i = 0; i < collisionPairs.size(); i++) {
+				Entity a = entities.get(collisionPairs.getFirst(i));
+				Entity b = entities.get(collisionPairs.getSecond(i));
+				if(isVulnerable(a) && isVulnerable(b)) {
+					a.handleCollision(this, b);
+					b.handleCollision(this, a);
+					this.pairsHit++;
+				}
+			}
+			this.pairsTested = broadPhase.getCandidateCount();
+			time = endPhase(Phase.Collide, time);
+			
+			/*
+			 * Loop through and remove "dead" entities, returning them to the
+			 * pool. Each player lets go of its removed bullets first, so that a
+			 * bullet can't be in one player's list after being handed to another.
+			 */
+			for(int i = 0; i < players.size(); i++) {
+				players.get(i).removeFlaggedBullets();
+			}
+			removeFlagged(entities);
+			endPhase(Phase.Cull, time);
+		}
+	}
+	
+	/**
+	 * Decrements a player's death cooldown if they have recently died, and
+	 * handles any special cases when they occur.
+	 * @param player The Player.
+	 */
+	private void updateDeathCooldown(Player player) {
+		int deathCooldown = player.getDeathCooldown();
+		if(deathCooldown > 0) {
+			deathCooldown--;
+			player.setDeathCooldown(deathCooldown);
+			switch(deathCooldown) {
+			
+			//Reset the entity to it's default spawn state, and disable firing.
+			case RESPAWN_COOLDOWN_LIMIT:
+				player.reset();
+				player.setFiringEnabled(false);
+				break;
+			
+			//Re-enable the ability to fire, as we're no longer invulnerable.
+			case INVULN_COOLDOWN_LIMIT:
+				player.setFiringEnabled(true);
+				break;
+			
+			}
+		}
+	}
+	
+	/**
+	 * Determines whether an Entity can currently be collided with. Players
+	 * can't be collided with until they are no longer invulnerable.
+	 * @param entity The Entity.
+	 * @return Whether the Entity can be collided with.
+	 */
+	private static boolean isVulnerable(Entity entity) {
+		return (entity.getKind() != EntityKind.Player || ((Player) entity).getDeathCooldown() <= INVULN_COOLDOWN_LIMIT);
+	}
+	
+	/**
+	 * Set the game's variables to their default values.
+	 */
+	private void resetGame() {
+		this.level = 0;
+		for(int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			player.setScore(0);
+			player.setLives(STARTING_LIVES);
+			player.setDeathCooldown(0);
+		}
+		this.isGameOver = false;
+		this.restartGame = false;
+		resetEntityLists();
+	}
+	
+	/**
+	 * Removes all entities, with the exception of the players, from the world.
+	 */
+	private void resetEntityLists() {
+		pendingEntities.clear();
+		entities.clear();
+		for(int i = 0; i < players.size(); i++) {
+			entities.add(players.get(i));
+		}
+		store.clear(EntityKind.Asteroid);
+		store.clear(EntityKind.Bullet);
+	}
+	
+	/**
+	 * Determines whether or not any asteroids still exist in the world. Every
+	 * asteroid in the world has a slot in the store, so they don't need to be
+	 * looked for.
+	 * @return Whether or not all of the enemies are dead.
+	 */
+	private boolean areEnemiesDead() {
+		return (store.size(EntityKind.Asteroid) == 0);
+	}
+	
+	/**
+	 * Updates the game state to reflect a player death.
+	 * @param player The Player that died.
+	 */
+	public void killPlayer(Player player) {
+		//Decrement the number of lives that they still have.
+		int lives = player.getLives() - 1;
+		player.setLives(lives);
+	
+		/*
+		 * If the player controlled by step has no lives remaining, prepare the
+		 * game over state variables, otherwise prepare the death cooldown. Any
+		 * other player that runs out of lives, or any player at all in an
+		 * endless game, starts over instead, as one person losing shouldn't
+		 * end the game for everyone else.
+		 * 
+		 * Note that death cooldown is set to Integer.MAX_VALUE in the event of a
+		 * game over. While finite, the amount of time it would take for it to
+		 * reach zero is far longer than anyone would care to run the program
+		 * for.
+		 */
+		if(lives == 0 && player == this.player && !isPlayerRemoved && !isEndless) {
+			this.isGameOver = true;
+			this.restartCooldown = RESET_COOLDOWN_LIMIT;
+			player.setDeathCooldown(Integer.MAX_VALUE);
+		} else {
+			if(lives == 0) {
+				player.setScore(0);
+				player.setLives(STARTING_LIVES);
+			}
+			player.setDeathCooldown(DEATH_COOLDOWN_LIMIT);
+		}
+		
+		//Disable the ability to fire.
+		player.setFiringEnabled(false);
+	}
+	
+	/**
+	 * Add to a player's score.
+	 * @param player The Player that earned the points.
+	 * @param score The number of points to add.
+	 */
+	public void addScore(Player player, int score) {
+		player.setScore(player.getScore() + score);
+	}
+	
+	/**
+	 * <p>Adds a new Player to the game, which is controlled by calling
+	 * {@code setPlayerInput}.</p>
+	 * 
+	 * <p>The new ship appears as if it had just respawned, so it is
+	 * invulnerable for a short while. Each player is given their own spawn
+	 * point on a circle around the center of the world, so that the ships
+	 * aren't all piled on top of each other.</p>
+	 * @return The Player.
+	 */
+	public Player addPlayer() {
+		double angle = (addedPlayers++) * SPAWN_ANGLE;
+		double distance = store.getWorldSize() / 4.0;
+		Player player = store.acquirePlayer();
+		player.setSpawnPoint(store.getWorldSize() / 2.0 + Math.cos(angle) * distance, store.getWorldSize() / 2.0 + Math.sin(angle) * distance);
+		player.reset();
+		player.setLives(STARTING_LIVES);
+		player.setDeathCooldown(RESPAWN_COOLDOWN_LIMIT);
+		player.setFiringEnabled(false);
+		players.add(player);
+		entities.add(player);
+		store.activate();
+		return player;
+	}
+	
+	/**
+	 * <p>Removes a Player from the game, along with any of their bullets that
+	 * are still in the world, and returns the Player to the pool.</p>
+	 * 
+	 * <p>This can also remove the Player controlled by {@code step}, which is
+	 * useful when every player is added with {@code addPlayer}. The input
+	 * passed to {@code step} is then only used to pause and restart the game,
+	 * and the HUD shows the score and lives that the Player had.</p>
+	 * 
+	 * <p>This must not be called while the game is being stepped.</p>
+	 * @param player The Player.
+	 */
+	public void removePlayer(Player player) {
+		if(!players.remove(player)) {
+			return;
+		}
+		if(player == this.player) {
+			this.isPlayerRemoved = true;
+		}
+		List<Bullet> bullets = player.getBullets();
+		for(int i = 0; i < bullets.size(); i++) {
+			bullets.get(i).flagForRemoval();
+		}
+		player.flagForRemoval();
+		removeFlagged(entities);
+		removeFlagged(pendingEntities);
+		bullets.clear();
+	}
+	
+	/**
+	 * Removes the Entities that have been flagged for removal from a list,
+	 * returning them to the pool. The remaining Entities are shifted down in
+	 * place, so their order is preserved.
+	 * @param list The list of Entities.
+	 */
+	private void removeFlagged(List<Entity> list) {
+		int alive = 0;
+		for(int i = 0; i < list.size(); i++) {
+			Entity entity = list.get(i);
+			if(entity.needsRemoval()) {
+				store.remove(entity);
+			} else {
+				//Only write the Entities that have moved, as most of them won't have.
+				if(alive != i) {
+					list.set(alive, entity);
+				}
+				alive++;
+			}
+		}
+		for(int i = list.size() - 1; i >= alive; i--) {
+			list.remove(i);
+		}
+	}
+	
+	/**
+	 * Sets whether players that run out of lives start over, rather than the
+	 * game ending. This is meant for games with more than one player, so that
+	 * the game carries on for as long as anyone is playing.
+	 * @param endless Whether the game is endless.
+	 */
+	public void setEndless(boolean endless) {
+		this.isEndless = endless;
+	}
+	
+	/**
+	 * <p>Sets the number of asteroids added at the start of the first level,
+	 * which is {@code DEFAULT_WAVE_SIZE} unless changed. Each level after that
+	 * adds one more. This takes effect from the next level.</p>
+	 * 
+	 * <p>Room is made in the store for the whole wave up front, so that the
+	 * start of a large level doesn't stall while the store grows.</p>
+	 * @param waveSize The number of asteroids.
+	 */
+	public void setWaveSize(int waveSize) {
+		this.waveSize = waveSize;
+		store.reserve(EntityKind.Asteroid, waveSize);
+	}
+	
+	/**
+	 * Gets the number of asteroids added at the start of the first level.
+	 * @return The number of asteroids.
+	 */
+	public int getWaveSize() {
+		return waveSize;
+	}
+	
+	/**
+	 * Adds a new entity to the game world.
+	 * @param entity The entity to add.
+	 */
+	public void registerEntity(Entity entity) {
+		pendingEntities.add(entity);
+	}
+	
+	/**
+	 * <p>Writes the complete state of the game to a buffer, so that it can be
+	 * restored later with {@code readState}.</p>
+	 * 
+	 * <p>This includes the state of the Random instance, so a restored game
+	 * will carry on exactly as this one would have. Only games with a single
+	 * player, controlled by {@code step}, can be written.</p>
+	 * @param out The buffer to write to.
+	 * @throws IllegalStateException If the Random instance is not a
+	 * {@code GameRandom}, or the game has players other than the one
+	 * controlled by {@code step}.
+	 * @throws java.nio.BufferOverflowException If the buffer is too small.
+	 */
+	public void writeState(ByteBuffer out) {
+		if(!(random instanceof GameRandom)) {
+			throw new IllegalStateException("The state of the Random instance can't be saved.");
+		}
+		if(isPlayerRemoved || players.size() != 1 || players.get(0) != player) {
+			throw new IllegalStateException("Only the state of a single player game can be saved.");
+		}
+		out.putLong(tick);
+		out.putLong(((GameRandom) random).getState());
+		out.putInt(player.getScore());
+		out.putInt(player.getLives());
+		out.putInt(level);
+		out.putInt(player.getDeathCooldown());
+		out.putInt(showLevelCooldown);
+		out.putInt(restartCooldown);
+		out.put((byte) ((isGameOver ? 1 : 0) | (restartGame ? 2 : 0) | (isPaused ? 4 : 0)));
+		writeEntities(out, entities);
+		writeEntities(out, pendingEntities);
+		
+		/*
+		 * The player's bullets are written as their index in the entity lists.
+		 * Bullets that have already been removed from the world are skipped,
+		 * as the player would take them out of the list before using it anyway.
+		 */
+		List<Bullet> bullets = player.getBullets();
+		int countPosition = out.position();
+		int count = 0;
+		out.put((byte) 0);
+		for(int i = 0; i < bullets.size(); i++) {
+			int index = indexOfEntity(bullets.get(i));
+			if(index >= 0) {
+				out.putInt(index);
+				count++;
+			}
+		}
+		out.put(countPosition, (byte) count);
+	}
+	
+	/**
+	 * Restores the state of the game from a buffer written by
+	 * {@code writeState}.
+	 * @param in The buffer to read from.
+	 * @throws IllegalStateException If the Random instance is not a
+	 * {@code GameRandom}, or the game has players other than the one
+	 * controlled by {@code step}.
+	 */
+	public void readState(ByteBuffer in) {
+		if(!(random instanceof GameRandom)) {
+			throw new IllegalStateException("The state of the Random instance can't be restored.");
+		}
+		if(isPlayerRemoved || players.size() != 1 || players.get(0) != player) {
+			throw new IllegalStateException("Only the state of a single player game can be restored.");
+		}
+		this.tick = in.getLong();
+		((GameRandom) random).setState(in.getLong());
+		player.setScore(in.getInt());
+		player.setLives(in.getInt());
+		this.level = in.getInt();
+		player.setDeathCooldown(in.getInt());
+		this.showLevelCooldown = in.getInt();
+		this.restartCooldown = in.getInt();
+		int flags = in.get();
+		this.isGameOver = (flags & 1) != 0;
+		this.restartGame = (flags & 2) != 0;
+		this.isPaused = (flags & 4) != 0;
+		
+		//Return every Entity to the pool, and take them back out as they are read.
+		entities.clear();
+		pendingEntities.clear();
+		store.clear(EntityKind.Asteroid);
+		store.clear(EntityKind.Bullet);
+		readEntities(in, entities);
+		readEntities(in, pendingEntities);
+		
+		List<Bullet> bullets = player.getBullets();
+		bullets.clear();
+		int count = in.get();
+		for(int i = 0; i < count; i++) {
+			int index = in.getInt();
+			Bullet bullet = (Bullet) ((index < entities.size()) ? entities.get(index) : pendingEntities.get(index - entities.size()));
+			bullet.setOwner(player);
+			bullets.add(bullet);
+		}
+	}
+	
+	/**
+	 * Writes a list of Entities to a buffer.
+	 * @param out The buffer to write to.
+	 * @param list The list of Entities.
+	 */
+	private static void writeEntities(ByteBuffer out, List<Entity> list) {
+		out.putInt(list.size());
+		for(int i = 0; i < list.size(); i++) {
+			Entity entity = list.get(i);
+			out.put((byte) entity.getKind().ordinal());
+			entity.writeState(out);
+		}
+	}
+	
+	/**
+	 * Reads a list of Entities from a buffer, taking each one from the store.
+	 * @param in The buffer to read from.
+	 * @param list The list to add the Entities to.
+	 */
+	private void readEntities(ByteBuffer in, List<Entity> list) {
+		int count = in.getInt();
+		for(int i = 0; i < count; i++) {
+			EntityKind kind = ENTITY_KINDS[in.get()];
+			Entity entity = (kind == EntityKind.Player) ? player : store.acquire(kind);
+			entity.readState(in);
+			list.add(entity);
+		}
+	}
+	
+	/**
+	 * Finds an Entity in the world, or waiting to be added to the world.
+	 * @param entity The Entity.
+	 * @return The index of the Entity in the world, followed by the pending
+	 * Entities, or -1 if it could not be found.
+	 */
+	private int indexOfEntity(Entity entity) {
+		for(int i = 0; i < entities.size(); i++) {
+			if(entities.get(i) == entity) {
+				return i;
+			}
+		}
+		for(int i = 0; i < pendingEntities.size(); i++) {
+			if(pendingEntities.get(i) == entity) {
+				return entities.size() + i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Whether or not we are in the game over state.
+	 * @return Whether or not the game is over.
+	 */
+	@Override
+	public boolean isGameOver() {
+		return isGameOver;
+	}
+	
+	/**
+	 * Determines whether or not the player is invulnerable.
+	 * @return Whether or not the player is invulnerable.
+	 */
+	@Override
+	public boolean isPlayerInvulnerable() {
+		return isPlayerInvulnerable(player);
+	}
+	
+	/**
+	 * Determines whether or not a player is invulnerable.
+	 * @param player The Player.
+	 * @return Whether or not the player is invulnerable.
+	 */
+	public boolean isPlayerInvulnerable(Player player) {
+		return (player.getDeathCooldown() > INVULN_COOLDOWN_LIMIT);
+	}
+	
+	/**
+	 * Determines whether or not the player can be drawn.
+	 * @return Whether or not the player can be drawn.
+	 */
+	@Override
+	public boolean canDrawPlayer() {
+		return canDrawPlayer(player);
+	}
+	
+	/**
+	 * Determines whether or not a player can be drawn.
+	 * @param player The Player.
+	 * @return Whether or not the player can be drawn.
+	 */
+	public boolean canDrawPlayer(Player player) {
+		return (player.getDeathCooldown() <= RESPAWN_COOLDOWN_LIMIT);
+	}
+	
+	/**
+	 * Gets the current score.
+	 * @return The current score.
+	 */
+	@Override
+	public int getScore() {
+		return player.getScore();
+	}
+	
+	/**
+	 * Gets the number of lives remaining.
+	 * @return The number of lives remaining.
+	 */
+	@Override
+	public int getLives() {
+		return player.getLives();
+	}
+	
+	/**
+	 * Gets the current level.
+	 * @return The current level.
+	 */
+	@Override
+	public int getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Gets whether or not the game is paused.
+	 * @return Whether or not the game is paused.
+	 */
+	@Override
+	public boolean isPaused() {
+		return isPaused;
+	}
+	
+	/**
+	 * Gets whether or not the level is being shown.
+	 * @return Whether or not the level is being shown.
+	 */
+	@Override
+	public boolean isShowingLevel() {
+		return (showLevelCooldown > 0);
+	}
+
+	/**
+	 * Gets the number of times the game has been stepped, including the steps
+	 * where it was paused.
+	 * @return The current tick.
+	 */
+	@Override
+	public long getTick() {
+		return tick;
+	}
+	
+	@Override
+	public double getWorldSize() {
+		return store.getWorldSize();
+	}
+	
+	@Override
+	public int getPlayerIndex() {
+		return indexOfEntity(player);
+	}
+	
+	@Override
+	public int getEntityCount() {
+		return entities.size();
+	}
+	
+	@Override
+	public EntityKind getEntityKind(int index) {
+		return entities.get(index).getKind();
+	}
+	
+	@Override
+	public double getEntityX(int index) {
+		return entities.get(index).getX();
+	}
+	
+	@Override
+	public double getEntityY(int index) {
+		return entities.get(index).getY();
+	}
+	
+	@Override
+	public double getEntityVelocityX(int index) {
+		return entities.get(index).getVelocityX();
+	}
+	
+	@Override
+	public double getEntityVelocityY(int index) {
+		return entities.get(index).getVelocityY();
+	}
+	
+	@Override
+	public double getEntityRotation(int index) {
+		return entities.get(index).getRotation();
+	}
+	
+	@Override
+	public double getEntityRadius(int index) {
+		return entities.get(index).getCollisionRadius();
+	}
+	
+	/**
+	 * Gets the Random instance.
+	 * @return The Random instance.
+	 */
+	public Random getRandom() {
+		return random;
+	}
+	
+	/**
+	 * Gets the EntityStore that holds the state of every Entity.
+	 * @return The EntityStore.
+	 */
+	public EntityStore getStore() {
+		return store;
+	}
+	
+	/**
+	 * Gets the list of Entities in the world.
+	 * @return The Entity list.
+	 */
+	public List<Entity> getEntities() {
+		return entities;
+	}
+	
+	/**
+	 * Gets the Player instance.
+	 * @return
+	 */
+	public Player getPlayer() {
+		return player;
+	}
+	
+	/**
+	 * Gets every Player in the game.
+	 * @return The list of Players.
+	 */
+	public List<Player> getPlayers() {
+		return players;
+	}
+	
+	/**
+	 * The loop that updates a range of the Entities in the world, skipping
+	 * the Players, which are updated on their own.
+	 */
+	private class UpdateLoop extends ParallelLoop {
+		
+		/**
+		 * Creates a new UpdateLoop.
+		 * @param pool The pool, or null to update on the calling thread.
+		 */
+		private UpdateLoop(ForkJoinPool pool) {
+			super(pool);
+		}
+		
+		@Override
+		protected void runChunk(int chunk, int from, int to) {
+			for(int i = from; i < to; i++) {
+				Entity entity = entities.get(i);
+				if(entity.getKind() != EntityKind.Player) {
+					entity.update(GameEngine.this);
+				}
+			}
+		}
+	
+	}
+	
+}
@@ -0,0 +1,147 @@
+package org.psnbtech;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>A {@code GameSnapshot} holds a copy of the complete state of a
+ * {@code GameEngine}, which can be restored into it, or into another engine,
+ * at any time.</p>
+ * 
+ * <p>The state is written into a single flat buffer that is allocated up
+ * front and reused for every capture, so taking a snapshot creates no
+ * garbage and only takes a few microseconds. This makes it cheap enough to
+ * take thousands of snapshots per second, for rolling the game back, saving
+ * it, or letting a bot try out several different inputs from the same
+ * point.</p>
+ * 
+ * <p>Only engines created from a seed can be captured, as the state of a
+ * plain {@code java.util.Random} can't be read.</p>
+ * @author Brendan Jones
+ *
+ */
+public class GameSnapshot {
+	
+	/**
+	 * The number of bytes a snapshot starts out with room for, which is
+	 * enough for a few hundred entities.
+	 */
+	private static final int DEFAULT_CAPACITY = 32 * 1024;
+	
+	/**
+	 * The buffer holding the state.
+	 */
+	private ByteBuffer buffer;
+	
+	/**
+	 * The tick the snapshot was captured at, or -1 if nothing has been
+	 * captured.
+	 */
+	private long tick;
+	
+	/**
+	 * Creates a new, empty GameSnapshot.
+	 */
+	public GameSnapshot() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates a new, empty GameSnapshot.
+	 * @param capacity The number of bytes to allocate for the state. The buffer
+	 * will grow if a capture needs more room than this.
+	 */
+	public GameSnapshot(int capacity) {
+		this.buffer = ByteBuffer.allocate(capacity);
+		this.tick = -1;
+	}
+	
+	/**
+	 * Captures the state of an engine, replacing whatever was previously held.
+	 * @param engine The engine.
+	 */
+	public void capture(GameEngine engine) {
+		while(true) {
+			try {
+				buffer.clear();
+				engine.writeState(buffer);
+				break;
+			} catch(BufferOverflowException e) {
+				this.buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+		buffer.flip();
+		this.tick = engine.getTick();
+	}
+	
+	/**
+	 * Restores an engine to the state held by this snapshot. The snapshot is
+	 * left as it is, so it can be restored any number of times.
+	 * @param engine The engine.
+	 * @throws IllegalStateException If nothing has been captured.
+	 */
+	public void restore(GameEngine engine) {
+		if(tick < 0) {
+			throw new IllegalStateException("Nothing has been captured.");
+		}
+		buffer.rewind();
+		engine.readState(buffer);
+	}
+	
+	/**
+	 * Makes this snapshot a copy of another.
+	 * @param snapshot The snapshot to copy.
+	 */
+	public void set(GameSnapshot snapshot) {
+		if(buffer.capacity() < snapshot.buffer.limit()) {
+			this.buffer = ByteBuffer.allocate(snapshot.buffer.capacity());
+		}
+		buffer.clear();
+		buffer.put(snapshot.buffer.array(), 0, snapshot.buffer.limit());
+		buffer.flip();
+		this.tick = snapshot.tick;
+	}
+	
+	/**
+	 * Gets the tick the snapshot was captured at.
+	 * @return The tick, or -1 if nothing has been captured.
+	 */
+	public long getTick() {
+		return tick;
+	}
+	
+	/**
+	 * Gets the number of bytes the captured state takes.
+	 * @return The size of the state.
+	 */
+	public int getSize() {
+		return (tick < 0) ? 0 : buffer.limit();
+	}
+	
+	/**
+	 * Gets a read-only view of the captured state, for saving it somewhere.
+	 * @return The state.
+	 */
+	public ByteBuffer getState() {
+		ByteBuffer state = buffer.asReadOnlyBuffer();
+		state.rewind();
+		return state;
+	}
+	
+	/**
+	 * Replaces this snapshot with state that was previously saved from
+	 * {@code getState}.
+	 * @param state The state.
+	 * @param tick The tick the state was captured at.
+	 */
+	public void setState(ByteBuffer state, long tick) {
+		if(buffer.capacity() < state.remaining()) {
+			this.buffer = ByteBuffer.allocate(state.remaining());
+		}
+		buffer.clear();
+		buffer.put(state);
+		buffer.flip();
+		this.tick = tick;
+	}
+
+}
@@ -0,0 +1,130 @@
+package org.psnbtech;
+
+/**
+ * <p>The {@code Input} class holds the state of the player's controls, which
+ * is passed to {@code GameEngine.step} every update.</p>
+ * 
+ * <p>The movement and firing flags are held states, and should be true for
+ * as long as the matching control is held down. The {@code pause} and
+ * {@code restart} flags are requests, and are cleared by the engine once they
+ * have been handled.</p>
+ * @author Brendan Jones
+ *
+ */
+public class Input {
+	
+	/**
+	 * The flag for {@code thrust} in the value returned by {@code getFlags}.
+	 */
+	public static final int THRUST = 1;
+	
+	/**
+	 * The flag for {@code rotateLeft} in the value returned by {@code getFlags}.
+	 */
+	public static final int ROTATE_LEFT = 2;
+	
+	/**
+	 * The flag for {@code rotateRight} in the value returned by {@code getFlags}.
+	 */
+	public static final int ROTATE_RIGHT = 4;
+	
+	/**
+	 * The flag for {@code fire} in the value returned by {@code getFlags}.
+	 */
+	public static final int FIRE = 8;
+	
+	/**
+	 * The flag for {@code pause} in the value returned by {@code getFlags}.
+	 */
+	public static final int PAUSE = 16;
+	
+	/**
+	 * The flag for {@code restart} in the value returned by {@code getFlags}.
+	 */
+	public static final int RESTART = 32;
+	
+	/**
+	 * Whether the ship should apply thrust.
+	 */
+	public boolean thrust;
+	
+	/**
+	 * Whether the ship should rotate to the left.
+	 */
+	public boolean rotateLeft;
+	
+	/**
+	 * Whether the ship should rotate to the right.
+	 */
+	public boolean rotateRight;
+	
+	/**
+	 * Whether the ship should fire bullets.
+	 */
+	public boolean fire;
+	
+	/**
+	 * Whether the game should be paused or unpaused.
+	 */
+	public boolean pause;
+	
+	/**
+	 * Whether the game should be restarted, if it is over.
+	 */
+	public boolean restart;
+	
+	/**
+	 * Releases all of the controls, and clears any requests.
+	 */
+	public void clear() {
+		this.thrust = false;
+		this.rotateLeft = false;
+		this.rotateRight = false;
+		this.fire = false;
+		this.pause = false;
+		this.restart = false;
+	}
+	
+	/**
+	 * Copies the state of another Input into this one.
+	 * @param input The Input to copy.
+	 */
+	public void set(Input input) {
+		this.thrust = input.thrust;
+		this.rotateLeft = input.rotateLeft;
+		this.rotateRight = input.rotateRight;
+		this.fire = input.fire;
+		this.pause = input.pause;
+		this.restart = input.restart;
+	}
+	
+	/**
+	 * Gets the state of this Input packed into a single value, as a
+	 * combination of the {@code THRUST}, {@code ROTATE_LEFT},
+	 * {@code ROTATE_RIGHT}, {@code FIRE}, {@code PAUSE}, and {@code RESTART}
+	 * flags.
+	 * @return The flags.
+	 */
+	public int getFlags() {
+		return (thrust ? THRUST : 0)
+				| (rotateLeft ? ROTATE_LEFT : 0)
+				| (rotateRight ? ROTATE_RIGHT : 0)
+				| (fire ? FIRE : 0)
+				| (pause ? PAUSE : 0)
+				| (restart ? RESTART : 0);
+	}
+	
+	/**
+	 * Sets the state of this Input from a value returned by {@code getFlags}.
+	 * @param flags The flags.
+	 */
+	public void setFlags(int flags) {
+		this.thrust = (flags & THRUST) != 0;
+		this.rotateLeft = (flags & ROTATE_LEFT) != 0;
+		this.rotateRight = (flags & ROTATE_RIGHT) != 0;
+		this.fire = (flags & FIRE) != 0;
+		this.pause = (flags & PAUSE) != 0;
+		this.restart = (flags & RESTART) != 0;
+	}
+
+}
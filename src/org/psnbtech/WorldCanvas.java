@@ -0,0 +1,187 @@
+package org.psnbtech;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+
+import org.psnbtech.jfr.FrameEvent;
+import org.psnbtech.jfr.GameEvents;
+import org.psnbtech.metrics.GameMetrics;
+import org.psnbtech.metrics.Phase;
+import org.psnbtech.render.FrameExchange;
+import org.psnbtech.render.FrameRenderer;
+import org.psnbtech.render.FrameStats;
+import org.psnbtech.render.MetricsOverlay;
+import org.psnbtech.render.WorldFrame;
+
+/**
+ * <p>The {@code WorldCanvas} is an alternative to the {@code WorldPanel} that
+ * uses active rendering.</p>
+ * 
+ * <p>Rather than asking Swing to repaint the window at some point in the
+ * future, the render loop calls {@code render} directly, which draws the latest
+ * {@code WorldFrame} into the back buffer of a {@code BufferStrategy} and
+ * presents it straight away. Page flipping is used where the platform
+ * supports it. The time each frame is presented is recorded, so the actual
+ * frame rate can be reported.</p>
+ * @author Brendan Jones
+ *
+ */
+public class WorldCanvas extends Canvas {
+	
+	/**
+	 * Serial Version Unique Identifier.
+	 */
+	private static final long serialVersionUID = 4391765310254418733L;
+	
+	/**
+	 * The number of buffers to use, including the one on screen.
+	 */
+	private static final int NUMBER_OF_BUFFERS = 2;
+	
+	/**
+	 * The FrameExchange that the game publishes its frames to.
+	 */
+	private final FrameExchange frames;
+	
+	/**
+	 * The FrameRenderer that draws the frames.
+	 */
+	private final FrameRenderer renderer;
+	
+	/**
+	 * The statistics for the frames that have been presented.
+	 */
+	private final FrameStats stats;
+	
+	/**
+	 * The number of nanoseconds between each update of the game.
+	 */
+	private final double nanosPerUpdate;
+	
+	/**
+	 * The GameMetrics that the time taken to draw each frame is recorded to,
+	 * or null if drawing isn't being measured.
+	 */
+	private GameMetrics metrics;
+	
+	/**
+	 * The MetricsOverlay drawn over each frame, or null if it isn't shown.
+	 */
+	private MetricsOverlay overlay;
+	
+	/**
+	 * The BufferStrategy, which is created the first time a frame is rendered.
+	 */
+	private BufferStrategy strategy;
+	
+	/**
+	 * Creates a new WorldCanvas instance.
+	 * @param frames The FrameExchange that the game publishes its frames to.
+	 * @param updatesPerSecond The number of times per second the game is updated.
+	 */
+	public WorldCanvas(FrameExchange frames, int updatesPerSecond) {
+		this.frames = frames;
+		this.renderer = new FrameRenderer(WorldPanel.WORLD_SIZE);
+		this.stats = new FrameStats();
+		this.nanosPerUpdate = 1000000000.0 / updatesPerSecond;
+		
+		/*
+		 * We do all of the drawing ourselves, so any paint requests from the
+		 * system are ignored. The canvas also shouldn't steal focus from the
+		 * window, as that is where the keyboard input is handled.
+		 */
+		setIgnoreRepaint(true);
+		setFocusable(false);
+		setPreferredSize(new Dimension(WorldPanel.WORLD_SIZE, WorldPanel.WORLD_SIZE));
+		setBackground(Color.BLACK);
+	}
+	
+	/**
+	 * Draws the latest frame and presents it on the screen. This should only
+	 * be called from a single thread.
+	 */
+	public void render() {
+		//We can't create the buffers until the canvas is on screen.
+		if(strategy == null) {
+			if(!isDisplayable()) {
+				return;
+			}
+			createBufferStrategy(NUMBER_OF_BUFFERS);
+			this.strategy = getBufferStrategy();
+		}
+		
+		/*
+		 * Grab the newest frame, and work out how far we are through the update
+		 * after it from the time it was published.
+		 */
+		WorldFrame frame = frames.getLatestFrame();
+		double alpha = (System.nanoTime() - frame.getTimestamp()) / nanosPerUpdate;
+		alpha = Math.max(0.0, Math.min(1.0, alpha));
+		
+		/*
+		 * The contents of the buffers can be lost at any time (for example when
+		 * the display mode changes), in which case the frame needs to be drawn
+		 * again.
+		 */
+		FrameEvent event = null;
+		if(GameEvents.isFrameRecording()) {
+			event = new FrameEvent();
+			event.begin();
+		}
+		long start = System.nanoTime();
+		do {
+			do {
+				Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+				try {
+					g2d.setColor(Color.BLACK);
+					g2d.fillRect(0, 0, getWidth(), getHeight());
+					renderer.render(g2d, frame, alpha);
+					if(overlay != null) {
+						overlay.draw(g2d, getHeight());
+					}
+				} finally {
+					g2d.dispose();
+				}
+			} while(strategy.contentsRestored());
+			strategy.show();
+		} while(strategy.contentsLost());
+		if(metrics != null) {
+			metrics.record(Phase.Render, System.nanoTime() - start);
+		}
+		if(event != null) {
+			event.sequence = frame.getSequence();
+			event.entityCount = frame.getCount();
+			event.alpha = alpha;
+			event.commit();
+		}
+		
+		//Make sure the frame is actually on screen before recording when it was presented.
+		Toolkit.getDefaultToolkit().sync();
+		stats.framePresented(System.nanoTime());
+	}
+	
+	/**
+	 * Sets the GameMetrics that the time taken to draw each frame is recorded
+	 * to. This should be called before rendering starts.
+	 * @param metrics The GameMetrics, or null to stop measuring.
+	 * @param showOverlay Whether to draw a summary of the metrics over the
+	 * game.
+	 */
+	public void setMetrics(GameMetrics metrics, boolean showOverlay) {
+		this.metrics = metrics;
+		this.overlay = (metrics != null && showOverlay) ? new MetricsOverlay(metrics) : null;
+	}
+	
+	/**
+	 * Gets the statistics for the frames that have been presented.
+	 * @return The FrameStats.
+	 */
+	public FrameStats getFrameStats() {
+		return stats;
+	}
+
+}
@@ -2,57 +2,84 @@ package org.psnbtech;
 
 import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.geom.AffineTransform;
-import java.util.Iterator;
 
 import javax.swing.JPanel;
 
-import org.psnbtech.entity.Entity;
-import org.psnbtech.util.Vector2;
+import org.psnbtech.jfr.FrameEvent;
+import org.psnbtech.jfr.GameEvents;
+import org.psnbtech.metrics.GameMetrics;
+import org.psnbtech.metrics.Phase;
+import org.psnbtech.render.FrameExchange;
+import org.psnbtech.render.FrameRenderer;
+import org.psnbtech.render.FrameStats;
+import org.psnbtech.render.MetricsOverlay;
+import org.psnbtech.render.WorldFrame;
 
 /**
- * The {@code WorldPanel} is responsible for displaying the game to the user.
+ * <p>The {@code WorldPanel} is responsible for displaying the game to the user.</p>
+ * 
+ * <p>The panel only ever draws the latest {@code WorldFrame} published by the
+ * game, so painting never has to wait for an update to finish, and an update
+ * never has to wait for painting to finish.</p>
  * @author Brendan Jones
  *
  */
 public class WorldPanel extends JPanel {
-
+	
 	/**
 	 * Serial Version Unique Identifier.
 	 */
 	private static final long serialVersionUID = -5107151667799471396L;
-
+	
 	/**
 	 * The size of the world in pixels.
 	 */
 	public static final int WORLD_SIZE = 550;
 	
 	/**
-	 * The font used for the large text.
+	 * The FrameExchange that the game publishes its frames to.
 	 */
-	private static final Font TITLE_FONT = new Font("Dialog", Font.PLAIN, 25);
+	private final FrameExchange frames;
 	
 	/**
-	 * The font used for the medium text.
+	 * The FrameRenderer that draws the frames.
 	 */
-	private static final Font SUBTITLE_FONT = new Font("Dialog", Font.PLAIN, 15);
-
+	private final FrameRenderer renderer;
+	
+	/**
+	 * The statistics for the frames that have been painted.
+	 */
+	private final FrameStats stats;
+	
+	/**
+	 * The number of nanoseconds between each update of the game.
+	 */
+	private final double nanosPerUpdate;
+	
+	/**
+	 * The GameMetrics that the time taken to draw each frame is recorded to,
+	 * or null if drawing isn't being measured.
+	 */
+	private GameMetrics metrics;
+	
 	/**
-	 * The Game instance.
+	 * The MetricsOverlay drawn over each frame, or null if it isn't shown.
 	 */
-	private Game game;
+	private MetricsOverlay overlay;
 	
 	/**
 	 * Creates a new WorldPanel instance.
-	 * @param game The Game instance.
+	 * @param frames The FrameExchange that the game publishes its frames to.
+	 * @param updatesPerSecond The number of times per second the game is updated.
 	 */
-	public WorldPanel(Game game) {
-		this.game = game;
-
+	public WorldPanel(FrameExchange frames, int updatesPerSecond) {
+		this.frames = frames;
+		this.renderer = new FrameRenderer(WORLD_SIZE);
+		this.stats = new FrameStats();
+		this.nanosPerUpdate = 1000000000.0 / updatesPerSecond;
+		
 		//Set the window's size and background color.
 		setPreferredSize(new Dimension(WORLD_SIZE, WORLD_SIZE));
 		setBackground(Color.BLACK);
@@ -63,115 +90,62 @@ public class WorldPanel extends JPanel {
 		super.paintComponent(g); //Required, otherwise rendering gets messy.
 		
 		/*
-		 * Cast our Graphics object to a Graphics2D object to make use of the extra capabilities
-		 * such as anti-aliasing, and transformations.
+		 * Grab the newest frame, and work out how far we are through the update
+		 * after it from the time it was published, so that entities can be drawn
+		 * part way between their previous and current states.
 		 */
-		Graphics2D g2d = (Graphics2D) g;
-		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-		
-		g2d.setColor(Color.WHITE); //Set the draw color to white.
-		
-		//Grab a reference to the current "identity" transformation, so we can reset for each object.
-		AffineTransform identity = g2d.getTransform();
+		WorldFrame frame = frames.getLatestFrame();
+		double alpha = (System.nanoTime() - frame.getTimestamp()) / nanosPerUpdate;
+		alpha = Math.max(0.0, Math.min(1.0, alpha));
 		
 		/*
-		 * Loop through each entity and draw it onto the window.
+		 * Cast our Graphics object to a Graphics2D object to make use of the extra capabilities
+		 * such as anti-aliasing, and transformations.
 		 */
-		Iterator<Entity> iter = game.getEntities().iterator();
-		while(iter.hasNext()) {
-			Entity entity = iter.next();
-			/*
-			 * We should only draw the player if it is not dead, so we need to
-			 * ensure that the entity can be rendered.
-			 */
-			if(entity != game.getPlayer() || game.canDrawPlayer()) {
-				Vector2 pos = entity.getPosition(); //Get the position of the entity.
-				
-				//Draw the entity at it's actual position, and reset the transformation.
-				drawEntity(g2d, entity, pos.x, pos.y);
-				g2d.setTransform(identity);
-
-				/*
-				 * Here we need to determine whether or not the entity is close enough
-				 * to the edge of the window to wrap around to the other side.
-				 * 
-				 * The conditional statements might look confusing, but they're
-				 * equivalent to:
-				 * 
-				 * double x = pos.x;
-				 * if(pos.x < radius) {
-				 *     x = pos.x + WORLD_SIZE;
-				 * } else if(pos.x > WORLD_SIZE - radius) {
-				 *     x = pos.x - WORLD_SIZE;
-				 * }
-				 * 
-				 */
-				double radius = entity.getCollisionRadius();
-				double x = (pos.x < radius) ? pos.x + WORLD_SIZE
-						: (pos.x > WORLD_SIZE - radius) ? pos.x - WORLD_SIZE : pos.x;
-				double y = (pos.y < radius) ? pos.y + WORLD_SIZE
-						: (pos.y > WORLD_SIZE - radius) ? pos.y - WORLD_SIZE : pos.y;
-				
-				//Draw the entity at it's wrapped position, and reset the transformation.
-				if(x != pos.x || y != pos.y) {
-					drawEntity(g2d, entity, x, y);
-					g2d.setTransform(identity);
-				}
-			}	
+		FrameEvent event = null;
+		if(GameEvents.isFrameRecording()) {
+			event = new FrameEvent();
+			event.begin();
 		}
-		
-		//Draw the score string in the top left corner if we are still playing.
-		if(!game.isGameOver()) {
-			g.drawString("Score: " + game.getScore(), 10, 15);
+		long start = System.nanoTime();
+		Graphics2D g2d = (Graphics2D) g;
+		renderer.render(g2d, frame, alpha);
+		if(overlay != null) {
+			overlay.draw(g2d, getHeight());
 		}
-		
-		//Draw some overlay text depending on the game state.
-		if(game.isGameOver()) {
-			drawTextCentered("Game Over", TITLE_FONT, g2d, -25);
-			drawTextCentered("Final Score: " + game.getScore(), SUBTITLE_FONT, g2d, 10);
-		} else if(game.isPaused()) {
-			drawTextCentered("Paused", TITLE_FONT, g2d, -25);
-		} else if(game.isShowingLevel()) {
-			drawTextCentered("Level: " + game.getLevel(), TITLE_FONT, g2d, -25);
+		long end = System.nanoTime();
+		if(metrics != null) {
+			metrics.record(Phase.Render, end - start);
 		}
-		
-		//Draw a ship for each life the player has remaining.
-		g2d.translate(15, 30);
-		g2d.scale(0.85, 0.85);
-		for(int i = 0; i < game.getLives(); i++) {
-			g2d.drawLine(-8, 10, 0, -10);
-			g2d.drawLine(8, 10, 0, -10);
-			g2d.drawLine(-6, 6, 6, 6);
-			g2d.translate(30, 0);
+		if(event != null) {
+			event.sequence = frame.getSequence();
+			event.entityCount = frame.getCount();
+			event.alpha = alpha;
+			event.commit();
 		}
+		stats.framePresented(end);
 	}
 	
 	/**
-	 * Draws text onto the center of the window.
-	 * @param text The text to draw.
-	 * @param font The font to draw in.
-	 * @param g The graphics object to draw to.
-	 * @param y The y offset.
+	 * Sets the GameMetrics that the time taken to paint each frame is recorded
+	 * to. This should be called before the panel is shown.
+	 * @param metrics The GameMetrics, or null to stop measuring.
+	 * @param showOverlay Whether to draw a summary of the metrics over the
+	 * game.
 	 */
-	private void drawTextCentered(String text, Font font, Graphics2D g, int y) {
-		g.setFont(font);
-		g.drawString(text, WORLD_SIZE / 2 - g.getFontMetrics().stringWidth(text) / 2, WORLD_SIZE / 2 + y);
+	public void setMetrics(GameMetrics metrics, boolean showOverlay) {
+		this.metrics = metrics;
+		this.overlay = (metrics != null && showOverlay) ? new MetricsOverlay(metrics) : null;
 	}
 	
 	/**
-	 * Draws an entity onto the window.
-	 * @param g2d The graphics object to draw to.
-	 * @param entity The entity to draw.
-	 * @param x The x coordinate to draw the entity at.
-	 * @param y The y coordinate to draw the entity at.
+	 * Gets the statistics for the frames that have been painted. Swing combines
+	 * repaint requests that arrive before the last one was handled, so this can
+	 * be lower than the rate that {@code repaint} is called at.
+	 * @return The FrameStats.
 	 */
-	private void drawEntity(Graphics2D g2d, Entity entity, double x, double y) {
-		g2d.translate(x, y);
-		double rotation = entity.getRotation();
-		if(rotation != 0.0f) {
-			g2d.rotate(entity.getRotation());
-		}
-		entity.draw(g2d, game);
+	public FrameStats getFrameStats() {
+		return stats;
 	}
 
 }
@@ -0,0 +1,141 @@
+package org.psnbtech;
+
+import org.psnbtech.entity.EntityKind;
+
+/**
+ * <p>A {@code WorldView} is a read-only view of a game, which is what a
+ * {@code Controller} is given to decide what the player should do.</p>
+ * 
+ * <p>The entities in the world are accessed by index rather than by handing
+ * out the entities themselves, so a controller can look at everything in the
+ * world without being able to change it, and without anything being
+ * allocated. The indices are only valid until the game is next stepped.</p>
+ * @author Brendan Jones
+ *
+ */
+public interface WorldView {
+	
+	/**
+	 * Gets the number of times the game has been stepped.
+	 * @return The current tick.
+	 */
+	public long getTick();
+	
+	/**
+	 * Gets the current score.
+	 * @return The current score.
+	 */
+	public int getScore();
+	
+	/**
+	 * Gets the number of lives remaining.
+	 * @return The number of lives remaining.
+	 */
+	public int getLives();
+	
+	/**
+	 * Gets the current level.
+	 * @return The current level.
+	 */
+	public int getLevel();
+	
+	/**
+	 * Whether or not we are in the game over state.
+	 * @return Whether or not the game is over.
+	 */
+	public boolean isGameOver();
+	
+	/**
+	 * Gets whether or not the game is paused.
+	 * @return Whether or not the game is paused.
+	 */
+	public boolean isPaused();
+	
+	/**
+	 * Gets whether or not the level is being shown.
+	 * @return Whether or not the level is being shown.
+	 */
+	public boolean isShowingLevel();
+	
+	/**
+	 * Determines whether or not the player is invulnerable.
+	 * @return Whether or not the player is invulnerable.
+	 */
+	public boolean isPlayerInvulnerable();
+	
+	/**
+	 * Determines whether or not the player can be drawn, which is false while
+	 * the player is waiting to respawn.
+	 * @return Whether or not the player can be drawn.
+	 */
+	public boolean canDrawPlayer();
+	
+	/**
+	 * Gets the width and height of the world, which wraps around at its
+	 * edges.
+	 * @return The size of the world.
+	 */
+	public double getWorldSize();
+	
+	/**
+	 * Gets the index of the player within the entities.
+	 * @return The index of the player.
+	 */
+	public int getPlayerIndex();
+	
+	/**
+	 * Gets the number of entities in the world, including the player.
+	 * @return The number of entities.
+	 */
+	public int getEntityCount();
+	
+	/**
+	 * Gets the kind of an entity.
+	 * @param index The index of the entity.
+	 * @return The kind.
+	 */
+	public EntityKind getEntityKind(int index);
+	
+	/**
+	 * Gets the x coordinate of an entity.
+	 * @param index The index of the entity.
+	 * @return The x coordinate.
+	 */
+	public double getEntityX(int index);
+	
+	/**
+	 * Gets the y coordinate of an entity.
+	 * @param index The index of the entity.
+	 * @return The y coordinate.
+	 */
+	public double getEntityY(int index);
+	
+	/**
+	 * Gets the x velocity of an entity.
+	 * @param index The index of the entity.
+	 * @return The x velocity.
+	 */
+	public double getEntityVelocityX(int index);
+	
+	/**
+	 * Gets the y velocity of an entity.
+	 * @param index The index of the entity.
+	 * @return The y velocity.
+	 */
+	public double getEntityVelocityY(int index);
+	
+	/**
+	 * Gets the rotation of an entity.
+	 * @param index The index of the entity.
+	 * @return The rotation.
+	 */
+	public double getEntityRotation(int index);
+	
+	/**
+	 * Gets the collision radius of an entity.
+	 * @param index The index of the entity.
+	 * @return The collision radius.
+	 */
+	public double getEntityRadius(int index);
+
+}
@@ -0,0 +1,211 @@
+package org.psnbtech.batch;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.psnbtech.GameEngine;
+import org.psnbtech.Input;
+import org.psnbtech.control.Controller;
+import org.psnbtech.control.ControllerFactory;
+import org.psnbtech.control.RandomController;
+
+/**
+ * <p>The {@code BatchRunner} plays a large number of games without a window,
+ * spread across every core.</p>
+ * 
+ * <p>Each game has its own seed, engine, and controller, so the games share
+ * nothing and can run completely independently. The games are handed out by
+ * a {@code ForkJoinPool}, which splits the batch in half until each task is a
+ * single game. Threads that finish their games early steal work from the
+ * others, so a few long games don't leave the rest of the cores idle.</p>
+ * 
+ * <p>As every game is deterministic, a batch always produces the same
+ * results for the same seed, regardless of how many threads it is run on.</p>
+ * @author Brendan Jones
+ *
+ */
+public class BatchRunner {
+	
+	/**
+	 * The default number of ticks a game can last before it is stopped, which
+	 * is one hour of play.
+	 */
+	public static final long DEFAULT_MAX_TICKS = 60L * 60L * 60L;
+	
+	/**
+	 * The factory that creates the controller for each game.
+	 */
+	private final ControllerFactory controllers;
+	
+	/**
+	 * The number of ticks a game can last before it is stopped.
+	 */
+	private final long maxTicks;
+	
+	/**
+	 * Creates a new BatchRunner.
+	 * @param controllers The factory that creates the controller for each game.
+	 * @param maxTicks The number of ticks a game can last before it is stopped.
+	 */
+	public BatchRunner(ControllerFactory controllers, long maxTicks) {
+		this.controllers = controllers;
+		this.maxTicks = maxTicks;
+	}
+	
+	/**
+	 * Plays a batch of games.
+	 * @param games The number of games to play.
+	 * @param seed The seed of the first game. Each game after it uses the next
+	 * seed.
+	 * @param threads The number of threads to play the games on.
+	 * @return The statistics for the batch.
+	 */
+	public BatchStatistics run(int games, long seed, int threads) {
+		GameResult[] results = new GameResult[games];
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			long start = System.nanoTime();
+			pool.invoke(new BatchTask(results, seed, 0, games));
+			return new BatchStatistics(results, System.nanoTime() - start, threads);
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Plays a single game until the player runs out of lives, or the tick
+	 * limit is reached.
+	 * @param seed The seed of the game.
+	 * @return The result.
+	 */
+	public GameResult play(long seed) {
+		GameEngine engine = new GameEngine(seed);
+		Controller controller = controllers.create(seed);
+		Input input = new Input();
+		int level = 0;
+		while(!engine.isGameOver() && engine.getTick() < maxTicks) {
+			controller.poll(engine, input);
+			engine.step(input);
+			level = Math.max(level, engine.getLevel());
+		}
+		return new GameResult(seed, engine.getScore(), level, engine.getTick(), engine.isGameOver());
+	}
+	
+	/**
+	 * The task that plays a range of games, splitting itself in half until
+	 * there is only one game left.
+	 */
+	private class BatchTask extends RecursiveAction {
+		
+		/**
+		 * The Serial Version Unique Identifier.
+		 */
+		private static final long serialVersionUID = -2749066542376120135L;
+		
+		/**
+		 * The array each game's result is written into, at the game's index.
+		 */
+		private final GameResult[] results;
+		
+		/**
+		 * The seed of the first game in the batch.
+		 */
+		private final long seed;
+		
+		/**
+		 * The index of the first game in this task.
+		 */
+		private final int from;
+		
+		/**
+		 * The index after the last game in this task.
+		 */
+		private final int to;
+		
+		/**
+		 * Creates a new BatchTask.
+		 * @param results The array each game's result is written into.
+		 * @param seed The seed of the first game in the batch.
+		 * @param from The index of the first game in this task.
+		 * @param to The index after the last game in this task.
+		 */
+		private BatchTask(GameResult[] results, long seed, int from, int to) {
+			this.results = results;
+			this.seed = seed;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from == 1) {
+				results[from] = play(seed + from);
+			} else if(to > from) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BatchTask(results, seed, from, middle), new BatchTask(results, seed, middle, to));
+			}
+		}
+	
+	}
+	
+	/**
+	 * <p>Plays a batch of games with the {@code RandomController}, and prints
+	 * the statistics.</p>
+	 * 
+	 * <p>The following arguments are accepted:</p>
+	 * <ul>
+	 * <li>{@code -games <count>} sets the number of games. Defaults to 1000.</li>
+	 * <li>{@code -seed <seed>} sets the seed of the first game. Defaults to 0.</li>
+	 * <li>{@code -threads <count>} sets the number of threads. Defaults to the
+	 * number of cores.</li>
+	 * <li>{@code -maxTicks <count>} sets the tick limit for each game.</li>
+	 * <li>{@code -scaling} plays the batch on 1, 2, 4, and so on threads up
+	 * to the thread count, to show how the throughput scales.</li>
+	 * </ul>
+	 * @param args The command line arguments.
+	 */
+	public static void main(String[] args) {
+		int games = 1000;
+		long seed = 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long maxTicks = DEFAULT_MAX_TICKS;
+		boolean scaling = false;
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "-games":
+				games = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-seed":
+				seed = Long.parseLong(args[++i]);
+				break;
+			
+			case "-threads":
+				threads = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-maxTicks":
+				maxTicks = Long.parseLong(args[++i]);
+				break;
+			
+			case "-scaling":
+				scaling = true;
+				break;
+			
+			default:
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+		
+		BatchRunner runner = new BatchRunner(RandomController.factory(), maxTicks);
+		if(scaling) {
+			//Warm up first, so the single threaded run isn't penalized for compiling everything.
+			runner.run(Math.max(1, games / 10), seed, threads);
+			for(int count = 1; count < threads; count *= 2) {
+				System.out.println(runner.run(games, seed, count));
+			}
+		}
+		System.out.println(runner.run(games, seed, threads));
+	}
+
+}
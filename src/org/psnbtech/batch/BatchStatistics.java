@@ -0,0 +1,180 @@
+package org.psnbtech.batch;
+
+import java.util.Arrays;
+
+/**
+ * The {@code BatchStatistics} class summarizes the results of a batch of
+ * games, along with how quickly they were played.
+ * @author Brendan Jones
+ *
+ */
+public class BatchStatistics {
+	
+	/**
+	 * The final scores, sorted.
+	 */
+	private final double[] scores;
+	
+	/**
+	 * The highest levels reached, sorted.
+	 */
+	private final double[] levels;
+	
+	/**
+	 * The number of ticks each game lasted, sorted.
+	 */
+	private final double[] ticks;
+	
+	/**
+	 * The number of games where the player ran out of lives.
+	 */
+	private final int gamesOver;
+	
+	/**
+	 * The number of nanoseconds the batch took to play.
+	 */
+	private final long elapsed;
+	
+	/**
+	 * The number of threads the batch was played on.
+	 */
+	private final int threads;
+	
+	/**
+	 * Creates new BatchStatistics.
+	 * @param results The results of the games.
+	 * @param elapsed The number of nanoseconds the batch took to play.
+	 * @param threads The number of threads the batch was played on.
+	 */
+	public BatchStatistics(GameResult[] results, long elapsed, int threads) {
+		this.scores = new double[results.length];
+		this.levels = new double[results.length];
+		this.ticks = new double[results.length];
+		int gamesOver = 0;
+		for(int i = 0; i < results.length; i++) {
+			scores[i] = results[i].getScore();
+			levels[i] = results[i].getLevel();
+			ticks[i] = results[i].getTicks();
+			if(results[i].isGameOver()) {
+				gamesOver++;
+			}
+		}
+		Arrays.sort(scores);
+		Arrays.sort(levels);
+		Arrays.sort(ticks);
+		this.gamesOver = gamesOver;
+		this.elapsed = elapsed;
+		this.threads = threads;
+	}
+	
+	/**
+	 * Gets the number of games in the batch.
+	 * @return The number of games.
+	 */
+	public int getGames() {
+		return scores.length;
+	}
+	
+	/**
+	 * Gets the number of games that were played per second.
+	 * @return The number of games per second.
+	 */
+	public double getGamesPerSecond() {
+		return scores.length * 1000000000.0 / elapsed;
+	}
+	
+	/**
+	 * Gets the number of ticks that were simulated per second, across every
+	 * thread.
+	 * @return The number of ticks per second.
+	 */
+	public double getTicksPerSecond() {
+		double total = 0.0;
+		for(int i = 0; i < ticks.length; i++) {
+			total += ticks[i];
+		}
+		return total * 1000000000.0 / elapsed;
+	}
+	
+	/**
+	 * Gets the mean final score.
+	 * @return The mean score.
+	 */
+	public double getMeanScore() {
+		return mean(scores);
+	}
+	
+	/**
+	 * Gets the mean level reached.
+	 * @return The mean level.
+	 */
+	public double getMeanLevel() {
+		return mean(levels);
+	}
+	
+	/**
+	 * Gets the mean number of ticks each game lasted.
+	 * @return The mean number of ticks.
+	 */
+	public double getMeanTicks() {
+		return mean(ticks);
+	}
+	
+	/**
+	 * Creates a summary of the statistics, for printing.
+	 * @return The summary.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%d games on %d threads in %.3f s: %.1f games/s, %.0f ticks/s%n",
+				scores.length, threads, elapsed / 1000000000.0, getGamesPerSecond(), getTicksPerSecond()));
+		builder.append(String.format("%d games ended with the player out of lives%n", gamesOver));
+		builder.append(String.format("%-8s %10s %10s %10s %10s %10s%n", "", "Mean", "Min", "Median", "P90", "Max"));
+		appendRow(builder, "Score", scores);
+		appendRow(builder, "Level", levels);
+		appendRow(builder, "Ticks", ticks);
+		return builder.toString();
+	}
+	
+	/**
+	 * Appends a row of the summary table.
+	 * @param builder The builder to append to.
+	 * @param name The name of the row.
+	 * @param values The sorted values.
+	 */
+	private static void appendRow(StringBuilder builder, String name, double[] values) {
+		builder.append(String.format("%-8s %10.1f %10.0f %10.0f %10.0f %10.0f%n", name,
+				mean(values), percentile(values, 0.0), percentile(values, 0.5), percentile(values, 0.9), percentile(values, 1.0)));
+	}
+	
+	/**
+	 * Calculates the mean of some values.
+	 * @param values The values.
+	 * @return The mean, or 0 if there are no values.
+	 */
+	private static double mean(double[] values) {
+		if(values.length == 0) {
+			return 0.0;
+		}
+		double total = 0.0;
+		for(int i = 0; i < values.length; i++) {
+			total += values[i];
+		}
+		return total / values.length;
+	}
+	
+	/**
+	 * Gets a percentile of some sorted values, using the nearest rank.
+	 * @param values The sorted values.
+	 * @param fraction The percentile, from 0.0 to 1.0.
+	 * @return The value, or 0 if there are no values.
+	 */
+	private static double percentile(double[] values, double fraction) {
+		if(values.length == 0) {
+			return 0.0;
+		}
+		return values[(int) Math.round(fraction * (values.length - 1))];
+	}
+
+}
@@ -0,0 +1,94 @@
+package org.psnbtech.batch;
+
+/**
+ * The {@code GameResult} class holds the outcome of a single game played by
+ * the {@code BatchRunner}.
+ * @author Brendan Jones
+ *
+ */
+public class GameResult {
+	
+	/**
+	 * The seed the game was played with.
+	 */
+	private final long seed;
+	
+	/**
+	 * The final score.
+	 */
+	private final int score;
+	
+	/**
+	 * The highest level reached.
+	 */
+	private final int level;
+	
+	/**
+	 * The number of ticks the game lasted.
+	 */
+	private final long ticks;
+	
+	/**
+	 * Whether the game ended because the player ran out of lives, rather than
+	 * by reaching the tick limit.
+	 */
+	private final boolean isGameOver;
+	
+	/**
+	 * Creates a new GameResult.
+	 * @param seed The seed the game was played with.
+	 * @param score The final score.
+	 * @param level The highest level reached.
+	 * @param ticks The number of ticks the game lasted.
+	 * @param isGameOver Whether the player ran out of lives.
+	 */
+	public GameResult(long seed, int score, int level, long ticks, boolean isGameOver) {
+		this.seed = seed;
+		this.score = score;
+		this.level = level;
+		this.ticks = ticks;
+		this.isGameOver = isGameOver;
+	}
+	
+	/**
+	 * Gets the seed the game was played with.
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Gets the final score.
+	 * @return The score.
+	 */
+	public int getScore() {
+		return score;
+	}
+	
+	/**
+	 * Gets the highest level reached.
+	 * @return The level.
+	 */
+	public int getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Gets the number of ticks the game lasted.
+	 * @return The number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	
+	/**
+	 * Gets whether the player ran out of lives, rather than the game reaching
+	 * the tick limit.
+	 * @return Whether the game is over.
+	 */
+	public boolean isGameOver() {
+		return isGameOver;
+	}
+
+}
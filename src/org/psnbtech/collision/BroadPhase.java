@@ -0,0 +1,47 @@
+package org.psnbtech.collision;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.psnbtech.entity.Entity;
+
+/**
+ * A {@code BroadPhase} quickly narrows down the list of Entities into pairs
+ * that might be colliding, and measures each of those candidates in the same
+ * way as {@code Entity.checkCollision} to find the pairs that actually
+ * collide.
+ * @author Brendan Jones
+ *
+ */
+public interface BroadPhase {
+	
+	/**
+	 * Finds every pair of Entities that is colliding. Implementations must
+	 * report exactly the pairs that {@code Entity.checkCollision} says are
+	 * colliding, except that they may leave out any pair that
+	 * {@code EntityKind.interactsWith} says would have no effect.
+	 *
+	 * The buffer is cleared before any pairs are added. Each pair is stored as
+	 * two indices into {@code entities}, with the first index being less than
+	 * the second, and the pairs are sorted into ascending order.
+	 * @param entities The Entities to check.
+	 * @param pairs The buffer to write the candidate pairs into.
+	 */
+	public void findPairs(List<? extends Entity> entities, CollisionPairs pairs);
+	
+	/**
+	 * Gets the number of candidate pairs that were measured by the last call
+	 * to {@code findPairs}, which is usually far more than the number that
+	 * were colliding.
+	 * @return The number of candidate pairs.
+	 */
+	public int getCandidateCount();
+	
+	/**
+	 * Sets the pool that pairs are found on. The pairs found must be exactly
+	 * the same as without a pool, and in the same order.
+	 * @param pool The pool, or null to find pairs on the calling thread.
+	 */
+	public void setPool(ForkJoinPool pool);
+
+}
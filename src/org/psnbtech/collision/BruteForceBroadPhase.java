@@ -0,0 +1,58 @@
+package org.psnbtech.collision;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.psnbtech.entity.Entity;
+import org.psnbtech.entity.EntityKind;
+
+/**
+ * The {@code BruteForceBroadPhase} checks every possible pair of Entities
+ * whose kinds interact with {@code Entity.checkCollision}. It's far too slow
+ * for busy worlds, but is handy as a reference to compare other
+ * implementations against.
+ * @author Brendan Jones
+ *
+ */
+public class BruteForceBroadPhase implements BroadPhase {
+	
+	/**
+	 * The number of candidate pairs checked by the last call to
+	 * {@code findPairs}.
+	 */
+	private int candidateCount;
+	
+	@Override
+	public void findPairs(List<? extends Entity> entities, CollisionPairs pairs) {
+		pairs.clear();
+		this.candidateCount = 0;
+		int count = entities.size();
+		for(int i = 0; i < count; i++) {
+			Entity entity = entities.get(i);
+			EntityKind kind = entity.getKind();
+			for(int j = i + 1; j < count; j++) {
+				Entity other = entities.get(j);
+				if(kind.interactsWith(other.getKind())) {
+					this.candidateCount++;
+					if(entity.checkCollision(other)) {
+						pairs.add(i, j);
+					}
+				}
+			}
+		}
+	}
+	
+	@Override
+	public int getCandidateCount() {
+		return candidateCount;
+	}
+	
+	/**
+	 * Does nothing, as the brute force search is only meant as a reference,
+	 * and always runs on the calling thread.
+	 */
+	@Override
+	public void setPool(ForkJoinPool pool) {
+	}
+
+}
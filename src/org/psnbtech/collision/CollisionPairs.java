@@ -0,0 +1,163 @@
+package org.psnbtech.collision;
+
+import java.util.Arrays;
+
+/**
+ * The {@code CollisionPairs} class stores the colliding pairs found by a
+ * {@code BroadPhase}. Each pair is packed into a single {@code long} so that
+ * the buffer can be reused and sorted every frame without creating any
+ * garbage.
+ * @author Brendan Jones
+ *
+ */
+public class CollisionPairs {
+	
+	/**
+	 * The default number of pairs the buffer can hold before it needs to grow.
+	 */
+	private static final int DEFAULT_CAPACITY = 64;
+	
+	/**
+	 * The packed pairs. The first index is stored in the upper 32 bits, and
+	 * the second index in the lower 32 bits.
+	 */
+	private long[] pairs;
+	
+	/**
+	 * The number of pairs currently in the buffer.
+	 */
+	private int size;
+	
+	/**
+	 * The array the pairs are distributed into by {@code sort(int)}, which
+	 * then takes the place of {@code pairs}.
+	 */
+	private long[] sorted;
+	
+	/**
+	 * Where the pairs for each first index start, used by {@code sort(int)}.
+	 */
+	private int[] firstStart;
+	
+	/**
+	 * Creates a new, empty CollisionPairs buffer.
+	 */
+	public CollisionPairs() {
+		this.pairs = new long[DEFAULT_CAPACITY];
+		this.size = 0;
+		this.sorted = new long[0];
+		this.firstStart = new int[0];
+	}
+	
+	/**
+	 * Removes all pairs from the buffer. The backing array is kept so that it
+	 * can be reused.
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+	
+	/**
+	 * Adds a pair to the buffer. The first index must be less than the second.
+	 * @param first The index of the first Entity.
+	 * @param second The index of the second Entity.
+	 */
+	public void add(int first, int second) {
+		if(size == pairs.length) {
+			this.pairs = Arrays.copyOf(pairs, size * 2);
+		}
+		pairs[size++] = ((long) first << 32) | second;
+	}
+	
+	/**
+	 * Adds every pair in another buffer to the end of this one.
+	 * @param other The buffer to copy the pairs from.
+	 */
+	public void addAll(CollisionPairs other) {
+		if(pairs.length < size + other.size) {
+			this.pairs = Arrays.copyOf(pairs, (size + other.size) * 2);
+		}
+		System.arraycopy(other.pairs, 0, pairs, size, other.size);
+		this.size += other.size;
+	}
+	
+	/**
+	 * Sorts the pairs into ascending order, first by the first index and then
+	 * by the second. This is the same order the pairs would be visited in by a
+	 * nested loop over the entity list.
+	 */
+	public void sort() {
+		Arrays.sort(pairs, 0, size);
+	}
+	
+	/**
+	 * <p>Sorts the pairs into the same order as {@code sort}, in time linear
+	 * in the number of pairs and Entities.</p>
+	 * 
+	 * <p>The pairs are first distributed by their first index with a counting
+	 * sort. Each Entity only has a handful of pairs, so an insertion sort then
+	 * puts the pairs that share a first index in order without moving them
+	 * far. This beats {@code sort} once there are many thousands of pairs.</p>
+	 * @param count The number of Entities, which every index is less than.
+	 */
+	public void sort(int count) {
+		if(firstStart.length <= count) {
+			this.firstStart = new int[(count + 1) * 2];
+		}
+		if(sorted.length < pairs.length) {
+			this.sorted = new long[pairs.length];
+		}
+		
+		//Count the pairs for each first index, one index along, and turn the counts into where each index starts.
+		Arrays.fill(firstStart, 0, count + 1, 0);
+		for(int i = 0; i < size; i++) {
+			firstStart[(int) (pairs[i] >>> 32) + 1]++;
+		}
+		for(int i = 0; i < count; i++) {
+			firstStart[i + 1] += firstStart[i];
+		}
+		for(int i = 0; i < size; i++) {
+			sorted[firstStart[(int) (pairs[i] >>> 32)]++] = pairs[i];
+		}
+		long[] swap = pairs;
+		this.pairs = sorted;
+		this.sorted = swap;
+		
+		for(int i = 1; i < size; i++) {
+			long pair = pairs[i];
+			int j = i - 1;
+			while(j >= 0 && pairs[j] > pair) {
+				pairs[j + 1] = pairs[j];
+				j--;
+			}
+			pairs[j + 1] = pair;
+		}
+	}
+	
+	/**
+	 * Gets the number of pairs in the buffer.
+	 * @return The number of pairs.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Gets the first index of a pair.
+	 * @param index The index of the pair.
+	 * @return The index of the first Entity.
+	 */
+	public int getFirst(int index) {
+		return (int) (pairs[index] >>> 32);
+	}
+	
+	/**
+	 * Gets the second index of a pair.
+	 * @param index The index of the pair.
+	 * @return The index of the second Entity.
+	 */
+	public int getSecond(int index) {
+		return (int) pairs[index];
+	}
+
+}
@@ -0,0 +1,491 @@
+package org.psnbtech.collision;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.psnbtech.WorldPanel;
+import org.psnbtech.entity.AsteroidSize;
+import org.psnbtech.entity.Entity;
+import org.psnbtech.entity.EntityKind;
+import org.psnbtech.util.ParallelLoop;
+import org.psnbtech.util.Torus;
+
+/**
+ * <p>The {@code SpatialHashBroadPhase} divides the world up into a uniform
+ * grid of cells, and only pairs up Entities that are in the same or
+ * neighboring cells.</p>
+ *
+ * <p>Each cell is at least as wide as the largest possible collision distance
+ * (twice the largest collision radius), so two Entities that are more than
+ * one cell apart can never collide. This reduces the cost of finding pairs
+ * from quadratic to roughly linear in the number of Entities.</p>
+ *
+ * <p>The grid wraps around at the edges of the world in the same way that
+ * Entities do, so the cells along one edge neighbor the cells along the
+ * opposite edge. Entities that overlap across the edge of the world will
+ * therefore still be paired up.</p>
+ *
+ * <p>The Entities in each cell are grouped by their kind, so that an Entity
+ * only looks at the kinds it interacts with. Pairs of two different kinds are
+ * found by the rarer kind looking for the other, so in a large world that is
+ * mostly asteroids, which pass through each other, the cells that only hold
+ * asteroids are never looked at.</p>
+ *
+ * <p>The position and radius of each Entity are copied into the grid
+ * alongside its index, and each candidate pair is measured against them in
+ * the same way as {@code Entity.checkCollision}. Only the pairs that are
+ * actually colliding are reported, so the caller doesn't have to go back to
+ * the Entities for the many pairs that are merely close. The number of
+ * candidates that were measured is still counted, and can be read back with
+ * {@code getCandidateCount}.</p>
+ *
+ * <p>Given a pool with {@code setPool}, the Entities are measured, and the
+ * grid searched for pairs, on several threads at once. The grid is split into
+ * bands of rows, and each band writes the pairs it finds into a buffer of its
+ * own. The buffers are put together and sorted at the end, so the pairs come
+ * out exactly the same as from a single thread.</p>
+ * @author Brendan Jones
+ *
+ */
+public class SpatialHashBroadPhase implements BroadPhase {
+	
+	/**
+	 * The most cells the grid can have along each axis. Very large worlds use
+	 * cells wider than they need to be, rather than a grid so large that
+	 * clearing it each update costs more than the Entities in it.
+	 */
+	private static final int MAX_CELLS_PER_AXIS = 1024;
+	
+	/**
+	 * The number of kinds of Entity.
+	 */
+	private static final int KIND_COUNT = EntityKind.values().length;
+	
+	/**
+	 * The order in which the kinds of Entity look for each other, from the
+	 * rarest to the most common. Each kind only looks for the kinds it
+	 * interacts with from here on, and is found by the kinds before it.
+	 */
+	private static final EntityKind[] SEARCH_ORDER = { EntityKind.Player, EntityKind.Bullet, EntityKind.Asteroid };
+	
+	/**
+	 * The kinds each kind of Entity looks for, indexed by ordinal, with one
+	 * bit set for the ordinal of each kind.
+	 */
+	private static final int[] SEARCHES = createSearches();
+	
+	/**
+	 * The smallest number of Entities that are placed in the grid on the
+	 * pool, as splitting up fewer isn't worth handing them to other threads.
+	 */
+	private static final int PARALLEL_THRESHOLD = 8192;
+	
+	/**
+	 * The Torus used to measure distances in the world.
+	 */
+	private final Torus torus;
+	
+	/**
+	 * The number of cells along each axis of the grid.
+	 */
+	private final int cellsPerAxis;
+	
+	/**
+	 * The width of a cell.
+	 */
+	private final double cellSize;
+	
+	/**
+	 * The number of distinct neighbors (including itself) each cell has along
+	 * an axis. This is usually 3, but is lower for very small grids where the
+	 * neighbors on either side wrap around to the same cell.
+	 */
+	private final int neighborCount;
+	
+	/**
+	 * The neighboring cell coordinates for each cell coordinate along an axis,
+	 * with wrapping already applied. The neighbors of coordinate {@code c}
+	 * start at {@code c * neighborCount}.
+	 */
+	private final int[] neighbors;
+	
+	/**
+	 * The reciprocal of the width of a cell, used to convert a position into
+	 * a cell coordinate without having to divide.
+	 */
+	private final double inverseCellSize;
+	
+	/**
+	 * The index of the first entry for each kind of Entity in each cell in
+	 * {@code cellEntries}, where the kinds in cell {@code c} start at
+	 * {@code c * KIND_COUNT}. The extra element at the end marks the end of
+	 * the last cell.
+	 */
+	private final int[] cellStart;
+	
+	/**
+	 * The write position for each kind of Entity in each cell while the grid
+	 * is being filled.
+	 */
+	private final int[] cellCursor;
+	
+	/**
+	 * The Entity indices, grouped by cell and then by kind.
+	 */
+	private int[] cellEntries;
+	
+	/**
+	 * The group that each Entity was placed in, which is its cell multiplied
+	 * by {@code KIND_COUNT} plus the ordinal of its kind.
+	 */
+	private int[] entityGroup;
+	
+	/**
+	 * The x coordinate of each Entity.
+	 */
+	private double[] entityX;
+	
+	/**
+	 * The y coordinate of each Entity.
+	 */
+	private double[] entityY;
+	
+	/**
+	 * The collision radius of each Entity.
+	 */
+	private double[] entityRadius;
+	
+	/**
+	 * The x coordinate of the Entity at each entry in {@code cellEntries}.
+	 */
+	private double[] entryX;
+	
+	/**
+	 * The y coordinate of the Entity at each entry in {@code cellEntries}.
+	 */
+	private double[] entryY;
+	
+	/**
+	 * The collision radius of the Entity at each entry in
+	 * {@code cellEntries}.
+	 */
+	private double[] entryRadius;
+	
+	/**
+	 * The Entities being placed in the grid by the current call to
+	 * {@code findPairs}, so that the loop that measures them can get at them.
+	 */
+	private List<? extends Entity> entities;
+	
+	/**
+	 * The loop that measures each Entity and works out its group.
+	 */
+	private MeasureLoop measureLoop;
+	
+	/**
+	 * The loop that searches the grid for pairs, a band of rows at a time.
+	 */
+	private SearchLoop searchLoop;
+	
+	/**
+	 * The number of candidate pairs measured by the last call to
+	 * {@code findPairs}.
+	 */
+	private int candidateCount;
+	
+	/**
+	 * Creates a new SpatialHashBroadPhase sized for the default world and the
+	 * largest Asteroid.
+	 */
+	public SpatialHashBroadPhase() {
+		this(WorldPanel.WORLD_SIZE, AsteroidSize.Large.radius);
+	}
+	
+	/**
+	 * Creates a new SpatialHashBroadPhase.
+	 * @param worldSize The size of the world.
+	 * @param maxRadius The largest collision radius of any Entity.
+	 */
+	public SpatialHashBroadPhase(double worldSize, double maxRadius) {
+		this.torus = new Torus(worldSize);
+		this.cellsPerAxis = Math.max(1, Math.min(MAX_CELLS_PER_AXIS, (int) (worldSize / (maxRadius * 2.0))));
+		this.cellSize = worldSize / cellsPerAxis;
+		this.inverseCellSize = cellsPerAxis / worldSize;
+		this.neighborCount = Math.min(3, cellsPerAxis);
+		this.neighbors = new int[cellsPerAxis * neighborCount];
+		for(int i = 0; i < cellsPerAxis; i++) {
+			for(int j = 0; j < neighborCount; j++) {
+				neighbors[i * neighborCount + j] = (i + j - 1 + cellsPerAxis) % cellsPerAxis;
+			}
+		}
+		this.cellStart = new int[cellsPerAxis * cellsPerAxis * KIND_COUNT + 1];
+		this.cellCursor = new int[cellsPerAxis * cellsPerAxis * KIND_COUNT];
+		this.cellEntries = new int[0];
+		this.entityGroup = new int[0];
+		this.entityX = new double[0];
+		this.entityY = new double[0];
+		this.entityRadius = new double[0];
+		this.entryX = new double[0];
+		this.entryY = new double[0];
+		this.entryRadius = new double[0];
+		this.measureLoop = new MeasureLoop(null);
+		this.searchLoop = new SearchLoop(null);
+	}
+	
+	/**
+	 * Works out which kinds each kind of Entity looks for, which are the ones
+	 * it interacts with that are at or after it in {@code SEARCH_ORDER}.
+	 * @return The searches, indexed by ordinal.
+	 */
+	private static int[] createSearches() {
+		int[] searches = new int[KIND_COUNT];
+		for(int i = 0; i < SEARCH_ORDER.length; i++) {
+			for(int j = i; j < SEARCH_ORDER.length; j++) {
+				if(SEARCH_ORDER[i].interactsWith(SEARCH_ORDER[j])) {
+					searches[SEARCH_ORDER[i].ordinal()] |= 1 << SEARCH_ORDER[j].ordinal();
+				}
+			}
+		}
+		return searches;
+	}
+	
+	@Override
+	public void findPairs(List<? extends Entity> entities, CollisionPairs pairs) {
+		pairs.clear();
+		
+		int count = entities.size();
+		if(entityGroup.length < count) {
+			this.entityGroup = new int[count * 2];
+			this.entityX = new double[count * 2];
+			this.entityY = new double[count * 2];
+			this.entityRadius = new double[count * 2];
+			this.entryX = new double[count * 2];
+			this.entryY = new double[count * 2];
+			this.entryRadius = new double[count * 2];
+			this.cellEntries = new int[count * 2];
+		}
+		boolean parallel = (count >= PARALLEL_THRESHOLD);
+		
+		//Work out which group each Entity is in, and copy out its position and radius.
+		this.entities = entities;
+		measureLoop.run(count, parallel);
+		this.entities = null;
+		
+		/*
+		 * Count the number of Entities in each group. The counts are stored
+		 * one along so that the prefix sum below leaves the start of each
+		 * group in place.
+		 */
+		Arrays.fill(cellStart, 0);
+		for(int i = 0; i < count; i++) {
+			cellStart[entityGroup[i] + 1]++;
+		}
+		
+		for(int i = 0; i < cellCursor.length; i++) {
+			cellStart[i + 1] += cellStart[i];
+			cellCursor[i] = cellStart[i];
+		}
+		
+		/*
+		 * Add the Entities to their cells. Because we're adding them in order,
+		 * the indices in each cell are always sorted.
+		 */
+		for(int i = 0; i < count; i++) {
+			int entry = cellCursor[entityGroup[i]]++;
+			cellEntries[entry] = i;
+			entryX[entry] = entityX[i];
+			entryY[entry] = entityY[i];
+			entryRadius[entry] = entityRadius[i];
+		}
+		
+		/*
+		 * Search the grid for pairs a band of rows at a time, then put the
+		 * pairs from each band together, and into the same order the entity
+		 * list would visit them in.
+		 */
+		searchLoop.run(cellsPerAxis, parallel);
+		this.candidateCount = 0;
+		for(int i = 0; i < searchLoop.pairs.length; i++) {
+			pairs.addAll(searchLoop.pairs[i]);
+			this.candidateCount += searchLoop.candidates[i];
+		}
+		pairs.sort(count);
+	}
+	
+	@Override
+	public int getCandidateCount() {
+		return candidateCount;
+	}
+	
+	@Override
+	public void setPool(ForkJoinPool pool) {
+		this.measureLoop = new MeasureLoop(pool);
+		this.searchLoop = new SearchLoop(pool);
+	}
+	
+	/**
+	 * Works out which group each of a range of Entities is in, and copies
+	 * out its position and collision radius.
+	 * @param from The index of the first Entity.
+	 * @param to The index after the last Entity.
+	 */
+	private void measure(int from, int to) {
+		for(int i = from; i < to; i++) {
+			Entity entity = entities.get(i);
+			double x = entity.getX();
+			double y = entity.getY();
+			entityGroup[i] = (getCell(y) * cellsPerAxis + getCell(x)) * KIND_COUNT + entity.getKind().ordinal();
+			entityX[i] = x;
+			entityY[i] = y;
+			entityRadius[i] = entity.getCollisionRadius();
+		}
+	}
+	
+	/**
+	 * <p>Pairs each Entity in a band of rows up with every Entity later in the
+	 * list that is in the same or a neighboring cell, and that it interacts
+	 * with.</p>
+	 * 
+	 * <p>Rather than visiting the Entities in the order of the list, which is
+	 * all over the world, we walk through the grid a cell at a time, so the
+	 * neighboring cells are usually still in the cache from the last cell.
+	 * Each group of Entities is paired with each neighboring group it looks
+	 * for at once, so a group with nothing to look for is skipped as a
+	 * whole. When the two groups are of different kinds, either one can be
+	 * first in the list.</p>
+	 * @param fromRow The first row.
+	 * @param toRow The row after the last row.
+	 * @param pairs The buffer to add the pairs to.
+	 * @return The number of candidate pairs that were measured.
+	 */
+	private int search(int fromRow, int toRow, CollisionPairs pairs) {
+		int candidates = 0;
+		int cellEnd = toRow * cellsPerAxis;
+		for(int cell = fromRow * cellsPerAxis; cell < cellEnd; cell++) {
+			int rows = (cell / cellsPerAxis) * neighborCount;
+			int columns = (cell % cellsPerAxis) * neighborCount;
+			for(int kind = 0; kind < KIND_COUNT; kind++) {
+				int groupStart = cellStart[cell * KIND_COUNT + kind];
+				int groupEnd = cellStart[cell * KIND_COUNT + kind + 1];
+				int searches = SEARCHES[kind];
+				if(groupStart == groupEnd || searches == 0) {
+					continue;
+				}
+				for(int y = 0; y < neighborCount; y++) {
+					int row = neighbors[rows + y] * cellsPerAxis;
+					for(int x = 0; x < neighborCount; x++) {
+						int neighbor = (row + neighbors[columns + x]) * KIND_COUNT;
+						for(int other = 0; other < KIND_COUNT; other++) {
+							int start = cellStart[neighbor + other];
+							int end = cellStart[neighbor + other + 1];
+							if(start == end || (searches & (1 << other)) == 0) {
+								continue;
+							}
+							for(int k = groupStart; k < groupEnd; k++) {
+								int i = cellEntries[k];
+								for(int l = start; l < end; l++) {
+									int j = cellEntries[l];
+									if(j > i) {
+										candidates++;
+										if(isColliding(k, l)) {
+											pairs.add(i, j);
+										}
+									} else if(other != kind) {
+										candidates++;
+										if(isColliding(l, k)) {
+											pairs.add(j, i);
+										}
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return candidates;
+	}
+	
+	/**
+	 * Determines whether the Entities at two entries in the grid are
+	 * colliding. This uses the same test as {@code Entity.checkCollision}
+	 * when called on the first Entity, so the two can never disagree.
+	 * @param first The entry of the first Entity.
+	 * @param second The entry of the second Entity.
+	 * @return Whether the Entities are colliding.
+	 */
+	private boolean isColliding(int first, int second) {
+		return Entity.isColliding(entryX[first], entryY[first], entryRadius[first], entryX[second], entryY[second], entryRadius[second], torus);
+	}
+	
+	/**
+	 * Converts a coordinate into a cell coordinate, clamping it to the edges
+	 * of the grid.
+	 * @param value The coordinate.
+	 * @return The cell coordinate.
+	 */
+	private int getCell(double value) {
+		int cell = (int) (value * inverseCellSize);
+		return (cell < 0) ? 0 : (cell >= cellsPerAxis) ? cellsPerAxis - 1 : cell;
+	}
+	
+	/**
+	 * The loop that measures a range of the Entities.
+	 */
+	private class MeasureLoop extends ParallelLoop {
+		
+		/**
+		 * Creates a new MeasureLoop.
+		 * @param pool The pool, or null to measure on the calling thread.
+		 */
+		private MeasureLoop(ForkJoinPool pool) {
+			super(pool);
+		}
+		
+		@Override
+		protected void runChunk(int chunk, int from, int to) {
+			measure(from, to);
+		}
+	
+	}
+	
+	/**
+	 * The loop that searches a band of rows of the grid for pairs, with a
+	 * buffer of pairs and a count of candidates for each band.
+	 */
+	private class SearchLoop extends ParallelLoop {
+		
+		/**
+		 * The pairs found in each band, indexed by chunk.
+		 */
+		private final CollisionPairs[] pairs;
+		
+		/**
+		 * The number of candidate pairs measured in each band, indexed by
+		 * chunk.
+		 */
+		private final int[] candidates;
+		
+		/**
+		 * Creates a new SearchLoop.
+		 * @param pool The pool, or null to search on the calling thread.
+		 */
+		private SearchLoop(ForkJoinPool pool) {
+			super(pool);
+			this.pairs = new CollisionPairs[getChunkCount()];
+			for(int i = 0; i < pairs.length; i++) {
+				pairs[i] = new CollisionPairs();
+			}
+			this.candidates = new int[pairs.length];
+		}
+		
+		@Override
+		protected void runChunk(int chunk, int from, int to) {
+			pairs[chunk].clear();
+			candidates[chunk] = search(from, to, pairs[chunk]);
+		}
+	
+	}
+
+}
@@ -0,0 +1,28 @@
+package org.psnbtech.control;
+
+import org.psnbtech.Input;
+import org.psnbtech.WorldView;
+
+/**
+ * <p>A {@code Controller} decides what the player should do. It is polled
+ * once before every step of the game, on the thread that steps the game, and
+ * fills in the input for that step.</p>
+ * 
+ * <p>The keyboard, bots, replays and anything else that drives the player
+ * all do so through this interface. As it is called every tick, a Controller
+ * should reuse its own state rather than allocating.</p>
+ * @author Brendan Jones
+ *
+ */
+public interface Controller {
+	
+	/**
+	 * Fills in the input for the next step of the game. The input still holds
+	 * whatever was filled in for the previous step, apart from any requests
+	 * the engine has handled.
+	 * @param world A read-only view of the game that is about to be stepped.
+	 * @param input The input to fill in.
+	 */
+	public void poll(WorldView world, Input input);
+
+}
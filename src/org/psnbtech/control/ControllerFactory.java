@@ -0,0 +1,20 @@
+package org.psnbtech.control;
+
+/**
+ * A {@code ControllerFactory} creates a new {@code Controller} for each game,
+ * so that games running at the same time don't share any state.
+ * @author Brendan Jones
+ *
+ */
+public interface ControllerFactory {
+	
+	/**
+	 * Creates a new Controller.
+	 * @param seed The seed of the game the Controller will play, which the
+	 * Controller can use for its own randomness so that the game is still
+	 * reproducible.
+	 * @return The Controller.
+	 */
+	public Controller create(long seed);
+
+}
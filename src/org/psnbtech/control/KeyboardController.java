@@ -0,0 +1,146 @@
+package org.psnbtech.control;
+
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.psnbtech.Input;
+import org.psnbtech.WorldView;
+
+/**
+ * <p>The {@code KeyboardController} lets the player control the ship with
+ * the keyboard. It should be added as a key listener to the window.</p>
+ * 
+ * <p>Key events arrive on the Event Dispatch Thread whenever the user presses
+ * something, which isn't going to be in sync with the game. Rather than
+ * touching the game from the event, we only record which keys are currently
+ * held. The game thread then copies that into its input when it polls the
+ * controller, so the game never waits on the EDT and never sees the input
+ * change part way through a tick.</p>
+ * 
+ * <p>Pausing and restarting are requests rather than held keys, so they are
+ * remembered until the next poll, even if the key has already been let go.
+ * Note that any key press will request a restart, which the engine will act
+ * on if the conditions are met.</p>
+ * @author Brendan Jones
+ *
+ */
+public class KeyboardController extends KeyAdapter implements Controller {
+	
+	/**
+	 * Whether a thrust key is held down.
+	 */
+	private volatile boolean thrust;
+	
+	/**
+	 * Whether a rotate left key is held down.
+	 */
+	private volatile boolean rotateLeft;
+	
+	/**
+	 * Whether a rotate right key is held down.
+	 */
+	private volatile boolean rotateRight;
+	
+	/**
+	 * Whether the fire key is held down.
+	 */
+	private volatile boolean fire;
+	
+	/**
+	 * Whether the pause key has been pressed since the last poll.
+	 */
+	private final AtomicBoolean pause;
+	
+	/**
+	 * Whether any key has been pressed since the last poll.
+	 */
+	private final AtomicBoolean restart;
+	
+	/**
+	 * Creates a new KeyboardController.
+	 */
+	public KeyboardController() {
+		this.pause = new AtomicBoolean();
+		this.restart = new AtomicBoolean();
+	}
+	
+	@Override
+	public void poll(WorldView world, Input input) {
+		input.thrust = thrust;
+		input.rotateLeft = rotateLeft;
+		input.rotateRight = rotateRight;
+		input.fire = fire;
+		input.pause = pause.getAndSet(false);
+		input.restart = restart.getAndSet(false);
+	}
+	
+	@Override
+	public void keyPressed(KeyEvent e) {
+		//Determine which key was pressed.
+		switch(e.getKeyCode()) {
+		
+		//Indicate that we want to apply thrust to our ship.
+		case KeyEvent.VK_W:
+		case KeyEvent.VK_UP:
+			this.thrust = true;
+			break;
+		
+		//Indicate that we want to rotate our ship to the left.
+		case KeyEvent.VK_A:
+		case KeyEvent.VK_LEFT:
+			this.rotateLeft = true;
+			break;
+		
+		//Indicate that we want to rotate our ship to the right.
+		case KeyEvent.VK_D:
+		case KeyEvent.VK_RIGHT:
+			this.rotateRight = true;
+			break;
+		
+		//Indicate that we want our ship to fire bullets.
+		case KeyEvent.VK_SPACE:
+			this.fire = true;
+			break;
+		
+		//Indicate that we want to pause the game.
+		case KeyEvent.VK_P:
+			pause.set(true);
+			break;
+		
+		}
+		
+		//Any key press can restart the game.
+		restart.set(true);
+	}
+	
+	@Override
+	public void keyReleased(KeyEvent e) {
+		switch(e.getKeyCode()) {
+		
+		//Indicate that we no long want to apply thrust to the ship.
+		case KeyEvent.VK_W:
+		case KeyEvent.VK_UP:
+			this.thrust = false;
+			break;
+		
+		//Indicate that we no longer want to rotate our ship left.
+		case KeyEvent.VK_A:
+		case KeyEvent.VK_LEFT:
+			this.rotateLeft = false;
+			break;
+		
+		//Indicate that we no longer want to rotate our ship right.
+		case KeyEvent.VK_D:
+		case KeyEvent.VK_RIGHT:
+			this.rotateRight = false;
+			break;
+		
+		//Indicate that we no long want to fire bullets.
+		case KeyEvent.VK_SPACE:
+			this.fire = false;
+			break;
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package org.psnbtech.control;
+
+import org.psnbtech.Input;
+import org.psnbtech.WorldView;
+import org.psnbtech.util.GameRandom;
+
+/**
+ * <p>The {@code RandomController} is a very simple bot, which fires
+ * constantly while turning and thrusting at random.</p>
+ * 
+ * <p>Every so often it picks a new direction to turn in and decides whether
+ * or not to thrust, and holds those controls until it next changes its mind.
+ * It restarts the game as soon as it is over.</p>
+ * @author Brendan Jones
+ *
+ */
+public class RandomController implements Controller {
+	
+	/**
+	 * The shortest number of ticks a decision is held for.
+	 */
+	private static final int MIN_HOLD = 10;
+	
+	/**
+	 * The longest number of ticks a decision is held for.
+	 */
+	private static final int MAX_HOLD = 90;
+	
+	/**
+	 * The chance of thrusting when making a decision.
+	 */
+	private static final double THRUST_CHANCE = 0.3;
+	
+	/**
+	 * The Random instance the decisions are made with.
+	 */
+	private final GameRandom random;
+	
+	/**
+	 * The number of ticks until the next decision.
+	 */
+	private int hold;
+	
+	/**
+	 * Creates a new RandomController.
+	 * @param seed The seed the decisions are made with.
+	 */
+	public RandomController(long seed) {
+		this.random = new GameRandom(seed);
+	}
+	
+	/**
+	 * Creates a factory for RandomControllers.
+	 * @return The factory.
+	 */
+	public static ControllerFactory factory() {
+		return new ControllerFactory() {
+			@Override
+			public Controller create(long seed) {
+				return new RandomController(~seed);
+			}
+		};
+	}
+	
+	@Override
+	public void poll(WorldView world, Input input) {
+		input.fire = true;
+		input.restart = world.isGameOver();
+		
+		if(--hold <= 0) {
+			this.hold = MIN_HOLD + random.nextInt(MAX_HOLD - MIN_HOLD);
+			int turn = random.nextInt(3);
+			input.rotateLeft = (turn == 0);
+			input.rotateRight = (turn == 1);
+			input.thrust = random.nextDouble() < THRUST_CHANCE;
+		}
+	}
+
+}
@@ -1,10 +1,11 @@
 package org.psnbtech.entity;
 
-import java.awt.Graphics2D;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
-import org.psnbtech.Game;
-import org.psnbtech.WorldPanel;
+import org.psnbtech.GameEngine;
+import org.psnbtech.jfr.AsteroidSplitEvent;
+import org.psnbtech.jfr.GameEvents;
 import org.psnbtech.util.Vector2;
 
 /**
@@ -50,38 +51,52 @@ public class Asteroid extends Entity {
 	private static final double MIN_DISTANCE = 200.0;
 	
 	/**
-	 * The maximum distance from the player spawn that a new asteroid can spawn.
+	 * The number of updates to execute after spawning.
 	 */
-	private static final double MAX_DISTANCE = WorldPanel.WORLD_SIZE / 2.0;
+	private static final float SPAWN_UPDATES = 10;
 	
 	/**
-	 * The variation between the spawn distances.
+	 * The sizes of Asteroid, indexed by their ordinal. This is kept rather
+	 * than calling {@code values}, which creates a new array each time.
 	 */
-	private static final double DISTANCE_VARIANCE = MAX_DISTANCE - MIN_DISTANCE;
+	private static final AsteroidSize[] SIZES = AsteroidSize.values();
 	
 	/**
-	 * The number of updates to execute after spawning.
+	 * The Size.
 	 */
-	private static final float SPAWN_UPDATES = 10;
+	private AsteroidSize size;
 	
 	/**
-	 * The Size.
+	 * The vector used to calculate the spawn position, reused to avoid
+	 * creating garbage.
 	 */
-	private AsteroidSize size;
+	private final Vector2 spawnPosition;
+	
+	/**
+	 * The vector used to calculate the spawn velocity, reused to avoid
+	 * creating garbage.
+	 */
+	private final Vector2 spawnVelocity;
 	
 	/**
-	 * The rotation speed.
+	 * Creates a new Asteroid instance for the pool. It won't be in the world
+	 * until it has been reset.
+	 * @param store The EntityStore.
 	 */
-	private double rotationSpeed;
+	Asteroid(EntityStore store) {
+		super(store, EntityKind.Asteroid);
+		this.spawnPosition = new Vector2(0.0, 0.0);
+		this.spawnVelocity = new Vector2(0.0, 0.0);
+	}
 	
 	/**
 	 * Creates a new Asteroid randomly in the world.
+	 * @param store The EntityStore.
 	 * @param random The Random instance.
 	 */
-	public Asteroid(Random random) {
-		super(calculatePosition(random), calculateVelocity(random), AsteroidSize.Large.radius, AsteroidSize.Large.killValue);
-		this.rotationSpeed = -MIN_ROTATION + (random.nextDouble() * ROTATION_VARIANCE);
-		this.size = AsteroidSize.Large;
+	public Asteroid(EntityStore store, Random random) {
+		this(store);
+		reset(random);
 	}
 	
 	/**
@@ -91,69 +106,123 @@ public class Asteroid extends Entity {
 	 * @param random The Random instance.
 	 */
 	public Asteroid(Asteroid parent, AsteroidSize size, Random random) {
-		super(new Vector2(parent.position), calculateVelocity(random), size.radius, size.killValue);
-		this.rotationSpeed = MIN_ROTATION + (random.nextDouble() * ROTATION_VARIANCE);
+		this(parent.store);
+		reset(parent, size, random);
+	}
+	
+	/**
+	 * Resets this Asteroid so that it is placed randomly in the world.
+	 * @param random The Random instance.
+	 */
+	public void reset(Random random) {
+		calculatePosition(random, spawnPosition);
+		calculateVelocity(random, spawnVelocity);
+		spawn(spawnPosition.x, spawnPosition.y, spawnVelocity.x, spawnVelocity.y, AsteroidSize.Large.radius, AsteroidSize.Large.killValue);
+		setSpin(-MIN_ROTATION + (random.nextDouble() * ROTATION_VARIANCE));
+		this.size = AsteroidSize.Large;
+	}
+	
+	/**
+	 * Resets this Asteroid so that it has just broken off of a parent
+	 * Asteroid.
+	 * @param parent The parent.
+	 * @param size The size.
+	 * @param random The Random instance.
+	 */
+	public void reset(Asteroid parent, AsteroidSize size, Random random) {
+		calculateVelocity(random, spawnVelocity);
+		spawn(parent.getX(), parent.getY(), spawnVelocity.x, spawnVelocity.y, size.radius, size.killValue);
+		setSpin(MIN_ROTATION + (random.nextDouble() * ROTATION_VARIANCE));
 		this.size = size;
 		
 		/*
-		 * While not necessary, calling the update method here makes the asteroid
-		 * appear to have a different starting position than it's parent or sibling.
+		 * While not necessary, moving the asteroid here makes it appear to have
+		 * a different starting position than it's parent or sibling.
 		 */
 		for(int i = 0; i < SPAWN_UPDATES; i++) {
-			update(null);
+			integrate();
 		}
 	}
 	
 	/**
-	 * Calculates a random valid spawn point for an Asteroid.
+	 * Calculates a random valid spawn point for an Asteroid. The furthest an
+	 * Asteroid can spawn from the player spawn is half the size of the world.
 	 * @param random The random instance.
+	 * @param out The vector to store the spawn point in.
 	 * @return The spawn point.
 	 */
-	private static Vector2 calculatePosition(Random random) {
-		Vector2 vec = new Vector2(WorldPanel.WORLD_SIZE / 2.0, WorldPanel.WORLD_SIZE / 2.0);
-		return vec.add(new Vector2(random.nextDouble() * Math.PI * 2).scale(MIN_DISTANCE + random.nextDouble() * DISTANCE_VARIANCE));
+	private Vector2 calculatePosition(Random random, Vector2 out) {
+		double center = store.getWorldSize() / 2.0;
+		out.setFromAngle(random.nextDouble() * Math.PI * 2, MIN_DISTANCE + random.nextDouble() * (center - MIN_DISTANCE));
+		return out.add(center, center);
 	}
 	
 	/**
 	 * Calculates a random valid velocity for an Asteroid.
 	 * @param random The random instance.
+	 * @param out The vector to store the velocity in.
 	 * @return The velocity.
 	 */
-	private static Vector2 calculateVelocity(Random random) {
-		return new Vector2(random.nextDouble() * Math.PI * 2).scale(MIN_VELOCITY + random.nextDouble() * VELOCITY_VARIANCE);
+	private static Vector2 calculateVelocity(Random random, Vector2 out) {
+		return out.setFromAngle(random.nextDouble() * Math.PI * 2, MIN_VELOCITY + random.nextDouble() * VELOCITY_VARIANCE);
 	}
 	
 	@Override
-	public void update(Game game) {
-		super.update(game);
-		rotate(rotationSpeed); //Rotate the image each frame.
+	public void writeState(ByteBuffer out) {
+		super.writeState(out);
+		out.put((byte) size.ordinal());
 	}
-
+	
 	@Override
-	public void draw(Graphics2D g, Game game) {
-		g.drawPolygon(size.polygon); //Draw the Asteroid.
+	public void readState(ByteBuffer in) {
+		super.readState(in);
+		this.size = SIZES[in.get()];
 	}
 	
+	/**
+	 * Gets the appearance of this Asteroid, which is the ordinal of its size.
+	 */
 	@Override
-	public void handleCollision(Game game, Entity other) {
+	public int getAppearance(GameEngine game) {
+		return size.ordinal();
+	}
+	
+	@Override
+	public void handleCollision(GameEngine game, Entity other) {
 		//Prevent collisions with other asteroids.
 		if(other.getClass() != Asteroid.class) {
+			//Record the split with the flight recorder, if it's recording.
+			if(GameEvents.isAsteroidSplitRecording()) {
+				AsteroidSplitEvent event = new AsteroidSplitEvent();
+				event.size = size.name();
+				event.children = (size != AsteroidSize.Small) ? 2 : 0;
+				event.x = getX();
+				event.y = getY();
+				event.commit();
+			}
+			
 			//Only spawn "children" if we're not a Small asteroid.
 			if(size != AsteroidSize.Small) {
 				//Determine the Size of the children.
-				AsteroidSize spawnSize = AsteroidSize.values()[size.ordinal() - 1];
+				AsteroidSize spawnSize = SIZES[size.ordinal() - 1];
 				
 				//Create the children Asteroids.
 				for(int i = 0; i < 2; i++) {
-					game.registerEntity(new Asteroid(this, spawnSize, game.getRandom()));
+					game.registerEntity(store.acquireAsteroid(this, spawnSize, game.getRandom()));
 				}
 			}
 			
 			//Delete this Asteroid from the world.
 			flagForRemoval();
 			
-			//Award the player points for killing the Asteroid.
-			game.addScore(getKillScore());		
+			/*
+			 * Award the points for killing the Asteroid to the player that
+			 * destroyed it, either by shooting it or by flying into it.
+			 */
+			Entity killer = (other.getKind() == EntityKind.Bullet) ? ((Bullet) other).getOwner() : other;
+			if(killer.getKind() == EntityKind.Player) {
+				game.addScore((Player) killer, getKillScore());
+			}
 		}
 	}
 	
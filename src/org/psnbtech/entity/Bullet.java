@@ -1,9 +1,8 @@
 package org.psnbtech.entity;
 
-import java.awt.Graphics2D;
+import java.nio.ByteBuffer;
 
-import org.psnbtech.Game;
-import org.psnbtech.util.Vector2;
+import org.psnbtech.GameEngine;
 
 /**
  * Represents a Bullet within the game world.
@@ -20,27 +19,76 @@ public class Bullet extends Entity {
 	/**
 	 * The maximum number of cycles that a Bullet can exist.
 	 */
-	private static final int MAX_LIFESPAN = 60;
+	static final int MAX_LIFESPAN = 60;
 	
 	/**
 	 * The number of cycles this Bullet has existed.
 	 */
 	private int lifespan;
+	
+	/**
+	 * The object that fired this Bullet.
+	 */
+	private Entity owner;
 
+	/**
+	 * Creates a new Bullet instance for the pool. It won't be in the world
+	 * until it has been reset.
+	 * @param store The EntityStore.
+	 */
+	Bullet(EntityStore store) {
+		super(store, EntityKind.Bullet);
+	}
+	
 	/**
 	 * Creates a new Bullet instance.
 	 * @param owner The object that fired the bullet.
 	 * @param angle The direction of the Bullet.
 	 */
 	public Bullet(Entity owner, double angle) {
-		super(new Vector2(owner.position), new Vector2(angle).scale(VELOCITY_MAGNITUDE), 2.0, 0);
+		this(owner.store);
+		reset(owner, angle);
+	}
+	
+	/**
+	 * Resets this Bullet so that it has just been fired.
+	 * @param owner The object that fired the bullet.
+	 * @param angle The direction of the Bullet.
+	 */
+	public void reset(Entity owner, double angle) {
+		spawn(owner.getX(), owner.getY(), Math.cos(angle) * VELOCITY_MAGNITUDE, Math.sin(angle) * VELOCITY_MAGNITUDE, 2.0, 0);
 		this.lifespan = MAX_LIFESPAN;
+		this.owner = owner;
+	}
+	
+	/**
+	 * Gets the object that fired this Bullet.
+	 * @return The owner.
+	 */
+	public Entity getOwner() {
+		return owner;
+	}
+	
+	/**
+	 * Sets the object that fired this Bullet. The owner isn't part of the
+	 * state written by {@code writeState}, so it needs to be set again when
+	 * the Bullet is restored.
+	 * @param owner The owner.
+	 */
+	public void setOwner(Entity owner) {
+		this.owner = owner;
+	}
+	
+	/**
+	 * Gets the number of updates this bullet has left before it is removed.
+	 * @return The lifespan.
+	 */
+	int getLifespan() {
+		return lifespan;
 	}
 	
 	@Override
-	public void update(Game game) {
-		super.update(game);
-		
+	public void update(GameEngine game) {
 		//Decrement the lifespan of the bullet, and remove it if needed.
 		this.lifespan--;
 		if(lifespan <= 0) {
@@ -49,15 +97,22 @@ public class Bullet extends Entity {
 	}
 
 	@Override
-	public void handleCollision(Game game, Entity other) {
-		if(other.getClass() != Player.class) {
-			flagForRemoval();
-		}
+	public void writeState(ByteBuffer out) {
+		super.writeState(out);
+		out.putInt(lifespan);
 	}
 	
 	@Override
-	public void draw(Graphics2D g, Game game) {
-		g.drawOval(-1, -1, 2, 2);
+	public void readState(ByteBuffer in) {
+		super.readState(in);
+		this.lifespan = in.getInt();
+	}
+
+	@Override
+	public void handleCollision(GameEngine game, Entity other) {
+		if(other.getClass() != Player.class) {
+			flagForRemoval();
+		}
 	}
 
 }
@@ -1,37 +1,48 @@
 package org.psnbtech.entity;
 
-import java.awt.Graphics2D;
+import java.nio.ByteBuffer;
 
-import org.psnbtech.Game;
-import org.psnbtech.WorldPanel;
+import org.psnbtech.GameEngine;
+import org.psnbtech.util.Torus;
 import org.psnbtech.util.Vector2;
 
 /**
- * Represents an Entity within the game world.
+ * <p>Represents an Entity within the game world.</p>
+ *
+ * <p>The state of an Entity is kept in an {@code EntityStore}, and the Entity
+ * itself only holds the slot that its state is stored in. Moving an Entity by
+ * its velocity is handled by the store for the whole world at once.</p>
  * @author Brendan Jones
  *
  */
 public abstract class Entity {
 	
 	/**
-	 * The position of this entity.
+	 * The EntityStore that holds the state of this entity.
+	 */
+	protected final EntityStore store;
+	
+	/**
+	 * The kind of entity.
 	 */
-	protected Vector2 position;
+	private final EntityKind kind;
 	
 	/**
-	 * The velocity of this entity.
+	 * The buffer within the store that holds the state of this entity.
 	 */
-	protected Vector2 velocity;
+	final EntityBuffer buffer;
 	
 	/**
-	 * The rotation of this entity.
+	 * The slot within the buffer that holds the state of this entity, or -1 if
+	 * this entity has been removed from the store.
 	 */
-	protected double rotation;
+	int slot;
 	
 	/**
-	 * The collision radius.
+	 * The identifier of this entity, which is given out by the store each
+	 * time the Entity is spawned.
 	 */
-	protected double radius;
+	private int id;
 	
 	/**
 	 * Flags that the entity needs to be removed from the game.
@@ -43,18 +54,57 @@ public abstract class Entity {
 	 */
 	private int killScore;
 	
+	/**
+	 * Creates a new Entity instance that has not been spawned. The Entity has
+	 * no state until {@code spawn} is called.
+	 * @param store The EntityStore to keep the Entity's state in.
+	 * @param kind The kind of Entity.
+	 */
+	Entity(EntityStore store, EntityKind kind) {
+		this.store = store;
+		this.kind = kind;
+		this.buffer = store.getBuffer(kind);
+		this.slot = -1;
+	}
+	
 	/**
 	 * Creates a new Entity instance.
+	 * @param store The EntityStore to keep the Entity's state in.
+	 * @param kind The kind of Entity.
 	 * @param position The position of the Entity.
 	 * @param velocity The velocity of the Entity.
 	 * @param radius The collision radius.
 	 * @param killScore The number of points awarded for killing this entity.
 	 */
-	public Entity(Vector2 position, Vector2 velocity, double radius, int killScore) {
-		this.position = position;
-		this.velocity = velocity;
-		this.radius = radius;
-		this.rotation = 0.0f;
+	public Entity(EntityStore store, EntityKind kind, Vector2 position, Vector2 velocity, double radius, int killScore) {
+		this(store, kind);
+		spawn(position.x, position.y, velocity.x, velocity.y, radius, killScore);
+	}
+	
+	/**
+	 * Gives this Entity a slot in the EntityStore and sets its initial state.
+	 * This is used both when an Entity is first created, and when an Entity
+	 * is taken back out of the pool to be reused.
+	 * @param x The x coordinate of the Entity.
+	 * @param y The y coordinate of the Entity.
+	 * @param velocityX The x velocity of the Entity.
+	 * @param velocityY The y velocity of the Entity.
+	 * @param radius The collision radius.
+	 * @param killScore The number of points awarded for killing this entity.
+	 */
+	protected void spawn(double x, double y, double velocityX, double velocityY, double radius, int killScore) {
+		this.slot = buffer.add(this);
+		this.id = store.nextId();
+		buffer.x[slot] = x;
+		buffer.y[slot] = y;
+		buffer.previousX[slot] = x;
+		buffer.previousY[slot] = y;
+		buffer.velocityX[slot] = velocityX;
+		buffer.velocityY[slot] = velocityY;
+		buffer.rotation[slot] = 0.0;
+		buffer.previousRotation[slot] = 0.0;
+		buffer.spin[slot] = 0.0;
+		buffer.radius[slot] = radius;
 		this.killScore = killScore;
 		this.needsRemoval = false;
 	}
@@ -64,8 +114,7 @@ public abstract class Entity {
 	 * @param amount The amount to rotate by.
 	 */
 	public void rotate(double amount) {
-		this.rotation += amount;
-		this.rotation %= Math.PI * 2;
+		buffer.rotation[slot] = (buffer.rotation[slot] + amount) % (Math.PI * 2);
 	}
 	
 	/**
@@ -84,19 +133,100 @@ public abstract class Entity {
 	}
 	
 	/**
-	 * Gets the position of this Entity.
-	 * @return The position.
+	 * Copies the position of this Entity into a vector.
+	 * @param out The vector to copy the position into.
+	 * @return The vector for chaining.
+	 */
+	public Vector2 getPosition(Vector2 out) {
+		return out.set(buffer.x[slot], buffer.y[slot]);
+	}
+	
+	/**
+	 * Gets the x coordinate of this Entity.
+	 * @return The x coordinate.
+	 */
+	public double getX() {
+		return buffer.x[slot];
+	}
+	
+	/**
+	 * Gets the y coordinate of this Entity.
+	 * @return The y coordinate.
 	 */
-	public Vector2 getPosition() {
-		return position;
+	public double getY() {
+		return buffer.y[slot];
 	}
 	
 	/**
-	 * Gets the velocity of this Entity.
-	 * @return The velocity.
+	 * Moves this Entity to a new position. The Entity will be drawn at the new
+	 * position straight away, rather than moving towards it.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
 	 */
-	public Vector2 getVelocity() {
-		return velocity;
+	protected void setPosition(double x, double y) {
+		buffer.x[slot] = x;
+		buffer.y[slot] = y;
+		buffer.previousX[slot] = x;
+		buffer.previousY[slot] = y;
+	}
+	
+	/**
+	 * Gets the x coordinate of this Entity at the start of the last update.
+	 * @return The previous x coordinate.
+	 */
+	public double getPreviousX() {
+		return buffer.previousX[slot];
+	}
+	
+	/**
+	 * Gets the y coordinate of this Entity at the start of the last update.
+	 * @return The previous y coordinate.
+	 */
+	public double getPreviousY() {
+		return buffer.previousY[slot];
+	}
+	
+	/**
+	 * Copies the velocity of this Entity into a vector.
+	 * @param out The vector to copy the velocity into.
+	 * @return The vector for chaining.
+	 */
+	public Vector2 getVelocity(Vector2 out) {
+		return out.set(buffer.velocityX[slot], buffer.velocityY[slot]);
+	}
+	
+	/**
+	 * Gets the x velocity of this Entity.
+	 * @return The x velocity.
+	 */
+	public double getVelocityX() {
+		return buffer.velocityX[slot];
+	}
+	
+	/**
+	 * Gets the y velocity of this Entity.
+	 * @return The y velocity.
+	 */
+	public double getVelocityY() {
+		return buffer.velocityY[slot];
+	}
+	
+	/**
+	 * Sets the velocity of this Entity.
+	 * @param velocity The velocity.
+	 */
+	protected void setVelocity(Vector2 velocity) {
+		setVelocity(velocity.x, velocity.y);
+	}
+	
+	/**
+	 * Sets the velocity of this Entity.
+	 * @param x The x velocity.
+	 * @param y The y velocity.
+	 */
+	protected void setVelocity(double x, double y) {
+		buffer.velocityX[slot] = x;
+		buffer.velocityY[slot] = y;
 	}
 	
 	/**
@@ -104,7 +234,33 @@ public abstract class Entity {
 	 * @return The rotation.
 	 */
 	public double getRotation() {
-		return rotation;
+		return buffer.rotation[slot];
+	}
+	
+	/**
+	 * Gets the rotation of this Entity at the start of the last update.
+	 * @return The previous rotation.
+	 */
+	public double getPreviousRotation() {
+		return buffer.previousRotation[slot];
+	}
+	
+	/**
+	 * Sets the rotation of this Entity. The Entity will be drawn at the new
+	 * rotation straight away, rather than turning towards it.
+	 * @param rotation The rotation.
+	 */
+	protected void setRotation(double rotation) {
+		buffer.rotation[slot] = rotation;
+		buffer.previousRotation[slot] = rotation;
+	}
+	
+	/**
+	 * Sets the amount this Entity rotates by each update.
+	 * @param spin The amount to rotate by.
+	 */
+	protected void setSpin(double spin) {
+		buffer.spin[slot] = spin;
 	}
 	
 	/**
@@ -112,7 +268,28 @@ public abstract class Entity {
 	 * @return The collision radius.
 	 */
 	public double getCollisionRadius() {
-		return radius;
+		return buffer.radius[slot];
+	}
+	
+	/**
+	 * <p>Gets the identifier of this Entity.</p>
+	 * 
+	 * <p>Each time an Entity is spawned, including when it is taken back out
+	 * of the pool, it is given an identifier that no other Entity in the same
+	 * store has had. Identifiers are handed out in increasing order, so
+	 * Entities that joined the world later have larger identifiers.</p>
+	 * @return The identifier.
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Gets the kind of this Entity.
+	 * @return The kind.
+	 */
+	public EntityKind getKind() {
+		return kind;
 	}
 	
 	/**
@@ -124,19 +301,60 @@ public abstract class Entity {
 	}
 	
 	/**
-	 * Updates the state of this Entity.
+	 * Moves this Entity by its velocity, and rotates it by its spin. This is
+	 * normally handled by {@code EntityStore.integrate} for the whole world at
+	 * once.
+	 */
+	protected void integrate() {
+		store.integrate(this);
+	}
+	
+	/**
+	 * Updates the state of this Entity. This is called after the Entity has
+	 * been moved by the EntityStore.
 	 * @param game The game instance.
 	 */
-	public void update(Game game) {
-		position.add(velocity);
-		if(position.x < 0.0f) {
-			position.x += WorldPanel.WORLD_SIZE;
-		}
-		if(position.y < 0.0f) {
-			position.y += WorldPanel.WORLD_SIZE;
-		}
-		position.x %= WorldPanel.WORLD_SIZE;
-		position.y %= WorldPanel.WORLD_SIZE;
+	public void update(GameEngine game) {
+	}
+	
+	/**
+	 * Writes the state of this Entity to a buffer, so that it can be restored
+	 * later with {@code readState}.
+	 * @param out The buffer to write to.
+	 */
+	public void writeState(ByteBuffer out) {
+		out.putDouble(buffer.x[slot]);
+		out.putDouble(buffer.y[slot]);
+		out.putDouble(buffer.previousX[slot]);
+		out.putDouble(buffer.previousY[slot]);
+		out.putDouble(buffer.velocityX[slot]);
+		out.putDouble(buffer.velocityY[slot]);
+		out.putDouble(buffer.rotation[slot]);
+		out.putDouble(buffer.previousRotation[slot]);
+		out.putDouble(buffer.spin[slot]);
+		out.putDouble(buffer.radius[slot]);
+		out.putInt(killScore);
+		out.put((byte) (needsRemoval ? 1 : 0));
+	}
+	
+	/**
+	 * Restores the state of this Entity from a buffer written by
+	 * {@code writeState}. The Entity must already have a slot in the store.
+	 * @param in The buffer to read from.
+	 */
+	public void readState(ByteBuffer in) {
+		buffer.x[slot] = in.getDouble();
+		buffer.y[slot] = in.getDouble();
+		buffer.previousX[slot] = in.getDouble();
+		buffer.previousY[slot] = in.getDouble();
+		buffer.velocityX[slot] = in.getDouble();
+		buffer.velocityY[slot] = in.getDouble();
+		buffer.rotation[slot] = in.getDouble();
+		buffer.previousRotation[slot] = in.getDouble();
+		buffer.spin[slot] = in.getDouble();
+		buffer.radius[slot] = in.getDouble();
+		this.killScore = in.getInt();
+		this.needsRemoval = (in.get() != 0);
 	}
 	
 	/**
@@ -148,15 +366,36 @@ public abstract class Entity {
 		/*
 		 * Here we use the Pythagorean Theorem to determine whether the two
 		 * Entities are close enough to collide.
-		 * 
+		 *
 		 * The reason we are squaring everything is because it's much, much
 		 * quicker to square one variable than it is to take the square root
 		 * of another. While this game is simple enough that such minor
 		 * optimizations are unnecessary, it's still a good habit to get
 		 * into.
+		 *
+		 * The distance is measured across the edges of the world, so Entities
+		 * that overlap where the world wraps around will still collide.
 		 */
-		double radius = entity.getCollisionRadius() + getCollisionRadius();
-		return (position.getDistanceToSquared(entity.position) < radius * radius);
+		return isColliding(getX(), getY(), getCollisionRadius(), entity.getX(), entity.getY(), entity.getCollisionRadius(), store.getTorus());
+	}
+	
+	/**
+	 * Determines whether two circles overlap, measuring across the edges of
+	 * the world. This is the test used by {@code checkCollision}, so anything
+	 * that finds collisions without going through an Entity gets exactly the
+	 * same answer, down to the last bit.
+	 * @param x1 The x coordinate of the first circle.
+	 * @param y1 The y coordinate of the first circle.
+	 * @param radius1 The radius of the first circle.
+	 * @param x2 The x coordinate of the second circle.
+	 * @param y2 The y coordinate of the second circle.
+	 * @param radius2 The radius of the second circle.
+	 * @param torus The Torus of the world.
+	 * @return Whether the circles overlap.
+	 */
+	public static boolean isColliding(double x1, double y1, double radius1, double x2, double y2, double radius2, Torus torus) {
+		double radius = radius2 + radius1;
+		return (torus.getDistanceSquared(x1, y1, x2, y2) < radius * radius);
 	}
 	
 	/**
@@ -164,12 +403,17 @@ public abstract class Entity {
 	 * @param game The game instance.
 	 * @param other The Entity that we collided with.
 	 */
-	public abstract void handleCollision(Game game, Entity other);
+	public abstract void handleCollision(GameEngine game, Entity other);
 	
 	/**
-	 * Draw this Entity onto the window.
-	 * @param g The Graphics instance.
+	 * Gets a value describing how this Entity should currently look, which is
+	 * copied into each {@code WorldFrame} so that the renderer never needs to
+	 * look at the Entity itself. What the value means depends on the kind of
+	 * Entity.
 	 * @param game The game instance.
+	 * @return The appearance.
 	 */
-	public abstract void draw(Graphics2D g, Game game);
+	public int getAppearance(GameEngine game) {
+		return 0;
+	}
 }
@@ -0,0 +1,311 @@
+package org.psnbtech.entity;
+
+import java.util.Arrays;
+
+/**
+ * <p>The {@code EntityBuffer} class stores the state of every Entity of a
+ * single kind in a set of parallel arrays, with each Entity occupying one
+ * slot in every array.</p>
+ *
+ * <p>Slots below {@code active} belong to Entities that are in the world, and
+ * are moved each time the world is integrated. Slots from {@code active} up to
+ * {@code size} belong to Entities that have been created but not yet added to
+ * the world.</p>
+ *
+ * <p>Entities that are removed from the buffer are kept in a free list, so
+ * that they can be reused rather than creating a new Entity.</p>
+ * @author Brendan Jones
+ *
+ */
+class EntityBuffer {
+	
+	/**
+	 * The number of slots a buffer starts out with.
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	/**
+	 * The value that rotations are wrapped to.
+	 */
+	private static final double FULL_ROTATION = Math.PI * 2;
+	
+	/**
+	 * The x positions.
+	 */
+	double[] x;
+	
+	/**
+	 * The y positions.
+	 */
+	double[] y;
+	
+	/**
+	 * The x positions at the start of the last update.
+	 */
+	double[] previousX;
+	
+	/**
+	 * The y positions at the start of the last update.
+	 */
+	double[] previousY;
+	
+	/**
+	 * The x velocities.
+	 */
+	double[] velocityX;
+	
+	/**
+	 * The y velocities.
+	 */
+	double[] velocityY;
+	
+	/**
+	 * The rotations.
+	 */
+	double[] rotation;
+	
+	/**
+	 * The rotations at the start of the last update.
+	 */
+	double[] previousRotation;
+	
+	/**
+	 * The amount each rotation changes by every update.
+	 */
+	double[] spin;
+	
+	/**
+	 * The collision radii.
+	 */
+	double[] radius;
+	
+	/**
+	 * The Entity that owns each slot.
+	 */
+	Entity[] handles;
+	
+	/**
+	 * The Entities that have been removed, and are waiting to be reused.
+	 */
+	Entity[] free;
+	
+	/**
+	 * The number of Entities in the free list.
+	 */
+	int freeCount;
+	
+	/**
+	 * The number of slots in use.
+	 */
+	int size;
+	
+	/**
+	 * The number of slots that are in the world.
+	 */
+	int active;
+	
+	/**
+	 * Creates a new, empty EntityBuffer.
+	 */
+	EntityBuffer() {
+		this.x = new double[DEFAULT_CAPACITY];
+		this.y = new double[DEFAULT_CAPACITY];
+		this.previousX = new double[DEFAULT_CAPACITY];
+		this.previousY = new double[DEFAULT_CAPACITY];
+		this.velocityX = new double[DEFAULT_CAPACITY];
+		this.velocityY = new double[DEFAULT_CAPACITY];
+		this.rotation = new double[DEFAULT_CAPACITY];
+		this.previousRotation = new double[DEFAULT_CAPACITY];
+		this.spin = new double[DEFAULT_CAPACITY];
+		this.radius = new double[DEFAULT_CAPACITY];
+		this.handles = new Entity[DEFAULT_CAPACITY];
+		this.free = new Entity[DEFAULT_CAPACITY];
+	}
+	
+	/**
+	 * Adds an Entity to the end of the buffer. It will not be integrated until
+	 * the buffer is next activated.
+	 * @param entity The Entity.
+	 * @return The slot the Entity was placed in.
+	 */
+	int add(Entity entity) {
+		if(size == handles.length) {
+			ensureCapacity(size * 2);
+		}
+		handles[size] = entity;
+		return size++;
+	}
+	
+	/**
+	 * Grows the columns so that they have at least a number of slots.
+	 * @param capacity The number of slots.
+	 */
+	void ensureCapacity(int capacity) {
+		if(capacity > handles.length) {
+			this.x = Arrays.copyOf(x, capacity);
+			this.y = Arrays.copyOf(y, capacity);
+			this.previousX = Arrays.copyOf(previousX, capacity);
+			this.previousY = Arrays.copyOf(previousY, capacity);
+			this.velocityX = Arrays.copyOf(velocityX, capacity);
+			this.velocityY = Arrays.copyOf(velocityY, capacity);
+			this.rotation = Arrays.copyOf(rotation, capacity);
+			this.previousRotation = Arrays.copyOf(previousRotation, capacity);
+			this.spin = Arrays.copyOf(spin, capacity);
+			this.radius = Arrays.copyOf(radius, capacity);
+			this.handles = Arrays.copyOf(handles, capacity);
+		}
+	}
+	
+	/**
+	 * Removes the Entity in a slot. The gap is filled by moving the last
+	 * Entity into it, so the order of the slots is not preserved. The removed
+	 * Entity is added to the free list.
+	 * @param slot The slot to remove.
+	 */
+	void remove(int slot) {
+		recycle(handles[slot]);
+		
+		/*
+		 * If the slot is in the world, fill it with the last Entity in the
+		 * world first, so that the gap ends up at the boundary between the
+		 * Entities that are in the world and those that are not.
+		 */
+		if(slot < active) {
+			this.active--;
+			move(active, slot);
+			slot = active;
+		}
+		this.size--;
+		move(size, slot);
+		handles[size] = null;
+	}
+	
+	/**
+	 * Moves the Entity in one slot into another.
+	 * @param from The slot to move from.
+	 * @param to The slot to move to.
+	 */
+	private void move(int from, int to) {
+		if(from != to) {
+			x[to] = x[from];
+			y[to] = y[from];
+			previousX[to] = previousX[from];
+			previousY[to] = previousY[from];
+			velocityX[to] = velocityX[from];
+			velocityY[to] = velocityY[from];
+			rotation[to] = rotation[from];
+			previousRotation[to] = previousRotation[from];
+			spin[to] = spin[from];
+			radius[to] = radius[from];
+			handles[to] = handles[from];
+			handles[to].slot = to;
+		}
+	}
+	
+	/**
+	 * Removes every Entity from the buffer.
+	 */
+	void clear() {
+		for(int i = 0; i < size; i++) {
+			handles[i].slot = -1;
+			recycle(handles[i]);
+			handles[i] = null;
+		}
+		this.size = 0;
+		this.active = 0;
+	}
+	
+	/**
+	 * Adds an Entity to the free list.
+	 * @param entity The Entity.
+	 */
+	void recycle(Entity entity) {
+		if(freeCount == free.length) {
+			this.free = Arrays.copyOf(free, freeCount * 2);
+		}
+		free[freeCount++] = entity;
+	}
+	
+	/**
+	 * Takes an Entity from the free list.
+	 * @return The Entity, or null if the free list is empty.
+	 */
+	Entity reuse() {
+		if(freeCount == 0) {
+			return null;
+		}
+		Entity entity = free[--freeCount];
+		free[freeCount] = null;
+		return entity;
+	}
+	
+	/**
+	 * Adds every Entity in the buffer to the world.
+	 */
+	void activate() {
+		this.active = size;
+	}
+	
+	/**
+	 * <p>Moves each Entity in the world by its velocity, wrapping it around
+	 * to the other side of the world if needed, and then rotates it.</p>
+	 *
+	 * <p>The state before moving is kept, so that the renderer can draw each
+	 * Entity part way between where it was and where it is now.</p>
+	 *
+	 * <p>Each step is done in its own loop over primitive arrays, without any
+	 * branching, so the JIT compiler is able to unroll and vectorize them.</p>
+	 *
+	 * <p>Each slot is integrated on its own, so the slots can be split into
+	 * ranges that are integrated on different threads at once.</p>
+	 * @param from The first slot, which must be at least 0.
+	 * @param to The slot after the last slot, which must be at most
+	 * {@code active}.
+	 * @param worldSize The size of the world.
+	 * @param inverseWorldSize The reciprocal of the size of the world.
+	 */
+	void integrate(int from, int to, double worldSize, double inverseWorldSize) {
+		double[] x = this.x;
+		double[] y = this.y;
+		double[] velocityX = this.velocityX;
+		double[] velocityY = this.velocityY;
+		double[] rotation = this.rotation;
+		double[] spin = this.spin;
+		
+		System.arraycopy(x, from, previousX, from, to - from);
+		System.arraycopy(y, from, previousY, from, to - from);
+		System.arraycopy(rotation, from, previousRotation, from, to - from);
+		
+		for(int i = from; i < to; i++) {
+			x[i] += velocityX[i];
+			y[i] += velocityY[i];
+		}
+		
+		for(int i = from; i < to; i++) {
+			x[i] -= worldSize * Math.floor(x[i] * inverseWorldSize);
+			y[i] -= worldSize * Math.floor(y[i] * inverseWorldSize);
+		}
+		
+		for(int i = from; i < to; i++) {
+			rotation[i] = (rotation[i] + spin[i]) % FULL_ROTATION;
+		}
+	}
+	
+	/**
+	 * Integrates a single slot, in the same way that {@code integrate} does.
+	 * @param slot The slot.
+	 * @param worldSize The size of the world.
+	 * @param inverseWorldSize The reciprocal of the size of the world.
+	 */
+	void integrate(int slot, double worldSize, double inverseWorldSize) {
+		previousX[slot] = x[slot];
+		previousY[slot] = y[slot];
+		previousRotation[slot] = rotation[slot];
+		x[slot] += velocityX[slot];
+		y[slot] += velocityY[slot];
+		x[slot] -= worldSize * Math.floor(x[slot] * inverseWorldSize);
+		y[slot] -= worldSize * Math.floor(y[slot] * inverseWorldSize);
+		rotation[slot] = (rotation[slot] + spin[slot]) % FULL_ROTATION;
+	}
+
+}
@@ -0,0 +1,50 @@
+package org.psnbtech.entity;
+
+/**
+ * The different kinds of Entity. The {@code EntityStore} keeps the state of
+ * each kind in its own set of columns.
+ * @author Brendan Jones
+ *
+ */
+public enum EntityKind {
+	
+	/**
+	 * The player's ship.
+	 */
+	Player,
+	
+	/**
+	 * An Asteroid of any size.
+	 */
+	Asteroid,
+	
+	/**
+	 * A Bullet fired by the player.
+	 */
+	Bullet;
+	
+	/**
+	 * <p>Determines whether a collision between this kind of Entity and
+	 * another kind has any effect. Asteroids pass through each other, and so
+	 * do ships and bullets, so pairs of them never need to be checked.</p>
+	 * 
+	 * <p>This has to agree with what each kind does in
+	 * {@code handleCollision}, as the {@code BroadPhase} leaves out every pair
+	 * that this says can't interact.</p>
+	 * @param other The other kind of Entity.
+	 * @return Whether the two kinds interact.
+	 */
+	public boolean interactsWith(EntityKind other) {
+		switch(this) {
+		case Player:
+			return (other == Asteroid);
+		
+		case Asteroid:
+			return (other != Asteroid);
+		
+		default:
+			return (other != Player);
+		}
+	}
+
+}
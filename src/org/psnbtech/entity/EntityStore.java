@@ -0,0 +1,374 @@
+package org.psnbtech.entity;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.psnbtech.WorldPanel;
+import org.psnbtech.util.ParallelLoop;
+import org.psnbtech.util.Torus;
+
+/**
+ * <p>The {@code EntityStore} holds the position, velocity, rotation, and
+ * collision radius of every Entity in the game.</p>
+ *
+ * <p>Rather than each Entity keeping its own {@code Vector2} objects, the
+ * state is kept in parallel arrays of primitives, grouped by the kind of
+ * Entity. Each Entity is just a handle to its slot in these arrays, which
+ * allows the whole world to be moved in a handful of tight loops instead of
+ * chasing a pointer for every Entity.</p>
+ *
+ * <p>Bullets and Asteroids are pooled. Once an Entity has been flagged for
+ * removal and removed from the store, it is kept so that it can be handed
+ * back out by {@code acquireBullet} or {@code acquireAsteroid} rather than
+ * creating a new one. This way the game doesn't need to create any garbage
+ * once the pools have warmed up. Players that leave a game are pooled in the
+ * same way, and handed back out by {@code acquirePlayer}.</p>
+ *
+ * <p>Given a pool with {@code setPool}, the world is integrated on several
+ * threads at once. Every slot is moved on its own, so the results are the
+ * same as integrating on a single thread.</p>
+ * @author Brendan Jones
+ *
+ */
+public class EntityStore {
+	
+	/**
+	 * The number of Bullets created up front for the pool.
+	 */
+	private static final int BULLET_POOL_SIZE = 16;
+	
+	/**
+	 * The number of Asteroids created up front for the pool.
+	 */
+	private static final int ASTEROID_POOL_SIZE = 64;
+	
+	/**
+	 * The smallest number of Entities in the world that is integrated on the
+	 * pool, as splitting up fewer isn't worth handing them to other threads.
+	 */
+	private static final int PARALLEL_THRESHOLD = 8192;
+	
+	/**
+	 * The size of the world.
+	 */
+	private final double worldSize;
+	
+	/**
+	 * The reciprocal of the size of the world.
+	 */
+	private final double inverseWorldSize;
+	
+	/**
+	 * The Torus used to measure distances in the world.
+	 */
+	private final Torus torus;
+	
+	/**
+	 * The buffers for each kind of Entity, indexed by ordinal.
+	 */
+	private final EntityBuffer[] buffers;
+	
+	/**
+	 * The identifier that the next Entity to be spawned is given.
+	 */
+	private int nextId;
+	
+	/**
+	 * The loop that integrates the world, split across the slots of every
+	 * buffer.
+	 */
+	private IntegrateLoop integrateLoop;
+	
+	/**
+	 * Creates a new EntityStore for the default world size.
+	 */
+	public EntityStore() {
+		this(WorldPanel.WORLD_SIZE);
+	}
+	
+	/**
+	 * Creates a new EntityStore.
+	 * @param worldSize The size of the world.
+	 */
+	public EntityStore(double worldSize) {
+		this.worldSize = worldSize;
+		this.inverseWorldSize = 1.0 / worldSize;
+		this.torus = new Torus(worldSize);
+		this.buffers = new EntityBuffer[EntityKind.values().length];
+		for(int i = 0; i < buffers.length; i++) {
+			buffers[i] = new EntityBuffer();
+		}
+		this.integrateLoop = new IntegrateLoop(null);
+		
+		//Fill the pools, so we don't need to create anything during the game.
+		for(int i = 0; i < BULLET_POOL_SIZE; i++) {
+			getBuffer(EntityKind.Bullet).recycle(new Bullet(this));
+		}
+		for(int i = 0; i < ASTEROID_POOL_SIZE; i++) {
+			getBuffer(EntityKind.Asteroid).recycle(new Asteroid(this));
+		}
+	}
+	
+	/**
+	 * Gets the buffer that holds a kind of Entity.
+	 * @param kind The kind of Entity.
+	 * @return The buffer.
+	 */
+	EntityBuffer getBuffer(EntityKind kind) {
+		return buffers[kind.ordinal()];
+	}
+	
+	/**
+	 * Takes a Bullet from the pool, or creates a new one if the pool is empty,
+	 * and fires it from an Entity.
+	 * @param owner The object that fired the bullet.
+	 * @param angle The direction of the Bullet.
+	 * @return The Bullet.
+	 */
+	public Bullet acquireBullet(Entity owner, double angle) {
+		Bullet bullet = (Bullet) getBuffer(EntityKind.Bullet).reuse();
+		if(bullet == null) {
+			bullet = new Bullet(this);
+		}
+		bullet.reset(owner, angle);
+		return bullet;
+	}
+	
+	/**
+	 * Takes an Asteroid from the pool, or creates a new one if the pool is
+	 * empty, and places it randomly in the world.
+	 * @param random The Random instance.
+	 * @return The Asteroid.
+	 */
+	public Asteroid acquireAsteroid(Random random) {
+		Asteroid asteroid = (Asteroid) getBuffer(EntityKind.Asteroid).reuse();
+		if(asteroid == null) {
+			asteroid = new Asteroid(this);
+		}
+		asteroid.reset(random);
+		return asteroid;
+	}
+	
+	/**
+	 * Takes an Asteroid from the pool, or creates a new one if the pool is
+	 * empty, and spawns it from a parent Asteroid.
+	 * @param parent The parent.
+	 * @param size The size.
+	 * @param random The Random instance.
+	 * @return The Asteroid.
+	 */
+	public Asteroid acquireAsteroid(Asteroid parent, AsteroidSize size, Random random) {
+		Asteroid asteroid = (Asteroid) getBuffer(EntityKind.Asteroid).reuse();
+		if(asteroid == null) {
+			asteroid = new Asteroid(this);
+		}
+		asteroid.reset(parent, size, random);
+		return asteroid;
+	}
+	
+	/**
+	 * Takes a Player from the pool, or creates a new one if the pool is empty,
+	 * and spawns it at the center of the world.
+	 * @return The Player.
+	 */
+	public Player acquirePlayer() {
+		Player player = (Player) getBuffer(EntityKind.Player).reuse();
+		if(player == null) {
+			player = new Player(this);
+		} else {
+			player.initialize();
+		}
+		return player;
+	}
+	
+	/**
+	 * Takes an Entity of a kind from the pool, or creates a new one if the
+	 * pool is empty, and gives it a slot with blank state. This is used when
+	 * the Entity's state is about to be restored with {@code readState}.
+	 * @param kind The kind of Entity. Players are restored in place rather
+	 * than being taken from the pool, so they can't be acquired this way.
+	 * @return The Entity.
+	 */
+	public Entity acquire(EntityKind kind) {
+		Entity entity = getBuffer(kind).reuse();
+		if(entity == null) {
+			entity = create(kind);
+		}
+		entity.spawn(0.0, 0.0, 0.0, 0.0, 0.0, 0);
+		return entity;
+	}
+	
+	/**
+	 * Creates a new Entity of a pooled kind, which won't be in the world until
+	 * it has been spawned.
+	 * @param kind The kind of Entity.
+	 * @return The Entity.
+	 * @throws IllegalArgumentException If the kind of Entity isn't pooled.
+	 */
+	private Entity create(EntityKind kind) {
+		switch(kind) {
+		case Asteroid:
+			return new Asteroid(this);
+		
+		case Bullet:
+			return new Bullet(this);
+		
+		default:
+			throw new IllegalArgumentException("Entities of kind " + kind + " are not pooled.");
+		}
+	}
+	
+	/**
+	 * <p>Makes room for a number of Entities of a kind, so that they can be in
+	 * the store at once without it having to grow.</p>
+	 * 
+	 * <p>The pool is filled until there are enough Entities to go around, and
+	 * the columns are grown to hold all of them. This is meant for large
+	 * worlds, where growing the store in the middle of a game would copy every
+	 * column at once and stall that update.</p>
+	 * @param kind The kind of Entity, which must be pooled.
+	 * @param count The number of Entities to make room for.
+	 * @throws IllegalArgumentException If the kind of Entity isn't pooled.
+	 */
+	public void reserve(EntityKind kind, int count) {
+		EntityBuffer buffer = getBuffer(kind);
+		for(int i = buffer.size + buffer.freeCount; i < count; i++) {
+			buffer.recycle(create(kind));
+		}
+		buffer.ensureCapacity(count);
+	}
+	
+	/**
+	 * Removes an Entity from the store, and returns it to the pool. The
+	 * Entity's state can no longer be accessed once it has been removed, and
+	 * the Entity may be handed back out by the next call to acquire an Entity.
+	 * @param entity The Entity to remove.
+	 */
+	public void remove(Entity entity) {
+		int slot = entity.slot;
+		if(slot >= 0) {
+			entity.slot = -1;
+			entity.buffer.remove(slot);
+		}
+	}
+	
+	/**
+	 * Removes every Entity of a kind from the store, and returns them to the
+	 * pool.
+	 * @param kind The kind of Entity to remove.
+	 */
+	public void clear(EntityKind kind) {
+		getBuffer(kind).clear();
+	}
+	
+	/**
+	 * Gives out the identifier for an Entity that is being spawned.
+	 * @return The identifier.
+	 */
+	int nextId() {
+		return nextId++;
+	}
+	
+	/**
+	 * Adds every Entity that has been created since the last call to the
+	 * world, so that they will be moved by {@code integrate}.
+	 */
+	public void activate() {
+		for(int i = 0; i < buffers.length; i++) {
+			buffers[i].activate();
+		}
+	}
+	
+	/**
+	 * Sets the pool that the world is integrated on.
+	 * @param pool The pool, or null to integrate on the calling thread.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.integrateLoop = new IntegrateLoop(pool);
+	}
+	
+	/**
+	 * Moves and rotates every Entity in the world.
+	 */
+	public void integrate() {
+		int count = 0;
+		for(int i = 0; i < buffers.length; i++) {
+			count += buffers[i].active;
+		}
+		integrateLoop.run(count, count >= PARALLEL_THRESHOLD);
+	}
+	
+	/**
+	 * Moves and rotates a range of the Entities in the world, where the slots
+	 * of each buffer are numbered on from those of the buffer before it.
+	 * @param from The first slot.
+	 * @param to The slot after the last slot.
+	 */
+	private void integrate(int from, int to) {
+		int offset = 0;
+		for(int i = 0; i < buffers.length && offset < to; i++) {
+			EntityBuffer buffer = buffers[i];
+			int start = Math.max(from - offset, 0);
+			int end = Math.min(to - offset, buffer.active);
+			if(start < end) {
+				buffer.integrate(start, end, worldSize, inverseWorldSize);
+			}
+			offset += buffer.active;
+		}
+	}
+	
+	/**
+	 * Moves and rotates a single Entity, regardless of whether it is in the
+	 * world yet.
+	 * @param entity The Entity.
+	 */
+	void integrate(Entity entity) {
+		entity.buffer.integrate(entity.slot, worldSize, inverseWorldSize);
+	}
+	
+	/**
+	 * Gets the number of Entities of a kind in the store.
+	 * @param kind The kind of Entity.
+	 * @return The number of Entities.
+	 */
+	public int size(EntityKind kind) {
+		return getBuffer(kind).size;
+	}
+	
+	/**
+	 * Gets the size of the world.
+	 * @return The size of the world.
+	 */
+	public double getWorldSize() {
+		return worldSize;
+	}
+	
+	/**
+	 * Gets the Torus used to measure distances in the world.
+	 * @return The Torus.
+	 */
+	public Torus getTorus() {
+		return torus;
+	}
+	
+	/**
+	 * The loop that integrates a range of the slots in every buffer.
+	 */
+	private class IntegrateLoop extends ParallelLoop {
+		
+		/**
+		 * Creates a new IntegrateLoop.
+		 * @param pool The pool, or null to integrate on the calling thread.
+		 */
+		private IntegrateLoop(ForkJoinPool pool) {
+			super(pool);
+		}
+		
+		@Override
+		protected void runChunk(int chunk, int from, int to) {
+			integrate(from, to);
+		}
+	
+	}
+
+}
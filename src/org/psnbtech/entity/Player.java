@@ -1,164 +1,213 @@
 package org.psnbtech.entity;
 
-import java.awt.Graphics2D;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
-import org.psnbtech.Game;
-import org.psnbtech.WorldPanel;
-import org.psnbtech.util.Vector2;
+import org.psnbtech.GameEngine;
+import org.psnbtech.jfr.GameEvents;
+import org.psnbtech.jfr.ShotFiredEvent;
 
+/**
+ * <p>Represents a player's ship within the game world.</p>
+ * 
+ * <p>Besides the ship itself, a Player holds the things that belong to the
+ * person flying it, such as their score and lives, so that any number of
+ * players can share a world.</p>
+ * @author Brendan Jones
+ *
+ */
 public class Player extends Entity {
 	
 	private static final double DEFAULT_ROTATION = -Math.PI / 2.0;
 	
 	/**
-	 * The magnitude of our ship's thrust.
+	 * The appearance flag set when the ship should be drawn.
 	 */
-	private static final double THRUST_MAGNITUDE = 0.0385;
+	public static final int APPEARANCE_VISIBLE = 1;
 	
 	/**
-	 * The maximum speed at which our ship can travel.
+	 * The appearance flag set when the flames behind the ship should be drawn.
 	 */
-	private static final double MAX_VELOCITY_MAGNITUDE = 6.5;
+	public static final int APPEARANCE_FLAMES = 2;
 	
 	/**
-	 * The speed at which the ship rotates.
+	 * The state that decides how the ship moves and fires. The position,
+	 * velocity and rotation live in the store like any other Entity's, and
+	 * are only copied in while the ship updates.
 	 */
-	private static final double ROTATION_SPEED = 0.052;
+	private final PlayerState ship;
 	
 	/**
-	 * The factor at which our ship slows down.
+	 * The number of points this player has scored.
 	 */
-	private static final double SLOW_RATE = 0.995;
+	private int score;
 	
 	/**
-	 * The maximum number of bullets that can be fired at once.
+	 * The number of lives this player has left.
 	 */
-	private static final int MAX_BULLETS = 4;
+	private int lives;
 	
 	/**
-	 * The number of cycles that must elapse between shots.
+	 * <p>The death cooldown timer is responsible for spreading this player's
+	 * death out over time, so the player does not instantly spawn.</p>
+	 * 
+	 * <p>It is set by the {@code GameEngine} upon death, and decremented each
+	 * frame. The ship is reset once it has counted down part of the way, and
+	 * becomes vulnerable again once it reaches zero.</p>
 	 */
-	private static final int FIRE_RATE = 4;
+	private int deathCooldown;
 	
 	/**
-	 * The maximum number of shots that can be fired consecutively before
-	 * overheating.
+	 * The x coordinate that this player spawns at.
 	 */
-	private static final int MAX_CONSECUTIVE_SHOTS = 8;
+	private double spawnX;
 	
 	/**
-	 * The number of cycles that must elapse before we stop overheating.
+	 * The y coordinate that this player spawns at.
 	 */
-	private static final int MAX_OVERHEAT = 30;
+	private double spawnY;
 	
 	/**
-	 * Whether the ship should apply thrust when it updates.
+	 * The bullets that have been fired.
 	 */
-	private boolean thrustPressed;
+	private List<Bullet> bullets;
 	
 	/**
-	 * Whether the ship should rotate to the left when it updates.
+	 * Initializes a new Player instance.
+	 * @param store The EntityStore.
 	 */
-	private boolean rotateLeftPressed;
+	public Player(EntityStore store) {
+		super(store, EntityKind.Player);
+		this.bullets = new ArrayList<>();
+		this.ship = new PlayerState();
+		initialize();
+	}
 	
 	/**
-	 * Whether the ship should rotate to the right when it updates.
+	 * Spawns this Player at the center of the world, with the controls
+	 * released and nothing fired. This is used both when a Player is first
+	 * created, and when a Player is taken back out of the pool to be reused.
 	 */
-	private boolean rotateRightPressed;
+	void initialize() {
+		this.spawnX = store.getWorldSize() / 2.0;
+		this.spawnY = store.getWorldSize() / 2.0;
+		spawn(spawnX, spawnY, 0.0, 0.0, 10.0, 0);
+		setRotation(DEFAULT_ROTATION);
+		bullets.clear();
+		ship.thrustPressed = false;
+		ship.rotateLeftPressed = false;
+		ship.rotateRightPressed = false;
+		ship.firePressed = false;
+		ship.firingEnabled = true;
+		ship.consecutiveShots = 0;
+		ship.fireCooldown = 0;
+		ship.overheatCooldown = 0;
+		ship.animationFrame = 0;
+		this.score = 0;
+		this.lives = 0;
+		this.deathCooldown = 0;
+	}
 	
 	/**
-	 * Whether the ship should fire a bullet when it updates.
-	 */
-	private boolean firePressed;
-		
-	/**
-	 * Whether the ship is allowed to fire a bullet.
+	 * Sets whether this player should apply thrust when it updates.
+	 * @param state Whether to apply thrust.
 	 */
-	private boolean firingEnabled;
+	public void setThrusting(boolean state) {
+		ship.thrustPressed = state;
+	}
 	
 	/**
-	 * The number of consecutive shots fired.
+	 * Sets whether this player should rotate left when it updates.
+	 * @param state Whether to rotate left.
 	 */
-	private int consecutiveShots;
+	public void setRotateLeft(boolean state) {
+		ship.rotateLeftPressed = state;
+	}
 	
 	/**
-	 * The cooldown timer for firing.
+	 * Sets whether this player should rotate right when it updates.
+	 * @param state Whether to rotate right.
 	 */
-	private int fireCooldown;
+	public void setRotateRight(boolean state) {
+		ship.rotateRightPressed = state;
+	}
 	
 	/**
-	 * The cooldown timer for overheating.
+	 * Sets whether this player should fire when it updates.
+	 * @param state Whether to fire.
 	 */
-	private int overheatCooldown;
-	
+	public void setFiring(boolean state) {
+		ship.firePressed = state;
+	}
+		
 	/**
-	 * The current animation frame.
+	 * Sets whether this player can fire when it updates.
+	 * @param state Whether this player can fire.
 	 */
-	private int animationFrame;
+	public void setFiringEnabled(boolean state) {
+		ship.firingEnabled = state;
+	}
 	
 	/**
-	 * The bullets that have been fired.
+	 * Gets the number of points this player has scored.
+	 * @return The score.
 	 */
-	private List<Bullet> bullets;
+	public int getScore() {
+		return score;
+	}
 	
 	/**
-	 * Initializes a new Player instance.
+	 * Sets the number of points this player has scored.
+	 * @param score The score.
 	 */
-	public Player() {
-		super(new Vector2(WorldPanel.WORLD_SIZE / 2.0, WorldPanel.WORLD_SIZE / 2.0), new Vector2(0.0, 0.0), 10.0, 0);
-		this.bullets = new ArrayList<>();
-		this.rotation = DEFAULT_ROTATION;
-		this.thrustPressed = false;
-		this.rotateLeftPressed = false;
-		this.rotateRightPressed = false;
-		this.firePressed = false;
-		this.firingEnabled = true;
-		this.fireCooldown = 0;
-		this.overheatCooldown = 0;
-		this.animationFrame = 0;
+	public void setScore(int score) {
+		this.score = score;
 	}
 	
 	/**
-	 * Sets whether this player should apply thrust when it updates.
-	 * @param state Whether to apply thrust.
+	 * Gets the number of lives this player has left.
+	 * @return The number of lives.
 	 */
-	public void setThrusting(boolean state) {
-		this.thrustPressed = state;
+	public int getLives() {
+		return lives;
 	}
 	
 	/**
-	 * Sets whether this player should rotate left when it updates.
-	 * @param state Whether to rotate left.
+	 * Sets the number of lives this player has left.
+	 * @param lives The number of lives.
 	 */
-	public void setRotateLeft(boolean state) {
-		this.rotateLeftPressed = state;
+	public void setLives(int lives) {
+		this.lives = lives;
 	}
 	
 	/**
-	 * Sets whether this player should rotate right when it updates.
-	 * @param state Whether to rotate right.
+	 * Gets the death cooldown timer, which is zero unless this player has
+	 * recently died.
+	 * @return The death cooldown.
 	 */
-	public void setRotateRight(boolean state) {
-		this.rotateRightPressed = state;
+	public int getDeathCooldown() {
+		return deathCooldown;
 	}
 	
 	/**
-	 * Sets whether this player should fire when it updates.
-	 * @param state Whether to fire.
+	 * Sets the death cooldown timer.
+	 * @param deathCooldown The death cooldown.
 	 */
-	public void setFiring(boolean state) {
-		this.firePressed = state;
+	public void setDeathCooldown(int deathCooldown) {
+		this.deathCooldown = deathCooldown;
 	}
-		
+	
 	/**
-	 * Sets whether this player can fire when it updates.
-	 * @param state Whether this player can fire.
+	 * Sets the position that this player spawns at, which is the center of the
+	 * world unless it has been changed. The player isn't moved until it is
+	 * next reset.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
 	 */
-	public void setFiringEnabled(boolean state) {
-		this.firingEnabled = state;
+	public void setSpawnPoint(double x, double y) {
+		this.spawnX = x;
+		this.spawnY = y;
 	}
 	
 	/**
@@ -166,151 +215,163 @@ public class Player extends Entity {
 	 * and clears the list of bullets.
 	 */
 	public void reset() {
-		this.rotation = DEFAULT_ROTATION;
-		position.set(WorldPanel.WORLD_SIZE / 2.0, WorldPanel.WORLD_SIZE / 2.0);
-		velocity.set(0.0, 0.0);
+		setRotation(DEFAULT_ROTATION);
+		setPosition(spawnX, spawnY);
+		setVelocity(0.0, 0.0);
 		bullets.clear();
 	}
 		
 	@Override
-	public void update(Game game) {
-		super.update(game);
-		
-		//Increment the animation frame.
-		this.animationFrame++;
-		
+	public void update(GameEngine game) {
 		/*
-		 * Rotate the ship if only one of the rotation flags are true, as doing
-		 * one rotation will cancel the effect of doing the other.
-		 * 
-		 * The conditional statement can alternatively be written like this:
-		 * 
-		 * if(rotateLeftPressed) {
-		 *     rotate(-ROTATION_SPEED);
-		 * } else {
-		 *     rotate(ROTATION_SPEED);
-		 * }
+		 * Removed bullets go back into the pool, so this needs to happen before
+		 * we fire, otherwise we could be handed a bullet that is still in the
+		 * list.
 		 */
-		if(rotateLeftPressed != rotateRightPressed) {
-			rotate(rotateLeftPressed ? -ROTATION_SPEED : ROTATION_SPEED);
-		}
+		removeFlaggedBullets();
 		
 		/*
-		 * Apply thrust to our ship's velocity, and ensure that the ship is not
-		 * going faster than the maximum magnitude.
+		 * The handling of the ship is shared with client-side prediction, so
+		 * copy in what it needs, update it, and copy back what it changed. The
+		 * rotation is written straight to the store, so that the previous
+		 * rotation is kept for drawing, just like rotate would.
 		 */
-		if(thrustPressed) {
-			/*
-			 * Here we create a new vector based on our ship's rotation, and scale
-			 * it by our thrust's magnitude. Then we add that vector to our velocity.
-			 */
-			velocity.add(new Vector2(rotation).scale(THRUST_MAGNITUDE));
+		ship.velocityX = getVelocityX();
+		ship.velocityY = getVelocityY();
+		ship.rotation = getRotation();
+		ship.bulletCount = bullets.size();
+		int consecutiveShots = ship.consecutiveShots;
+		boolean fired = ship.update();
+		setVelocity(ship.velocityX, ship.velocityY);
+		buffer.rotation[slot] = ship.rotation;
+		
+		//Register a new bullet to the game world if one was fired.
+		if(fired) {
+			Bullet bullet = store.acquireBullet(this, getRotation());
+			bullets.add(bullet);
+			game.registerEntity(bullet);
 			
-			/*
-			 * Here we determine whether our ship is going faster than is
-			 * allowed. Like when checking for collisions, we check the squared
-			 * magnitude because it is quicker to square a value than it is to
-			 * take the square root.
-			 * 
-			 * If our velocity exceeds our maximum allowed velocity, we normalize
-			 * it (giving it a magnitude of 1.0), and scale it to be he maximum.
-			 */
-			if(velocity.getLengthSquared() >= MAX_VELOCITY_MAGNITUDE * MAX_VELOCITY_MAGNITUDE) {
-				velocity.normalize().scale(MAX_VELOCITY_MAGNITUDE);
+			//Record the shot with the flight recorder, if it's recording.
+			if(GameEvents.isShotFiredRecording()) {
+				ShotFiredEvent event = new ShotFiredEvent();
+				event.bullets = bullets.size();
+				event.consecutiveShots = consecutiveShots + 1;
+				event.commit();
 			}
 		}
-		
-		/*
-		 * If our ship is moving, slow it down slightly, which causes the ship
-		 * to some to a gradual stop.
-		 */
-		if(velocity.getLengthSquared() != 0.0) {
-			velocity.scale(SLOW_RATE);
-		}
-		
-		/*
-		 * Loop through each bullet and remove it from the list if necessary.
-		 */
-		Iterator<Bullet> iter = bullets.iterator();
-		while(iter.hasNext()) {
-			Bullet bullet = iter.next();
-			if(bullet.needsRemoval()) {
-				iter.remove();
+	}
+	
+	/**
+	 * Copies the state of the ship into a PlayerState, so that it can be sent
+	 * to a client or stepped without changing the world. Bullets that have
+	 * been flagged for removal aren't included.
+	 * @param out The PlayerState to copy into.
+	 */
+	public void saveState(PlayerState out) {
+		out.set(ship);
+		out.x = getX();
+		out.y = getY();
+		out.velocityX = getVelocityX();
+		out.velocityY = getVelocityY();
+		out.rotation = getRotation();
+		out.bulletCount = 0;
+		for(int i = 0; i < bullets.size(); i++) {
+			Bullet bullet = bullets.get(i);
+			if(!bullet.needsRemoval()) {
+				out.bulletLifespans[out.bulletCount++] = bullet.getLifespan();
 			}
 		}
-		
-		/*
-		 * Decrement the fire and overheat cooldowns, and determine if we can fire another
-		 * bullet.
-		 */
-		this.fireCooldown--;
-		this.overheatCooldown--;
-		if(firingEnabled && firePressed && fireCooldown <= 0 && overheatCooldown <= 0) {
-			/*
-			 * We can only create a new bullet if we haven't yet exceeded the
-			 * maximum number of bullets that we can have fired at once.
-			 * 
-			 * If a new bullet can be fired, we reset the fire cooldown, and
-			 * register a new bullet to the game world.
-			 */
-			if(bullets.size() < MAX_BULLETS) {
-				this.fireCooldown = FIRE_RATE;
-				
-				Bullet bullet = new Bullet(this, rotation);
-				bullets.add(bullet);
-				game.registerEntity(bullet);
-			}
-			
-			/*
-			 * Since we're attempting to fire a bullet, we increment the number
-			 * of consecutive shots and determine if we should set the overheat
-			 * flag.
-			 * 
-			 * This prevents us from being able to wipe out entire groups of
-			 * asteroids in one burst if we're accurate enough, and will prevent
-			 * us from firing a continuous stream of bullets until we start missing.
-			 */
-			this.consecutiveShots++;
-			if(consecutiveShots == MAX_CONSECUTIVE_SHOTS) {
-				this.consecutiveShots = 0;
-				this.overheatCooldown = MAX_OVERHEAT;
+	}
+	
+	/**
+	 * Loops through each bullet and removes it from the list if it has been
+	 * flagged for removal. The {@code GameEngine} calls this for every player
+	 * before returning removed Entities to the pool, as once a bullet is back
+	 * in the pool it could be handed to another player.
+	 */
+	public void removeFlaggedBullets() {
+		for(int i = bullets.size() - 1; i >= 0; i--) {
+			if(bullets.get(i).needsRemoval()) {
+				bullets.remove(i);
 			}
-		} else if(consecutiveShots > 0) {
-			//Decrement the number of consecutive shots, since we're not trying to fire.
-			this.consecutiveShots--;
 		}
 	}
 	
+	/**
+	 * Gets the bullets that have been fired by this player, and haven't yet
+	 * been removed from the list. Bullets that have been flagged for removal
+	 * are taken out of the list when the world is culled at the end of each
+	 * step.
+	 * @return The list of bullets.
+	 */
+	public List<Bullet> getBullets() {
+		return bullets;
+	}
+	
+	/**
+	 * Writes the state of the ship to a buffer. The list of bullets is not
+	 * included, as the bullets are written separately with the rest of the
+	 * world.
+	 * @param out The buffer to write to.
+	 */
 	@Override
-	public void handleCollision(Game game, Entity other) {
+	public void writeState(ByteBuffer out) {
+		super.writeState(out);
+		out.put((byte) ((ship.thrustPressed ? 1 : 0)
+				| (ship.rotateLeftPressed ? 2 : 0)
+				| (ship.rotateRightPressed ? 4 : 0)
+				| (ship.firePressed ? 8 : 0)
+				| (ship.firingEnabled ? 16 : 0)));
+		out.putInt(ship.consecutiveShots);
+		out.putInt(ship.fireCooldown);
+		out.putInt(ship.overheatCooldown);
+		out.putInt(ship.animationFrame);
+	}
+	
+	@Override
+	public void readState(ByteBuffer in) {
+		super.readState(in);
+		int flags = in.get();
+		ship.thrustPressed = (flags & 1) != 0;
+		ship.rotateLeftPressed = (flags & 2) != 0;
+		ship.rotateRightPressed = (flags & 4) != 0;
+		ship.firePressed = (flags & 8) != 0;
+		ship.firingEnabled = (flags & 16) != 0;
+		ship.consecutiveShots = in.getInt();
+		ship.fireCooldown = in.getInt();
+		ship.overheatCooldown = in.getInt();
+		ship.animationFrame = in.getInt();
+	}
+	
+	@Override
+	public void handleCollision(GameEngine game, Entity other) {
 		//Kill the player if it collides with an Asteroid.
 		if(other.getClass() == Asteroid.class) {
-			game.killPlayer();
+			game.killPlayer(this);
 		}
 	}
 	
+	/**
+	 * Gets the appearance of the ship, as a combination of the
+	 * {@code APPEARANCE_VISIBLE} and {@code APPEARANCE_FLAMES} flags.
+	 */
 	@Override
-	public void draw(Graphics2D g, Game game) {
+	public int getAppearance(GameEngine game) {
+		int appearance = 0;
+		
 		/*
 		 * When the player recently spawned, it will flash for a few seconds to indicate
 		 * that it is invulnerable. The player will not flash if the game is paused.
 		 */
-		if(!game.isPlayerInvulnerable() || game.isPaused() || animationFrame % 20 < 10) {
-			/*
-			 * Draw the ship. The nose will face right (0.0 on the unit circle). All
-			 * transformations will be handled by the WorldPanel before calling the draw
-			 * function.
-			 */
-			g.drawLine(-10, -8, 10, 0);
-			g.drawLine(-10, 8, 10, 0);
-			g.drawLine(-6, -6, -6, 6);
-		
-			//Draw the flames behind the ship if we thrusting, and not paused.
-			if(!game.isPaused() && thrustPressed && animationFrame % 6 < 3) {
-				g.drawLine(-6, -6, -12, 0);
-				g.drawLine(-6, 6, -12, 0);
+		if(!game.isPlayerInvulnerable(this) || game.isPaused() || ship.animationFrame % 20 < 10) {
+			appearance |= APPEARANCE_VISIBLE;
+			
+			//Show the flames behind the ship if we thrusting, and not paused.
+			if(!game.isPaused() && ship.thrustPressed && ship.animationFrame % 6 < 3) {
+				appearance |= APPEARANCE_FLAMES;
 			}
 		}
+		return appearance;
 	}
 	
 }
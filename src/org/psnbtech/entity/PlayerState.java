@@ -0,0 +1,451 @@
+package org.psnbtech.entity;
+
+import java.nio.ByteBuffer;
+
+import org.psnbtech.Input;
+import org.psnbtech.util.Vector2;
+
+/**
+ * <p>The {@code PlayerState} class holds everything that decides how a
+ * player's ship moves and fires from one tick to the next, as plain fields,
+ * so that it can be copied and stepped without touching the world.</p>
+ *
+ * <p>This is where the ship's handling lives. Each {@code Player} keeps its
+ * controls and cooldowns in a PlayerState, and steps it with {@code update}
+ * every tick, so a client that steps a copy of its own with {@code predict}
+ * follows exactly the same arithmetic as the server.
+ * The only thing a PlayerState can't know about is the rest of the world, so
+ * a prediction is wrong whenever the ship dies, or one of its bullets hits
+ * something early.</p>
+ * @author Brendan Jones
+ *
+ */
+public class PlayerState {
+	
+	/**
+	 * The magnitude of our ship's thrust.
+	 */
+	private static final double THRUST_MAGNITUDE = 0.0385;
+	
+	/**
+	 * The maximum speed at which our ship can travel.
+	 */
+	private static final double MAX_VELOCITY_MAGNITUDE = 6.5;
+	
+	/**
+	 * The speed at which the ship rotates.
+	 */
+	private static final double ROTATION_SPEED = 0.052;
+	
+	/**
+	 * The factor at which our ship slows down.
+	 */
+	private static final double SLOW_RATE = 0.995;
+	
+	/**
+	 * The maximum number of bullets that can be fired at once.
+	 */
+	static final int MAX_BULLETS = 4;
+	
+	/**
+	 * The number of cycles that must elapse between shots.
+	 */
+	private static final int FIRE_RATE = 4;
+	
+	/**
+	 * The maximum number of shots that can be fired consecutively before
+	 * overheating.
+	 */
+	private static final int MAX_CONSECUTIVE_SHOTS = 8;
+	
+	/**
+	 * The number of cycles that must elapse before we stop overheating.
+	 */
+	private static final int MAX_OVERHEAT = 30;
+	
+	/**
+	 * The number of bytes taken by {@code write}.
+	 */
+	public static final int SIZE = 8 * 5 + 1 + 4 * 4 + 1 + MAX_BULLETS;
+	
+	/**
+	 * The x coordinate of the ship.
+	 */
+	double x;
+	
+	/**
+	 * The y coordinate of the ship.
+	 */
+	double y;
+	
+	/**
+	 * The x velocity of the ship.
+	 */
+	double velocityX;
+	
+	/**
+	 * The y velocity of the ship.
+	 */
+	double velocityY;
+	
+	/**
+	 * The rotation of the ship.
+	 */
+	double rotation;
+	
+	/**
+	 * Whether the ship should apply thrust when it updates.
+	 */
+	boolean thrustPressed;
+	
+	/**
+	 * Whether the ship should rotate to the left when it updates.
+	 */
+	boolean rotateLeftPressed;
+	
+	/**
+	 * Whether the ship should rotate to the right when it updates.
+	 */
+	boolean rotateRightPressed;
+	
+	/**
+	 * Whether the ship should fire a bullet when it updates.
+	 */
+	boolean firePressed;
+	
+	/**
+	 * Whether the ship is allowed to fire a bullet.
+	 */
+	boolean firingEnabled;
+	
+	/**
+	 * The number of consecutive shots fired.
+	 */
+	int consecutiveShots;
+	
+	/**
+	 * The cooldown timer for firing.
+	 */
+	int fireCooldown;
+	
+	/**
+	 * The cooldown timer for overheating.
+	 */
+	int overheatCooldown;
+	
+	/**
+	 * The current animation frame.
+	 */
+	int animationFrame;
+	
+	/**
+	 * The number of bullets in flight.
+	 */
+	int bulletCount;
+	
+	/**
+	 * The number of updates each bullet in flight has left.
+	 */
+	final int[] bulletLifespans;
+	
+	/**
+	 * The vector the velocity is copied into while updating, reused to avoid
+	 * creating garbage. This isn't part of the state.
+	 */
+	private final Vector2 velocity;
+	
+	/**
+	 * The vector used to calculate thrust, reused to avoid creating garbage.
+	 * This isn't part of the state.
+	 */
+	private final Vector2 thrust;
+	
+	/**
+	 * Creates a new PlayerState, for a ship at the origin with nothing
+	 * pressed.
+	 */
+	public PlayerState() {
+		this.bulletLifespans = new int[MAX_BULLETS];
+		this.velocity = new Vector2(0.0, 0.0);
+		this.thrust = new Vector2(0.0, 0.0);
+	}
+	
+	/**
+	 * Copies another state into this one.
+	 * @param other The state to copy.
+	 */
+	public void set(PlayerState other) {
+		this.x = other.x;
+		this.y = other.y;
+		this.velocityX = other.velocityX;
+		this.velocityY = other.velocityY;
+		this.rotation = other.rotation;
+		this.thrustPressed = other.thrustPressed;
+		this.rotateLeftPressed = other.rotateLeftPressed;
+		this.rotateRightPressed = other.rotateRightPressed;
+		this.firePressed = other.firePressed;
+		this.firingEnabled = other.firingEnabled;
+		this.consecutiveShots = other.consecutiveShots;
+		this.fireCooldown = other.fireCooldown;
+		this.overheatCooldown = other.overheatCooldown;
+		this.animationFrame = other.animationFrame;
+		this.bulletCount = other.bulletCount;
+		System.arraycopy(other.bulletLifespans, 0, bulletLifespans, 0, MAX_BULLETS);
+	}
+	
+	/**
+	 * <p>Steps this state forward by one tick, in the same way the
+	 * {@code GameEngine} steps a Player: the ship is moved by its velocity,
+	 * then updated using the controls from an input, and then its bullets
+	 * age.</p>
+	 *
+	 * <p>Firing adds a bullet to the state, but nothing is added to any
+	 * world.</p>
+	 * @param input The controls for the tick.
+	 * @param worldSize The size of the world the ship wraps around.
+	 */
+	public void predict(Input input, double worldSize) {
+		//Move the ship in the same way as EntityStore.integrate.
+		double inverseWorldSize = 1.0 / worldSize;
+		this.x += velocityX;
+		this.y += velocityY;
+		this.x -= worldSize * Math.floor(x * inverseWorldSize);
+		this.y -= worldSize * Math.floor(y * inverseWorldSize);
+		
+		this.thrustPressed = input.thrust;
+		this.rotateLeftPressed = input.rotateLeft;
+		this.rotateRightPressed = input.rotateRight;
+		this.firePressed = input.fire;
+		int count = bulletCount;
+		update();
+
+		/*
+		 * Age the bullets that were already in flight, as a new bullet isn't
+		 * updated until the tick after it was fired. A bullet is flagged for
+		 * removal as soon as its lifespan runs out, so it no longer counts.
+		 */
+		int remaining = 0;
+		for(int i = 0; i < bulletCount; i++) {
+			int lifespan = (i < count) ? bulletLifespans[i] - 1 : bulletLifespans[i];
+			if(lifespan > 0) {
+				bulletLifespans[remaining++] = lifespan;
+			}
+		}
+		this.bulletCount = remaining;
+	}
+
+	/**
+	 * Updates the ship, turning and thrusting according to the controls, and
+	 * firing if it is able to. The ship isn't moved by its velocity here, as
+	 * that is normally handled by the {@code EntityStore}.
+	 * @return Whether a bullet was fired.
+	 */
+	boolean update() {
+		//Increment the animation frame.
+		this.animationFrame++;
+		
+		/*
+		 * Rotate the ship if only one of the rotation flags are true, as doing
+		 * one rotation will cancel the effect of doing the other.
+		 */
+		if(rotateLeftPressed != rotateRightPressed) {
+			this.rotation = (rotation + (rotateLeftPressed ? -ROTATION_SPEED : ROTATION_SPEED)) % (Math.PI * 2);
+		}
+		
+		/*
+		 * Apply thrust to our ship's velocity, and ensure that the ship is not
+		 * going faster than the maximum magnitude.
+		 */
+		velocity.set(velocityX, velocityY);
+		if(thrustPressed) {
+			/*
+			 * Here we point our thrust vector in the direction of our ship's
+			 * rotation, and add it to our velocity scaled by our thrust's magnitude.
+			 */
+			velocity.addScaled(thrust.setFromAngle(rotation), THRUST_MAGNITUDE);
+			
+			/*
+			 * Here we determine whether our ship is going faster than is
+			 * allowed. Like when checking for collisions, we check the squared
+			 * magnitude because it is quicker to square a value than it is to
+			 * take the square root.
+			 *
+			 * If our velocity exceeds our maximum allowed velocity, we normalize
+			 * it (giving it a magnitude of 1.0), and scale it to be he maximum.
+			 */
+			if(velocity.getLengthSquared() >= MAX_VELOCITY_MAGNITUDE * MAX_VELOCITY_MAGNITUDE) {
+				velocity.normalize().scale(MAX_VELOCITY_MAGNITUDE);
+			}
+		}
+		
+		/*
+		 * If our ship is moving, slow it down slightly, which causes the ship
+		 * to some to a gradual stop.
+		 */
+		if(velocity.getLengthSquared() != 0.0) {
+			velocity.scale(SLOW_RATE);
+		}
+		this.velocityX = velocity.x;
+		this.velocityY = velocity.y;
+		
+		/*
+		 * Decrement the fire and overheat cooldowns, and determine if we can fire another
+		 * bullet.
+		 */
+		boolean fired = false;
+		this.fireCooldown--;
+		this.overheatCooldown--;
+		if(firingEnabled && firePressed && fireCooldown <= 0 && overheatCooldown <= 0) {
+			/*
+			 * We can only fire a new bullet if we haven't yet exceeded the
+			 * maximum number of bullets that we can have fired at once.
+			 */
+			if(bulletCount < MAX_BULLETS) {
+				this.fireCooldown = FIRE_RATE;
+				bulletLifespans[bulletCount++] = Bullet.MAX_LIFESPAN;
+				fired = true;
+			}
+			
+			/*
+			 * Since we're attempting to fire a bullet, we increment the number
+			 * of consecutive shots and determine if we should set the overheat
+			 * flag.
+			 *
+			 * This prevents us from being able to wipe out entire groups of
+			 * asteroids in one burst if we're accurate enough, and will prevent
+			 * us from firing a continuous stream of bullets until we start missing.
+			 */
+			this.consecutiveShots++;
+			if(consecutiveShots == MAX_CONSECUTIVE_SHOTS) {
+				this.consecutiveShots = 0;
+				this.overheatCooldown = MAX_OVERHEAT;
+			}
+		} else if(consecutiveShots > 0) {
+			//Decrement the number of consecutive shots, since we're not trying to fire.
+			this.consecutiveShots--;
+		}
+		return fired;
+	}
+	
+	/**
+	 * Writes this state to a buffer, taking exactly {@code SIZE} bytes.
+	 * @param out The buffer to write to.
+	 */
+	public void write(ByteBuffer out) {
+		out.putDouble(x);
+		out.putDouble(y);
+		out.putDouble(velocityX);
+		out.putDouble(velocityY);
+		out.putDouble(rotation);
+		out.put((byte) ((thrustPressed ? 1 : 0)
+				| (rotateLeftPressed ? 2 : 0)
+				| (rotateRightPressed ? 4 : 0)
+				| (firePressed ? 8 : 0)
+				| (firingEnabled ? 16 : 0)));
+		out.putInt(consecutiveShots);
+		out.putInt(fireCooldown);
+		out.putInt(overheatCooldown);
+		out.putInt(animationFrame);
+		out.put((byte) bulletCount);
+		for(int i = 0; i < MAX_BULLETS; i++) {
+			out.put((byte) bulletLifespans[i]);
+		}
+	}
+	
+	/**
+	 * Reads a state written by {@code write} from a buffer.
+	 * @param in The buffer to read from.
+	 */
+	public void read(ByteBuffer in) {
+		this.x = in.getDouble();
+		this.y = in.getDouble();
+		this.velocityX = in.getDouble();
+		this.velocityY = in.getDouble();
+		this.rotation = in.getDouble();
+		int flags = in.get();
+		this.thrustPressed = (flags & 1) != 0;
+		this.rotateLeftPressed = (flags & 2) != 0;
+		this.rotateRightPressed = (flags & 4) != 0;
+		this.firePressed = (flags & 8) != 0;
+		this.firingEnabled = (flags & 16) != 0;
+		this.consecutiveShots = in.getInt();
+		this.fireCooldown = in.getInt();
+		this.overheatCooldown = in.getInt();
+		this.animationFrame = in.getInt();
+		this.bulletCount = in.get();
+		for(int i = 0; i < MAX_BULLETS; i++) {
+			bulletLifespans[i] = in.get();
+		}
+	}
+	
+	/**
+	 * Gets the x coordinate of the ship.
+	 * @return The x coordinate.
+	 */
+	public double getX() {
+		return x;
+	}
+	
+	/**
+	 * Gets the y coordinate of the ship.
+	 * @return The y coordinate.
+	 */
+	public double getY() {
+		return y;
+	}
+	
+	/**
+	 * Gets the x velocity of the ship.
+	 * @return The x velocity.
+	 */
+	public double getVelocityX() {
+		return velocityX;
+	}
+	
+	/**
+	 * Gets the y velocity of the ship.
+	 * @return The y velocity.
+	 */
+	public double getVelocityY() {
+		return velocityY;
+	}
+	
+	/**
+	 * Gets the rotation of the ship.
+	 * @return The rotation.
+	 */
+	public double getRotation() {
+		return rotation;
+	}
+	
+	/**
+	 * Gets the number of bullets the ship has in flight.
+	 * @return The number of bullets.
+	 */
+	public int getBulletCount() {
+		return bulletCount;
+	}
+	
+	/**
+	 * Checks whether another state is exactly the same as this one.
+	 * @param other The other state.
+	 * @return Whether the states match.
+	 */
+	public boolean matches(PlayerState other) {
+		if(x != other.x || y != other.y || velocityX != other.velocityX || velocityY != other.velocityY || rotation != other.rotation
+				|| thrustPressed != other.thrustPressed || rotateLeftPressed != other.rotateLeftPressed
+				|| rotateRightPressed != other.rotateRightPressed || firePressed != other.firePressed
+				|| firingEnabled != other.firingEnabled || consecutiveShots != other.consecutiveShots
+				|| fireCooldown != other.fireCooldown || overheatCooldown != other.overheatCooldown
+				|| animationFrame != other.animationFrame || bulletCount != other.bulletCount) {
+			return false;
+		}
+		for(int i = 0; i < bulletCount; i++) {
+			if(bulletLifespans[i] != other.bulletLifespans[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
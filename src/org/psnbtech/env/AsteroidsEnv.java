@@ -0,0 +1,379 @@
+package org.psnbtech.env;
+
+import java.nio.FloatBuffer;
+
+import org.psnbtech.GameEngine;
+import org.psnbtech.Input;
+import org.psnbtech.WorldView;
+import org.psnbtech.entity.EntityKind;
+import org.psnbtech.util.Torus;
+
+/**
+ * <p>The {@code AsteroidsEnv} class wraps a game in the reset and step API
+ * used for training agents with reinforcement learning.</p>
+ * 
+ * <p>An action is a combination of the {@code THRUST}, {@code ROTATE_LEFT},
+ * {@code ROTATE_RIGHT} and {@code FIRE} flags of {@code Input}, so there are
+ * {@code ACTION_COUNT} possible actions. Each step holds the action for
+ * {@code frameSkip} ticks, and the reward is the score earned over those
+ * ticks, less {@code DEATH_PENALTY} for every life lost.</p>
+ * 
+ * <p>The observation is written into an array or buffer supplied by the
+ * caller, so stepping the environment doesn't allocate anything. It starts
+ * with {@code PLAYER_FEATURES} values describing the ship:</p>
+ * <ol start="0">
+ * <li>The x coordinate, as a fraction of the world size.</li>
+ * <li>The y coordinate, as a fraction of the world size.</li>
+ * <li>The x velocity, divided by {@code VELOCITY_SCALE}.</li>
+ * <li>The y velocity, divided by {@code VELOCITY_SCALE}.</li>
+ * <li>The cosine of the rotation.</li>
+ * <li>The sine of the rotation.</li>
+ * <li>1 if the ship is in play, or 0 if it is waiting to respawn.</li>
+ * <li>1 if the ship is invulnerable, otherwise 0.</li>
+ * </ol>
+ * <p>This is followed by {@code ASTEROID_FEATURES} values for each of the
+ * nearest asteroids, closest first:</p>
+ * <ol start="0">
+ * <li>1 if there is an asteroid in this slot, otherwise 0. If there isn't,
+ * the rest of the slot is 0 too.</li>
+ * <li>The x distance from the ship, across the edges of the world if that
+ * is shorter, as a fraction of the world size.</li>
+ * <li>The y distance from the ship, in the same way.</li>
+ * <li>The x velocity, divided by {@code VELOCITY_SCALE}.</li>
+ * <li>The y velocity, divided by {@code VELOCITY_SCALE}.</li>
+ * <li>The collision radius, as a fraction of the world size.</li>
+ * </ol>
+ * @author Brendan Jones
+ *
+ */
+public class AsteroidsEnv {
+	
+	/**
+	 * The number of possible actions.
+	 */
+	public static final int ACTION_COUNT = 16;
+	
+	/**
+	 * The flags of an action that are passed on to the game.
+	 */
+	private static final int ACTION_MASK = Input.THRUST | Input.ROTATE_LEFT | Input.ROTATE_RIGHT | Input.FIRE;
+	
+	/**
+	 * The number of values in the observation that describe the ship.
+	 */
+	public static final int PLAYER_FEATURES = 8;
+	
+	/**
+	 * The number of values in the observation that describe each asteroid.
+	 */
+	public static final int ASTEROID_FEATURES = 6;
+	
+	/**
+	 * The amount velocities are divided by in the observation.
+	 */
+	public static final double VELOCITY_SCALE = 8.0;
+	
+	/**
+	 * The amount the reward is reduced by when a life is lost.
+	 */
+	public static final double DEATH_PENALTY = 200.0;
+	
+	/**
+	 * The default number of asteroids included in the observation.
+	 */
+	public static final int DEFAULT_NEAREST = 8;
+	
+	/**
+	 * The default number of ticks each action is held for.
+	 */
+	public static final int DEFAULT_FRAME_SKIP = 4;
+	
+	/**
+	 * The default number of steps before an episode is cut short, which is
+	 * half an hour of play at the default frame skip.
+	 */
+	public static final long DEFAULT_MAX_STEPS = 27000;
+	
+	/**
+	 * The number of asteroids included in the observation.
+	 */
+	private final int nearest;
+	
+	/**
+	 * The number of ticks each action is held for.
+	 */
+	private final int frameSkip;
+	
+	/**
+	 * The number of steps before an episode is cut short.
+	 */
+	private final long maxSteps;
+	
+	/**
+	 * The input that actions are written into.
+	 */
+	private final Input input;
+	
+	/**
+	 * The indices of the nearest asteroids while building an observation.
+	 */
+	private final int[] nearestIndices;
+	
+	/**
+	 * The squared distances of the nearest asteroids while building an
+	 * observation.
+	 */
+	private final double[] nearestDistances;
+	
+	/**
+	 * The observation, used when the caller wants it written to a
+	 * {@code FloatBuffer}.
+	 */
+	private final double[] scratch;
+	
+	/**
+	 * The game being played, or null until the first reset.
+	 */
+	private GameEngine engine;
+	
+	/**
+	 * The Torus used to measure distances across the edges of the world.
+	 */
+	private Torus torus;
+	
+	/**
+	 * The number of steps taken in the current episode.
+	 */
+	private long steps;
+	
+	/**
+	 * Whether the current episode is over.
+	 */
+	private boolean isDone;
+	
+	/**
+	 * Creates a new AsteroidsEnv with the default settings.
+	 */
+	public AsteroidsEnv() {
+		this(DEFAULT_NEAREST, DEFAULT_FRAME_SKIP, DEFAULT_MAX_STEPS);
+	}
+	
+	/**
+	 * Creates a new AsteroidsEnv.
+	 * @param nearest The number of asteroids included in the observation.
+	 * @param frameSkip The number of ticks each action is held for.
+	 * @param maxSteps The number of steps before an episode is cut short.
+	 */
+	public AsteroidsEnv(int nearest, int frameSkip, long maxSteps) {
+		if(nearest < 0 || frameSkip < 1 || maxSteps < 1) {
+			throw new IllegalArgumentException("Invalid settings: nearest=" + nearest + ", frameSkip=" + frameSkip + ", maxSteps=" + maxSteps);
+		}
+		this.nearest = nearest;
+		this.frameSkip = frameSkip;
+		this.maxSteps = maxSteps;
+		this.input = new Input();
+		this.nearestIndices = new int[nearest];
+		this.nearestDistances = new double[nearest];
+		this.scratch = new double[getObservationSize()];
+	}
+	
+	/**
+	 * Gets the number of values in each observation.
+	 * @return The size of the observation.
+	 */
+	public int getObservationSize() {
+		return PLAYER_FEATURES + nearest * ASTEROID_FEATURES;
+	}
+	
+	/**
+	 * <p>Starts a new episode, and writes the first observation.</p>
+	 * 
+	 * <p>A new game is created for each episode, so an episode always plays
+	 * out exactly the same as any other game with the same seed and
+	 * actions.</p>
+	 * @param seed The seed of the game.
+	 * @param observation The array to write the observation to.
+	 * @param offset The index in the array to start writing at.
+	 */
+	public void reset(long seed, double[] observation, int offset) {
+		this.engine = new GameEngine(seed);
+		this.torus = new Torus(engine.getWorldSize());
+		this.steps = 0;
+		this.isDone = false;
+		
+		/*
+		 * The first step only queues the asteroids, and they join the world on
+		 * the step after, so we step here with no input until they are in it.
+		 */
+		input.clear();
+		do {
+			engine.step(input);
+		} while(engine.getEntityCount() <= 1);
+		observe(observation, offset);
+	}
+	
+	/**
+	 * Starts a new episode, and writes the first observation.
+	 * @param seed The seed of the game.
+	 * @param observation The buffer to write the observation to, starting at
+	 * its position. The position is moved past the observation.
+	 */
+	public void reset(long seed, FloatBuffer observation) {
+		reset(seed, scratch, 0);
+		put(observation);
+	}
+	
+	/**
+	 * Takes an action, and writes the resulting observation.
+	 * @param action The action, from 0 to {@code ACTION_COUNT - 1}.
+	 * @param observation The array to write the observation to.
+	 * @param offset The index in the array to start writing at.
+	 * @return The reward.
+	 * @throws IllegalStateException If the episode is over, or hasn't been
+	 * started.
+	 */
+	public double step(int action, double[] observation, int offset) {
+		if(engine == null || isDone) {
+			throw new IllegalStateException("The episode must be reset before stepping.");
+		}
+		
+		int score = engine.getScore();
+		int lives = engine.getLives();
+		for(int i = 0; i < frameSkip && !engine.isGameOver(); i++) {
+			input.setFlags(action & ACTION_MASK);
+			engine.step(input);
+		}
+		this.steps++;
+		this.isDone = (engine.isGameOver() || steps >= maxSteps);
+		
+		double reward = (engine.getScore() - score) - (lives - engine.getLives()) * DEATH_PENALTY;
+		observe(observation, offset);
+		return reward;
+	}
+	
+	/**
+	 * Takes an action, and writes the resulting observation.
+	 * @param action The action, from 0 to {@code ACTION_COUNT - 1}.
+	 * @param observation The buffer to write the observation to, starting at
+	 * its position. The position is moved past the observation.
+	 * @return The reward.
+	 * @throws IllegalStateException If the episode is over, or hasn't been
+	 * started.
+	 */
+	public double step(int action, FloatBuffer observation) {
+		double reward = step(action, scratch, 0);
+		put(observation);
+		return reward;
+	}
+	
+	/**
+	 * Gets whether the current episode is over, either because the player has
+	 * run out of lives or because it reached the step limit.
+	 * @return Whether the episode is over.
+	 */
+	public boolean isDone() {
+		return isDone;
+	}
+	
+	/**
+	 * Gets whether the current episode was cut short by the step limit, rather
+	 * than ending with the player running out of lives.
+	 * @return Whether the episode was cut short.
+	 */
+	public boolean isTruncated() {
+		return (isDone && !engine.isGameOver());
+	}
+	
+	/**
+	 * Gets the number of steps taken in the current episode.
+	 * @return The number of steps.
+	 */
+	public long getSteps() {
+		return steps;
+	}
+	
+	/**
+	 * Gets a read-only view of the game being played.
+	 * @return The game, or null if the environment has never been reset.
+	 */
+	public WorldView getWorld() {
+		return engine;
+	}
+	
+	/**
+	 * Copies the scratch observation into a buffer.
+	 * @param observation The buffer to copy into.
+	 */
+	private void put(FloatBuffer observation) {
+		for(int i = 0; i < scratch.length; i++) {
+			observation.put((float) scratch[i]);
+		}
+	}
+	
+	/**
+	 * Writes the observation of the current state of the game.
+	 * @param out The array to write to.
+	 * @param offset The index in the array to start writing at.
+	 */
+	private void observe(double[] out, int offset) {
+		double size = engine.getWorldSize();
+		int player = engine.getPlayerIndex();
+		double playerX = engine.getEntityX(player);
+		double playerY = engine.getEntityY(player);
+		double rotation = engine.getEntityRotation(player);
+		
+		out[offset] = playerX / size;
+		out[offset + 1] = playerY / size;
+		out[offset + 2] = engine.getEntityVelocityX(player) / VELOCITY_SCALE;
+		out[offset + 3] = engine.getEntityVelocityY(player) / VELOCITY_SCALE;
+		out[offset + 4] = Math.cos(rotation);
+		out[offset + 5] = Math.sin(rotation);
+		out[offset + 6] = engine.canDrawPlayer() ? 1.0 : 0.0;
+		out[offset + 7] = engine.isPlayerInvulnerable() ? 1.0 : 0.0;
+		
+		/*
+		 * Find the nearest asteroids with an insertion sort into a fixed size
+		 * list. There are rarely more than a few dozen asteroids, so this is
+		 * quicker than anything cleverer.
+		 */
+		int found = 0;
+		for(int i = 0; i < engine.getEntityCount(); i++) {
+			if(engine.getEntityKind(i) != EntityKind.Asteroid) {
+				continue;
+			}
+			double distance = torus.getDistanceSquared(playerX, playerY, engine.getEntityX(i), engine.getEntityY(i));
+			int slot = found;
+			while(slot > 0 && nearestDistances[slot - 1] > distance) {
+				if(slot < nearest) {
+					nearestIndices[slot] = nearestIndices[slot - 1];
+					nearestDistances[slot] = nearestDistances[slot - 1];
+				}
+				slot--;
+			}
+			if(slot < nearest) {
+				nearestIndices[slot] = i;
+				nearestDistances[slot] = distance;
+				found = Math.min(found + 1, nearest);
+			}
+		}
+		
+		int index = offset + PLAYER_FEATURES;
+		for(int i = 0; i < nearest; i++) {
+			if(i < found) {
+				int asteroid = nearestIndices[i];
+				out[index] = 1.0;
+				out[index + 1] = torus.getDelta(playerX, engine.getEntityX(asteroid)) / size;
+				out[index + 2] = torus.getDelta(playerY, engine.getEntityY(asteroid)) / size;
+				out[index + 3] = engine.getEntityVelocityX(asteroid) / VELOCITY_SCALE;
+				out[index + 4] = engine.getEntityVelocityY(asteroid) / VELOCITY_SCALE;
+				out[index + 5] = engine.getEntityRadius(asteroid) / size;
+			} else {
+				for(int j = 0; j < ASTEROID_FEATURES; j++) {
+					out[index + j] = 0.0;
+				}
+			}
+			index += ASTEROID_FEATURES;
+		}
+	}
+
+}
@@ -0,0 +1,281 @@
+package org.psnbtech.env;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.psnbtech.util.GameRandom;
+import org.psnbtech.util.ParallelLoop;
+
+/**
+ * <p>The {@code VectorEnv} class steps a number of {@code AsteroidsEnv}s in
+ * lockstep, so an agent can act on a whole batch of observations at
+ * once.</p>
+ * 
+ * <p>The observations of every environment are written one after another
+ * into a single array, so the observation of environment {@code i} starts at
+ * {@code i * getObservationSize()}. When an environment's episode ends, it is
+ * reset straight away with the next seed, and the observation written for it
+ * is the first one of the new episode.</p>
+ * 
+ * <p>The environments can be stepped on several threads, with a
+ * {@code ParallelLoop} that is created up front and reused every step, so
+ * stepping still doesn't allocate anything.</p>
+ * @author Brendan Jones
+ *
+ */
+public class VectorEnv {
+	
+	/**
+	 * The environments.
+	 */
+	private final AsteroidsEnv[] envs;
+	
+	/**
+	 * The number of values in each observation.
+	 */
+	private final int observationSize;
+	
+	/**
+	 * The pool the environments are stepped on, or null if they are stepped on
+	 * the calling thread.
+	 */
+	private final ForkJoinPool pool;
+	
+	/**
+	 * The loop that steps the environments.
+	 */
+	private final StepLoop stepLoop;
+	
+	/**
+	 * The seed of the next episode to be started.
+	 */
+	private long nextSeed;
+	
+	/**
+	 * The actions of the step currently being taken.
+	 */
+	private int[] actions;
+	
+	/**
+	 * The array the observations of the current step are written to.
+	 */
+	private double[] observations;
+	
+	/**
+	 * The array the rewards of the current step are written to.
+	 */
+	private double[] rewards;
+	
+	/**
+	 * The array the done flags of the current step are written to.
+	 */
+	private boolean[] dones;
+	
+	/**
+	 * Creates a new VectorEnv with the default settings, stepped on the
+	 * calling thread.
+	 * @param count The number of environments.
+	 */
+	public VectorEnv(int count) {
+		this(count, AsteroidsEnv.DEFAULT_NEAREST, AsteroidsEnv.DEFAULT_FRAME_SKIP, AsteroidsEnv.DEFAULT_MAX_STEPS, 1);
+	}
+	
+	/**
+	 * Creates a new VectorEnv.
+	 * @param count The number of environments.
+	 * @param nearest The number of asteroids included in each observation.
+	 * @param frameSkip The number of ticks each action is held for.
+	 * @param maxSteps The number of steps before an episode is cut short.
+	 * @param threads The number of threads to step the environments on.
+	 */
+	public VectorEnv(int count, int nearest, int frameSkip, long maxSteps, int threads) {
+		this.envs = new AsteroidsEnv[count];
+		for(int i = 0; i < count; i++) {
+			envs[i] = new AsteroidsEnv(nearest, frameSkip, maxSteps);
+		}
+		this.observationSize = envs[0].getObservationSize();
+		this.pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+		this.stepLoop = new StepLoop(pool);
+	}
+	
+	/**
+	 * Gets the number of environments.
+	 * @return The number of environments.
+	 */
+	public int size() {
+		return envs.length;
+	}
+	
+	/**
+	 * Gets the number of values in each observation.
+	 * @return The size of each observation.
+	 */
+	public int getObservationSize() {
+		return observationSize;
+	}
+	
+	/**
+	 * Gets one of the environments.
+	 * @param index The index of the environment.
+	 * @return The environment.
+	 */
+	public AsteroidsEnv get(int index) {
+		return envs[index];
+	}
+	
+	/**
+	 * Starts a new episode in every environment, and writes their first
+	 * observations.
+	 * @param seed The seed of the first environment's game. The seeds of the
+	 * following games, including those of later episodes, count up from it.
+	 * @param observations The array to write the observations to, which must
+	 * hold {@code size() * getObservationSize()} values.
+	 */
+	public void reset(long seed, double[] observations) {
+		this.nextSeed = seed;
+		for(int i = 0; i < envs.length; i++) {
+			envs[i].reset(nextSeed++, observations, i * observationSize);
+		}
+	}
+	
+	/**
+	 * Takes an action in every environment, and writes the results. Any
+	 * environment whose episode ends is reset.
+	 * @param actions The action for each environment.
+	 * @param observations The array to write the observations to.
+	 * @param rewards The array to write the reward of each environment to.
+	 * @param dones The array to write whether each environment's episode
+	 * ended to.
+	 */
+	public void step(int[] actions, double[] observations, double[] rewards, boolean[] dones) {
+		this.actions = actions;
+		this.observations = observations;
+		this.rewards = rewards;
+		this.dones = dones;
+		stepLoop.run(envs.length, true);
+		
+		/*
+		 * The finished environments are reset here rather than on the worker
+		 * threads, so that which seed each one gets doesn't depend on which
+		 * thread finished first.
+		 */
+		for(int i = 0; i < envs.length; i++) {
+			if(dones[i]) {
+				envs[i].reset(nextSeed++, observations, i * observationSize);
+			}
+		}
+		this.actions = null;
+		this.observations = null;
+		this.rewards = null;
+		this.dones = null;
+	}
+	
+	/**
+	 * Steps a range of the environments.
+	 * @param from The index of the first environment.
+	 * @param to The index after the last environment.
+	 */
+	private void step(int from, int to) {
+		for(int i = from; i < to; i++) {
+			rewards[i] = envs[i].step(actions[i], observations, i * observationSize);
+			dones[i] = envs[i].isDone();
+		}
+	}
+	
+	/**
+	 * Shuts down the threads the environments are stepped on.
+	 */
+	public void close() {
+		if(pool != null) {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * The loop that steps a range of the environments. Each environment only
+	 * writes to its own parts of the arrays, so the ranges can be stepped in
+	 * any order.
+	 */
+	private class StepLoop extends ParallelLoop {
+		
+		/**
+		 * Creates a new StepLoop.
+		 * @param pool The pool, or null to step on the calling thread.
+		 */
+		private StepLoop(ForkJoinPool pool) {
+			super(pool);
+		}
+		
+		@Override
+		protected void runChunk(int chunk, int from, int to) {
+			step(from, to);
+		}
+	
+	}
+	
+	/**
+	 * <p>Steps a batch of environments with random actions, and prints how
+	 * many steps were taken per second.</p>
+	 * 
+	 * <p>The following arguments are accepted:</p>
+	 * <ul>
+	 * <li>{@code -envs <count>} sets the number of environments. Defaults to
+	 * 64.</li>
+	 * <li>{@code -threads <count>} sets the number of threads. Defaults to the
+	 * number of cores.</li>
+	 * <li>{@code -steps <count>} sets the number of times the batch is
+	 * stepped. Defaults to 20000.</li>
+	 * </ul>
+	 * @param args The command line arguments.
+	 */
+	public static void main(String[] args) {
+		int count = 64;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int steps = 20000;
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "-envs":
+				count = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-threads":
+				threads = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-steps":
+				steps = Integer.parseInt(args[++i]);
+				break;
+			
+			default:
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+		
+		VectorEnv env = new VectorEnv(count, AsteroidsEnv.DEFAULT_NEAREST, AsteroidsEnv.DEFAULT_FRAME_SKIP, AsteroidsEnv.DEFAULT_MAX_STEPS, threads);
+		double[] observations = new double[count * env.getObservationSize()];
+		double[] rewards = new double[count];
+		boolean[] dones = new boolean[count];
+		int[] actions = new int[count];
+		GameRandom random = new GameRandom(0);
+		
+		env.reset(0, observations);
+		long episodes = 0;
+		long start = System.nanoTime();
+		for(int step = 0; step < steps; step++) {
+			for(int i = 0; i < count; i++) {
+				actions[i] = random.nextInt(AsteroidsEnv.ACTION_COUNT);
+			}
+			env.step(actions, observations, rewards, dones);
+			for(int i = 0; i < count; i++) {
+				if(dones[i]) {
+					episodes++;
+				}
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1000000000.0;
+		env.close();
+		
+		System.out.println(String.format("%d environments on %d threads: %.0f steps/s, %d episodes finished",
+				count, threads, (double) count * steps / seconds, episodes));
+	}
+
+}
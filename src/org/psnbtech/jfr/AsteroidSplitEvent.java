@@ -0,0 +1,48 @@
+package org.psnbtech.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The {@code AsteroidSplitEvent} is recorded by Java Flight Recorder when an
+ * asteroid is destroyed, and split into smaller asteroids if it wasn't
+ * already the smallest size.
+ * @author Brendan Jones
+ *
+ */
+@Name("org.psnbtech.AsteroidSplit")
+@Label("Asteroid Split")
+@Category("Asteroids")
+@Description("An asteroid was destroyed, and split if it was large enough")
+@StackTrace(false)
+public class AsteroidSplitEvent extends Event {
+	
+	/**
+	 * The size of the asteroid that was destroyed.
+	 */
+	@Label("Size")
+	public String size;
+	
+	/**
+	 * The number of smaller asteroids it split into.
+	 */
+	@Label("Children")
+	public int children;
+	
+	/**
+	 * The x coordinate of the asteroid.
+	 */
+	@Label("X")
+	public double x;
+	
+	/**
+	 * The y coordinate of the asteroid.
+	 */
+	@Label("Y")
+	public double y;
+
+}
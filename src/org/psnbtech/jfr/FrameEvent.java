@@ -0,0 +1,43 @@
+package org.psnbtech.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The {@code FrameEvent} is recorded by Java Flight Recorder for every frame
+ * that is drawn, so that dropped frames can be lined up with GC pauses and
+ * compilation in the same recording.
+ * @author Brendan Jones
+ *
+ */
+@Name("org.psnbtech.Frame")
+@Label("Frame")
+@Category("Asteroids")
+@Description("A frame of the game being drawn")
+@StackTrace(false)
+public class FrameEvent extends Event {
+	
+	/**
+	 * The sequence number of the WorldFrame that was drawn.
+	 */
+	@Label("Sequence")
+	public long sequence;
+	
+	/**
+	 * The number of entities that were drawn.
+	 */
+	@Label("Entity Count")
+	public int entityCount;
+	
+	/**
+	 * How far between the frame's update and the next one the entities were
+	 * drawn.
+	 */
+	@Label("Alpha")
+	public double alpha;
+
+}
@@ -0,0 +1,88 @@
+package org.psnbtech.jfr;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * <p>The {@code GameEvents} class checks whether each of the game's flight
+ * recorder events is being recorded, so that the events are only created
+ * when they will actually be used.</p>
+ * 
+ * <p>Loading an event class makes the flight recorder start up, which takes
+ * a noticeable fraction of a second, even if nothing is ever recorded. So
+ * that this cost is only paid when it is needed, nothing touches the event
+ * classes until the flight recorder has been started, either from the
+ * command line or later on with {@code jcmd}. Until then, each check is a
+ * single field read.</p>
+ * @author Brendan Jones
+ *
+ */
+public class GameEvents {
+	
+	/**
+	 * This class only has static methods.
+	 */
+	private GameEvents() {
+	}
+	
+	/**
+	 * Gets whether {@code TickEvent}s are being recorded.
+	 * @return Whether the event is enabled.
+	 */
+	public static boolean isTickRecording() {
+		return FlightRecorder.isInitialized() && Types.TICK.isEnabled();
+	}
+	
+	/**
+	 * Gets whether {@code AsteroidSplitEvent}s are being recorded.
+	 * @return Whether the event is enabled.
+	 */
+	public static boolean isAsteroidSplitRecording() {
+		return FlightRecorder.isInitialized() && Types.ASTEROID_SPLIT.isEnabled();
+	}
+	
+	/**
+	 * Gets whether {@code ShotFiredEvent}s are being recorded.
+	 * @return Whether the event is enabled.
+	 */
+	public static boolean isShotFiredRecording() {
+		return FlightRecorder.isInitialized() && Types.SHOT_FIRED.isEnabled();
+	}
+	
+	/**
+	 * Gets whether {@code FrameEvent}s are being recorded.
+	 * @return Whether the event is enabled.
+	 */
+	public static boolean isFrameRecording() {
+		return FlightRecorder.isInitialized() && Types.FRAME.isEnabled();
+	}
+	
+	/**
+	 * Holds the type of each event. This is only loaded the first time an
+	 * event is checked after the flight recorder has started.
+	 */
+	private static class Types {
+		
+		/**
+		 * The type of {@code TickEvent}.
+		 */
+		private static final EventType TICK = EventType.getEventType(TickEvent.class);
+		
+		/**
+		 * The type of {@code AsteroidSplitEvent}.
+		 */
+		private static final EventType ASTEROID_SPLIT = EventType.getEventType(AsteroidSplitEvent.class);
+		
+		/**
+		 * The type of {@code ShotFiredEvent}.
+		 */
+		private static final EventType SHOT_FIRED = EventType.getEventType(ShotFiredEvent.class);
+		
+		/**
+		 * The type of {@code FrameEvent}.
+		 */
+		private static final EventType FRAME = EventType.getEventType(FrameEvent.class);
+	
+	}
+
+}
@@ -0,0 +1,35 @@
+package org.psnbtech.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The {@code ShotFiredEvent} is recorded by Java Flight Recorder each time
+ * the player fires a bullet.
+ * @author Brendan Jones
+ *
+ */
+@Name("org.psnbtech.ShotFired")
+@Label("Shot Fired")
+@Category("Asteroids")
+@Description("The player fired a bullet")
+@StackTrace(false)
+public class ShotFiredEvent extends Event {
+	
+	/**
+	 * The number of the player's bullets in the world, including this one.
+	 */
+	@Label("Bullets")
+	public int bullets;
+	
+	/**
+	 * The number of consecutive shots fired, including this one.
+	 */
+	@Label("Consecutive Shots")
+	public int consecutiveShots;
+
+}
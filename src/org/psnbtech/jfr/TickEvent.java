@@ -0,0 +1,48 @@
+package org.psnbtech.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The {@code TickEvent} is recorded by Java Flight Recorder for every step of
+ * the game, so that slow ticks can be lined up with GC pauses and
+ * compilation in the same recording.
+ * @author Brendan Jones
+ *
+ */
+@Name("org.psnbtech.Tick")
+@Label("Game Tick")
+@Category("Asteroids")
+@Description("A single step of the game engine")
+@StackTrace(false)
+public class TickEvent extends Event {
+	
+	/**
+	 * The tick that was stepped.
+	 */
+	@Label("Tick")
+	public long tick;
+	
+	/**
+	 * The number of entities in the world after the tick.
+	 */
+	@Label("Entity Count")
+	public int entityCount;
+	
+	/**
+	 * The number of pairs of entities tested for collisions.
+	 */
+	@Label("Pairs Tested")
+	public int pairsTested;
+	
+	/**
+	 * The number of pairs of entities that collided.
+	 */
+	@Label("Pairs Hit")
+	public int pairsHit;
+
+}
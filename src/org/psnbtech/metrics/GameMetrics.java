@@ -0,0 +1,248 @@
+package org.psnbtech.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * <p>The {@code GameMetrics} class collects measurements of the game loop:
+ * a latency histogram for each {@code Phase}, counters for the work done,
+ * and the rate the game thread allocates memory at.</p>
+ * 
+ * <p>The measurements are recorded by whichever threads are running the
+ * game and drawing it, and can be read from any thread, either directly or
+ * over JMX once {@code register} has been called.</p>
+ * @author Brendan Jones
+ *
+ */
+public class GameMetrics implements GameMetricsMXBean {
+	
+	/**
+	 * The name the metrics are registered under with JMX.
+	 */
+	public static final String OBJECT_NAME = "org.psnbtech:type=GameMetrics";
+	
+	/**
+	 * The number of nanoseconds between each measurement of the allocation
+	 * rate.
+	 */
+	private static final long ALLOCATION_WINDOW = 1000000000L;
+	
+	/**
+	 * The phases, indexed by their ordinal.
+	 */
+	private static final Phase[] PHASES = Phase.values();
+	
+	/**
+	 * The histogram for each phase, indexed by its ordinal.
+	 */
+	private final LatencyHistogram[] phases;
+	
+	/**
+	 * The histogram of how late each update started.
+	 */
+	private final LatencyHistogram updateLateness;
+	
+	/**
+	 * The number of times the game has been stepped.
+	 */
+	private final AtomicLong ticks;
+	
+	/**
+	 * The number of extra updates run to catch up.
+	 */
+	private final AtomicLong catchUpUpdates;
+	
+	/**
+	 * The number of pairs of entities tested for collisions.
+	 */
+	private final AtomicLong collisionsTested;
+	
+	/**
+	 * The number of pairs of entities found to collide.
+	 */
+	private final AtomicLong collisionsHit;
+	
+	/**
+	 * The number of entities in the world after the last tick.
+	 */
+	private volatile int entityCount;
+	
+	/**
+	 * The ThreadMXBean used to measure allocations, or null if the JVM doesn't
+	 * support it.
+	 */
+	private final com.sun.management.ThreadMXBean allocations;
+	
+	/**
+	 * The time the current allocation window started, or 0 if it hasn't.
+	 */
+	private long allocationStart;
+	
+	/**
+	 * The number of bytes the game thread had allocated when the current
+	 * allocation window started.
+	 */
+	private long allocatedAtStart;
+	
+	/**
+	 * The allocation rate over the last complete window.
+	 */
+	private volatile double allocationRate;
+	
+	/**
+	 * Creates a new GameMetrics.
+	 */
+	public GameMetrics() {
+		this.phases = new LatencyHistogram[PHASES.length];
+		for(int i = 0; i < phases.length; i++) {
+			phases[i] = new LatencyHistogram();
+		}
+		this.updateLateness = new LatencyHistogram();
+		this.ticks = new AtomicLong();
+		this.catchUpUpdates = new AtomicLong();
+		this.collisionsTested = new AtomicLong();
+		this.collisionsHit = new AtomicLong();
+		
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+			this.allocations = (com.sun.management.ThreadMXBean) threads;
+			this.allocationRate = 0.0;
+		} else {
+			this.allocations = null;
+			this.allocationRate = -1.0;
+		}
+	}
+	
+	/**
+	 * Registers these metrics with the platform MBean server, under
+	 * {@code OBJECT_NAME}.
+	 * @throws JMException If the metrics could not be registered.
+	 */
+	public void register() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+	}
+	
+	/**
+	 * Records how long a phase took.
+	 * @param phase The phase.
+	 * @param nanos The duration in nanoseconds.
+	 */
+	public void record(Phase phase, long nanos) {
+		phases[phase.ordinal()].record(nanos);
+	}
+	
+	/**
+	 * Records that an extra update was run to catch up.
+	 */
+	public void recordCatchUpUpdate() {
+		catchUpUpdates.incrementAndGet();
+	}
+	
+	/**
+	 * Records the work done by a tick.
+	 * @param entities The number of entities in the world after the tick.
+	 * @param tested The number of pairs of entities tested for collisions.
+	 * @param hit The number of pairs found to collide.
+	 */
+	public void recordTick(int entities, int tested, int hit) {
+		ticks.incrementAndGet();
+		collisionsTested.addAndGet(tested);
+		collisionsHit.addAndGet(hit);
+		this.entityCount = entities;
+	}
+	
+	/**
+	 * Measures how much the calling thread has allocated, and updates the
+	 * allocation rate once a second. This should be called regularly from the
+	 * game thread.
+	 * @param now The value of {@code System.nanoTime()}.
+	 */
+	public void sampleAllocations(long now) {
+		if(allocations == null) {
+			return;
+		}
+		
+		long allocated = allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+		if(allocationStart == 0) {
+			this.allocationStart = now;
+			this.allocatedAtStart = allocated;
+		} else if(now - allocationStart >= ALLOCATION_WINDOW) {
+			this.allocationRate = (allocated - allocatedAtStart) * 1000000000.0 / (now - allocationStart);
+			this.allocationStart = now;
+			this.allocatedAtStart = allocated;
+		}
+	}
+	
+	/**
+	 * Gets the histogram for a phase.
+	 * @param phase The phase.
+	 * @return The histogram.
+	 */
+	public LatencyHistogram getHistogram(Phase phase) {
+		return phases[phase.ordinal()];
+	}
+	
+	/**
+	 * Gets the histogram of how late each update started. This is recorded by
+	 * the {@code FramePacer} that paces the updates.
+	 * @return The histogram.
+	 */
+	public LatencyHistogram getUpdateLateness() {
+		return updateLateness;
+	}
+	
+	@Override
+	public List<LatencySummary> getLatencies() {
+		List<LatencySummary> latencies = new ArrayList<>(PHASES.length + 1);
+		for(int i = 0; i < PHASES.length; i++) {
+			latencies.add(phases[i].getSummary(PHASES[i].name()));
+		}
+		latencies.add(updateLateness.getSummary("UpdateLateness"));
+		return latencies;
+	}
+	
+	@Override
+	public long getTicks() {
+		return ticks.get();
+	}
+	
+	@Override
+	public long getCatchUpUpdates() {
+		return catchUpUpdates.get();
+	}
+	
+	@Override
+	public long getCollisionsTested() {
+		return collisionsTested.get();
+	}
+	
+	@Override
+	public long getCollisionsHit() {
+		return collisionsHit.get();
+	}
+	
+	@Override
+	public int getEntityCount() {
+		return entityCount;
+	}
+	
+	@Override
+	public double getAllocationRate() {
+		return allocationRate;
+	}
+	
+	@Override
+	public void reset() {
+		for(int i = 0; i < phases.length; i++) {
+			phases[i].reset();
+		}
+		updateLateness.reset();
+	}
+
+}
@@ -0,0 +1,65 @@
+package org.psnbtech.metrics;
+
+import java.util.List;
+
+/**
+ * The management interface that {@code GameMetrics} is exposed through over
+ * JMX, so the game can be watched with tools like JConsole or VisualVM.
+ * @author Brendan Jones
+ *
+ */
+public interface GameMetricsMXBean {
+	
+	/**
+	 * Gets the latency of each phase of the game loop, and how late each
+	 * update started.
+	 * @return The summaries, in microseconds.
+	 */
+	public List<LatencySummary> getLatencies();
+	
+	/**
+	 * Gets the number of times the game has been stepped.
+	 * @return The number of ticks.
+	 */
+	public long getTicks();
+	
+	/**
+	 * Gets the number of extra updates that were run to catch up after the
+	 * game fell behind.
+	 * @return The number of catch up updates.
+	 */
+	public long getCatchUpUpdates();
+	
+	/**
+	 * Gets the number of pairs of entities that have been tested for
+	 * collisions.
+	 * @return The number of collisions tested.
+	 */
+	public long getCollisionsTested();
+	
+	/**
+	 * Gets the number of pairs of entities that were found to collide.
+	 * @return The number of collisions hit.
+	 */
+	public long getCollisionsHit();
+	
+	/**
+	 * Gets the number of entities in the world after the last tick.
+	 * @return The number of entities.
+	 */
+	public int getEntityCount();
+	
+	/**
+	 * Gets the rate that the game thread allocated memory at over the last
+	 * second.
+	 * @return The allocation rate in bytes per second, or -1 if the JVM
+	 * doesn't support measuring it.
+	 */
+	public double getAllocationRate();
+	
+	/**
+	 * Clears the latency histograms. The counters keep counting.
+	 */
+	public void reset();
+
+}
@@ -0,0 +1,201 @@
+package org.psnbtech.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>The {@code LatencyHistogram} class records durations in nanoseconds,
+ * and reports percentiles of them.</p>
+ * 
+ * <p>Like an HDR histogram, the buckets are spaced logarithmically, with each
+ * power of two split into {@code SUB_BUCKETS / 2} linear buckets. This keeps
+ * every value to within about 3% of what was recorded, from single
+ * nanoseconds up to several minutes, in a few hundred buckets. Recording a
+ * value never allocates or locks, so it is cheap enough to do several times
+ * every tick.</p>
+ * 
+ * <p>Values can be recorded and read from any thread. Reading while values
+ * are being recorded may see some of them but not others.</p>
+ * @author Brendan Jones
+ *
+ */
+public class LatencyHistogram {
+	
+	/**
+	 * The number of bits of precision that are kept for each value.
+	 */
+	private static final int SUB_BUCKET_BITS = 6;
+	
+	/**
+	 * The number of values below which every value has its own bucket.
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	
+	/**
+	 * The number of buckets for each power of two above {@code SUB_BUCKETS}.
+	 */
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	
+	/**
+	 * The largest value that can be recorded. Anything larger is recorded as
+	 * this value, which is a little over 18 minutes.
+	 */
+	private static final long MAX_VALUE = (1L << 40) - 1;
+	
+	/**
+	 * The number of recorded values in each bucket.
+	 */
+	private final AtomicLongArray counts;
+	
+	/**
+	 * The number of values recorded.
+	 */
+	private final AtomicLong count;
+	
+	/**
+	 * The sum of the values recorded.
+	 */
+	private final AtomicLong sum;
+	
+	/**
+	 * The largest value recorded.
+	 */
+	private final AtomicLong max;
+	
+	/**
+	 * Creates a new LatencyHistogram.
+	 */
+	public LatencyHistogram() {
+		this.counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+		this.count = new AtomicLong();
+		this.sum = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+	
+	/**
+	 * Records a duration.
+	 * @param nanos The duration in nanoseconds. Negative durations are
+	 * recorded as 0.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, Math.min(MAX_VALUE, nanos));
+		counts.incrementAndGet(indexOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		
+		long current = max.get();
+		while(value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+	
+	/**
+	 * Clears every recorded value.
+	 */
+	public void reset() {
+		for(int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+	
+	/**
+	 * Gets the number of values recorded.
+	 * @return The number of values.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+	
+	/**
+	 * Gets the mean of the values recorded.
+	 * @return The mean in nanoseconds, or 0 if nothing has been recorded.
+	 */
+	public double getMean() {
+		long count = this.count.get();
+		return (count == 0) ? 0.0 : (double) sum.get() / count;
+	}
+	
+	/**
+	 * Gets the largest value recorded.
+	 * @return The largest value in nanoseconds, or 0 if nothing has been
+	 * recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * Gets the value that a percentage of the recorded values are less than or
+	 * equal to. The value is rounded up to the top of its bucket, but is never
+	 * more than the largest value recorded.
+	 * @param percentile The percentage, from 0.0 to 100.0.
+	 * @return The value in nanoseconds, or 0 if nothing has been recorded.
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+		for(int i = 0; i < counts.length(); i++) {
+			total += counts.get(i);
+		}
+		if(total == 0) {
+			return 0;
+		}
+		
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+		long seen = 0;
+		for(int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if(seen >= rank) {
+				return Math.min(highestValueOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+	
+	/**
+	 * Creates a summary of the values recorded.
+	 * @param name The name of the summary.
+	 * @return The summary.
+	 */
+	public LatencySummary getSummary(String name) {
+		return new LatencySummary(name, getCount(), getMean() / 1000.0,
+				getPercentile(50.0) / 1000.0, getPercentile(90.0) / 1000.0,
+				getPercentile(99.0) / 1000.0, getPercentile(99.9) / 1000.0, getMax() / 1000.0);
+	}
+	
+	/**
+	 * Gets the index of the bucket a value is recorded in.
+	 * @param value The value, from 0 to {@code MAX_VALUE}.
+	 * @return The index of the bucket.
+	 */
+	private static int indexOf(long value) {
+		if(value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		
+		/*
+		 * Shift the value down until only its top SUB_BUCKET_BITS bits are
+		 * left. These are between HALF_SUB_BUCKETS and SUB_BUCKETS, so each
+		 * shift gets HALF_SUB_BUCKETS buckets of its own.
+		 */
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS + 1;
+		return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+	}
+	
+	/**
+	 * Gets the largest value that is recorded in a bucket.
+	 * @param index The index of the bucket.
+	 * @return The largest value.
+	 */
+	private static long highestValueOf(int index) {
+		if(index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / HALF_SUB_BUCKETS - 1;
+		long mantissa = index % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+}
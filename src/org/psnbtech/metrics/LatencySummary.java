@@ -0,0 +1,146 @@
+package org.psnbtech.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The {@code LatencySummary} class holds the statistics of a
+ * {@code LatencyHistogram} at a point in time, in microseconds. It is
+ * returned through JMX, so it only has simple getters.
+ * @author Brendan Jones
+ *
+ */
+public class LatencySummary {
+	
+	/**
+	 * The name of what was measured.
+	 */
+	private final String name;
+	
+	/**
+	 * The number of values recorded.
+	 */
+	private final long count;
+	
+	/**
+	 * The mean.
+	 */
+	private final double mean;
+	
+	/**
+	 * The 50th percentile.
+	 */
+	private final double p50;
+	
+	/**
+	 * The 90th percentile.
+	 */
+	private final double p90;
+	
+	/**
+	 * The 99th percentile.
+	 */
+	private final double p99;
+	
+	/**
+	 * The 99.9th percentile.
+	 */
+	private final double p999;
+	
+	/**
+	 * The largest value.
+	 */
+	private final double max;
+	
+	/**
+	 * Creates a new LatencySummary.
+	 * @param name The name of what was measured.
+	 * @param count The number of values recorded.
+	 * @param mean The mean in microseconds.
+	 * @param p50 The 50th percentile in microseconds.
+	 * @param p90 The 90th percentile in microseconds.
+	 * @param p99 The 99th percentile in microseconds.
+	 * @param p999 The 99.9th percentile in microseconds.
+	 * @param max The largest value in microseconds.
+	 */
+	@ConstructorProperties({"name", "count", "mean", "p50", "p90", "p99", "p999", "max"})
+	public LatencySummary(String name, long count, double mean, double p50, double p90, double p99, double p999, double max) {
+		this.name = name;
+		this.count = count;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+		this.max = max;
+	}
+	
+	/**
+	 * Gets the name of what was measured.
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Gets the number of values recorded.
+	 * @return The number of values.
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Gets the mean.
+	 * @return The mean in microseconds.
+	 */
+	public double getMean() {
+		return mean;
+	}
+	
+	/**
+	 * Gets the 50th percentile.
+	 * @return The 50th percentile in microseconds.
+	 */
+	public double getP50() {
+		return p50;
+	}
+	
+	/**
+	 * Gets the 90th percentile.
+	 * @return The 90th percentile in microseconds.
+	 */
+	public double getP90() {
+		return p90;
+	}
+	
+	/**
+	 * Gets the 99th percentile.
+	 * @return The 99th percentile in microseconds.
+	 */
+	public double getP99() {
+		return p99;
+	}
+	
+	/**
+	 * Gets the 99.9th percentile.
+	 * @return The 99.9th percentile in microseconds.
+	 */
+	public double getP999() {
+		return p999;
+	}
+	
+	/**
+	 * Gets the largest value.
+	 * @return The largest value in microseconds.
+	 */
+	public double getMax() {
+		return max;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%-10s n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus", name, count, mean, p50, p99, max);
+	}
+
+}
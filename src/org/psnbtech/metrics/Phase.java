@@ -0,0 +1,46 @@
+package org.psnbtech.metrics;
+
+/**
+ * The parts of the game loop that are timed by {@code GameMetrics}.
+ * @author Brendan Jones
+ *
+ */
+public enum Phase {
+	
+	/**
+	 * Polling the controller for the player's input.
+	 */
+	Input,
+	
+	/**
+	 * Moving every entity by its velocity.
+	 */
+	Integrate,
+	
+	/**
+	 * Updating the state of each entity.
+	 */
+	Update,
+	
+	/**
+	 * Finding and handling collisions.
+	 */
+	Collide,
+	
+	/**
+	 * Removing dead entities from the world.
+	 */
+	Cull,
+	
+	/**
+	 * A whole step of the game, including the phases above other than
+	 * {@code Input}, and publishing the frame.
+	 */
+	Tick,
+	
+	/**
+	 * Drawing a frame.
+	 */
+	Render;
+
+}
@@ -0,0 +1,215 @@
+package org.psnbtech.net;
+
+import org.psnbtech.Input;
+import org.psnbtech.entity.PlayerState;
+import org.psnbtech.util.Torus;
+
+/**
+ * <p>The {@code PlayerPredictor} class lets a client fly its own ship without
+ * waiting for the server.</p>
+ *
+ * <p>Each input is applied to a predicted copy of the ship as soon as it is
+ * sent, and kept until the server says it has been applied. Whenever the
+ * server's own state of the ship arrives, the prediction is thrown away, and
+ * rebuilt by stepping the server's state through every input the server
+ * hasn't applied yet. As long as nothing else in the world got in the way,
+ * the rebuilt prediction is exactly the same as the old one, and the player
+ * never notices.</p>
+ *
+ * <p>The server applies one input per tick, and keeps using the last one if
+ * it runs out. When that happens the server is a tick ahead of what the
+ * replay assumes, which shows up as a small correction.</p>
+ * @author Brendan Jones
+ *
+ */
+public class PlayerPredictor {
+	
+	/**
+	 * The number of inputs kept for replaying. Inputs that are older than
+	 * this when the server's state arrives are left out of the replay.
+	 */
+	private static final int MAX_PENDING_INPUTS = 256;
+	
+	/**
+	 * The Torus used to measure how far the prediction moved.
+	 */
+	private final Torus torus;
+	
+	/**
+	 * The flags of the inputs that have been sent, indexed by their sequence
+	 * number.
+	 */
+	private final int[] inputFlags;
+	
+	/**
+	 * The input that replayed flags are unpacked into.
+	 */
+	private final Input replayInput;
+	
+	/**
+	 * The predicted state of the ship.
+	 */
+	private final PlayerState predicted;
+	
+	/**
+	 * The prediction from before the last reconciliation, kept to measure
+	 * the correction.
+	 */
+	private final PlayerState previous;
+	
+	/**
+	 * Whether a state has been received from the server yet. Nothing is
+	 * predicted until it has.
+	 */
+	private boolean hasState;
+	
+	/**
+	 * The sequence number the next input will be given.
+	 */
+	private int nextSequence;
+	
+	/**
+	 * The sequence number of the last input the server has applied.
+	 */
+	private int ackSequence;
+	
+	/**
+	 * The number of times the server's state has been reconciled with.
+	 */
+	private long reconciliations;
+	
+	/**
+	 * The number of reconciliations that changed the prediction.
+	 */
+	private long mispredictions;
+	
+	/**
+	 * The total number of inputs replayed.
+	 */
+	private long replayedInputs;
+	
+	/**
+	 * The distance the predicted ship moved in the last reconciliation.
+	 */
+	private double lastCorrection;
+	
+	/**
+	 * Creates a new PlayerPredictor.
+	 * @param worldSize The size of the world.
+	 */
+	public PlayerPredictor(double worldSize) {
+		this.torus = new Torus(worldSize);
+		this.inputFlags = new int[MAX_PENDING_INPUTS];
+		this.replayInput = new Input();
+		this.predicted = new PlayerState();
+		this.previous = new PlayerState();
+		this.ackSequence = -1;
+	}
+	
+	/**
+	 * Gives an input the next sequence number, and applies it to the
+	 * prediction. The input should then be sent to the server with that
+	 * sequence number.
+	 * @param input The input.
+	 * @return The sequence number of the input.
+	 */
+	public int applyInput(Input input) {
+		int sequence = nextSequence++;
+		inputFlags[sequence % MAX_PENDING_INPUTS] = input.getFlags();
+		if(hasState) {
+			predicted.predict(input, torus.getSize());
+		}
+		return sequence;
+	}
+	
+	/**
+	 * Replaces the prediction with the server's state of the ship, and
+	 * replays every input that the server hadn't applied yet on top of it.
+	 * @param ackSequence The sequence number of the last input the server
+	 * had applied, or -1 if it hadn't applied any.
+	 * @param state The server's state of the ship.
+	 */
+	public void reconcile(int ackSequence, PlayerState state) {
+		previous.set(predicted);
+		predicted.set(state);
+		this.ackSequence = Math.max(this.ackSequence, ackSequence);
+		
+		int first = Math.max(this.ackSequence + 1, nextSequence - MAX_PENDING_INPUTS);
+		for(int sequence = first; sequence < nextSequence; sequence++) {
+			replayInput.setFlags(inputFlags[sequence % MAX_PENDING_INPUTS]);
+			predicted.predict(replayInput, torus.getSize());
+		}
+		this.replayedInputs += nextSequence - first;
+		
+		//Measure how far off the old prediction was, unless there wasn't one.
+		if(hasState) {
+			this.reconciliations++;
+			if(!previous.matches(predicted)) {
+				this.mispredictions++;
+			}
+			this.lastCorrection = Math.sqrt(torus.getDistanceSquared(previous.getX(), previous.getY(), predicted.getX(), predicted.getY()));
+		}
+		this.hasState = true;
+	}
+	
+	/**
+	 * Gets the predicted state of the ship, which is what should be drawn.
+	 * @return The predicted state, which is only valid once a state has been
+	 * received from the server.
+	 */
+	public PlayerState getPredicted() {
+		return predicted;
+	}
+	
+	/**
+	 * Checks whether a state has been received from the server, so that there
+	 * is a prediction.
+	 * @return Whether there is a prediction.
+	 */
+	public boolean hasState() {
+		return hasState;
+	}
+	
+	/**
+	 * Gets the number of inputs that have been sent but not applied by the
+	 * server.
+	 * @return The number of pending inputs.
+	 */
+	public int getPendingInputs() {
+		return nextSequence - 1 - ackSequence;
+	}
+	
+	/**
+	 * Gets the number of times the server's state has been reconciled with,
+	 * not counting the first state.
+	 * @return The number of reconciliations.
+	 */
+	public long getReconciliations() {
+		return reconciliations;
+	}
+	
+	/**
+	 * Gets the number of reconciliations that changed the prediction.
+	 * @return The number of mispredictions.
+	 */
+	public long getMispredictions() {
+		return mispredictions;
+	}
+	
+	/**
+	 * Gets the total number of inputs that have been replayed.
+	 * @return The number of replayed inputs.
+	 */
+	public long getReplayedInputs() {
+		return replayedInputs;
+	}
+	
+	/**
+	 * Gets the distance the predicted ship moved in the last reconciliation.
+	 * @return The distance, which is zero if the prediction was right.
+	 */
+	public double getLastCorrection() {
+		return lastCorrection;
+	}
+
+}
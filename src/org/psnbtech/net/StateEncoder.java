@@ -0,0 +1,363 @@
+package org.psnbtech.net;
+
+import java.nio.ByteBuffer;
+
+import org.psnbtech.util.Varint;
+
+/**
+ * <p>The {@code StateEncoder} class writes a {@code StateFrame} as the
+ * difference from an earlier frame that the receiver already has, called the
+ * baseline, and reads it back again.</p>
+ *
+ * <p>Rather than sending each Entity's position as it is, the position is
+ * first predicted by moving the Entity from the baseline by its velocity,
+ * and only the difference from the prediction is sent. As most Entities move
+ * in a straight line, the difference is usually just the rounding of the
+ * quantized values, which fits in a single byte. Any field that matches its
+ * prediction isn't sent at all, and an Entity that matches in every field
+ * isn't mentioned.</p>
+ *
+ * <p>An encoded frame is laid out as follows:</p>
+ * <ul>
+ * <li>The tick of the frame and of the baseline, as longs. The baseline tick
+ * is -1 if the frame was encoded without a baseline.</li>
+ * <li>The number of players, followed by the identifier of each player's
+ * ship, their score, and their lives.</li>
+ * <li>The number of Entities that have left the world since the baseline as
+ * an int, followed by the gap between each of their identifiers.</li>
+ * <li>The number of Entities that have changed as an int, followed by each
+ * of them in order. Each one starts with the gap from the previous
+ * identifier, and a byte of flags saying which fields follow.</li>
+ * </ul>
+ *
+ * <p>Every number other than the ticks and counts is written as a varint,
+ * and everything is written straight into the buffer, so encoding doesn't
+ * create any garbage.</p>
+ * @author Brendan Jones
+ *
+ */
+public final class StateEncoder {
+	
+	/**
+	 * The flag set when the x coordinate differs from its prediction.
+	 */
+	private static final int X = 1;
+	
+	/**
+	 * The flag set when the y coordinate differs from its prediction.
+	 */
+	private static final int Y = 2;
+	
+	/**
+	 * The flag set when the x velocity has changed.
+	 */
+	private static final int VELOCITY_X = 4;
+	
+	/**
+	 * The flag set when the y velocity has changed.
+	 */
+	private static final int VELOCITY_Y = 8;
+	
+	/**
+	 * The flag set when the rotation has changed.
+	 */
+	private static final int ROTATION = 16;
+	
+	/**
+	 * The flag set when the appearance has changed.
+	 */
+	private static final int APPEARANCE = 32;
+	
+	/**
+	 * The flag set when the Entity isn't in the baseline, which is followed by
+	 * its kind. The fields of a new Entity are predicted to be zero.
+	 */
+	private static final int NEW = 64;
+	
+	/**
+	 * The StateEncoder class only holds static methods, so it can't be
+	 * created.
+	 */
+	private StateEncoder() {
+	}
+	
+	/**
+	 * Writes a frame to a buffer, as the difference from a baseline.
+	 * @param baseline The frame the receiver already has, or null to write the
+	 * whole frame.
+	 * @param frame The frame to write.
+	 * @param out The buffer to write to.
+	 * @throws java.nio.BufferOverflowException If the buffer is too small.
+	 */
+	public static void encode(StateFrame baseline, StateFrame frame, ByteBuffer out) {
+		out.putLong(frame.tick);
+		out.putLong((baseline != null) ? baseline.tick : -1L);
+		int elapsed = (baseline != null) ? (int) (frame.tick - baseline.tick) : 0;
+		int baselineCount = (baseline != null) ? baseline.count : 0;
+		
+		//The players are few, and their scores change often, so they are always written in full.
+		Varint.write(out, frame.playerCount);
+		for(int i = 0; i < frame.playerCount; i++) {
+			Varint.write(out, frame.playerIds[i]);
+			Varint.write(out, frame.scores[i]);
+			Varint.write(out, frame.lives[i]);
+		}
+		
+		/*
+		 * Write the Entities that have left the world. Both frames are sorted
+		 * by identifier, so this is a single pass over the two of them.
+		 */
+		int countPosition = out.position();
+		int removed = 0;
+		int previousId = 0;
+		out.putInt(0);
+		for(int i = 0, j = 0; i < baselineCount; i++) {
+			int id = baseline.ids[i];
+			while(j < frame.count && frame.ids[j] < id) {
+				j++;
+			}
+			if(j == frame.count || frame.ids[j] != id) {
+				Varint.write(out, id - previousId);
+				previousId = id;
+				removed++;
+			}
+		}
+		out.putInt(countPosition, removed);
+		
+		//Write the fields of each Entity that don't match their prediction.
+		countPosition = out.position();
+		int changed = 0;
+		previousId = 0;
+		out.putInt(0);
+		for(int i = 0, j = 0; j < frame.count; j++) {
+			int id = frame.ids[j];
+			while(i < baselineCount && baseline.ids[i] < id) {
+				i++;
+			}
+			
+			int flags = 0;
+			int x = 0;
+			int y = 0;
+			int velocityX = 0;
+			int velocityY = 0;
+			int rotation = 0;
+			int appearance = 0;
+			if(i < baselineCount && baseline.ids[i] == id) {
+				velocityX = baseline.velocityX[i];
+				velocityY = baseline.velocityY[i];
+				x = baseline.x[i] + velocityX * elapsed;
+				y = baseline.y[i] + velocityY * elapsed;
+				rotation = baseline.rotation[i];
+				appearance = baseline.appearances[i];
+			} else {
+				flags |= NEW;
+			}
+			
+			int dx = wrap(frame.x[j] - x);
+			int dy = wrap(frame.y[j] - y);
+			int dvx = frame.velocityX[j] - velocityX;
+			int dvy = frame.velocityY[j] - velocityY;
+			int dr = wrap(frame.rotation[j] - rotation);
+			flags |= (dx != 0 ? X : 0)
+					| (dy != 0 ? Y : 0)
+					| (dvx != 0 ? VELOCITY_X : 0)
+					| (dvy != 0 ? VELOCITY_Y : 0)
+					| (dr != 0 ? ROTATION : 0)
+					| (frame.appearances[j] != appearance ? APPEARANCE : 0);
+			if(flags == 0) {
+				continue;
+			}
+			
+			Varint.write(out, id - previousId);
+			previousId = id;
+			out.put((byte) flags);
+			if((flags & NEW) != 0) {
+				out.put(frame.kinds[j]);
+			}
+			if((flags & APPEARANCE) != 0) {
+				out.put(frame.appearances[j]);
+			}
+			if((flags & X) != 0) {
+				Varint.writeSigned(out, dx);
+			}
+			if((flags & Y) != 0) {
+				Varint.writeSigned(out, dy);
+			}
+			if((flags & VELOCITY_X) != 0) {
+				Varint.writeSigned(out, dvx);
+			}
+			if((flags & VELOCITY_Y) != 0) {
+				Varint.writeSigned(out, dvy);
+			}
+			if((flags & ROTATION) != 0) {
+				Varint.writeSigned(out, dr);
+			}
+			changed++;
+		}
+		out.putInt(countPosition, changed);
+	}
+	
+	/**
+	 * Gets the tick of the baseline that an encoded frame was written
+	 * against, without reading the frame.
+	 * @param in The buffer, positioned at the start of the encoded frame.
+	 * @return The baseline tick, or -1 if the frame has no baseline.
+	 */
+	public static long getBaselineTick(ByteBuffer in) {
+		return in.getLong(in.position() + 8);
+	}
+	
+	/**
+	 * Reads a frame written by {@code encode}.
+	 * @param baseline The baseline the frame was written against, which may be
+	 * null if it was written without one.
+	 * @param in The buffer to read from.
+	 * @param frame The frame to read into, which must not be the baseline.
+	 * @throws IllegalArgumentException If the frame was written against a
+	 * different baseline.
+	 */
+	public static void decode(StateFrame baseline, ByteBuffer in, StateFrame frame) {
+		long tick = in.getLong();
+		long baselineTick = in.getLong();
+		if(baselineTick >= 0 && (baseline == null || baseline.tick != baselineTick)) {
+			throw new IllegalArgumentException("The frame was written against the baseline from tick " + baselineTick + ".");
+		}
+		if(baselineTick < 0) {
+			baseline = null;
+		}
+		int elapsed = (baseline != null) ? (int) (tick - baseline.tick) : 0;
+		int baselineCount = (baseline != null) ? baseline.count : 0;
+		frame.tick = tick;
+		
+		int playerCount = (int) Varint.read(in);
+		frame.ensurePlayerCapacity(playerCount);
+		for(int i = 0; i < playerCount; i++) {
+			frame.playerIds[i] = (int) Varint.read(in);
+			frame.scores[i] = (int) Varint.read(in);
+			frame.lives[i] = (int) Varint.read(in);
+		}
+		frame.playerCount = playerCount;
+		
+		/*
+		 * The removed and changed Entities are both read one at a time while
+		 * walking through the baseline, as they are written in the same order
+		 * as the baseline. The list of removed Entities comes first, so the
+		 * start of the changed Entities has to be found by skipping over it.
+		 */
+		int removedCount = in.getInt();
+		int removedPosition = in.position();
+		for(int i = 0; i < removedCount; i++) {
+			Varint.read(in);
+		}
+		int changedCount = in.getInt();
+		int changedPosition = in.position();
+		frame.ensureCapacity(baselineCount + changedCount);
+		
+		int nextRemoved = Integer.MAX_VALUE;
+		if(removedCount > 0) {
+			in.position(removedPosition);
+			nextRemoved = (int) Varint.read(in);
+			removedPosition = in.position();
+			removedCount--;
+		}
+		int nextChanged = Integer.MAX_VALUE;
+		int flags = 0;
+		if(changedCount > 0) {
+			in.position(changedPosition);
+			nextChanged = (int) Varint.read(in);
+			flags = in.get();
+			changedPosition = in.position();
+			changedCount--;
+		}
+		
+		int count = 0;
+		int i = 0;
+		while(i < baselineCount || nextChanged != Integer.MAX_VALUE) {
+			int id = (i < baselineCount) ? baseline.ids[i] : Integer.MAX_VALUE;
+			
+			//Skip over the Entities that have left the world.
+			if(i < baselineCount && id == nextRemoved) {
+				i++;
+				nextRemoved = Integer.MAX_VALUE;
+				if(removedCount > 0) {
+					in.position(removedPosition);
+					nextRemoved = id + (int) Varint.read(in);
+					removedPosition = in.position();
+					removedCount--;
+				}
+				continue;
+			}
+			
+			//Predict the Entity's state from the baseline, if it was in the baseline.
+			int kind = 0;
+			int x = 0;
+			int y = 0;
+			int velocityX = 0;
+			int velocityY = 0;
+			int rotation = 0;
+			int appearance = 0;
+			boolean isChanged = (nextChanged <= id);
+			if(nextChanged >= id) {
+				kind = baseline.kinds[i];
+				velocityX = baseline.velocityX[i];
+				velocityY = baseline.velocityY[i];
+				x = baseline.x[i] + velocityX * elapsed;
+				y = baseline.y[i] + velocityY * elapsed;
+				rotation = baseline.rotation[i];
+				appearance = baseline.appearances[i];
+				i++;
+			} else {
+				id = nextChanged;
+			}
+			
+			//Apply the differences from the prediction, and move on to the next changed Entity.
+			if(isChanged) {
+				in.position(changedPosition);
+				if((flags & NEW) != 0) {
+					kind = in.get();
+				}
+				if((flags & APPEARANCE) != 0) {
+					appearance = in.get();
+				}
+				if((flags & X) != 0) {
+					x += (int) Varint.readSigned(in);
+				}
+				if((flags & Y) != 0) {
+					y += (int) Varint.readSigned(in);
+				}
+				if((flags & VELOCITY_X) != 0) {
+					velocityX += (int) Varint.readSigned(in);
+				}
+				if((flags & VELOCITY_Y) != 0) {
+					velocityY += (int) Varint.readSigned(in);
+				}
+				if((flags & ROTATION) != 0) {
+					rotation += (int) Varint.readSigned(in);
+				}
+				nextChanged = Integer.MAX_VALUE;
+				if(changedCount > 0) {
+					nextChanged = id + (int) Varint.read(in);
+					flags = in.get();
+					changedCount--;
+				}
+				changedPosition = in.position();
+			}
+			
+			frame.set(count++, id, kind, appearance, x & StateFrame.QUANTA_MASK, y & StateFrame.QUANTA_MASK,
+					velocityX, velocityY, rotation & StateFrame.QUANTA_MASK);
+		}
+		frame.count = count;
+		in.position(changedPosition);
+	}
+	
+	/**
+	 * Wraps the difference between two positions or rotations, so that it
+	 * takes the shortest way around.
+	 * @param difference The difference.
+	 * @return The difference, between -32768 and 32767.
+	 */
+	private static int wrap(int difference) {
+		return (short) difference;
+	}
+
+}
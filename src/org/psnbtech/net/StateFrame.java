@@ -0,0 +1,428 @@
+package org.psnbtech.net;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.psnbtech.GameEngine;
+import org.psnbtech.entity.Entity;
+import org.psnbtech.entity.EntityKind;
+import org.psnbtech.entity.Player;
+
+/**
+ * <p>The {@code StateFrame} class holds a quantized copy of the world at a
+ * single tick, which is what gets sent over the network.</p>
+ *
+ * <p>Positions and velocities are stored as fixed point numbers, where the
+ * size of the world is divided into 65536 steps. Positions are kept within
+ * 16 bits, so an Entity wrapping around the edge of the world also wraps
+ * around in its quantized form, and the difference between two positions
+ * can be found with plain integer arithmetic. Rotations are stored in the
+ * same way, with a full turn divided into 65536 steps.</p>
+ *
+ * <p>The Entities are kept sorted by their identifier, so that two frames can
+ * be compared in a single pass. The state is stored in parallel arrays of
+ * primitives, which only grow, so a frame can be reused every tick without
+ * creating garbage.</p>
+ * @author Brendan Jones
+ *
+ */
+public class StateFrame {
+	
+	/**
+	 * The number of steps the world and a full turn are divided into.
+	 */
+	public static final int QUANTA = 1 << 16;
+	
+	/**
+	 * The mask that keeps a position or rotation within 16 bits.
+	 */
+	static final int QUANTA_MASK = QUANTA - 1;
+	
+	/**
+	 * The number of steps in a single radian.
+	 */
+	private static final double ROTATION_SCALE = QUANTA / (Math.PI * 2.0);
+	
+	/**
+	 * The kinds of Entity, indexed by their ordinal.
+	 */
+	private static final EntityKind[] ENTITY_KINDS = EntityKind.values();
+	
+	/**
+	 * The number of Entities a frame has room for when it is created.
+	 */
+	private static final int DEFAULT_CAPACITY = 64;
+	
+	/**
+	 * The number of steps in a single unit of the world.
+	 */
+	private final double scale;
+	
+	/**
+	 * The tick the frame was captured at.
+	 */
+	long tick;
+	
+	/**
+	 * The number of Entities in the frame.
+	 */
+	int count;
+	
+	/**
+	 * The identifier of each Entity.
+	 */
+	int[] ids;
+	
+	/**
+	 * The ordinal of the kind of each Entity.
+	 */
+	byte[] kinds;
+	
+	/**
+	 * The appearance of each Entity, which is zero if it isn't being drawn.
+	 */
+	byte[] appearances;
+	
+	/**
+	 * The quantized x coordinate of each Entity.
+	 */
+	int[] x;
+	
+	/**
+	 * The quantized y coordinate of each Entity.
+	 */
+	int[] y;
+	
+	/**
+	 * The quantized x velocity of each Entity.
+	 */
+	int[] velocityX;
+	
+	/**
+	 * The quantized y velocity of each Entity.
+	 */
+	int[] velocityY;
+	
+	/**
+	 * The quantized rotation of each Entity.
+	 */
+	int[] rotation;
+	
+	/**
+	 * The number of players in the frame.
+	 */
+	int playerCount;
+	
+	/**
+	 * The identifier of each player's ship.
+	 */
+	int[] playerIds;
+	
+	/**
+	 * The score of each player.
+	 */
+	int[] scores;
+	
+	/**
+	 * The lives of each player.
+	 */
+	int[] lives;
+	
+	/**
+	 * Creates a new, empty StateFrame.
+	 * @param worldSize The size of the world the frame is captured from.
+	 */
+	public StateFrame(double worldSize) {
+		this.scale = QUANTA / worldSize;
+		this.tick = -1;
+		this.ids = new int[DEFAULT_CAPACITY];
+		this.kinds = new byte[DEFAULT_CAPACITY];
+		this.appearances = new byte[DEFAULT_CAPACITY];
+		this.x = new int[DEFAULT_CAPACITY];
+		this.y = new int[DEFAULT_CAPACITY];
+		this.velocityX = new int[DEFAULT_CAPACITY];
+		this.velocityY = new int[DEFAULT_CAPACITY];
+		this.rotation = new int[DEFAULT_CAPACITY];
+		this.playerIds = new int[0];
+		this.scores = new int[0];
+		this.lives = new int[0];
+	}
+	
+	/**
+	 * Copies the state of the world from an engine into this frame.
+	 * @param engine The engine.
+	 */
+	public void capture(GameEngine engine) {
+		this.tick = engine.getTick();
+		
+		List<Entity> entities = engine.getEntities();
+		ensureCapacity(entities.size());
+		boolean sorted = true;
+		for(int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			int appearance = (entity.getKind() != EntityKind.Player || engine.canDrawPlayer((Player) entity)) ? entity.getAppearance(engine) : 0;
+			set(i, entity.getId(), entity.getKind().ordinal(), appearance,
+					quantizePosition(entity.getX()), quantizePosition(entity.getY()),
+					quantizeVelocity(entity.getVelocityX()), quantizeVelocity(entity.getVelocityY()),
+					quantizeRotation(entity.getRotation()));
+			sorted &= (i == 0 || ids[i - 1] < ids[i]);
+		}
+		this.count = entities.size();
+		
+		/*
+		 * New Entities are always added to the end of the world, and they are
+		 * given identifiers in increasing order, so the world is almost always
+		 * in order already. If it isn't, an insertion sort puts it back in
+		 * order without much work.
+		 */
+		if(!sorted) {
+			sortById();
+		}
+		
+		List<Player> players = engine.getPlayers();
+		ensurePlayerCapacity(players.size());
+		for(int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			playerIds[i] = player.getId();
+			scores[i] = player.getScore();
+			lives[i] = player.getLives();
+		}
+		this.playerCount = players.size();
+	}
+	
+	/**
+	 * Sets the state of an Entity in the frame.
+	 * @param index The index of the Entity.
+	 * @param id The identifier.
+	 * @param kind The ordinal of the kind.
+	 * @param appearance The appearance.
+	 * @param x The quantized x coordinate.
+	 * @param y The quantized y coordinate.
+	 * @param velocityX The quantized x velocity.
+	 * @param velocityY The quantized y velocity.
+	 * @param rotation The quantized rotation.
+	 */
+	void set(int index, int id, int kind, int appearance, int x, int y, int velocityX, int velocityY, int rotation) {
+		this.ids[index] = id;
+		this.kinds[index] = (byte) kind;
+		this.appearances[index] = (byte) appearance;
+		this.x[index] = x;
+		this.y[index] = y;
+		this.velocityX[index] = velocityX;
+		this.velocityY[index] = velocityY;
+		this.rotation[index] = rotation;
+	}
+	
+	/**
+	 * Sorts the Entities by their identifier.
+	 */
+	private void sortById() {
+		for(int i = 1; i < count; i++) {
+			int id = ids[i];
+			byte kind = kinds[i];
+			byte appearance = appearances[i];
+			int px = x[i];
+			int py = y[i];
+			int vx = velocityX[i];
+			int vy = velocityY[i];
+			int r = rotation[i];
+			int j = i - 1;
+			while(j >= 0 && ids[j] > id) {
+				set(j + 1, ids[j], kinds[j], appearances[j], x[j], y[j], velocityX[j], velocityY[j], rotation[j]);
+				j--;
+			}
+			set(j + 1, id, kind, appearance, px, py, vx, vy, r);
+		}
+	}
+	
+	/**
+	 * Makes sure the frame has room for a number of Entities.
+	 * @param capacity The number of Entities.
+	 */
+	void ensureCapacity(int capacity) {
+		if(ids.length < capacity) {
+			capacity = Math.max(capacity, ids.length * 2);
+			this.ids = Arrays.copyOf(ids, capacity);
+			this.kinds = Arrays.copyOf(kinds, capacity);
+			this.appearances = Arrays.copyOf(appearances, capacity);
+			this.x = Arrays.copyOf(x, capacity);
+			this.y = Arrays.copyOf(y, capacity);
+			this.velocityX = Arrays.copyOf(velocityX, capacity);
+			this.velocityY = Arrays.copyOf(velocityY, capacity);
+			this.rotation = Arrays.copyOf(rotation, capacity);
+		}
+	}
+	
+	/**
+	 * Makes sure the frame has room for a number of players.
+	 * @param capacity The number of players.
+	 */
+	void ensurePlayerCapacity(int capacity) {
+		if(playerIds.length < capacity) {
+			this.playerIds = Arrays.copyOf(playerIds, capacity);
+			this.scores = Arrays.copyOf(scores, capacity);
+			this.lives = Arrays.copyOf(lives, capacity);
+		}
+	}
+	
+	/**
+	 * Converts a position into its quantized form.
+	 * @param position The position.
+	 * @return The quantized position.
+	 */
+	private int quantizePosition(double position) {
+		return (int) Math.round(position * scale) & QUANTA_MASK;
+	}
+	
+	/**
+	 * Converts a velocity into its quantized form.
+	 * @param velocity The velocity.
+	 * @return The quantized velocity.
+	 */
+	private int quantizeVelocity(double velocity) {
+		return (int) Math.round(velocity * scale);
+	}
+	
+	/**
+	 * Converts a rotation into its quantized form.
+	 * @param rotation The rotation.
+	 * @return The quantized rotation.
+	 */
+	private static int quantizeRotation(double rotation) {
+		return (int) Math.round(rotation * ROTATION_SCALE) & QUANTA_MASK;
+	}
+	
+	/**
+	 * Gets the tick the frame was captured at.
+	 * @return The tick, or -1 if the frame is empty.
+	 */
+	public long getTick() {
+		return tick;
+	}
+	
+	/**
+	 * Gets the number of Entities in the frame.
+	 * @return The number of Entities.
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	/**
+	 * Gets the identifier of an Entity.
+	 * @param index The index of the Entity.
+	 * @return The identifier.
+	 */
+	public int getId(int index) {
+		return ids[index];
+	}
+	
+	/**
+	 * Gets the kind of an Entity.
+	 * @param index The index of the Entity.
+	 * @return The kind.
+	 */
+	public EntityKind getKind(int index) {
+		return ENTITY_KINDS[kinds[index]];
+	}
+	
+	/**
+	 * Gets the appearance of an Entity.
+	 * @param index The index of the Entity.
+	 * @return The appearance, or zero if it isn't being drawn.
+	 */
+	public int getAppearance(int index) {
+		return appearances[index];
+	}
+	
+	/**
+	 * Gets the x coordinate of an Entity.
+	 * @param index The index of the Entity.
+	 * @return The x coordinate.
+	 */
+	public double getX(int index) {
+		return x[index] / scale;
+	}
+	
+	/**
+	 * Gets the y coordinate of an Entity.
+	 * @param index The index of the Entity.
+	 * @return The y coordinate.
+	 */
+	public double getY(int index) {
+		return y[index] / scale;
+	}
+	
+	/**
+	 * Gets the x velocity of an Entity.
+	 * @param index The index of the Entity.
+	 * @return The x velocity.
+	 */
+	public double getVelocityX(int index) {
+		return velocityX[index] / scale;
+	}
+	
+	/**
+	 * Gets the y velocity of an Entity.
+	 * @param index The index of the Entity.
+	 * @return The y velocity.
+	 */
+	public double getVelocityY(int index) {
+		return velocityY[index] / scale;
+	}
+	
+	/**
+	 * Gets the rotation of an Entity.
+	 * @param index The index of the Entity.
+	 * @return The rotation.
+	 */
+	public double getRotation(int index) {
+		return rotation[index] / ROTATION_SCALE;
+	}
+	
+	/**
+	 * Finds an Entity in the frame.
+	 * @param id The identifier of the Entity.
+	 * @return The index of the Entity, or -1 if it isn't in the frame.
+	 */
+	public int indexOf(int id) {
+		int index = Arrays.binarySearch(ids, 0, count, id);
+		return (index >= 0) ? index : -1;
+	}
+	
+	/**
+	 * Gets the number of players in the frame.
+	 * @return The number of players.
+	 */
+	public int getPlayerCount() {
+		return playerCount;
+	}
+	
+	/**
+	 * Gets the identifier of a player's ship.
+	 * @param player The index of the player.
+	 * @return The identifier of the ship.
+	 */
+	public int getPlayerId(int player) {
+		return playerIds[player];
+	}
+	
+	/**
+	 * Gets the score of a player.
+	 * @param player The index of the player.
+	 * @return The score.
+	 */
+	public int getScore(int player) {
+		return scores[player];
+	}
+	
+	/**
+	 * Gets the lives of a player.
+	 * @param player The index of the player.
+	 * @return The number of lives.
+	 */
+	public int getLives(int player) {
+		return lives[player];
+	}
+
+}
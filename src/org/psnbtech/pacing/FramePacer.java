@@ -0,0 +1,143 @@
+package org.psnbtech.pacing;
+
+import org.psnbtech.metrics.LatencyHistogram;
+
+/**
+ * <p>A {@code FramePacer} holds a loop to a fixed rate, by waiting until the
+ * start of the next frame at the end of each iteration.</p>
+ * 
+ * <p>The frames are scheduled on a fixed grid, rather than each one starting
+ * a period after the last one ended, so that any error in waiting doesn't
+ * build up over time. If the loop falls more than a whole frame behind, the
+ * frames it missed are skipped rather than rushed through.</p>
+ * 
+ * <p>How late each wait finishes is recorded, which is the jitter the loop
+ * sees. Each subclass waits in a different way, trading CPU use for how
+ * precise the wait is.</p>
+ * @author Brendan Jones
+ *
+ */
+public abstract class FramePacer {
+	
+	/**
+	 * The number of nanoseconds in each frame.
+	 */
+	private final long period;
+	
+	/**
+	 * The histogram that the lateness of each frame is recorded to.
+	 */
+	private final LatencyHistogram lateness;
+	
+	/**
+	 * The time the current frame is due to start, or 0 if no frame has been
+	 * waited for.
+	 */
+	private long deadline;
+	
+	/**
+	 * The time the last wait finished, or 0 if there hasn't been one.
+	 */
+	private long lastWake;
+	
+	/**
+	 * The number of frames that were already late before waiting.
+	 */
+	private volatile long missedFrames;
+	
+	/**
+	 * Creates a new FramePacer.
+	 * @param period The number of nanoseconds in each frame.
+	 * @param lateness The histogram to record the lateness of each frame to.
+	 */
+	protected FramePacer(long period, LatencyHistogram lateness) {
+		if(period <= 0) {
+			throw new IllegalArgumentException("The period must be positive: " + period);
+		}
+		this.period = period;
+		this.lateness = lateness;
+	}
+	
+	/**
+	 * Waits until the next frame is due to start. This should be called at
+	 * the end of each iteration of the loop, from a single thread.
+	 */
+	public void awaitNextFrame() {
+		long now = System.nanoTime();
+		long deadline = nextDeadline(now);
+		if(now < deadline) {
+			waitUntil(deadline);
+		} else if(now > deadline) {
+			this.missedFrames++;
+		}
+		
+		long woke = System.nanoTime();
+		lateness.record(woke - deadline);
+		this.deadline = deadline;
+		this.lastWake = woke;
+	}
+	
+	/**
+	 * Works out when the next frame is due to start.
+	 * @param now The current time.
+	 * @return The time the next frame is due.
+	 */
+	protected long nextDeadline(long now) {
+		if(deadline == 0) {
+			return now + period;
+		}
+		long next = deadline + period;
+		return (now - next >= period) ? now : next;
+	}
+	
+	/**
+	 * Waits until a point in time.
+	 * @param deadline The value of {@code System.nanoTime()} to wait until.
+	 */
+	protected abstract void waitUntil(long deadline);
+	
+	/**
+	 * Spins until a point in time. This is as precise as waiting gets, but
+	 * keeps a core busy the whole time.
+	 * @param deadline The value of {@code System.nanoTime()} to wait until.
+	 */
+	protected static void spinUntil(long deadline) {
+		while(System.nanoTime() < deadline) {
+			Thread.onSpinWait();
+		}
+	}
+	
+	/**
+	 * Gets the number of nanoseconds in each frame.
+	 * @return The period.
+	 */
+	public long getPeriod() {
+		return period;
+	}
+	
+	/**
+	 * Gets the time the last wait finished.
+	 * @return The time, or 0 if there hasn't been a wait.
+	 */
+	protected long getLastWake() {
+		return lastWake;
+	}
+	
+	/**
+	 * Gets the histogram of how many nanoseconds late each frame started.
+	 * @return The histogram.
+	 */
+	public LatencyHistogram getLateness() {
+		return lateness;
+	}
+	
+	/**
+	 * Gets the number of frames where the loop was already late before it
+	 * started waiting.
+	 * @return The number of missed frames.
+	 */
+	public long getMissedFrames() {
+		return missedFrames;
+	}
+
+}
@@ -0,0 +1,133 @@
+package org.psnbtech.pacing;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.psnbtech.metrics.LatencyHistogram;
+
+/**
+ * The ways that a {@code FramePacer} can wait for the next frame.
+ * @author Brendan Jones
+ *
+ */
+public enum PacingStrategy {
+	
+	/**
+	 * Sleep for most of the wait, then spin. The most precise, and the most
+	 * expensive.
+	 */
+	SleepSpin,
+	
+	/**
+	 * Park for most of the wait, adjusting for how late parking wakes up,
+	 * then spin for whatever is left.
+	 */
+	Park,
+	
+	/**
+	 * Follow the display's vertical retrace. This only makes sense for
+	 * drawing, so updates are paced with {@code Park} instead.
+	 */
+	Vsync;
+	
+	/**
+	 * Creates a pacer for drawing frames.
+	 * @param period The number of nanoseconds in each frame. This is ignored
+	 * by {@code Vsync}, which uses the display's refresh rate.
+	 * @param lateness The histogram to record the lateness of each frame to.
+	 * @return The pacer.
+	 */
+	public FramePacer createFramePacer(long period, LatencyHistogram lateness) {
+		switch(this) {
+		case SleepSpin:
+			return new SleepSpinPacer(period, lateness);
+		
+		case Vsync:
+			return new VsyncPacer(lateness);
+		
+		default:
+			return new ParkPacer(period, lateness);
+		}
+	}
+	
+	/**
+	 * Creates a pacer for updating the game.
+	 * @param period The number of nanoseconds in each update.
+	 * @param lateness The histogram to record the lateness of each update to.
+	 * @return The pacer.
+	 */
+	public FramePacer createUpdatePacer(long period, LatencyHistogram lateness) {
+		if(this == SleepSpin) {
+			return new SleepSpinPacer(period, lateness);
+		}
+		return new ParkPacer(period, lateness);
+	}
+	
+	/**
+	 * Gets a strategy from its name, ignoring case.
+	 * @param name The name.
+	 * @return The strategy.
+	 * @throws IllegalArgumentException If there is no strategy with the name.
+	 */
+	public static PacingStrategy parse(String name) {
+		for(PacingStrategy strategy : values()) {
+			if(strategy.name().equalsIgnoreCase(name)) {
+				return strategy;
+			}
+		}
+		throw new IllegalArgumentException("Unknown pacing strategy: " + name);
+	}
+	
+	
+	/**
+	 * <p>Runs an empty loop with each strategy for a few seconds, and prints
+	 * how late the frames started and how much CPU time the waiting used, so
+	 * the strategies can be compared on a particular machine.</p>
+	 * 
+	 * <p>The following arguments are accepted:</p>
+	 * <ul>
+	 * <li>{@code -rate <frames>} sets the number of frames per second.
+	 * Defaults to 60.</li>
+	 * <li>{@code -frames <count>} sets the number of frames to run each
+	 * strategy for. Defaults to 300.</li>
+	 * </ul>
+	 * @param args The command line arguments.
+	 */
+	public static void main(String[] args) {
+		int rate = 60;
+		int frames = 300;
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "-rate":
+				rate = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-frames":
+				frames = Integer.parseInt(args[++i]);
+				break;
+			
+			default:
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+		
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long period = 1000000000L / rate;
+		System.out.println(String.format("%-10s %10s %10s %10s %8s %8s", "Strategy", "p50 (us)", "p99 (us)", "Max (us)", "Missed", "CPU"));
+		for(PacingStrategy strategy : values()) {
+			FramePacer pacer = strategy.createFramePacer(period, new LatencyHistogram());
+			long cpuStart = threads.getCurrentThreadCpuTime();
+			long start = System.nanoTime();
+			for(int i = 0; i < frames; i++) {
+				pacer.awaitNextFrame();
+			}
+			double cpu = (double) (threads.getCurrentThreadCpuTime() - cpuStart) / (System.nanoTime() - start);
+			
+			LatencyHistogram lateness = pacer.getLateness();
+			System.out.println(String.format("%-10s %10.1f %10.1f %10.1f %8d %7.1f%%", strategy.name(),
+					lateness.getPercentile(50.0) / 1000.0, lateness.getPercentile(99.0) / 1000.0,
+					lateness.getMax() / 1000.0, pacer.getMissedFrames(), cpu * 100.0));
+		}
+	}
+
+}
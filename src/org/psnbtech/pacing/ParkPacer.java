@@ -0,0 +1,88 @@
+package org.psnbtech.pacing;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.psnbtech.metrics.LatencyHistogram;
+
+/**
+ * <p>The {@code ParkPacer} waits with {@code LockSupport.parkNanos}, and
+ * learns how late parking tends to wake up.</p>
+ * 
+ * <p>Parking has much finer granularity than {@code Thread.sleep}, but still
+ * wakes up a little late, by an amount that depends on the machine. The pacer
+ * keeps a running average of how late each park was, and parks for that much
+ * less than it needs to. Only the small amount of time left after waking is
+ * spent spinning, so this uses far less CPU than sleeping and spinning, while
+ * being nearly as precise.</p>
+ * @author Brendan Jones
+ *
+ */
+public class ParkPacer extends FramePacer {
+	
+	/**
+	 * The number of nanoseconds late that parking is assumed to wake up,
+	 * before anything has been measured.
+	 */
+	private static final long INITIAL_OVERSHOOT = 100000L;
+	
+	/**
+	 * How much of each new measurement is mixed into the average, as a power
+	 * of two. Each measurement counts for 1/8.
+	 */
+	private static final int SMOOTHING_SHIFT = 3;
+	
+	/**
+	 * The largest the average can grow, as a fraction of the period, so that a
+	 * few very late wake ups can't make the pacer spin for most of the frame.
+	 */
+	private static final int MAX_OVERSHOOT_DIVISOR = 4;
+	
+	/**
+	 * The average number of nanoseconds late that parking wakes up.
+	 */
+	private volatile long overshoot;
+	
+	/**
+	 * Creates a new ParkPacer.
+	 * @param period The number of nanoseconds in each frame.
+	 * @param lateness The histogram to record the lateness of each frame to.
+	 */
+	public ParkPacer(long period, LatencyHistogram lateness) {
+		super(period, lateness);
+		this.overshoot = INITIAL_OVERSHOOT;
+	}
+	
+	@Override
+	protected void waitUntil(long deadline) {
+		long now = System.nanoTime();
+		long overshoot = this.overshoot;
+		
+		/*
+		 * Parking can return early for no reason, so keep parking until we're
+		 * within the expected overshoot of the deadline.
+		 */
+		while(deadline - now > overshoot) {
+			long park = deadline - now - overshoot;
+			LockSupport.parkNanos(park);
+			long woke = System.nanoTime();
+			
+			//Mix how late this park woke up into the average.
+			long late = Math.max(0L, woke - (now + park));
+			overshoot += (late - overshoot) >> SMOOTHING_SHIFT;
+			overshoot = Math.min(overshoot, getPeriod() / MAX_OVERSHOOT_DIVISOR);
+			now = woke;
+		}
+		this.overshoot = overshoot;
+		spinUntil(deadline);
+	}
+	
+	/**
+	 * Gets the average number of nanoseconds late that parking wakes up, which
+	 * is how early the pacer stops parking.
+	 * @return The calibrated overshoot.
+	 */
+	public long getOvershoot() {
+		return overshoot;
+	}
+
+}
@@ -0,0 +1,63 @@
+package org.psnbtech.pacing;
+
+import org.psnbtech.metrics.LatencyHistogram;
+
+/**
+ * <p>The {@code SleepSpinPacer} sleeps for most of the wait, and spins for
+ * the rest.</p>
+ * 
+ * <p>{@code Thread.sleep} can wake up a millisecond or more late, depending
+ * on the operating system's timer. Waking up a little early and spinning
+ * until the deadline makes each frame start almost exactly on time, at the
+ * cost of keeping a core busy for the spin threshold every frame.</p>
+ * @author Brendan Jones
+ *
+ */
+public class SleepSpinPacer extends FramePacer {
+	
+	/**
+	 * The default number of nanoseconds to spin for at the end of each wait.
+	 */
+	public static final long DEFAULT_SPIN_THRESHOLD = 1500000L;
+	
+	/**
+	 * The number of nanoseconds to spin for at the end of each wait.
+	 */
+	private final long spinThreshold;
+	
+	/**
+	 * Creates a new SleepSpinPacer with the default spin threshold.
+	 * @param period The number of nanoseconds in each frame.
+	 * @param lateness The histogram to record the lateness of each frame to.
+	 */
+	public SleepSpinPacer(long period, LatencyHistogram lateness) {
+		this(period, lateness, DEFAULT_SPIN_THRESHOLD);
+	}
+	
+	/**
+	 * Creates a new SleepSpinPacer.
+	 * @param period The number of nanoseconds in each frame.
+	 * @param lateness The histogram to record the lateness of each frame to.
+	 * @param spinThreshold The number of nanoseconds to spin for at the end of
+	 * each wait.
+	 */
+	public SleepSpinPacer(long period, LatencyHistogram lateness, long spinThreshold) {
+		super(period, lateness);
+		this.spinThreshold = spinThreshold;
+	}
+	
+	@Override
+	protected void waitUntil(long deadline) {
+		long sleep = deadline - System.nanoTime() - spinThreshold;
+		if(sleep > 0) {
+			try {
+				Thread.sleep(sleep / 1000000L, (int) (sleep % 1000000L));
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		spinUntil(deadline);
+	}
+
+}
@@ -0,0 +1,96 @@
+package org.psnbtech.pacing;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+
+import org.psnbtech.metrics.LatencyHistogram;
+
+/**
+ * <p>The {@code VsyncPacer} holds a render loop to the refresh rate of the
+ * display.</p>
+ * 
+ * <p>Java2D has no way to ask for vsync directly, but on some pipelines
+ * presenting a {@code BufferStrategy} blocks until the next vertical retrace.
+ * When that happens, the frame has already been held back to the display's
+ * rate by the time the loop gets here, and waiting as well would only make
+ * it miss the next retrace. So whenever a whole refresh period has passed
+ * since the last wait, the pacer returns straight away, and lines its
+ * schedule up with the retrace.</p>
+ * 
+ * <p>Otherwise, presenting didn't block, and the pacer parks until a refresh
+ * period after the last frame, the same way as the {@code ParkPacer}.</p>
+ * @author Brendan Jones
+ *
+ */
+public class VsyncPacer extends ParkPacer {
+	
+	/**
+	 * The refresh rate assumed when the display doesn't report one.
+	 */
+	private static final int DEFAULT_REFRESH_RATE = 60;
+	
+	/**
+	 * How close to a whole refresh period a frame has to take for presenting
+	 * to be treated as having blocked, as a fraction of the period.
+	 */
+	private static final int TOLERANCE_DIVISOR = 8;
+	
+	/**
+	 * Whether presenting blocked on the last frame.
+	 */
+	private volatile boolean isPresentBlocking;
+	
+	/**
+	 * Creates a new VsyncPacer at the refresh rate of the default screen.
+	 * @param lateness The histogram to record the lateness of each frame to.
+	 */
+	public VsyncPacer(LatencyHistogram lateness) {
+		this(getDisplayRefreshPeriod(), lateness);
+	}
+	
+	/**
+	 * Creates a new VsyncPacer.
+	 * @param period The refresh period of the display, in nanoseconds.
+	 * @param lateness The histogram to record the lateness of each frame to.
+	 */
+	public VsyncPacer(long period, LatencyHistogram lateness) {
+		super(period, lateness);
+	}
+	
+	@Override
+	protected long nextDeadline(long now) {
+		long lastWake = getLastWake();
+		if(lastWake == 0) {
+			return now;
+		}
+		
+		long period = getPeriod();
+		this.isPresentBlocking = (now - lastWake >= period - period / TOLERANCE_DIVISOR);
+		return isPresentBlocking ? now : lastWake + period;
+	}
+	
+	/**
+	 * Gets whether presenting blocked until the vertical retrace on the last
+	 * frame, which means that the display is really doing the pacing.
+	 * @return Whether presenting is blocking.
+	 */
+	public boolean isPresentBlocking() {
+		return isPresentBlocking;
+	}
+	
+	/**
+	 * Gets the refresh period of the default screen.
+	 * @return The period in nanoseconds.
+	 */
+	public static long getDisplayRefreshPeriod() {
+		int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+		if(!GraphicsEnvironment.isHeadless()) {
+			refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+		}
+		if(refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+			refreshRate = DEFAULT_REFRESH_RATE;
+		}
+		return 1000000000L / refreshRate;
+	}
+
+}
@@ -0,0 +1,84 @@
+package org.psnbtech.render;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>The {@code FrameExchange} hands {@code WorldFrame}s from the thread
+ * running the game to the thread drawing it, without either thread ever
+ * having to wait for the other.</p>
+ * 
+ * <p>Three frames are used. The game fills the back frame, then swaps it
+ * with the middle frame when it is done. The renderer swaps the front frame
+ * with the middle frame whenever the middle frame is newer, and draws the
+ * front frame. Each thread only ever touches its own frame, and the middle
+ * frame is only swapped atomically, so no locking is needed. If the game
+ * publishes several frames before the renderer gets to them, only the newest
+ * is drawn.</p>
+ * @author Brendan Jones
+ *
+ */
+public class FrameExchange {
+	
+	/**
+	 * The frame that was most recently published, or the frame that the
+	 * renderer most recently finished with.
+	 */
+	private final AtomicReference<WorldFrame> middle;
+	
+	/**
+	 * The frame that the game is filling. Only accessed by the game's thread.
+	 */
+	private WorldFrame back;
+	
+	/**
+	 * The frame that is being drawn. Only accessed by the renderer's thread.
+	 */
+	private WorldFrame front;
+	
+	/**
+	 * The number of frames that have been published.
+	 */
+	private long published;
+	
+	/**
+	 * Creates a new FrameExchange.
+	 */
+	public FrameExchange() {
+		this.middle = new AtomicReference<>(new WorldFrame());
+		this.back = new WorldFrame();
+		this.front = new WorldFrame();
+	}
+	
+	/**
+	 * Gets the frame that should be filled before calling {@code publish}.
+	 * This should only be called by the thread running the game.
+	 * @return The frame to fill.
+	 */
+	public WorldFrame getBackFrame() {
+		return back;
+	}
+	
+	/**
+	 * Publishes the back frame, making it available to the renderer. This
+	 * should only be called by the thread running the game.
+	 */
+	public void publish() {
+		back.timestamp = System.nanoTime();
+		back.sequence = ++published;
+		this.back = middle.getAndSet(back);
+	}
+	
+	/**
+	 * Gets the newest frame that has been published. The frame remains valid
+	 * until the next time this is called. This should only be called by the
+	 * thread drawing the game.
+	 * @return The newest frame.
+	 */
+	public WorldFrame getLatestFrame() {
+		if(middle.get().sequence > front.sequence) {
+			this.front = middle.getAndSet(front);
+		}
+		return front;
+	}
+
+}
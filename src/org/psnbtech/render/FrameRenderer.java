@@ -0,0 +1,302 @@
+package org.psnbtech.render;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+
+import org.psnbtech.entity.AsteroidSize;
+import org.psnbtech.entity.EntityKind;
+import org.psnbtech.entity.Player;
+import org.psnbtech.util.Torus;
+
+/**
+ * <p>The {@code FrameRenderer} draws a {@code WorldFrame} onto a graphics
+ * object.</p>
+ * 
+ * <p>Everything that is drawn comes from the frame, so the renderer never
+ * touches the game itself, and can safely be run on a different thread.</p>
+ * 
+ * <p>By default the asteroids, the ship, and the lives are drawn from a
+ * {@code SpriteCache}. They can instead be drawn as vectors each frame,
+ * which is slower, but gives exact rotations.</p>
+ * @author Brendan Jones
+ *
+ */
+public class FrameRenderer {
+	
+	/**
+	 * The font used for the large text.
+	 */
+	private static final Font TITLE_FONT = new Font("Dialog", Font.PLAIN, 25);
+	
+	/**
+	 * The font used for the medium text.
+	 */
+	private static final Font SUBTITLE_FONT = new Font("Dialog", Font.PLAIN, 15);
+	
+	/**
+	 * The ordinal of the Player kind.
+	 */
+	private static final int PLAYER = EntityKind.Player.ordinal();
+	
+	/**
+	 * The ordinal of the Asteroid kind.
+	 */
+	private static final int ASTEROID = EntityKind.Asteroid.ordinal();
+	
+	/**
+	 * The scale the ships representing the player's lives are drawn at.
+	 */
+	private static final double LIFE_SCALE = 0.85;
+	
+	/**
+	 * The Asteroid sizes, indexed by their ordinal.
+	 */
+	private static final AsteroidSize[] ASTEROID_SIZES = AsteroidSize.values();
+	
+	/**
+	 * The size of the world in pixels.
+	 */
+	private final int worldSize;
+	
+	/**
+	 * The Torus used to interpolate positions across the edges of the world.
+	 */
+	private final Torus torus;
+	
+	/**
+	 * The Torus used to interpolate rotations across a full turn.
+	 */
+	private final Torus rotationTorus;
+	
+	/**
+	 * The SpriteCache used to draw the asteroids and the ship.
+	 */
+	private final SpriteCache sprites;
+	
+	/**
+	 * Whether or not to draw from the SpriteCache.
+	 */
+	private volatile boolean spritesEnabled;
+	
+	/**
+	 * Whether or not to filter the sprites between pixels.
+	 */
+	private volatile boolean spriteFilteringEnabled;
+	
+	/**
+	 * Creates a new FrameRenderer.
+	 * @param worldSize The size of the world in pixels.
+	 */
+	public FrameRenderer(int worldSize) {
+		this.worldSize = worldSize;
+		this.torus = new Torus(worldSize);
+		this.rotationTorus = new Torus(Math.PI * 2);
+		this.sprites = new SpriteCache();
+		this.spritesEnabled = true;
+		this.spriteFilteringEnabled = false;
+	}
+	
+	/**
+	 * Sets whether the asteroids, ship, and lives should be drawn from the
+	 * SpriteCache, or drawn as vectors.
+	 * @param enabled Whether to use the SpriteCache.
+	 */
+	public void setSpritesEnabled(boolean enabled) {
+		this.spritesEnabled = enabled;
+	}
+	
+	/**
+	 * Sets whether the sprites should be filtered between pixels, so that
+	 * they are drawn at their exact position. Without filtering, which is the
+	 * default, each sprite is snapped to the nearest whole pixel. Filtering
+	 * makes the sprites glide more smoothly, but when the images are scaled
+	 * in software rather than by the graphics card it makes them several
+	 * times slower to draw than the vectors they replace.
+	 * @param enabled Whether to filter the sprites.
+	 */
+	public void setSpriteFilteringEnabled(boolean enabled) {
+		this.spriteFilteringEnabled = enabled;
+	}
+	
+	/**
+	 * Draws a frame.
+	 * @param g2d The graphics object to draw to.
+	 * @param frame The frame to draw.
+	 * @param alpha How far through the next update we are, from 0.0 to 1.0.
+	 */
+	public void render(Graphics2D g2d, WorldFrame frame, double alpha) {
+		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		
+		g2d.setColor(Color.WHITE); //Set the draw color to white.
+		
+		//Grab a reference to the current "identity" transformation, so we can reset for each object.
+		AffineTransform identity = g2d.getTransform();
+		
+		//Make sure the sprites can be drawn to this graphics object, and filtered between pixels.
+		boolean useSprites = spritesEnabled;
+		if(useSprites) {
+			sprites.validate(g2d.getDeviceConfiguration());
+			if(spriteFilteringEnabled) {
+				g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			}
+		}
+		
+		//Nothing is moving while the game is paused, so draw the entities exactly where they are.
+		if(frame.isPaused) {
+			alpha = 1.0;
+		}
+		
+		/*
+		 * Loop through each entity and draw it onto the window.
+		 */
+		for(int i = 0; i < frame.count; i++) {
+			//Get the position and rotation to draw the entity at.
+			double posX = torus.wrap(frame.previousX[i] + torus.getDelta(frame.previousX[i], frame.x[i]) * alpha);
+			double posY = torus.wrap(frame.previousY[i] + torus.getDelta(frame.previousY[i], frame.y[i]) * alpha);
+			double rotation = frame.previousRotation[i] + rotationTorus.getDelta(frame.previousRotation[i], frame.rotation[i]) * alpha;
+			
+			//Draw the entity at it's actual position, and reset the transformation.
+			drawEntity(g2d, frame, i, posX, posY, rotation, useSprites);
+			g2d.setTransform(identity);
+			
+			/*
+			 * Here we need to determine whether or not the entity is close enough
+			 * to the edge of the window to wrap around to the other side.
+			 * 
+			 * The conditional statements might look confusing, but they're
+			 * equivalent to:
+			 * 
+			 * double x = posX;
+			 * if(posX < radius) {
+			 *     x = posX + worldSize;
+			 * } else if(posX > worldSize - radius) {
+			 *     x = posX - worldSize;
+			 * }
+			 * 
+			 */
+			double radius = frame.radius[i];
+			double x = (posX < radius) ? posX + worldSize
+					: (posX > worldSize - radius) ? posX - worldSize : posX;
+			double y = (posY < radius) ? posY + worldSize
+					: (posY > worldSize - radius) ? posY - worldSize : posY;
+			
+			//Draw the entity at it's wrapped position, and reset the transformation.
+			if(x != posX || y != posY) {
+				drawEntity(g2d, frame, i, x, y, rotation, useSprites);
+				g2d.setTransform(identity);
+			}
+		}
+		
+		//Draw the score string in the top left corner if we are still playing.
+		if(!frame.isGameOver) {
+			g2d.drawString("Score: " + frame.score, 10, 15);
+		}
+		
+		//Draw some overlay text depending on the game state.
+		if(frame.isGameOver) {
+			drawTextCentered("Game Over", TITLE_FONT, g2d, -25);
+			drawTextCentered("Final Score: " + frame.score, SUBTITLE_FONT, g2d, 10);
+		} else if(frame.isPaused) {
+			drawTextCentered("Paused", TITLE_FONT, g2d, -25);
+		} else if(frame.isShowingLevel) {
+			drawTextCentered("Level: " + frame.level, TITLE_FONT, g2d, -25);
+		}
+		
+		//Draw a ship for each life the player has remaining.
+		for(int i = 0; i < frame.lives; i++) {
+			double x = 15 + i * 30 * LIFE_SCALE;
+			if(useSprites) {
+				sprites.drawLife(g2d, x, 30);
+			} else {
+				g2d.translate(x, 30);
+				drawLife(g2d);
+				g2d.setTransform(identity);
+			}
+		}
+	}
+	
+	/**
+	 * Draws text onto the center of the window.
+	 * @param text The text to draw.
+	 * @param font The font to draw in.
+	 * @param g The graphics object to draw to.
+	 * @param y The y offset.
+	 */
+	private void drawTextCentered(String text, Font font, Graphics2D g, int y) {
+		g.setFont(font);
+		g.drawString(text, worldSize / 2 - g.getFontMetrics().stringWidth(text) / 2, worldSize / 2 + y);
+	}
+	
+	/**
+	 * Draws an entity onto the window.
+	 * @param g2d The graphics object to draw to.
+	 * @param frame The frame the entity is in.
+	 * @param index The index of the entity within the frame.
+	 * @param x The x coordinate to draw the entity at.
+	 * @param y The y coordinate to draw the entity at.
+	 * @param rotation The rotation to draw the entity at.
+	 * @param useSprites Whether to draw from the SpriteCache.
+	 */
+	private void drawEntity(Graphics2D g2d, WorldFrame frame, int index, double x, double y, double rotation, boolean useSprites) {
+		int kind = frame.kind[index];
+		int appearance = frame.appearance[index];
+		
+		//Asteroids and the ship are pre-rendered, so they can be copied straight to the window.
+		if(useSprites && kind == PLAYER) {
+			sprites.drawShip(g2d, appearance, x, y, rotation);
+			return;
+		} else if(useSprites && kind == ASTEROID) {
+			sprites.drawAsteroid(g2d, ASTEROID_SIZES[appearance], x, y, rotation);
+			return;
+		}
+		
+		g2d.translate(x, y);
+		if(rotation != 0.0f) {
+			g2d.rotate(rotation);
+		}
+		
+		if(kind == PLAYER) {
+			drawShip(g2d, appearance);
+		} else if(kind == ASTEROID) {
+			g2d.drawPolygon(ASTEROID_SIZES[appearance].polygon);
+		} else {
+			g2d.drawOval(-1, -1, 2, 2);
+		}
+	}
+	
+	/**
+	 * Draws the player's ship. The nose will face right (0.0 on the unit
+	 * circle).
+	 * @param g The graphics object to draw to.
+	 * @param appearance The appearance flags of the ship.
+	 */
+	static void drawShip(Graphics2D g, int appearance) {
+		if((appearance & Player.APPEARANCE_VISIBLE) != 0) {
+			g.drawLine(-10, -8, 10, 0);
+			g.drawLine(-10, 8, 10, 0);
+			g.drawLine(-6, -6, -6, 6);
+			
+			//Draw the flames behind the ship.
+			if((appearance & Player.APPEARANCE_FLAMES) != 0) {
+				g.drawLine(-6, -6, -12, 0);
+				g.drawLine(-6, 6, -12, 0);
+			}
+		}
+	}
+	
+	/**
+	 * Draws a ship representing one of the player's lives. The nose will face
+	 * up.
+	 * @param g The graphics object to draw to.
+	 */
+	static void drawLife(Graphics2D g) {
+		g.scale(LIFE_SCALE, LIFE_SCALE);
+		g.drawLine(-8, 10, 0, -10);
+		g.drawLine(8, 10, 0, -10);
+		g.drawLine(-6, 6, 6, 6);
+	}
+	
+}
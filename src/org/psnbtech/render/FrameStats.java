@@ -0,0 +1,120 @@
+package org.psnbtech.render;
+
+/**
+ * <p>The {@code FrameStats} class keeps track of when frames are actually
+ * presented on the screen.</p>
+ * 
+ * <p>The statistics are gathered over one second windows, so that they
+ * reflect what the game currently looks like rather than its whole history.
+ * They are updated by the thread presenting frames, and can be read from any
+ * thread.</p>
+ * @author Brendan Jones
+ *
+ */
+public class FrameStats {
+	
+	/**
+	 * The number of nanoseconds in each window.
+	 */
+	private static final long WINDOW_TIME = 1000000000L;
+	
+	/**
+	 * The time the last frame was presented, or 0 if no frames have been.
+	 */
+	private long lastPresented;
+	
+	/**
+	 * The time the current window started.
+	 */
+	private long windowStart;
+	
+	/**
+	 * The number of frames presented in the current window.
+	 */
+	private int windowFrames;
+	
+	/**
+	 * The longest time between two frames in the current window.
+	 */
+	private long windowWorst;
+	
+	/**
+	 * The number of nanoseconds between the last two frames.
+	 */
+	private volatile long lastInterval;
+	
+	/**
+	 * The number of frames presented during the last complete window.
+	 */
+	private volatile double framesPerSecond;
+	
+	/**
+	 * The longest time between two frames during the last complete window.
+	 */
+	private volatile long worstInterval;
+	
+	/**
+	 * The total number of frames presented.
+	 */
+	private volatile long totalFrames;
+	
+	/**
+	 * Records that a frame has been presented.
+	 * @param now The value of {@code System.nanoTime()} when it was presented.
+	 */
+	public void framePresented(long now) {
+		if(lastPresented == 0) {
+			this.windowStart = now;
+		} else {
+			long interval = now - lastPresented;
+			this.lastInterval = interval;
+			this.windowWorst = Math.max(windowWorst, interval);
+			this.windowFrames++;
+		}
+		this.lastPresented = now;
+		this.totalFrames++;
+		
+		//Once a full window has passed, publish its statistics and start a new one.
+		long elapsed = now - windowStart;
+		if(elapsed >= WINDOW_TIME) {
+			this.framesPerSecond = windowFrames * 1000000000.0 / elapsed;
+			this.worstInterval = windowWorst;
+			this.windowStart = now;
+			this.windowFrames = 0;
+			this.windowWorst = 0;
+		}
+	}
+	
+	/**
+	 * Gets the number of nanoseconds between the last two frames.
+	 * @return The last frame interval.
+	 */
+	public long getLastInterval() {
+		return lastInterval;
+	}
+	
+	/**
+	 * Gets the rate that frames were presented at during the last second.
+	 * @return The number of frames per second.
+	 */
+	public double getFramesPerSecond() {
+		return framesPerSecond;
+	}
+	
+	/**
+	 * Gets the longest time between two frames during the last second.
+	 * @return The worst frame interval in nanoseconds.
+	 */
+	public long getWorstInterval() {
+		return worstInterval;
+	}
+	
+	/**
+	 * Gets the total number of frames that have been presented.
+	 * @return The number of frames.
+	 */
+	public long getTotalFrames() {
+		return totalFrames;
+	}
+
+}
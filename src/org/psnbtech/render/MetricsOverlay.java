@@ -0,0 +1,142 @@
+package org.psnbtech.render;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+
+import org.psnbtech.metrics.GameMetrics;
+import org.psnbtech.metrics.LatencyHistogram;
+import org.psnbtech.metrics.Phase;
+
+/**
+ * <p>The {@code MetricsOverlay} draws a summary of the {@code GameMetrics}
+ * over the bottom left corner of the game.</p>
+ * 
+ * <p>Building the text is far more expensive than drawing it, so the text is
+ * only rebuilt a couple of times a second, and the same lines are drawn in
+ * between. This also keeps the numbers still enough to read.</p>
+ * @author Brendan Jones
+ *
+ */
+public class MetricsOverlay {
+	
+	/**
+	 * The number of nanoseconds between each rebuild of the text.
+	 */
+	private static final long REFRESH_TIME = 500000000L;
+	
+	/**
+	 * The font the overlay is drawn with.
+	 */
+	private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+	
+	/**
+	 * The color the overlay is drawn with.
+	 */
+	private static final Color COLOR = new Color(0, 255, 0, 200);
+	
+	/**
+	 * The height of each line.
+	 */
+	private static final int LINE_HEIGHT = 13;
+	
+	/**
+	 * The phases that are shown, in order.
+	 */
+	private static final Phase[] SHOWN_PHASES = {
+		Phase.Tick, Phase.Input, Phase.Integrate, Phase.Update, Phase.Collide, Phase.Cull, Phase.Render
+	};
+	
+	/**
+	 * The metrics that are shown.
+	 */
+	private final GameMetrics metrics;
+	
+	/**
+	 * The lines of text being drawn.
+	 */
+	private final String[] lines;
+	
+	/**
+	 * The time the text was last rebuilt, or 0 if it never has been.
+	 */
+	private long lastRefresh;
+	
+	/**
+	 * The number of ticks when the text was last rebuilt.
+	 */
+	private long lastTicks;
+	
+	/**
+	 * The number of collisions tested when the text was last rebuilt.
+	 */
+	private long lastTested;
+	
+	/**
+	 * The number of collisions hit when the text was last rebuilt.
+	 */
+	private long lastHit;
+	
+	/**
+	 * Creates a new MetricsOverlay.
+	 * @param metrics The metrics to show.
+	 */
+	public MetricsOverlay(GameMetrics metrics) {
+		this.metrics = metrics;
+		this.lines = new String[SHOWN_PHASES.length + 3];
+	}
+	
+	/**
+	 * Draws the overlay.
+	 * @param g The Graphics2D to draw with.
+	 * @param height The height of the area being drawn on.
+	 */
+	public void draw(Graphics2D g, int height) {
+		long now = System.nanoTime();
+		if(lastRefresh == 0 || now - lastRefresh >= REFRESH_TIME) {
+			refresh(now);
+		}
+		
+		g.setFont(FONT);
+		g.setColor(COLOR);
+		int y = height - 6 - (lines.length - 1) * LINE_HEIGHT;
+		for(int i = 0; i < lines.length; i++) {
+			if(lines[i] != null) {
+				g.drawString(lines[i], 6, y);
+			}
+			y += LINE_HEIGHT;
+		}
+	}
+	
+	/**
+	 * Rebuilds the text from the current metrics.
+	 * @param now The current time.
+	 */
+	private void refresh(long now) {
+		int line = 0;
+		lines[line++] = "phase        p50     p99     max (us)";
+		for(int i = 0; i < SHOWN_PHASES.length; i++) {
+			LatencyHistogram histogram = metrics.getHistogram(SHOWN_PHASES[i]);
+			lines[line++] = String.format("%-9s %7.1f %7.1f %7.1f", SHOWN_PHASES[i].name(),
+					histogram.getPercentile(50.0) / 1000.0, histogram.getPercentile(99.0) / 1000.0, histogram.getMax() / 1000.0);
+		}
+		
+		//The collision counters are shown per tick since the last refresh.
+		long ticks = metrics.getTicks();
+		long tested = metrics.getCollisionsTested();
+		long hit = metrics.getCollisionsHit();
+		double elapsedTicks = Math.max(1, ticks - lastTicks);
+		lines[line++] = String.format("entities %d, pairs/tick %.1f tested %.2f hit",
+				metrics.getEntityCount(), (tested - lastTested) / elapsedTicks, (hit - lastHit) / elapsedTicks);
+		
+		double allocationRate = metrics.getAllocationRate();
+		lines[line++] = String.format("catch-ups %d, alloc %s", metrics.getCatchUpUpdates(),
+				(allocationRate < 0.0) ? "n/a" : String.format("%.1f KB/s", allocationRate / 1024.0));
+		
+		this.lastRefresh = now;
+		this.lastTicks = ticks;
+		this.lastTested = tested;
+		this.lastHit = hit;
+	}
+
+}
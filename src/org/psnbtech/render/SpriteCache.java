@@ -0,0 +1,343 @@
+package org.psnbtech.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.psnbtech.entity.AsteroidSize;
+import org.psnbtech.entity.Player;
+
+/**
+ * <p>The {@code SpriteCache} holds pre-rendered images of the asteroids and
+ * the ship, so that drawing them each frame is a single image copy rather
+ * than rasterizing anti-aliased lines.</p>
+ * 
+ * <p>Each shape is rendered at a fixed number of rotations, and drawn at the
+ * rotation closest to the one asked for. Sprites are only rendered the first
+ * time they are needed, and once the cache is full the sprite that was used
+ * least recently is thrown away to make room. The images are created to be
+ * compatible with the graphics configuration they are drawn to, and the whole
+ * cache is rebuilt if that configuration changes (for example, if the window
+ * is moved to another screen).</p>
+ * 
+ * <p>The least recently used order is kept in a linked list of slot indices,
+ * so looking up a sprite never creates any garbage.</p>
+ * 
+ * <p>Sprites are drawn at their exact position rather than snapped to the
+ * nearest pixel, so that entities drawn part way between two updates glide
+ * smoothly. This only shows if the graphics object filters images with
+ * bilinear interpolation, as nearest neighbor interpolation snaps them to
+ * whole pixels anyway. Filtering is left to whoever owns the graphics
+ * object, as it costs far more than the blit itself.</p>
+ * @author Brendan Jones
+ *
+ */
+public class SpriteCache {
+	
+	/**
+	 * The default number of rotations each shape is rendered at.
+	 */
+	public static final int DEFAULT_ROTATIONS = 128;
+	
+	/**
+	 * The default maximum number of sprites kept in the cache.
+	 */
+	public static final int DEFAULT_CAPACITY = 384;
+	
+	/**
+	 * The Asteroid sizes, indexed by their ordinal.
+	 */
+	private static final AsteroidSize[] ASTEROID_SIZES = AsteroidSize.values();
+	
+	/**
+	 * The shape of the ship without flames. Shapes below this are asteroids.
+	 */
+	private static final int SHAPE_SHIP = ASTEROID_SIZES.length;
+	
+	/**
+	 * The shape of the ship with flames.
+	 */
+	private static final int SHAPE_SHIP_FLAMES = SHAPE_SHIP + 1;
+	
+	/**
+	 * The shape of the ship shown for each life on the heads up display.
+	 */
+	private static final int SHAPE_LIFE = SHAPE_SHIP + 2;
+	
+	/**
+	 * The number of different shapes.
+	 */
+	private static final int SHAPE_COUNT = SHAPE_SHIP + 3;
+	
+	/**
+	 * The width and height of the ship sprites.
+	 */
+	private static final int SHIP_SPRITE_SIZE = 28;
+	
+	/**
+	 * The value used to mark the end of the least recently used list.
+	 */
+	private static final int NONE = -1;
+	
+	/**
+	 * The number of rotations each shape is rendered at.
+	 */
+	private final int rotations;
+	
+	/**
+	 * The maximum number of sprites kept in the cache.
+	 */
+	private final int capacity;
+	
+	/**
+	 * The sprites, indexed by {@code shape * rotations + rotation}. Sprites
+	 * that have not been rendered are null.
+	 */
+	private final BufferedImage[] sprites;
+	
+	/**
+	 * The slot of the next most recently used sprite, for each slot.
+	 */
+	private final int[] previous;
+	
+	/**
+	 * The slot of the next least recently used sprite, for each slot.
+	 */
+	private final int[] next;
+	
+	/**
+	 * The slot of the most recently used sprite.
+	 */
+	private int head;
+	
+	/**
+	 * The slot of the least recently used sprite.
+	 */
+	private int tail;
+	
+	/**
+	 * The number of sprites in the cache.
+	 */
+	private int count;
+	
+	/**
+	 * The graphics configuration that the sprites were created for.
+	 */
+	private GraphicsConfiguration configuration;
+	
+	/**
+	 * The transform each sprite is drawn with, reused to avoid creating
+	 * garbage.
+	 */
+	private final AffineTransform transform;
+	
+	/**
+	 * Creates a new SpriteCache with the default number of rotations and
+	 * capacity.
+	 */
+	public SpriteCache() {
+		this(DEFAULT_ROTATIONS, DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates a new SpriteCache.
+	 * @param rotations The number of rotations each shape is rendered at.
+	 * @param capacity The maximum number of sprites kept in the cache.
+	 */
+	public SpriteCache(int rotations, int capacity) {
+		if(rotations <= 0 || capacity <= 0) {
+			throw new IllegalArgumentException("Rotations and capacity must be positive.");
+		}
+		this.rotations = rotations;
+		this.capacity = capacity;
+		this.sprites = new BufferedImage[SHAPE_COUNT * rotations];
+		this.previous = new int[sprites.length];
+		this.next = new int[sprites.length];
+		this.head = NONE;
+		this.tail = NONE;
+		this.transform = new AffineTransform();
+	}
+	
+	/**
+	 * Makes sure the sprites are compatible with the graphics configuration
+	 * they are about to be drawn to, throwing them all away if they aren't.
+	 * @param configuration The graphics configuration.
+	 */
+	public void validate(GraphicsConfiguration configuration) {
+		if(configuration != this.configuration) {
+			clear();
+			this.configuration = configuration;
+		}
+	}
+	
+	/**
+	 * Removes every sprite from the cache.
+	 */
+	public void clear() {
+		Arrays.fill(sprites, null);
+		this.head = NONE;
+		this.tail = NONE;
+		this.count = 0;
+	}
+	
+	/**
+	 * Gets the number of sprites in the cache.
+	 * @return The number of sprites.
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Draws an Asteroid centered on a point.
+	 * @param g The graphics object to draw to.
+	 * @param size The size of the Asteroid.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @param rotation The rotation.
+	 */
+	public void drawAsteroid(Graphics2D g, AsteroidSize size, double x, double y, double rotation) {
+		draw(g, getSprite(size.ordinal(), rotation), x, y);
+	}
+	
+	/**
+	 * Draws the ship centered on a point.
+	 * @param g The graphics object to draw to.
+	 * @param appearance The appearance flags of the ship.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 * @param rotation The rotation.
+	 */
+	public void drawShip(Graphics2D g, int appearance, double x, double y, double rotation) {
+		if((appearance & Player.APPEARANCE_VISIBLE) != 0) {
+			int shape = ((appearance & Player.APPEARANCE_FLAMES) != 0) ? SHAPE_SHIP_FLAMES : SHAPE_SHIP;
+			draw(g, getSprite(shape, rotation), x, y);
+		}
+	}
+	
+	/**
+	 * Draws the ship that represents one of the player's lives centered on a
+	 * point.
+	 * @param g The graphics object to draw to.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 */
+	public void drawLife(Graphics2D g, double x, double y) {
+		draw(g, getSprite(SHAPE_LIFE, 0.0), x, y);
+	}
+	
+	/**
+	 * Draws a sprite centered on a point, which doesn't have to be on a
+	 * whole pixel.
+	 * @param g The graphics object to draw to.
+	 * @param sprite The sprite.
+	 * @param x The x coordinate.
+	 * @param y The y coordinate.
+	 */
+	private void draw(Graphics2D g, BufferedImage sprite, double x, double y) {
+		transform.setToTranslation(x - sprite.getWidth() / 2.0, y - sprite.getHeight() / 2.0);
+		g.drawImage(sprite, transform, null);
+	}
+	
+	/**
+	 * Gets the sprite of a shape at the rotation closest to the one given,
+	 * rendering it if it isn't in the cache.
+	 * @param shape The shape.
+	 * @param rotation The rotation.
+	 * @return The sprite.
+	 */
+	private BufferedImage getSprite(int shape, double rotation) {
+		/*
+		 * Work out which of the pre-rendered rotations is closest. The rotation
+		 * can be negative, so we need to wrap the index back into range.
+		 */
+		int index = (int) Math.round(rotation * rotations / (Math.PI * 2)) % rotations;
+		if(index < 0) {
+			index += rotations;
+		}
+		
+		int slot = shape * rotations + index;
+		BufferedImage sprite = sprites[slot];
+		if(sprite == null) {
+			//Make room for the new sprite by throwing away the least recently used one.
+			if(count == capacity) {
+				int eldest = tail;
+				unlink(eldest);
+				sprites[eldest] = null;
+				this.count--;
+			}
+			sprite = render(shape, index * Math.PI * 2 / rotations);
+			sprites[slot] = sprite;
+			this.count++;
+		} else {
+			unlink(slot);
+		}
+		
+		//Move the sprite to the front of the list, as it was just used.
+		previous[slot] = NONE;
+		next[slot] = head;
+		if(head != NONE) {
+			previous[head] = slot;
+		}
+		this.head = slot;
+		if(tail == NONE) {
+			this.tail = slot;
+		}
+		return sprite;
+	}
+	
+	/**
+	 * Removes a slot from the least recently used list.
+	 * @param slot The slot.
+	 */
+	private void unlink(int slot) {
+		if(previous[slot] != NONE) {
+			next[previous[slot]] = next[slot];
+		} else {
+			this.head = next[slot];
+		}
+		if(next[slot] != NONE) {
+			previous[next[slot]] = previous[slot];
+		} else {
+			this.tail = previous[slot];
+		}
+	}
+	
+	/**
+	 * Renders a sprite.
+	 * @param shape The shape to render.
+	 * @param rotation The rotation to render it at.
+	 * @return The sprite.
+	 */
+	private BufferedImage render(int shape, double rotation) {
+		int size = (shape < SHAPE_SHIP) ? (int) Math.ceil(ASTEROID_SIZES[shape].radius * 2.0) + 4 : SHIP_SPRITE_SIZE;
+		BufferedImage sprite = (configuration != null) ? configuration.createCompatibleImage(size, size, Transparency.TRANSLUCENT)
+				: new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		
+		Graphics2D g = sprite.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setColor(Color.WHITE);
+			g.translate(size / 2.0, size / 2.0);
+			g.rotate(rotation);
+			if(shape == SHAPE_SHIP) {
+				FrameRenderer.drawShip(g, Player.APPEARANCE_VISIBLE);
+			} else if(shape == SHAPE_SHIP_FLAMES) {
+				FrameRenderer.drawShip(g, Player.APPEARANCE_VISIBLE | Player.APPEARANCE_FLAMES);
+			} else if(shape == SHAPE_LIFE) {
+				FrameRenderer.drawLife(g);
+			} else {
+				g.drawPolygon(ASTEROID_SIZES[shape].polygon);
+			}
+		} finally {
+			g.dispose();
+		}
+		return sprite;
+	}
+
+}
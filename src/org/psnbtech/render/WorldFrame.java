@@ -0,0 +1,219 @@
+package org.psnbtech.render;
+
+import java.util.Arrays;
+
+import org.psnbtech.entity.Entity;
+
+/**
+ * <p>A {@code WorldFrame} is a copy of everything that is needed to draw the
+ * game at the end of an update.</p>
+ * 
+ * <p>The entity state is copied into parallel arrays of primitives, which are
+ * reused each time the frame is filled. Once a frame has been published
+ * through a {@code FrameExchange} it is not modified until the renderer has
+ * moved on to a newer frame, so the renderer can read it without worrying
+ * about the game changing underneath it.</p>
+ * @author Brendan Jones
+ *
+ */
+public class WorldFrame {
+	
+	/**
+	 * The number of entities a frame starts out with room for.
+	 */
+	private static final int DEFAULT_CAPACITY = 64;
+	
+	/**
+	 * The kind of each entity, as an {@code EntityKind} ordinal.
+	 */
+	int[] kind;
+	
+	/**
+	 * The kind-specific appearance of each entity.
+	 */
+	int[] appearance;
+	
+	/**
+	 * The x positions.
+	 */
+	double[] x;
+	
+	/**
+	 * The y positions.
+	 */
+	double[] y;
+	
+	/**
+	 * The x positions at the start of the update.
+	 */
+	double[] previousX;
+	
+	/**
+	 * The y positions at the start of the update.
+	 */
+	double[] previousY;
+	
+	/**
+	 * The rotations.
+	 */
+	double[] rotation;
+	
+	/**
+	 * The rotations at the start of the update.
+	 */
+	double[] previousRotation;
+	
+	/**
+	 * The collision radii.
+	 */
+	double[] radius;
+	
+	/**
+	 * The number of entities in the frame.
+	 */
+	int count;
+	
+	/**
+	 * The order in which this frame was published. Frames with a higher
+	 * sequence number are newer.
+	 */
+	volatile long sequence;
+	
+	/**
+	 * The value of {@code System.nanoTime()} when this frame was published.
+	 */
+	long timestamp;
+	
+	/**
+	 * The current score.
+	 */
+	int score;
+	
+	/**
+	 * The number of lives the player has left.
+	 */
+	int lives;
+	
+	/**
+	 * The current level.
+	 */
+	int level;
+	
+	/**
+	 * Whether or not the game is over.
+	 */
+	boolean isGameOver;
+	
+	/**
+	 * Whether or not the game is paused.
+	 */
+	boolean isPaused;
+	
+	/**
+	 * Whether or not the level is being shown.
+	 */
+	boolean isShowingLevel;
+	
+	/**
+	 * Creates a new, empty WorldFrame.
+	 */
+	public WorldFrame() {
+		this.kind = new int[DEFAULT_CAPACITY];
+		this.appearance = new int[DEFAULT_CAPACITY];
+		this.x = new double[DEFAULT_CAPACITY];
+		this.y = new double[DEFAULT_CAPACITY];
+		this.previousX = new double[DEFAULT_CAPACITY];
+		this.previousY = new double[DEFAULT_CAPACITY];
+		this.rotation = new double[DEFAULT_CAPACITY];
+		this.previousRotation = new double[DEFAULT_CAPACITY];
+		this.radius = new double[DEFAULT_CAPACITY];
+	}
+	
+	/**
+	 * Removes every entity from the frame, so that it can be filled again.
+	 */
+	public void clear() {
+		this.count = 0;
+	}
+	
+	/**
+	 * Copies the state of an entity into the frame.
+	 * @param entity The entity.
+	 * @param appearance The kind-specific appearance of the entity.
+	 */
+	public void add(Entity entity, int appearance) {
+		if(count == x.length) {
+			int capacity = count * 2;
+			this.kind = Arrays.copyOf(this.kind, capacity);
+			this.appearance = Arrays.copyOf(this.appearance, capacity);
+			this.x = Arrays.copyOf(x, capacity);
+			this.y = Arrays.copyOf(y, capacity);
+			this.previousX = Arrays.copyOf(previousX, capacity);
+			this.previousY = Arrays.copyOf(previousY, capacity);
+			this.rotation = Arrays.copyOf(rotation, capacity);
+			this.previousRotation = Arrays.copyOf(previousRotation, capacity);
+			this.radius = Arrays.copyOf(radius, capacity);
+		}
+		kind[count] = entity.getKind().ordinal();
+		this.appearance[count] = appearance;
+		x[count] = entity.getX();
+		y[count] = entity.getY();
+		previousX[count] = entity.getPreviousX();
+		previousY[count] = entity.getPreviousY();
+		rotation[count] = entity.getRotation();
+		previousRotation[count] = entity.getPreviousRotation();
+		radius[count] = entity.getCollisionRadius();
+		this.count++;
+	}
+	
+	/**
+	 * Sets the values shown on the heads up display.
+	 * @param score The current score.
+	 * @param lives The number of lives the player has left.
+	 * @param level The current level.
+	 * @param isGameOver Whether or not the game is over.
+	 * @param isPaused Whether or not the game is paused.
+	 * @param isShowingLevel Whether or not the level is being shown.
+	 */
+	public void setHud(int score, int lives, int level, boolean isGameOver, boolean isPaused, boolean isShowingLevel) {
+		this.score = score;
+		this.lives = lives;
+		this.level = level;
+		this.isGameOver = isGameOver;
+		this.isPaused = isPaused;
+		this.isShowingLevel = isShowingLevel;
+	}
+	
+	/**
+	 * Gets the number of entities in the frame.
+	 * @return The number of entities.
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	/**
+	 * Gets the order in which this frame was published.
+	 * @return The sequence number, or 0 if the frame has never been published.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+	
+	/**
+	 * Gets the time that this frame was published.
+	 * @return The value of {@code System.nanoTime()} when it was published.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	/**
+	 * Gets whether or not the game was paused.
+	 * @return Whether or not the game was paused.
+	 */
+	public boolean isPaused() {
+		return isPaused;
+	}
+
+}
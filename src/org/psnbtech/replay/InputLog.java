@@ -0,0 +1,152 @@
+package org.psnbtech.replay;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.psnbtech.Input;
+
+/**
+ * <p>The {@code InputLog} records the seed a game was started with, and the
+ * input that was given to it on every tick.</p>
+ * 
+ * <p>As the seed is the only source of randomness in a {@code GameEngine},
+ * this is all that is needed to play the game back exactly as it happened.
+ * The input for each tick is stored as the flags returned by
+ * {@code Input.getFlags}, so a log takes a single byte per tick.</p>
+ * @author Brendan Jones
+ *
+ */
+public class InputLog {
+	
+	/**
+	 * The value written at the start of a saved log, to identify the file.
+	 */
+	static final int MAGIC = 0x41535452;
+	
+	/**
+	 * The number of ticks a log starts out with room for.
+	 */
+	private static final int DEFAULT_CAPACITY = 1024;
+	
+	/**
+	 * The seed the game was started with.
+	 */
+	private final long seed;
+	
+	/**
+	 * The input flags for each tick.
+	 */
+	private byte[] flags;
+	
+	/**
+	 * The number of ticks in the log.
+	 */
+	private int size;
+	
+	/**
+	 * Creates a new, empty InputLog.
+	 * @param seed The seed the game was started with.
+	 */
+	public InputLog(long seed) {
+		this.seed = seed;
+		this.flags = new byte[DEFAULT_CAPACITY];
+	}
+	
+	/**
+	 * Records the input for the next tick. This should be called with the
+	 * input before it is passed to {@code GameEngine.step}, as the engine
+	 * clears the requests once it has handled them.
+	 * @param input The input.
+	 */
+	public void record(Input input) {
+		record(input.getFlags());
+	}
+	
+	/**
+	 * Records the input flags for the next tick.
+	 * @param inputFlags The input flags.
+	 */
+	public void record(int inputFlags) {
+		if(size == flags.length) {
+			this.flags = Arrays.copyOf(flags, size * 2);
+		}
+		flags[size++] = (byte) inputFlags;
+	}
+	
+	/**
+	 * Copies the input for a tick into an Input.
+	 * @param tick The tick.
+	 * @param out The Input to copy into.
+	 * @return The Input for chaining.
+	 */
+	public Input get(int tick, Input out) {
+		out.setFlags(getFlags(tick));
+		return out;
+	}
+	
+	/**
+	 * Gets the input flags for a tick.
+	 * @param tick The tick.
+	 * @return The input flags.
+	 */
+	public int getFlags(int tick) {
+		if(tick < 0 || tick >= size) {
+			throw new IndexOutOfBoundsException("Tick " + tick + " is not in the log.");
+		}
+		return flags[tick];
+	}
+	
+	/**
+	 * Gets the seed the game was started with.
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Gets the number of ticks in the log.
+	 * @return The number of ticks.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Writes this log to a stream.
+	 * @param out The stream to write to.
+	 * @throws IOException If the log could not be written.
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeLong(seed);
+		data.writeInt(size);
+		data.write(flags, 0, size);
+		data.flush();
+	}
+	
+	/**
+	 * Reads a log that was written by {@code write}.
+	 * @param in The stream to read from.
+	 * @return The log.
+	 * @throws IOException If the log could not be read, or is not valid.
+	 */
+	public static InputLog read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if(data.readInt() != MAGIC) {
+			throw new IOException("Not an input log.");
+		}
+		InputLog log = new InputLog(data.readLong());
+		int size = data.readInt();
+		log.flags = new byte[Math.max(size, DEFAULT_CAPACITY)];
+		data.readFully(log.flags, 0, size);
+		log.size = size;
+		return log;
+	}
+
+}
@@ -0,0 +1,35 @@
+package org.psnbtech.replay;
+
+import org.psnbtech.Input;
+import org.psnbtech.WorldView;
+import org.psnbtech.control.Controller;
+
+/**
+ * The {@code InputLogController} plays back the input recorded in an
+ * {@code InputLog}, using the input that was recorded for the game's current
+ * tick. Once the log runs out, every control is released.
+ * @author Brendan Jones
+ *
+ */
+public class InputLogController implements Controller {
+	
+	/**
+	 * The log being played back.
+	 */
+	private final InputLog log;
+	
+	/**
+	 * Creates a new InputLogController.
+	 * @param log The log to play back.
+	 */
+	public InputLogController(InputLog log) {
+		this.log = log;
+	}
+	
+	@Override
+	public void poll(WorldView world, Input input) {
+		long tick = world.getTick();
+		input.setFlags(tick < log.size() ? log.getFlags((int) tick) : 0);
+	}
+
+}
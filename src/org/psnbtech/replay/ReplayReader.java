@@ -0,0 +1,282 @@
+package org.psnbtech.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.psnbtech.GameEngine;
+import org.psnbtech.Input;
+import org.psnbtech.util.Varint;
+
+/**
+ * <p>The {@code ReplayReader} plays back a recording written by a
+ * {@code ReplayWriter}.</p>
+ * 
+ * <p>The file is memory mapped rather than read, so only the parts of it that
+ * are actually played back are loaded from the disk. Seeking restores the
+ * engine from the nearest keyframe at or before the target tick, and only
+ * simulates the ticks between the two, so jumping deep into a long recording
+ * takes about as long as playing back one keyframe interval.</p>
+ * @author Brendan Jones
+ *
+ */
+public class ReplayReader implements Closeable {
+	
+	/**
+	 * The channel the file is mapped through.
+	 */
+	private final FileChannel channel;
+	
+	/**
+	 * The contents of the file.
+	 */
+	private final MappedByteBuffer map;
+	
+	/**
+	 * The seed the game was started with.
+	 */
+	private final long seed;
+	
+	/**
+	 * The number of ticks between keyframes.
+	 */
+	private final int keyframeInterval;
+	
+	/**
+	 * The number of ticks in the recording.
+	 */
+	private final long tickCount;
+	
+	/**
+	 * The tick of each keyframe.
+	 */
+	private final long[] keyframeTicks;
+	
+	/**
+	 * The file offset of each keyframe.
+	 */
+	private final long[] keyframeOffsets;
+	
+	/**
+	 * The position of the next record to be read.
+	 */
+	private final ByteBuffer cursor;
+	
+	/**
+	 * The input passed to the engine.
+	 */
+	private final Input input;
+	
+	/**
+	 * The next tick to be played back, or -1 if no keyframe has been restored.
+	 */
+	private long tick;
+	
+	/**
+	 * The number of ticks left in the current run of input.
+	 */
+	private long runRemaining;
+	
+	/**
+	 * The input flags of the current run.
+	 */
+	private int runFlags;
+	
+	/**
+	 * Opens a recording. A recording that was closed before any ticks were
+	 * recorded has no keyframes, and can't be played back.
+	 * @param path The file to read.
+	 * @throws IOException If the file could not be read, is not a recording,
+	 * or has no keyframe to start playing back from.
+	 */
+	public ReplayReader(Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("Recordings larger than 2GB can't be mapped.");
+			}
+			this.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			
+			//Read the header.
+			if(size < ReplayWriter.TRAILER_LENGTH || map.getInt(0) != ReplayWriter.MAGIC) {
+				throw new IOException("Not a recording.");
+			}
+			if(map.get(4) != ReplayWriter.VERSION) {
+				throw new IOException("Unsupported recording version " + map.get(4) + ".");
+			}
+			this.seed = map.getLong(5);
+			ByteBuffer header = map.duplicate();
+			header.position(13);
+			this.keyframeInterval = (int) Varint.read(header);
+			
+			//Read the trailer, which tells us where the index is.
+			int trailer = (int) size - ReplayWriter.TRAILER_LENGTH;
+			if(map.getInt(trailer + 16) != ReplayWriter.MAGIC) {
+				throw new IOException("The recording was not finished.");
+			}
+			this.tickCount = map.getLong(trailer + 8);
+			
+			//Read the index of keyframes, where each entry is relative to the last.
+			ByteBuffer index = map.duplicate();
+			index.position((int) map.getLong(trailer));
+			int count = (int) Varint.read(index);
+			this.keyframeTicks = new long[count];
+			this.keyframeOffsets = new long[count];
+			long previousTick = 0;
+			long previousOffset = 0;
+			for(int i = 0; i < count; i++) {
+				previousTick += Varint.read(index);
+				previousOffset += Varint.read(index);
+				keyframeTicks[i] = previousTick;
+				keyframeOffsets[i] = previousOffset;
+			}
+			
+			//Seeking starts from a keyframe, so a recording needs one at the very start to be played back.
+			if(count == 0 || keyframeTicks[0] != 0) {
+				throw new IOException("The recording has no keyframe at its start.");
+			}
+		} catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		
+		this.cursor = map.duplicate();
+		this.input = new Input();
+		this.tick = -1;
+	}
+	
+	/**
+	 * Creates an engine in the state it was in at the start of the recording.
+	 * @return The engine.
+	 */
+	public GameEngine createEngine() {
+		GameEngine engine = new GameEngine(seed);
+		seek(engine, 0);
+		return engine;
+	}
+	
+	/**
+	 * Puts an engine into the state it was in just before a tick of the
+	 * recording was played, by restoring it from the nearest keyframe and
+	 * playing back the ticks after it.
+	 * @param engine The engine.
+	 * @param target The tick to seek to.
+	 */
+	public void seek(GameEngine engine, long target) {
+		if(target < 0 || target > tickCount) {
+			throw new IndexOutOfBoundsException("Tick " + target + " is not in the recording.");
+		}
+		
+		//Find the last keyframe at or before the target.
+		int keyframe = Arrays.binarySearch(keyframeTicks, target);
+		if(keyframe < 0) {
+			keyframe = -keyframe - 2;
+		}
+		
+		//Restore the engine from the keyframe.
+		cursor.position((int) keyframeOffsets[keyframe]);
+		if(cursor.get() != ReplayWriter.RECORD_KEYFRAME) {
+			throw new IllegalStateException("The recording's index is corrupt.");
+		}
+		this.tick = Varint.read(cursor);
+		int length = (int) Varint.read(cursor);
+		ByteBuffer state = cursor.duplicate();
+		state.limit(cursor.position() + length);
+		engine.readState(state);
+		cursor.position(cursor.position() + length);
+		this.runRemaining = 0;
+		
+		//Play back the rest of the way.
+		while(tick < target) {
+			step(engine);
+		}
+	}
+	
+	/**
+	 * Plays back the next tick of the recording.
+	 * @param engine The engine, which must have been passed to {@code seek}
+	 * or created by {@code createEngine}.
+	 * @return Whether there was a tick to play back.
+	 */
+	public boolean step(GameEngine engine) {
+		if(tick < 0) {
+			throw new IllegalStateException("seek must be called before the recording can be played back.");
+		}
+		if(tick >= tickCount) {
+			return false;
+		}
+		
+		//Read records until we find the next run of input, skipping over any keyframes.
+		while(runRemaining == 0) {
+			byte type = cursor.get();
+			if(type == ReplayWriter.RECORD_INPUT) {
+				this.runRemaining = Varint.read(cursor);
+				this.runFlags = cursor.get();
+			} else if(type == ReplayWriter.RECORD_KEYFRAME) {
+				Varint.read(cursor);
+				int length = (int) Varint.read(cursor);
+				cursor.position(cursor.position() + length);
+			} else {
+				throw new IllegalStateException("The recording ended before tick " + tick + ".");
+			}
+		}
+		
+		input.setFlags(runFlags);
+		engine.step(input);
+		this.runRemaining--;
+		this.tick++;
+		return true;
+	}
+	
+	/**
+	 * Gets the next tick to be played back.
+	 * @return The tick.
+	 */
+	public long getTick() {
+		return tick;
+	}
+	
+	/**
+	 * Gets the seed the game was started with.
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Gets the number of ticks in the recording.
+	 * @return The number of ticks.
+	 */
+	public long getTickCount() {
+		return tickCount;
+	}
+	
+	/**
+	 * Gets the number of ticks between keyframes.
+	 * @return The keyframe interval.
+	 */
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+	
+	/**
+	 * Gets the number of keyframes in the recording.
+	 * @return The number of keyframes.
+	 */
+	public int getKeyframeCount() {
+		return keyframeTicks.length;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
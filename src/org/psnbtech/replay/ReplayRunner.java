@@ -0,0 +1,162 @@
+package org.psnbtech.replay;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+
+import org.psnbtech.GameEngine;
+import org.psnbtech.Input;
+import org.psnbtech.entity.Entity;
+
+/**
+ * <p>The {@code ReplayRunner} plays an {@code InputLog} back without a
+ * window, as fast as it can.</p>
+ * 
+ * <p>The game is created from the seed in the log, and stepped once for every
+ * tick in the log with the input that was recorded for it. As the game is
+ * deterministic, it ends up in exactly the same state as the game that was
+ * recorded, which makes the replay useful for reproducing bugs and for
+ * measuring performance on the same workload every time.</p>
+ * @author Brendan Jones
+ *
+ */
+public class ReplayRunner {
+	
+	/**
+	 * The log being played back.
+	 */
+	private final InputLog log;
+	
+	/**
+	 * The engine the log is played back on.
+	 */
+	private final GameEngine engine;
+	
+	/**
+	 * The input passed to the engine.
+	 */
+	private final Input input;
+	
+	/**
+	 * The number of ticks that have been played back.
+	 */
+	private int tick;
+	
+	/**
+	 * Creates a new ReplayRunner.
+	 * @param log The log to play back.
+	 */
+	public ReplayRunner(InputLog log) {
+		this.log = log;
+		this.engine = new GameEngine(log.getSeed());
+		this.input = new Input();
+	}
+	
+	/**
+	 * Plays back the next tick of the log.
+	 * @return Whether there was a tick to play back.
+	 */
+	public boolean step() {
+		if(tick >= log.size()) {
+			return false;
+		}
+		engine.step(log.get(tick++, input));
+		return true;
+	}
+	
+	/**
+	 * Plays back every remaining tick of the log.
+	 */
+	public void run() {
+		while(step()) {
+			//Keep going until we reach the end of the log.
+		}
+	}
+	
+	/**
+	 * Gets the engine the log is being played back on.
+	 * @return The engine.
+	 */
+	public GameEngine getEngine() {
+		return engine;
+	}
+	
+	/**
+	 * Gets a checksum of the state of a game, so that two runs can be checked
+	 * to have ended up in the same state.
+	 * @param engine The engine.
+	 * @return The checksum.
+	 */
+	public static long checksum(GameEngine engine) {
+		long hash = engine.getTick();
+		hash = hash * 31 + engine.getScore();
+		hash = hash * 31 + engine.getLives();
+		hash = hash * 31 + engine.getLevel();
+		for(int i = 0; i < engine.getEntities().size(); i++) {
+			Entity entity = engine.getEntities().get(i);
+			hash = hash * 31 + entity.getKind().ordinal();
+			hash = hash * 31 + Double.doubleToLongBits(entity.getX());
+			hash = hash * 31 + Double.doubleToLongBits(entity.getY());
+			hash = hash * 31 + Double.doubleToLongBits(entity.getRotation());
+		}
+		return hash;
+	}
+	
+	/**
+	 * <p>Plays back a saved InputLog or recording, and prints how long it took
+	 * along with the final state of the game.</p>
+	 * 
+	 * <p>When playing back a recording, {@code -seek <tick>} jumps to a tick
+	 * from the nearest keyframe before playing back the rest.</p>
+	 * @param args The path to the log or recording, optionally followed by
+	 * {@code -seek <tick>}.
+	 * @throws IOException If the file could not be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length != 1 && !(args.length == 3 && args[1].equals("-seek"))) {
+			System.err.println("Usage: ReplayRunner <input log or recording> [-seek <tick>]");
+			System.exit(2);
+		}
+		
+		//Work out what kind of file we've been given from its first few bytes.
+		int magic;
+		try(DataInputStream in = new DataInputStream(new FileInputStream(args[0]))) {
+			magic = in.readInt();
+		}
+		
+		GameEngine engine;
+		long ticks;
+		long start = System.nanoTime();
+		if(magic == ReplayWriter.MAGIC) {
+			try(ReplayReader reader = new ReplayReader(Paths.get(args[0]))) {
+				engine = new GameEngine(reader.getSeed());
+				long seek = (args.length == 3) ? Long.parseLong(args[2]) : 0;
+				reader.seek(engine, seek);
+				System.out.printf("Seeked to tick %d in %.3f ms%n", seek, (System.nanoTime() - start) / 1000000.0);
+				while(reader.step(engine)) {
+					//Keep going until we reach the end of the recording.
+				}
+				ticks = reader.getTickCount() - seek;
+			}
+		} else {
+			InputLog log;
+			try(InputStream in = new BufferedInputStream(new FileInputStream(args[0]))) {
+				log = InputLog.read(in);
+			}
+			ReplayRunner runner = new ReplayRunner(log);
+			runner.run();
+			engine = runner.getEngine();
+			ticks = log.size();
+		}
+		double seconds = (System.nanoTime() - start) / 1000000000.0;
+		
+		System.out.printf("Replayed %d ticks in %.3f s (%.0f ticks/s)%n", ticks, seconds, ticks / seconds);
+		System.out.printf("Score %d, level %d, lives %d, game over %b%n",
+				engine.getScore(), engine.getLevel(), engine.getLives(), engine.isGameOver());
+		System.out.printf("Checksum %016x%n", checksum(engine));
+	}
+	
+}
@@ -0,0 +1,343 @@
+package org.psnbtech.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.psnbtech.GameEngine;
+import org.psnbtech.Input;
+import org.psnbtech.util.Varint;
+
+/**
+ * <p>The {@code ReplayWriter} records a game to a compact binary file, which
+ * can be played back with a {@code ReplayReader}.</p>
+ * 
+ * <p>The file starts with a header, followed by a sequence of records, and
+ * ends with an index of the keyframes:</p>
+ * <ul>
+ * <li>The header holds {@code MAGIC}, {@code VERSION}, the seed, and the
+ * keyframe interval.</li>
+ * <li>An input record holds the number of ticks in a run as a varint, followed
+ * by the input flags that were held for the whole run. As the input only
+ * changes every so often, a run usually covers many ticks.</li>
+ * <li>A keyframe record holds the tick it was taken at and the length of the
+ * state as varints, followed by the state written by
+ * {@code GameEngine.writeState}.</li>
+ * <li>The index holds the number of keyframes, and the tick and file offset of
+ * each one as varints, each relative to the previous keyframe. It is followed
+ * by a fixed length trailer with the offset of the index, the number of
+ * ticks, and {@code MAGIC}.</li>
+ * </ul>
+ * 
+ * <p>Keyframes are taken at a fixed interval, which lets the reader jump to
+ * any point in a long recording without simulating everything before it.</p>
+ * @author Brendan Jones
+ *
+ */
+public class ReplayWriter implements Closeable {
+	
+	/**
+	 * The value written at the start and end of a recording, to identify the
+	 * file.
+	 */
+	static final int MAGIC = 0x41535250;
+	
+	/**
+	 * The version of the format.
+	 */
+	static final byte VERSION = 1;
+	
+	/**
+	 * The type of the record that marks the end of the records.
+	 */
+	static final byte RECORD_END = 0;
+	
+	/**
+	 * The type of an input record.
+	 */
+	static final byte RECORD_INPUT = 1;
+	
+	/**
+	 * The type of a keyframe record.
+	 */
+	static final byte RECORD_KEYFRAME = 2;
+	
+	/**
+	 * The length of the trailer at the end of the file.
+	 */
+	static final int TRAILER_LENGTH = 20;
+	
+	/**
+	 * The default number of ticks between keyframes, which is one minute of
+	 * play.
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 3600;
+	
+	/**
+	 * The size of the buffer that records are collected in before being
+	 * written to the file.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * The channel the file is written through.
+	 */
+	private final FileChannel channel;
+	
+	/**
+	 * The buffer that records are collected in before being written.
+	 */
+	private final ByteBuffer buffer;
+	
+	/**
+	 * The buffer that the state of a keyframe is written into.
+	 */
+	private ByteBuffer state;
+	
+	/**
+	 * The number of ticks between keyframes.
+	 */
+	private final int keyframeInterval;
+	
+	/**
+	 * The number of bytes that have been written to the channel.
+	 */
+	private long written;
+	
+	/**
+	 * The tick of each keyframe.
+	 */
+	private long[] keyframeTicks;
+	
+	/**
+	 * The file offset of each keyframe.
+	 */
+	private long[] keyframeOffsets;
+	
+	/**
+	 * The number of keyframes.
+	 */
+	private int keyframeCount;
+	
+	/**
+	 * The input flags of the current run, or -1 if there isn't one.
+	 */
+	private int runFlags;
+	
+	/**
+	 * The number of ticks in the current run.
+	 */
+	private long runLength;
+	
+	/**
+	 * The number of ticks that have been recorded.
+	 */
+	private long ticks;
+	
+	/**
+	 * Creates a new ReplayWriter, taking a keyframe every
+	 * {@code DEFAULT_KEYFRAME_INTERVAL} ticks.
+	 * @param path The file to write to. Any existing file is replaced.
+	 * @param seed The seed the game was started with.
+	 * @throws IOException If the file could not be opened.
+	 */
+	public ReplayWriter(Path path, long seed) throws IOException {
+		this(path, seed, DEFAULT_KEYFRAME_INTERVAL);
+	}
+	
+	/**
+	 * Creates a new ReplayWriter.
+	 * @param path The file to write to. Any existing file is replaced.
+	 * @param seed The seed the game was started with.
+	 * @param keyframeInterval The number of ticks between keyframes.
+	 * @throws IOException If the file could not be opened.
+	 */
+	public ReplayWriter(Path path, long seed, int keyframeInterval) throws IOException {
+		if(keyframeInterval <= 0) {
+			throw new IllegalArgumentException("The keyframe interval must be positive.");
+		}
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.state = ByteBuffer.allocate(BUFFER_SIZE);
+		this.keyframeInterval = keyframeInterval;
+		this.keyframeTicks = new long[16];
+		this.keyframeOffsets = new long[16];
+		this.runFlags = -1;
+		
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.putLong(seed);
+		Varint.write(buffer, keyframeInterval);
+	}
+	
+	/**
+	 * Records the input for the next tick. This should be called with the
+	 * input before it is passed to {@code GameEngine.step}, as the engine
+	 * clears the requests once it has handled them. A keyframe of the engine
+	 * is taken first if one is due.
+	 * @param engine The engine that is about to be stepped.
+	 * @param input The input it is about to be stepped with.
+	 * @throws IOException If the recording could not be written.
+	 */
+	public void record(GameEngine engine, Input input) throws IOException {
+		if(ticks % keyframeInterval == 0) {
+			flushRun();
+			writeKeyframe(engine);
+		}
+		
+		//Extend the current run if the input hasn't changed, or start a new one.
+		int flags = input.getFlags();
+		if(flags == runFlags) {
+			this.runLength++;
+		} else {
+			flushRun();
+			this.runFlags = flags;
+			this.runLength = 1;
+		}
+		this.ticks++;
+	}
+	
+	/**
+	 * Gets the number of ticks that have been recorded.
+	 * @return The number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	
+	/**
+	 * Finishes the recording by writing the index, and closes the file. The
+	 * first keyframe is only taken when the first tick is recorded, so a
+	 * recording closed before then can't be played back.
+	 * @throws IOException If the recording could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flushRun();
+			ensureRemaining(1);
+			buffer.put(RECORD_END);
+			
+			//Write the index of the keyframes, with each entry relative to the last.
+			long indexOffset = getOffset();
+			ensureRemaining(Varint.MAX_LENGTH);
+			Varint.write(buffer, keyframeCount);
+			long previousTick = 0;
+			long previousOffset = 0;
+			for(int i = 0; i < keyframeCount; i++) {
+				ensureRemaining(Varint.MAX_LENGTH * 2);
+				Varint.write(buffer, keyframeTicks[i] - previousTick);
+				Varint.write(buffer, keyframeOffsets[i] - previousOffset);
+				previousTick = keyframeTicks[i];
+				previousOffset = keyframeOffsets[i];
+			}
+			
+			ensureRemaining(TRAILER_LENGTH);
+			buffer.putLong(indexOffset);
+			buffer.putLong(ticks);
+			buffer.putInt(MAGIC);
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Writes the current run of input, if there is one.
+	 * @throws IOException If the recording could not be written.
+	 */
+	private void flushRun() throws IOException {
+		if(runLength > 0) {
+			ensureRemaining(2 + Varint.MAX_LENGTH);
+			buffer.put(RECORD_INPUT);
+			Varint.write(buffer, runLength);
+			buffer.put((byte) runFlags);
+		}
+		this.runFlags = -1;
+		this.runLength = 0;
+	}
+	
+	/**
+	 * Writes a keyframe of an engine, and adds it to the index.
+	 * @param engine The engine.
+	 * @throws IOException If the recording could not be written.
+	 */
+	private void writeKeyframe(GameEngine engine) throws IOException {
+		//Write the state, growing the buffer until it is big enough to hold it.
+		while(true) {
+			try {
+				state.clear();
+				engine.writeState(state);
+				break;
+			} catch(BufferOverflowException e) {
+				this.state = ByteBuffer.allocate(state.capacity() * 2);
+			}
+		}
+		state.flip();
+		
+		if(keyframeCount == keyframeTicks.length) {
+			this.keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+			this.keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+		}
+		keyframeTicks[keyframeCount] = ticks;
+		keyframeOffsets[keyframeCount] = getOffset();
+		this.keyframeCount++;
+		
+		ensureRemaining(1 + Varint.MAX_LENGTH * 2);
+		buffer.put(RECORD_KEYFRAME);
+		Varint.write(buffer, ticks);
+		Varint.write(buffer, state.remaining());
+		
+		//Large states are written straight to the file, rather than being copied first.
+		if(state.remaining() > buffer.remaining()) {
+			flush();
+			if(state.remaining() > buffer.capacity()) {
+				this.written += state.remaining();
+				while(state.hasRemaining()) {
+					channel.write(state);
+				}
+				return;
+			}
+		}
+		buffer.put(state);
+	}
+	
+	/**
+	 * Gets the offset in the file that the next byte will be written to.
+	 * @return The offset.
+	 */
+	private long getOffset() {
+		return written + buffer.position();
+	}
+	
+	/**
+	 * Makes sure there is room in the buffer, writing it to the file if there
+	 * isn't.
+	 * @param count The number of bytes that are needed.
+	 * @throws IOException If the buffer could not be written.
+	 */
+	private void ensureRemaining(int count) throws IOException {
+		if(buffer.remaining() < count) {
+			flush();
+		}
+	}
+	
+	/**
+	 * Writes the contents of the buffer to the file.
+	 * @throws IOException If the buffer could not be written.
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		this.written += buffer.remaining();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+}
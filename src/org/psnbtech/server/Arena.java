@@ -0,0 +1,316 @@
+package org.psnbtech.server;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.psnbtech.GameEngine;
+import org.psnbtech.Input;
+import org.psnbtech.entity.Player;
+import org.psnbtech.entity.PlayerState;
+import org.psnbtech.net.StateEncoder;
+import org.psnbtech.net.StateFrame;
+
+/**
+ * <p>The {@code Arena} class is a single world on the server, shared by
+ * every client that has been placed in it.</p>
+ *
+ * <p>The server is authoritative, so the arena's {@code GameEngine} is the
+ * only real copy of the world. Clients only send their input, and are sent
+ * the state of the world in return. The game is endless, so a player that
+ * runs out of lives starts over rather than ending the game for everyone.</p>
+ *
+ * <p>The last few states sent are kept, so that each client can be sent the
+ * difference from the latest state it has received. Clients that are keeping
+ * up have all received the same state, so the difference is only encoded
+ * once per state it was taken from, rather than once per client.</p>
+ *
+ * <p>Each arena belongs to a single {@code EventLoop}, which steps it and
+ * handles its clients' sockets on the same thread.</p>
+ * @author Brendan Jones
+ *
+ */
+public class Arena {
+	
+	/**
+	 * The size of the buffer the encoded states are written into.
+	 */
+	private static final int STATE_BUFFER_SIZE = Protocol.MAX_MESSAGE_SIZE;
+	
+	/**
+	 * The number of states that are kept to be used as baselines. A client
+	 * that falls further behind than this is sent the whole world.
+	 */
+	private static final int HISTORY_SIZE = 32;
+	
+	/**
+	 * The identifier of the arena, which is unique within the server.
+	 */
+	private final int id;
+	
+	/**
+	 * The engine that runs the world.
+	 */
+	private final GameEngine engine;
+	
+	/**
+	 * The clients in the arena.
+	 */
+	private final List<Connection> connections;
+	
+	/**
+	 * The number of ticks between each state sent to the clients.
+	 */
+	private final int broadcastInterval;
+	
+	/**
+	 * The input passed to {@code GameEngine.step}, which is never used to
+	 * pause the game, as nobody owns the engine's own player.
+	 */
+	private final Input idleInput;
+	
+	/**
+	 * The state of a client's ship, which is copied out of its Player before
+	 * being written.
+	 */
+	private final PlayerState playerState;
+	
+	/**
+	 * The states most recently sent, indexed by the number of the broadcast
+	 * they were sent in.
+	 */
+	private final StateFrame[] history;
+	
+	/**
+	 * The number of states that have been sent.
+	 */
+	private long broadcasts;
+	
+	/**
+	 * The buffer the current state is encoded into, once for each baseline
+	 * that a client needs.
+	 */
+	private final ByteBuffer encoded;
+	
+	/**
+	 * The tick of each baseline the current state has been encoded against,
+	 * where -1 means no baseline.
+	 */
+	private final long[] encodedBaselines;
+	
+	/**
+	 * The position in the buffer of each encoding of the current state.
+	 */
+	private final int[] encodedOffsets;
+	
+	/**
+	 * The number of encodings of the current state.
+	 */
+	private int encodedCount;
+	
+	/**
+	 * Creates a new Arena.
+	 * @param id The identifier of the arena.
+	 * @param seed The seed for the arena's world.
+	 * @param broadcastInterval The number of ticks between each state sent to
+	 * the clients.
+	 */
+	public Arena(int id, long seed, int broadcastInterval) {
+		this.id = id;
+		this.broadcastInterval = broadcastInterval;
+		this.connections = new ArrayList<>();
+		this.idleInput = new Input();
+		this.playerState = new PlayerState();
+		this.encoded = ByteBuffer.allocateDirect(STATE_BUFFER_SIZE);
+		this.encodedBaselines = new long[HISTORY_SIZE + 1];
+		this.encodedOffsets = new int[HISTORY_SIZE + 2];
+		
+		/*
+		 * Every client is given a player of their own with addPlayer, so the
+		 * player that the engine starts with isn't needed.
+		 */
+		this.engine = new GameEngine(seed);
+		engine.setEndless(true);
+		engine.removePlayer(engine.getPlayer());
+		
+		this.history = new StateFrame[HISTORY_SIZE];
+		for(int i = 0; i < HISTORY_SIZE; i++) {
+			history[i] = new StateFrame(engine.getWorldSize());
+		}
+	}
+	
+	/**
+	 * Adds a client to the arena, giving it a new player, and greets it.
+	 * @param connection The client.
+	 * @param tickRate The number of ticks per second.
+	 * @throws IOException If the greeting could not be sent.
+	 */
+	void join(Connection connection, int tickRate) throws IOException {
+		connection.join(this, engine.addPlayer());
+		connections.add(connection);
+		
+		ByteBuffer out = connection.beginMessage(Protocol.LENGTH_SIZE + 1 + 4 + 8 + 4 + 4);
+		out.putInt(1 + 4 + 8 + 4 + 4);
+		out.put(Protocol.WELCOME);
+		out.putInt(id);
+		out.putDouble(engine.getWorldSize());
+		out.putInt(tickRate);
+		out.putInt(broadcastInterval);
+		connection.flush();
+	}
+	
+	/**
+	 * Removes a client from the arena, along with its player.
+	 * @param connection The client.
+	 */
+	void leave(Connection connection) {
+		connections.remove(connection);
+		engine.removePlayer(connection.getPlayer());
+	}
+	
+	/**
+	 * Steps the world using the next input from each client, and sends the
+	 * state of the world to every client if one is due.
+	 */
+	void tick() {
+		for(int i = 0; i < connections.size(); i++) {
+			Connection connection = connections.get(i);
+			engine.setPlayerInput(connection.getPlayer(), connection.nextInput());
+		}
+		engine.step(idleInput);
+		if(engine.getTick() % broadcastInterval == 0) {
+			broadcast();
+		}
+	}
+	
+	/**
+	 * Sends the state of the world to every client, as the difference from the
+	 * latest state each of them has received, along with the state of their
+	 * own ship. Clients that can't be written to are closed.
+	 */
+	private void broadcast() {
+		StateFrame frame = history[(int) (broadcasts++ % HISTORY_SIZE)];
+		frame.capture(engine);
+		encoded.clear();
+		this.encodedCount = 0;
+		
+		List<Player> players = engine.getPlayers();
+		for(int i = connections.size() - 1; i >= 0; i--) {
+			Connection connection = connections.get(i);
+			int index = encode(connection.getAckTick(), frame);
+			if(index < 0) {
+				continue;
+			}
+			int length = encodedOffsets[index + 1] - encodedOffsets[index];
+			ByteBuffer out = connection.beginMessage(Protocol.STATE_HEADER_SIZE + length);
+			if(out == null) {
+				continue;
+			}
+			out.putInt(Protocol.STATE_HEADER_SIZE - Protocol.LENGTH_SIZE + length);
+			out.put(Protocol.STATE);
+			out.putInt(connection.getAckSequence());
+			out.putShort((short) players.indexOf(connection.getPlayer()));
+			connection.getPlayer().saveState(playerState);
+			playerState.write(out);
+			ByteBuffer state = encoded.duplicate();
+			state.limit(encodedOffsets[index + 1]).position(encodedOffsets[index]);
+			out.put(state);
+			try {
+				connection.flush();
+			} catch(IOException e) {
+				connection.close();
+			}
+		}
+	}
+	
+	/**
+	 * Encodes the current state against the state from a tick, unless it has
+	 * already been encoded against it for another client.
+	 * @param baselineTick The tick of the latest state the client has
+	 * received.
+	 * @param frame The current state.
+	 * @return The index of the encoding, or -1 if it didn't fit.
+	 */
+	private int encode(long baselineTick, StateFrame frame) {
+		StateFrame baseline = findState(baselineTick);
+		if(baseline == null) {
+			baselineTick = -1;
+		}
+		for(int i = 0; i < encodedCount; i++) {
+			if(encodedBaselines[i] == baselineTick) {
+				return i;
+			}
+		}
+		
+		int index = encodedCount;
+		encodedOffsets[index] = encoded.position();
+		try {
+			StateEncoder.encode(baseline, frame, encoded);
+		} catch(BufferOverflowException e) {
+			encoded.position(encodedOffsets[index]);
+			return -1;
+		}
+		encodedBaselines[index] = baselineTick;
+		encodedOffsets[index + 1] = encoded.position();
+		this.encodedCount++;
+		return index;
+	}
+	
+	/**
+	 * Finds a state that was sent earlier, if it is still being kept.
+	 * @param tick The tick of the state.
+	 * @return The StateFrame, or null if it isn't being kept.
+	 */
+	private StateFrame findState(long tick) {
+		if(tick < 0 || tick % broadcastInterval != 0) {
+			return null;
+		}
+		//The latest state has the index broadcasts - 1, and each earlier state is broadcastInterval ticks before it.
+		long age = (engine.getTick() - tick) / broadcastInterval;
+		if(age <= 0 || age >= HISTORY_SIZE || age >= broadcasts) {
+			return null;
+		}
+		StateFrame frame = history[(int) ((broadcasts - 1 - age) % HISTORY_SIZE)];
+		return (frame.getTick() == tick) ? frame : null;
+	}
+	
+	/**
+	 * Gets the identifier of the arena.
+	 * @return The identifier.
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Gets the number of clients in the arena.
+	 * @return The number of clients.
+	 */
+	public int getPlayerCount() {
+		return connections.size();
+	}
+	
+	/**
+	 * Gets the engine that runs the world.
+	 * @return The GameEngine.
+	 */
+	public GameEngine getEngine() {
+		return engine;
+	}
+	
+	/**
+	 * Gets the total number of states that were dropped because a client
+	 * wasn't keeping up.
+	 * @return The number of dropped states.
+	 */
+	public long getDroppedStates() {
+		long dropped = 0;
+		for(int i = 0; i < connections.size(); i++) {
+			dropped += connections.get(i).getDroppedStates();
+		}
+		return dropped;
+	}
+
+}
@@ -0,0 +1,299 @@
+package org.psnbtech.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import org.psnbtech.Input;
+import org.psnbtech.entity.Player;
+
+/**
+ * <p>The {@code Connection} class holds a client's socket, and the player it
+ * controls within an {@code Arena}.</p>
+ *
+ * <p>The socket is non-blocking, and is only ever touched by the
+ * {@code EventLoop} that owns the arena, so nothing here needs to be
+ * synchronized. Inputs are queued as they arrive and used one per tick, so
+ * an input sent for every tick is applied for exactly one tick even if they
+ * arrive in bursts.</p>
+ *
+ * <p>States are written into a buffer that is flushed whenever the socket
+ * can take more. If a client falls so far behind that a state doesn't fit,
+ * the state is dropped rather than buffered, as the next one will replace it
+ * anyway.</p>
+ * @author Brendan Jones
+ *
+ */
+class Connection {
+	
+	/**
+	 * The size of the buffer that received data is read into.
+	 */
+	private static final int READ_BUFFER_SIZE = 4096;
+	
+	/**
+	 * The longest message a client can send, not including its length, which
+	 * is the most that fits in the read buffer. Clients only ever send
+	 * {@code INPUT} messages, which are far smaller.
+	 */
+	private static final int MAX_MESSAGE_LENGTH = READ_BUFFER_SIZE - Protocol.LENGTH_SIZE;
+	
+	/**
+	 * The size of the buffer that states are written into before being sent.
+	 */
+	private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+	
+	/**
+	 * The most inputs that can be waiting to be used. If a client gets further
+	 * ahead than this, its oldest inputs are skipped.
+	 */
+	private static final int MAX_QUEUED_INPUTS = 16;
+	
+	/**
+	 * The client's socket.
+	 */
+	private final SocketChannel channel;
+	
+	/**
+	 * The key the socket is registered with the selector by.
+	 */
+	private final SelectionKey key;
+	
+	/**
+	 * The buffer that received data is read into.
+	 */
+	private final ByteBuffer readBuffer;
+	
+	/**
+	 * The buffer that messages are written into before being sent.
+	 */
+	private final ByteBuffer writeBuffer;
+	
+	/**
+	 * The sequence numbers of the inputs waiting to be used.
+	 */
+	private final int[] inputSequences;
+	
+	/**
+	 * The flags of the inputs waiting to be used.
+	 */
+	private final int[] inputFlags;
+	
+	/**
+	 * The index of the oldest input waiting to be used.
+	 */
+	private int inputHead;
+	
+	/**
+	 * The number of inputs waiting to be used.
+	 */
+	private int inputCount;
+	
+	/**
+	 * The input used for the current tick, which is kept if no new input has
+	 * arrived by the next tick.
+	 */
+	private final Input input;
+	
+	/**
+	 * The sequence number of the last input that has been used.
+	 */
+	private int ackSequence;
+	
+	/**
+	 * The tick of the latest state the client has said it received, which
+	 * the next state is written against.
+	 */
+	private long ackTick;
+	
+	/**
+	 * The Arena the client is playing in.
+	 */
+	private Arena arena;
+	
+	/**
+	 * The Player the client controls.
+	 */
+	private Player player;
+	
+	/**
+	 * The number of states that were dropped because the client wasn't
+	 * keeping up.
+	 */
+	private long droppedStates;
+	
+	/**
+	 * Creates a new Connection, and registers its socket with a selector.
+	 * @param channel The client's socket, which must be non-blocking.
+	 * @param loop The EventLoop whose selector the socket is registered with.
+	 * @throws IOException If the socket could not be registered.
+	 */
+	Connection(SocketChannel channel, EventLoop loop) throws IOException {
+		this.channel = channel;
+		this.key = channel.register(loop.getSelector(), SelectionKey.OP_READ, this);
+		this.readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+		this.writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+		this.inputSequences = new int[MAX_QUEUED_INPUTS];
+		this.inputFlags = new int[MAX_QUEUED_INPUTS];
+		this.input = new Input();
+		this.ackSequence = -1;
+		this.ackTick = -1;
+	}
+	
+	/**
+	 * Places the client into an Arena.
+	 * @param arena The Arena.
+	 * @param player The Player the client controls.
+	 */
+	void join(Arena arena, Player player) {
+		this.arena = arena;
+		this.player = player;
+	}
+	
+	/**
+	 * Reads whatever the client has sent, and queues any inputs that have
+	 * been received in full.
+	 * @return Whether the socket is still open.
+	 * @throws IOException If the socket could not be read, or the client sent
+	 * something that isn't a valid message, or a message too large to fit in
+	 * the read buffer.
+	 */
+	boolean read() throws IOException {
+		int count = channel.read(readBuffer);
+		readBuffer.flip();
+		int length;
+		try {
+			while((length = Protocol.getMessageLength(readBuffer)) >= 0) {
+				int next = readBuffer.position() + Protocol.LENGTH_SIZE + length;
+				readBuffer.position(readBuffer.position() + Protocol.LENGTH_SIZE);
+				if(readBuffer.get() == Protocol.INPUT && length >= Protocol.INPUT_SIZE - Protocol.LENGTH_SIZE) {
+					queueInput(readBuffer.getInt(), readBuffer.get());
+					
+					//Never go back to an older state, as the client may no longer have it.
+					this.ackTick = Math.max(ackTick, readBuffer.getLong());
+				}
+				readBuffer.position(next);
+			}
+			
+			//A message that can't fit in the buffer would never be read in full, and would leave the socket readable forever.
+			if(readBuffer.remaining() >= Protocol.LENGTH_SIZE && readBuffer.getInt(readBuffer.position()) > MAX_MESSAGE_LENGTH) {
+				throw new IOException("Message from client is too large.");
+			}
+		} catch(IllegalStateException | IllegalArgumentException e) {
+			throw new IOException("Invalid message from client.", e);
+		}
+		readBuffer.compact();
+		return (count >= 0);
+	}
+	
+	/**
+	 * Adds an input to the end of the queue, skipping the oldest input if the
+	 * queue is full.
+	 * @param sequence The sequence number of the input.
+	 * @param flags The flags of the input.
+	 */
+	private void queueInput(int sequence, int flags) {
+		if(inputCount == MAX_QUEUED_INPUTS) {
+			this.inputHead = (inputHead + 1) % MAX_QUEUED_INPUTS;
+			this.inputCount--;
+		}
+		int index = (inputHead + inputCount) % MAX_QUEUED_INPUTS;
+		inputSequences[index] = sequence;
+		inputFlags[index] = flags;
+		this.inputCount++;
+	}
+	
+	/**
+	 * Takes the next input from the queue. If the queue is empty, the input
+	 * from the last tick is used again.
+	 * @return The input for this tick.
+	 */
+	Input nextInput() {
+		if(inputCount > 0) {
+			input.setFlags(inputFlags[inputHead]);
+			this.ackSequence = inputSequences[inputHead];
+			this.inputHead = (inputHead + 1) % MAX_QUEUED_INPUTS;
+			this.inputCount--;
+		}
+		return input;
+	}
+	
+	/**
+	 * Gets the buffer that a message can be written into, if there is room
+	 * for it. The message is sent by the next call to {@code flush}.
+	 * @param size The size of the message, including its length.
+	 * @return The write buffer, or null if the client has fallen too far
+	 * behind to take the message.
+	 */
+	ByteBuffer beginMessage(int size) {
+		if(writeBuffer.remaining() < size) {
+			this.droppedStates++;
+			return null;
+		}
+		return writeBuffer;
+	}
+	
+	/**
+	 * Sends as much of the buffered data as the socket will take. If some of
+	 * it is left over, the socket is watched for when it can take more.
+	 * @throws IOException If the socket could not be written to.
+	 */
+	void flush() throws IOException {
+		writeBuffer.flip();
+		channel.write(writeBuffer);
+		boolean pending = writeBuffer.hasRemaining();
+		writeBuffer.compact();
+		key.interestOps(pending ? (SelectionKey.OP_READ | SelectionKey.OP_WRITE) : SelectionKey.OP_READ);
+	}
+	
+	/**
+	 * Closes the socket, and removes the client from its Arena.
+	 */
+	void close() {
+		if(arena != null) {
+			arena.leave(this);
+			this.arena = null;
+		}
+		key.cancel();
+		try {
+			channel.close();
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Gets the sequence number of the last input that has been used.
+	 * @return The sequence number, or -1 if no input has been used yet.
+	 */
+	int getAckSequence() {
+		return ackSequence;
+	}
+	
+	/**
+	 * Gets the tick of the latest state the client has received.
+	 * @return The tick, or -1 if the client hasn't received a state yet.
+	 */
+	long getAckTick() {
+		return ackTick;
+	}
+	
+	/**
+	 * Gets the Player the client controls.
+	 * @return The Player.
+	 */
+	Player getPlayer() {
+		return player;
+	}
+	
+	/**
+	 * Gets the number of states that were dropped because the client wasn't
+	 * keeping up.
+	 * @return The number of dropped states.
+	 */
+	long getDroppedStates() {
+		return droppedStates;
+	}
+
+}
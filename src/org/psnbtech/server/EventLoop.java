@@ -0,0 +1,289 @@
+package org.psnbtech.server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.psnbtech.metrics.LatencyHistogram;
+
+/**
+ * <p>The {@code EventLoop} class runs a number of {@code Arena}s and all of
+ * their clients' sockets on a single thread.</p>
+ *
+ * <p>The loop waits on a {@code Selector} until either a socket is ready or
+ * the next tick is due, so reading input and stepping the arenas never need
+ * to be synchronized with each other. The server runs one loop per core, and
+ * new clients are handed to a loop through a queue, after which only that
+ * loop's thread touches them.</p>
+ *
+ * <p>Each loop keeps its own fixed grid of ticks. If it falls behind, it
+ * steps its arenas several times in a row to catch up, in the same way as the
+ * game loop in {@code Game}.</p>
+ * @author Brendan Jones
+ *
+ */
+public class EventLoop implements Runnable {
+	
+	/**
+	 * The most times the arenas are stepped in a row when catching up.
+	 */
+	private static final int MAX_CATCH_UP_TICKS = 5;
+	
+	/**
+	 * The server that the loop belongs to.
+	 */
+	private final GameServer server;
+	
+	/**
+	 * The selector that the sockets are registered with.
+	 */
+	private final Selector selector;
+	
+	/**
+	 * The clients that have connected, and are waiting to be placed in an
+	 * arena by the loop's thread.
+	 */
+	private final Queue<SocketChannel> newClients;
+	
+	/**
+	 * The arenas that the loop is running.
+	 */
+	private final List<Arena> arenas;
+	
+	/**
+	 * The number of arenas the loop is running, which can be read from any
+	 * thread.
+	 */
+	private volatile int arenaCount;
+	
+	/**
+	 * The time each tick takes, in nanoseconds.
+	 */
+	private final long tickTime;
+	
+	/**
+	 * How long it takes to step all of the arenas each tick.
+	 */
+	private final LatencyHistogram tickLatency;
+	
+	/**
+	 * Whether or not the loop should keep running.
+	 */
+	private volatile boolean running;
+	
+	/**
+	 * Creates a new EventLoop.
+	 * @param server The server that the loop belongs to.
+	 * @param acceptor The socket that new clients connect to, which the loop
+	 * should accept clients from, or null if another loop does this.
+	 * @throws IOException If the selector could not be opened.
+	 */
+	EventLoop(GameServer server, ServerSocketChannel acceptor) throws IOException {
+		this.server = server;
+		this.selector = Selector.open();
+		this.newClients = new ConcurrentLinkedQueue<>();
+		this.arenas = new ArrayList<>();
+		this.tickTime = 1000000000L / server.getTickRate();
+		this.tickLatency = new LatencyHistogram();
+		this.running = true;
+		if(acceptor != null) {
+			acceptor.register(selector, SelectionKey.OP_ACCEPT);
+		}
+	}
+	
+	/**
+	 * Hands a newly connected client to the loop. This can be called from any
+	 * thread.
+	 * @param channel The client's socket.
+	 */
+	void addClient(SocketChannel channel) {
+		newClients.add(channel);
+		selector.wakeup();
+	}
+	
+	/**
+	 * Asks the loop to stop. This can be called from any thread.
+	 */
+	void stop() {
+		this.running = false;
+		selector.wakeup();
+	}
+	
+	@Override
+	public void run() {
+		long nextTick = System.nanoTime();
+		while(running) {
+			try {
+				/*
+				 * Wait for a socket to be ready, but no longer than it takes for the
+				 * next tick to be due. The selector only waits in whole
+				 * milliseconds, so the wait is rounded up, and the tick might start
+				 * up to a millisecond late.
+				 */
+				long wait = nextTick - System.nanoTime();
+				if(wait > 0) {
+					selector.select((wait + 999999) / 1000000);
+				} else {
+					selector.selectNow();
+				}
+				handleSelectedKeys();
+				placeNewClients();
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+			
+			/*
+			 * Step the arenas once for every tick that is due. If the loop has
+			 * fallen too far behind, the missed ticks are skipped rather than
+			 * trying to catch up on all of them.
+			 */
+			long now = System.nanoTime();
+			for(int i = 0; i < MAX_CATCH_UP_TICKS && now - nextTick >= 0; i++) {
+				tick();
+				nextTick += tickTime;
+			}
+			if(now - nextTick >= 0) {
+				nextTick = now + tickTime;
+			}
+		}
+		
+		//Disconnect every client, and close the selector.
+		for(SelectionKey key : selector.keys()) {
+			if(key.attachment() instanceof Connection) {
+				((Connection) key.attachment()).close();
+			}
+		}
+		try {
+			selector.close();
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Handles every socket that the selector found to be ready.
+	 * @throws IOException If a new client could not be accepted.
+	 */
+	private void handleSelectedKeys() throws IOException {
+		Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+		while(iterator.hasNext()) {
+			SelectionKey key = iterator.next();
+			iterator.remove();
+			if(!key.isValid()) {
+				continue;
+			}
+			
+			//Accept any new clients, and hand them out between the loops.
+			if(key.isAcceptable()) {
+				SocketChannel channel;
+				while((channel = ((ServerSocketChannel) key.channel()).accept()) != null) {
+					server.dispatch(channel);
+				}
+				continue;
+			}
+			
+			//Read from or write to a client, and close it if anything goes wrong.
+			Connection connection = (Connection) key.attachment();
+			try {
+				if(key.isReadable() && !connection.read()) {
+					connection.close();
+					continue;
+				}
+				if(key.isValid() && key.isWritable()) {
+					connection.flush();
+				}
+			} catch(IOException e) {
+				connection.close();
+			}
+		}
+	}
+	
+	/**
+	 * Places each newly connected client into an arena with a free seat,
+	 * opening a new arena if every arena is full.
+	 */
+	private void placeNewClients() {
+		SocketChannel channel;
+		while((channel = newClients.poll()) != null) {
+			Connection connection = null;
+			try {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				connection = new Connection(channel, this);
+				
+				Arena arena = null;
+				for(int i = 0; i < arenas.size() && arena == null; i++) {
+					if(arenas.get(i).getPlayerCount() < server.getMaxPlayers()) {
+						arena = arenas.get(i);
+					}
+				}
+				if(arena == null) {
+					arena = server.createArena();
+					arenas.add(arena);
+				}
+				arena.join(connection, server.getTickRate());
+			} catch(IOException e) {
+				e.printStackTrace();
+				if(connection != null) {
+					connection.close();
+				} else {
+					try {
+						channel.close();
+					} catch(IOException e1) {
+						e1.printStackTrace();
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Steps every arena once. Arenas that everyone has left are closed, as
+	 * there's no point in running a world that nobody can see.
+	 */
+	private void tick() {
+		long start = System.nanoTime();
+		for(int i = arenas.size() - 1; i >= 0; i--) {
+			Arena arena = arenas.get(i);
+			if(arena.getPlayerCount() == 0) {
+				arenas.remove(i);
+			} else {
+				arena.tick();
+			}
+		}
+		this.arenaCount = arenas.size();
+		tickLatency.record(System.nanoTime() - start);
+	}
+	
+	/**
+	 * Gets the selector that the sockets are registered with.
+	 * @return The selector.
+	 */
+	Selector getSelector() {
+		return selector;
+	}
+	
+	/**
+	 * Gets how long it takes to step all of the loop's arenas each tick.
+	 * @return The histogram of tick times.
+	 */
+	public LatencyHistogram getTickLatency() {
+		return tickLatency;
+	}
+	
+	/**
+	 * Gets the number of arenas the loop is running.
+	 * @return The number of arenas.
+	 */
+	public int getArenaCount() {
+		return arenaCount;
+	}
+
+}
@@ -0,0 +1,245 @@
+package org.psnbtech.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>The {@code GameServer} class hosts any number of multiplayer
+ * {@code Arena}s in a single process.</p>
+ *
+ * <p>The arenas are spread across a number of {@code EventLoop}s, normally
+ * one per core, each of which runs on its own thread. The first loop also
+ * accepts new clients, and hands them out to the loops in turn. Each loop
+ * places its clients into its arenas, opening a new arena whenever the
+ * existing ones are full.</p>
+ * @author Brendan Jones
+ *
+ */
+public class GameServer {
+	
+	/**
+	 * The port the server listens on by default.
+	 */
+	public static final int DEFAULT_PORT = 7331;
+	
+	/**
+	 * The number of times per second the arenas are updated.
+	 */
+	public static final int TICKS_PER_SECOND = 60;
+	
+	/**
+	 * The number of times per second the state of each arena is sent to its
+	 * clients by default.
+	 */
+	public static final int DEFAULT_BROADCAST_RATE = 20;
+	
+	/**
+	 * The number of players that can share an arena by default.
+	 */
+	public static final int DEFAULT_MAX_PLAYERS = 16;
+	
+	/**
+	 * The socket that new clients connect to.
+	 */
+	private final ServerSocketChannel acceptor;
+	
+	/**
+	 * The loops that run the arenas.
+	 */
+	private final EventLoop[] loops;
+	
+	/**
+	 * The most players that can share an arena.
+	 */
+	private final int maxPlayers;
+	
+	/**
+	 * The number of ticks between each state sent to the clients.
+	 */
+	private final int broadcastInterval;
+	
+	/**
+	 * The seed that the seed of each arena is taken from.
+	 */
+	private final long seed;
+	
+	/**
+	 * The identifier of the next arena to be opened.
+	 */
+	private final AtomicInteger nextArenaId;
+	
+	/**
+	 * The loop that the next client will be handed to.
+	 */
+	private int nextLoop;
+	
+	/**
+	 * Creates a new GameServer, and starts listening for clients. Clients
+	 * aren't placed into arenas until the server has been started.
+	 * @param address The address to listen on.
+	 * @param loopCount The number of loops to run the arenas on.
+	 * @param maxPlayers The most players that can share an arena.
+	 * @param broadcastRate The number of times per second the state of each
+	 * arena is sent to its clients. This should divide into
+	 * {@code TICKS_PER_SECOND}.
+	 * @param seed The seed that the seed of each arena is taken from.
+	 * @throws IOException If the server could not listen on the address.
+	 */
+	public GameServer(InetSocketAddress address, int loopCount, int maxPlayers, int broadcastRate, long seed) throws IOException {
+		this.maxPlayers = maxPlayers;
+		this.broadcastInterval = Math.max(1, TICKS_PER_SECOND / broadcastRate);
+		this.seed = seed;
+		this.nextArenaId = new AtomicInteger();
+		
+		this.acceptor = ServerSocketChannel.open();
+		acceptor.configureBlocking(false);
+		acceptor.bind(address);
+		
+		this.loops = new EventLoop[loopCount];
+		for(int i = 0; i < loopCount; i++) {
+			loops[i] = new EventLoop(this, (i == 0) ? acceptor : null);
+		}
+	}
+	
+	/**
+	 * Starts a thread for each loop.
+	 */
+	public void start() {
+		for(int i = 0; i < loops.length; i++) {
+			Thread thread = new Thread(loops[i], "Server-Loop-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+	
+	/**
+	 * Stops every loop, disconnecting all of the clients, and stops listening
+	 * for new clients.
+	 */
+	public void stop() {
+		for(int i = 0; i < loops.length; i++) {
+			loops[i].stop();
+		}
+		try {
+			acceptor.close();
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Hands a newly connected client to the next loop in turn. This is only
+	 * called by the first loop.
+	 * @param channel The client's socket.
+	 */
+	void dispatch(SocketChannel channel) {
+		loops[nextLoop].addClient(channel);
+		this.nextLoop = (nextLoop + 1) % loops.length;
+	}
+	
+	/**
+	 * Opens a new arena. Each arena's seed is taken from its identifier, so
+	 * the same arena on the same server always starts out the same way.
+	 * @return The Arena.
+	 */
+	Arena createArena() {
+		int id = nextArenaId.getAndIncrement();
+		return new Arena(id, seed + id, broadcastInterval);
+	}
+	
+	/**
+	 * Gets the address the server is listening on.
+	 * @return The address.
+	 * @throws IOException If the address could not be found.
+	 */
+	public InetSocketAddress getAddress() throws IOException {
+		return (InetSocketAddress) acceptor.getLocalAddress();
+	}
+	
+	/**
+	 * Gets the loops that run the arenas.
+	 * @return The loops.
+	 */
+	public EventLoop[] getLoops() {
+		return loops;
+	}
+	
+	/**
+	 * Gets the number of times per second the arenas are updated.
+	 * @return The tick rate.
+	 */
+	public int getTickRate() {
+		return TICKS_PER_SECOND;
+	}
+	
+	/**
+	 * Gets the most players that can share an arena.
+	 * @return The most players.
+	 */
+	public int getMaxPlayers() {
+		return maxPlayers;
+	}
+	
+	/**
+	 * <p>Entry point of the server. Listens for clients until the process is
+	 * killed.</p>
+	 *
+	 * <p>The following arguments are accepted:</p>
+	 * <ul>
+	 * <li>{@code -port <port>} sets the port to listen on.</li>
+	 * <li>{@code -loops <count>} sets the number of loops to run the arenas
+	 * on. Defaults to the number of cores.</li>
+	 * <li>{@code -maxPlayers <count>} sets the most players that can share an
+	 * arena.</li>
+	 * <li>{@code -broadcastRate <rate>} sets the number of times per second
+	 * the state of each arena is sent to its clients.</li>
+	 * <li>{@code -seed <seed>} sets the seed that each arena's seed is taken
+	 * from.</li>
+	 * </ul>
+	 * @param args The command line arguments.
+	 * @throws IOException If the server could not be started.
+	 * @throws InterruptedException If the main thread is interrupted.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = DEFAULT_PORT;
+		int loopCount = Runtime.getRuntime().availableProcessors();
+		int maxPlayers = DEFAULT_MAX_PLAYERS;
+		int broadcastRate = DEFAULT_BROADCAST_RATE;
+		long seed = 0;
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "-port":
+				port = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-loops":
+				loopCount = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-maxPlayers":
+				maxPlayers = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-broadcastRate":
+				broadcastRate = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-seed":
+				seed = Long.parseLong(args[++i]);
+				break;
+			
+			default:
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+		
+		GameServer server = new GameServer(new InetSocketAddress(port), loopCount, maxPlayers, broadcastRate, seed);
+		server.start();
+		System.out.println("Listening on " + server.getAddress() + " with " + loopCount + " loops.");
+		Thread.currentThread().join();
+	}
+
+}
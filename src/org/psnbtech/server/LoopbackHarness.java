@@ -0,0 +1,406 @@
+package org.psnbtech.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+import org.psnbtech.Input;
+import org.psnbtech.entity.PlayerState;
+import org.psnbtech.metrics.LatencyHistogram;
+import org.psnbtech.net.PlayerPredictor;
+import org.psnbtech.net.StateEncoder;
+import org.psnbtech.net.StateFrame;
+import org.psnbtech.pacing.FramePacer;
+import org.psnbtech.pacing.PacingStrategy;
+import org.psnbtech.util.GameRandom;
+
+/**
+ * <p>The {@code LoopbackHarness} class starts a {@code GameServer} on the
+ * loopback interface, and connects a number of bots to it that press random
+ * controls, in order to see how the server holds up under load.</p>
+ *
+ * <p>All of the bots share one thread and one selector, and send an input
+ * every tick, just like a real client would. Each bot predicts its own ship,
+ * decodes every state it receives, and reconciles its prediction with the
+ * server's. Once the run is over, the rate that states reached the bots is
+ * printed, along with their size, how far behind the server's
+ * acknowledgement of their input was, how often and how far the predictions
+ * were corrected, and how long the server's loops took to step their
+ * arenas.</p>
+ * @author Brendan Jones
+ *
+ */
+public class LoopbackHarness {
+	
+	/**
+	 * The minimum number of ticks a bot holds its controls for.
+	 */
+	private static final int MIN_HOLD = 10;
+	
+	/**
+	 * The maximum number of ticks a bot holds its controls for.
+	 */
+	private static final int MAX_HOLD = 90;
+	
+	/**
+	 * The size of the buffer that each bot reads states into.
+	 */
+	private static final int READ_BUFFER_SIZE = 256 * 1024;
+	
+	/**
+	 * The number of states each bot keeps to decode later states against.
+	 * This must be at least as many as each arena keeps, so that any state
+	 * the server picks as a baseline is still here.
+	 */
+	private static final int STATE_HISTORY = 32;
+	
+	/**
+	 * A single bot connected to the server.
+	 */
+	private static class Bot {
+		
+		/**
+		 * The bot's socket.
+		 */
+		private final SocketChannel channel;
+		
+		/**
+		 * The Random instance used to choose the bot's controls.
+		 */
+		private final GameRandom random;
+		
+		/**
+		 * The bot's current controls.
+		 */
+		private final Input input;
+		
+		/**
+		 * The buffer that states are read into.
+		 */
+		private final ByteBuffer readBuffer;
+		
+		/**
+		 * The buffer that inputs are written from.
+		 */
+		private final ByteBuffer writeBuffer;
+		
+		/**
+		 * The number of ticks left until the bot changes its controls.
+		 */
+		private int hold;
+		
+		/**
+		 * The number of states received.
+		 */
+		private long states;
+		
+		/**
+		 * The number of bytes received.
+		 */
+		private long bytes;
+		
+		/**
+		 * The total number of inputs that had been sent but not applied when
+		 * each state was received.
+		 */
+		private long unacknowledged;
+		
+		/**
+		 * The predictor for the bot's own ship. This is null until the server
+		 * has greeted the bot, and no inputs are sent until then.
+		 */
+		private PlayerPredictor predictor;
+		
+		/**
+		 * The server's state of the bot's ship, read from each state.
+		 */
+		private final PlayerState serverState;
+		
+		/**
+		 * The total distance the predictions were corrected by.
+		 */
+		private double correction;
+		
+		/**
+		 * The number of corrections that moved the ship.
+		 */
+		private long moves;
+		
+		/**
+		 * The total number of nanoseconds spent reconciling predictions.
+		 */
+		private long reconcileTime;
+		
+		/**
+		 * The states received, indexed by the number of states received
+		 * before them. This is null until the server has greeted the bot.
+		 */
+		private StateFrame[] frames;
+		
+		/**
+		 * The tick of the latest state received, or -1 if none have been.
+		 */
+		private long ackTick;
+		
+		/**
+		 * Connects a new Bot to the server.
+		 * @param address The address of the server.
+		 * @param selector The selector to register the bot's socket with.
+		 * @param seed The seed for the bot's controls.
+		 * @throws IOException If the bot could not connect.
+		 */
+		private Bot(InetSocketAddress address, Selector selector, long seed) throws IOException {
+			this.channel = SocketChannel.open(address);
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			channel.register(selector, SelectionKey.OP_READ, this);
+			this.random = new GameRandom(seed);
+			this.input = new Input();
+			this.readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+			this.writeBuffer = ByteBuffer.allocateDirect(Protocol.INPUT_SIZE * 64);
+			this.serverState = new PlayerState();
+			this.ackTick = -1;
+		}
+		
+		/**
+		 * Chooses the controls for this tick, and sends them to the server.
+		 * @throws IOException If the input could not be sent.
+		 */
+		private void sendInput() throws IOException {
+			input.fire = true;
+			if(--hold <= 0) {
+				this.hold = MIN_HOLD + random.nextInt(MAX_HOLD - MIN_HOLD);
+				int turn = random.nextInt(3);
+				input.rotateLeft = (turn == 0);
+				input.rotateRight = (turn == 1);
+				input.thrust = random.nextBoolean();
+			}
+			
+			if(predictor != null && writeBuffer.remaining() >= Protocol.INPUT_SIZE) {
+				Protocol.writeInput(writeBuffer, predictor.applyInput(input), input.getFlags(), ackTick);
+			}
+			writeBuffer.flip();
+			channel.write(writeBuffer);
+			writeBuffer.compact();
+		}
+		
+		/**
+		 * Reads whatever the server has sent, and decodes the states.
+		 * @throws IOException If the socket could not be read, or the server
+		 * sent a state that can't be decoded.
+		 */
+		private void read() throws IOException {
+			int count = channel.read(readBuffer);
+			if(count < 0) {
+				throw new IOException("The server closed the connection.");
+			}
+			this.bytes += count;
+			readBuffer.flip();
+			int length;
+			while((length = Protocol.getMessageLength(readBuffer)) >= 0) {
+				int start = readBuffer.position() + Protocol.LENGTH_SIZE;
+				byte type = readBuffer.get(start);
+				if(type == Protocol.WELCOME) {
+					double worldSize = readBuffer.getDouble(start + 1 + 4);
+					this.predictor = new PlayerPredictor(worldSize);
+					this.frames = new StateFrame[STATE_HISTORY];
+					for(int i = 0; i < STATE_HISTORY; i++) {
+						frames[i] = new StateFrame(worldSize);
+					}
+				} else if(type == Protocol.STATE) {
+					readBuffer.position(start + 1);
+					int ackSequence = readBuffer.getInt();
+					readBuffer.getShort();
+					serverState.read(readBuffer);
+					reconcile(ackSequence);
+					decodeState();
+				}
+				readBuffer.position(start + length);
+			}
+			readBuffer.compact();
+		}
+		
+		/**
+		 * Reconciles the bot's prediction with the server's state of its ship.
+		 * @param ackSequence The sequence number of the last input the server
+		 * applied.
+		 */
+		private void reconcile(int ackSequence) {
+			boolean predicting = predictor.hasState();
+			long start = System.nanoTime();
+			predictor.reconcile(ackSequence, serverState);
+			this.reconcileTime += System.nanoTime() - start;
+			this.unacknowledged += predictor.getPendingInputs();
+			if(predicting && predictor.getLastCorrection() > 0.0) {
+				this.correction += predictor.getLastCorrection();
+				this.moves++;
+			}
+		}
+		
+		/**
+		 * Decodes a state against the state it was written against, and
+		 * remembers it as the latest state received.
+		 * @throws IOException If the state was written against a state that
+		 * the bot doesn't have.
+		 */
+		private void decodeState() throws IOException {
+			long baselineTick = StateEncoder.getBaselineTick(readBuffer);
+			StateFrame baseline = null;
+			for(int i = 0; i < STATE_HISTORY && baselineTick >= 0; i++) {
+				if(frames[i].getTick() == baselineTick) {
+					baseline = frames[i];
+					break;
+				}
+			}
+			if(baselineTick >= 0 && baseline == null) {
+				throw new IOException("The server sent a state against one that was never received: " + baselineTick);
+			}
+			
+			/*
+			 * The server only keeps as many states as the bot does, so the
+			 * baseline is never old enough to be the frame being replaced.
+			 */
+			StateFrame frame = frames[(int) (states % STATE_HISTORY)];
+			StateEncoder.decode(baseline, readBuffer, frame);
+			this.ackTick = frame.getTick();
+			this.states++;
+		}
+	
+	}
+	
+	/**
+	 * <p>Entry point of the harness.</p>
+	 *
+	 * <p>The following arguments are accepted:</p>
+	 * <ul>
+	 * <li>{@code -clients <count>} sets the number of bots.</li>
+	 * <li>{@code -loops <count>} sets the number of loops the server runs.
+	 * Defaults to the number of cores.</li>
+	 * <li>{@code -maxPlayers <count>} sets the most players that can share an
+	 * arena.</li>
+	 * <li>{@code -broadcastRate <rate>} sets the number of times per second
+	 * the state of each arena is sent.</li>
+	 * <li>{@code -seconds <seconds>} sets how long to run for.</li>
+	 * </ul>
+	 * @param args The command line arguments.
+	 * @throws IOException If the server could not be started, or a bot lost
+	 * its connection.
+	 */
+	public static void main(String[] args) throws IOException {
+		int clientCount = 64;
+		int loopCount = Runtime.getRuntime().availableProcessors();
+		int maxPlayers = GameServer.DEFAULT_MAX_PLAYERS;
+		int broadcastRate = GameServer.DEFAULT_BROADCAST_RATE;
+		int seconds = 10;
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "-clients":
+				clientCount = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-loops":
+				loopCount = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-maxPlayers":
+				maxPlayers = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-broadcastRate":
+				broadcastRate = Integer.parseInt(args[++i]);
+				break;
+			
+			case "-seconds":
+				seconds = Integer.parseInt(args[++i]);
+				break;
+			
+			default:
+				throw new IllegalArgumentException("Unknown argument: " + args[i]);
+			}
+		}
+		
+		//Start the server on any free port of the loopback interface.
+		GameServer server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), loopCount, maxPlayers, broadcastRate, 0);
+		server.start();
+		
+		Selector selector = Selector.open();
+		Bot[] bots = new Bot[clientCount];
+		for(int i = 0; i < clientCount; i++) {
+			bots[i] = new Bot(server.getAddress(), selector, i);
+		}
+		
+		//Send an input for every bot each tick, and read whatever has arrived in between.
+		FramePacer pacer = PacingStrategy.Park.createUpdatePacer(1000000000L / server.getTickRate(), new LatencyHistogram());
+		long end = System.nanoTime() + seconds * 1000000000L;
+		while(System.nanoTime() - end < 0) {
+			for(int i = 0; i < bots.length; i++) {
+				bots[i].sendInput();
+			}
+			selector.selectNow();
+			Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+			while(iterator.hasNext()) {
+				SelectionKey key = iterator.next();
+				iterator.remove();
+				((Bot) key.attachment()).read();
+			}
+			pacer.awaitNextFrame();
+		}
+		
+		long states = 0;
+		long bytes = 0;
+		long unacknowledged = 0;
+		long reconciliations = 0;
+		long mispredictions = 0;
+		long replayedInputs = 0;
+		double correction = 0.0;
+		long moves = 0;
+		long reconcileTime = 0;
+		for(int i = 0; i < bots.length; i++) {
+			Bot bot = bots[i];
+			states += bot.states;
+			bytes += bot.bytes;
+			unacknowledged += bot.unacknowledged;
+			correction += bot.correction;
+			moves += bot.moves;
+			reconcileTime += bot.reconcileTime;
+			if(bot.predictor != null) {
+				reconciliations += bot.predictor.getReconciliations();
+				mispredictions += bot.predictor.getMispredictions();
+				replayedInputs += bot.predictor.getReplayedInputs();
+			}
+		}
+		//The tick times are reported for the slowest loop.
+		int arenas = 0;
+		double tickMean = 0.0;
+		long tickP99 = 0;
+		long tickMax = 0;
+		EventLoop[] loops = server.getLoops();
+		for(int i = 0; i < loops.length; i++) {
+			LatencyHistogram tickLatency = loops[i].getTickLatency();
+			arenas += loops[i].getArenaCount();
+			tickMean = Math.max(tickMean, tickLatency.getMean());
+			tickP99 = Math.max(tickP99, tickLatency.getPercentile(99.0));
+			tickMax = Math.max(tickMax, tickLatency.getMax());
+		}
+		server.stop();
+		selector.close();
+		
+		System.out.println(String.format("%d clients in %d arenas on %d loops: %.1f states/s of %.0f bytes and %.1f KB/s per client, inputs acknowledged %.1f ticks late",
+				clientCount, arenas, loopCount, (double) states / clientCount / seconds, (states > 0) ? (double) bytes / states : 0.0,
+				bytes / 1024.0 / clientCount / seconds, (states > 0) ? (double) unacknowledged / states : 0.0));
+		System.out.println(String.format("Prediction: %.1f%% of states corrected, %.1f%% moved the ship by %.2f units on average, reconciling %.1f inputs in %.1f us",
+				(reconciliations > 0) ? 100.0 * mispredictions / reconciliations : 0.0,
+				(reconciliations > 0) ? 100.0 * moves / reconciliations : 0.0,
+				(moves > 0) ? correction / moves : 0.0,
+				(states > 0) ? (double) replayedInputs / states : 0.0,
+				(states > 0) ? reconcileTime / 1000.0 / states : 0.0));
+		System.out.println(String.format("Server tick: mean %.0f us, p99 %.0f us, max %.0f us",
+				tickMean / 1000.0, tickP99 / 1000.0, tickMax / 1000.0));
+	}
+
+}
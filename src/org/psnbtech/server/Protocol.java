@@ -0,0 +1,119 @@
+package org.psnbtech.server;
+
+import java.nio.ByteBuffer;
+
+import org.psnbtech.entity.PlayerState;
+
+/**
+ * <p>The {@code Protocol} class describes the messages sent between the
+ * {@code GameServer} and its clients.</p>
+ *
+ * <p>Every message starts with its length as an int, which doesn't include
+ * the length itself, followed by a byte giving the type of the message. The
+ * rest of the message depends on its type:</p>
+ * <ul>
+ * <li>{@code INPUT} is sent by a client once per tick, and holds a sequence
+ * number followed by the flags of an {@code Input}, and the tick of the last
+ * state the client has received. The server applies one input per tick in
+ * the order they were sent.</li>
+ * <li>{@code WELCOME} is sent by the server when a client joins, and holds
+ * the arena the client was placed in, the size of the world, the number of
+ * ticks per second, and the number of ticks between each state.</li>
+ * <li>{@code STATE} is sent by the server at a fixed rate, and holds the
+ * sequence number of the last input that was applied, the index of the
+ * client's own player in the list of players, and the full state of the
+ * client's own ship as written by {@code PlayerState}, followed by the world
+ * as written by {@code StateEncoder}.</li>
+ * </ul>
+ *
+ * <p>Each state is written as the difference from the last state that the
+ * client has said it received, which is why every input carries a tick. If
+ * the server no longer has that state, or the client hasn't received one
+ * yet, the whole world is sent instead. The client's own ship is sent at
+ * full precision, so that the client can predict it from the same state the
+ * server has.</p>
+ * @author Brendan Jones
+ *
+ */
+public final class Protocol {
+	
+	/**
+	 * The type of a message holding a client's input for one tick.
+	 */
+	public static final byte INPUT = 1;
+	
+	/**
+	 * The type of a message greeting a client that has just joined.
+	 */
+	public static final byte WELCOME = 2;
+	
+	/**
+	 * The type of a message holding the state of an arena.
+	 */
+	public static final byte STATE = 3;
+	
+	/**
+	 * The number of bytes taken by the length at the start of each message.
+	 */
+	public static final int LENGTH_SIZE = 4;
+	
+	/**
+	 * The size of an {@code INPUT} message, including its length.
+	 */
+	public static final int INPUT_SIZE = LENGTH_SIZE + 1 + 4 + 1 + 8;
+	
+	/**
+	 * The size of the header of a {@code STATE} message, including its
+	 * length, which is followed by the encoded world.
+	 */
+	public static final int STATE_HEADER_SIZE = LENGTH_SIZE + 1 + 4 + 2 + PlayerState.SIZE;
+	
+	/**
+	 * The largest message that will be accepted.
+	 */
+	public static final int MAX_MESSAGE_SIZE = 1 << 20;
+	
+	/**
+	 * The Protocol class only holds constants, so it can't be created.
+	 */
+	private Protocol() {
+	}
+	
+	/**
+	 * Writes an {@code INPUT} message to a buffer.
+	 * @param out The buffer to write to.
+	 * @param sequence The sequence number of the input.
+	 * @param flags The flags of the input, as returned by
+	 * {@code Input.getFlags}.
+	 * @param ackTick The tick of the last state the client has received, or
+	 * -1 if it hasn't received one yet.
+	 */
+	public static void writeInput(ByteBuffer out, int sequence, int flags, long ackTick) {
+		out.putInt(INPUT_SIZE - LENGTH_SIZE);
+		out.put(INPUT);
+		out.putInt(sequence);
+		out.put((byte) flags);
+		out.putLong(ackTick);
+	}
+	
+	/**
+	 * Gets the length of the next message in a buffer, if all of it has been
+	 * received. The buffer's position is left at the start of the message.
+	 * @param in The buffer holding the received data.
+	 * @return The length of the message, not including the length itself, or
+	 * -1 if the whole message hasn't been received yet.
+	 * @throws IllegalStateException If the message is larger than
+	 * {@code MAX_MESSAGE_SIZE}, or empty.
+	 */
+	public static int getMessageLength(ByteBuffer in) {
+		if(in.remaining() < LENGTH_SIZE) {
+			return -1;
+		}
+		int length = in.getInt(in.position());
+		if(length <= 0 || length > MAX_MESSAGE_SIZE) {
+			throw new IllegalStateException("Invalid message length: " + length);
+		}
+		return (in.remaining() - LENGTH_SIZE >= length) ? length : -1;
+	}
+
+}
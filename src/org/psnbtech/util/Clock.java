@@ -1,8 +1,14 @@
 package org.psnbtech.util;
 
 /**
- * The {@code Clock} class is responsible for tracking the number of cycles
- * that have elapsed over time. 
+ * <p>The {@code Clock} class is responsible for tracking the number of cycles
+ * that have elapsed over time.</p>
+ * 
+ * <p>By default the clock counts in whole milliseconds. A precise clock
+ * counts in nanoseconds instead, and keeps the time towards the next cycle in
+ * a {@code double}, so that cycles don't drift or jitter over time. A precise
+ * clock can also report how far it is through the next cycle, which allows
+ * the renderer to draw in between updates.</p>
  * @author Brendan Jones
  *
  */
@@ -13,6 +19,17 @@ public class Clock {
 	 */
 	private float millisPerCycle;
 	
+	/**
+	 * The number of nanoseconds that make up one cycle, used by a precise
+	 * clock.
+	 */
+	private double nanosPerCycle;
+	
+	/**
+	 * Whether or not this clock counts in nanoseconds.
+	 */
+	private final boolean isPrecise;
+	
 	/**
 	 * The last time that the clock was updated (used for calculating the
 	 * delta time).
@@ -29,6 +46,12 @@ public class Clock {
 	 */
 	private float excessCycles;
 	
+	/**
+	 * The number of nanoseconds towards the next elapsed cycle, used by a
+	 * precise clock.
+	 */
+	private double accumulator;
+	
 	/**
 	 * Whether or not the clock is paused.
 	 */
@@ -39,6 +62,16 @@ public class Clock {
 	 * @param cyclesPerSecond The number of cycles that elapse per second.
 	 */
 	public Clock(float cyclesPerSecond) {
+		this(cyclesPerSecond, false);
+	}
+	
+	/**
+	 * Creates a new clock and sets it's cycles-per-second.
+	 * @param cyclesPerSecond The number of cycles that elapse per second.
+	 * @param precise Whether or not the clock should count in nanoseconds.
+	 */
+	public Clock(float cyclesPerSecond, boolean precise) {
+		this.isPrecise = precise;
 		setCyclesPerSecond(cyclesPerSecond);
 		reset();
 	}
@@ -49,6 +82,7 @@ public class Clock {
 	 */
 	public void setCyclesPerSecond(float cyclesPerSecond) {
 		this.millisPerCycle = (1.0f / cyclesPerSecond) * 1000;
+		this.nanosPerCycle = 1000000000.0 / cyclesPerSecond;
 	}
 	
 	/**
@@ -59,7 +93,8 @@ public class Clock {
 	public void reset() {
 		this.elapsedCycles = 0;
 		this.excessCycles = 0.0f;
-		this.lastUpdate = getCurrentTime();
+		this.accumulator = 0.0;
+		this.lastUpdate = isPrecise ? System.nanoTime() : getCurrentTime();
 		this.isPaused = false;
 	}
 	
@@ -70,6 +105,11 @@ public class Clock {
 	 * nasty surprises with the delta time.
 	 */
 	public void update() {
+		if(isPrecise) {
+			updatePrecise();
+			return;
+		}
+		
 		//Get the current time and calculate the delta time.
 		long currUpdate = getCurrentTime();
 		float delta = (float)(currUpdate - lastUpdate) + excessCycles;
@@ -84,6 +124,38 @@ public class Clock {
 		this.lastUpdate = currUpdate;
 	}
 	
+	/**
+	 * Updates the clock stats for a precise clock.
+	 */
+	private void updatePrecise() {
+		//Get the current time and add the delta time to the accumulator.
+		long currUpdate = System.nanoTime();
+		if(!isPaused) {
+			this.accumulator += (currUpdate - lastUpdate);
+			
+			/*
+			 * Move any whole cycles out of the accumulator, leaving behind the
+			 * time towards the next cycle.
+			 */
+			int cycles = (int) (accumulator / nanosPerCycle);
+			this.elapsedCycles += cycles;
+			this.accumulator -= cycles * nanosPerCycle;
+		}
+		
+		//Set the last update time for the next update cycle.
+		this.lastUpdate = currUpdate;
+	}
+	
+	/**
+	 * Gets how far the clock is through the next cycle, as of the last time it
+	 * was updated. This is used to draw the game part way between updates.
+	 * @return The fraction of the next cycle that has elapsed, from 0.0 to 1.0.
+	 */
+	public double getInterpolation() {
+		double alpha = isPrecise ? (accumulator / nanosPerCycle) : (excessCycles / millisPerCycle);
+		return Math.min(1.0, Math.max(0.0, alpha));
+	}
+	
 	/**
 	 * Pauses or unpauses the clock. While paused, a clock will not update
 	 * elapsed cycles or cycle excess, though the {@code update} method should
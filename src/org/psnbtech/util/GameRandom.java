@@ -0,0 +1,85 @@
+package org.psnbtech.util;
+
+import java.util.Random;
+
+/**
+ * <p>A {@code Random} whose internal state can be read and restored.</p>
+ * 
+ * <p>{@code java.util.Random} keeps its state private, so there is no way to
+ * save a game part way through and carry on with the same random numbers
+ * later. This class uses exactly the same linear congruential generator, so
+ * it produces exactly the same numbers as {@code java.util.Random} for a
+ * given seed, but exposes the state through {@code getState} and
+ * {@code setState}.</p>
+ * 
+ * <p>Unlike {@code java.util.Random}, this class is not thread safe. The
+ * value cached by {@code nextGaussian} is not part of the state, so it
+ * shouldn't be used where the state needs to be restored.</p>
+ * @author Brendan Jones
+ *
+ */
+public class GameRandom extends Random {
+	
+	/**
+	 * The Serial Version Unique Identifier.
+	 */
+	private static final long serialVersionUID = 2817453096135479214L;
+	
+	/**
+	 * The multiplier of the generator.
+	 */
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	
+	/**
+	 * The increment of the generator.
+	 */
+	private static final long ADDEND = 0xBL;
+	
+	/**
+	 * The mask for the 48 bits of state.
+	 */
+	private static final long MASK = (1L << 48) - 1;
+	
+	/**
+	 * The current state of the generator. This can't have an initializer, as
+	 * it is set by {@code setSeed} while the super class is being constructed.
+	 */
+	private long state;
+	
+	/**
+	 * Creates a new GameRandom with a seed.
+	 * @param seed The seed.
+	 */
+	public GameRandom(long seed) {
+		super(seed);
+	}
+	
+	@Override
+	public synchronized void setSeed(long seed) {
+		super.setSeed(seed);
+		this.state = (seed ^ MULTIPLIER) & MASK;
+	}
+	
+	@Override
+	protected int next(int bits) {
+		this.state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int) (state >>> (48 - bits));
+	}
+	
+	/**
+	 * Gets the current state of the generator.
+	 * @return The state.
+	 */
+	public long getState() {
+		return state;
+	}
+	
+	/**
+	 * Sets the state of the generator to one returned by {@code getState}.
+	 * @param state The state.
+	 */
+	public void setState(long state) {
+		this.state = state & MASK;
+	}
+
+}
@@ -0,0 +1,181 @@
+package org.psnbtech.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>The {@code ParallelLoop} class runs a loop over a range of indices on a
+ * {@code ForkJoinPool}, with the range split into a fixed number of
+ * chunks.</p>
+ *
+ * <p>Each chunk is told its own number, so that it can write its results
+ * into a buffer of its own. Reading the buffers back in order of their chunk
+ * then gives the same results as running the whole range on one thread, no
+ * matter which thread ran which chunk, or in what order they finished.</p>
+ *
+ * <p>The tasks that run the chunks are created up front and reused, so
+ * running the loop doesn't allocate anything. Without a pool, or when there
+ * is too little work to be worth splitting up, the chunks are run one after
+ * another on the calling thread.</p>
+ * @author Brendan Jones
+ *
+ */
+public abstract class ParallelLoop {
+	
+	/**
+	 * The number of chunks the range is split into for each thread in the
+	 * pool, so that a thread that finishes early can take on another chunk.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	
+	/**
+	 * The pool the chunks are run on, or null if they are run on the calling
+	 * thread.
+	 */
+	private final ForkJoinPool pool;
+	
+	/**
+	 * The number of chunks the range is split into.
+	 */
+	private final int chunkCount;
+	
+	/**
+	 * The task that runs every chunk, or null if they are run on the calling
+	 * thread.
+	 */
+	private final ChunkTask root;
+	
+	/**
+	 * The number of indices in the range currently being run.
+	 */
+	private int count;
+	
+	/**
+	 * Creates a new ParallelLoop. A pool with only a single thread is treated
+	 * as no pool at all.
+	 * @param pool The pool to run the chunks on, or null to run them on the
+	 * calling thread.
+	 */
+	public ParallelLoop(ForkJoinPool pool) {
+		if(pool != null && pool.getParallelism() > 1) {
+			this.pool = pool;
+			this.chunkCount = pool.getParallelism() * CHUNKS_PER_THREAD;
+			this.root = new ChunkTask(0, chunkCount);
+		} else {
+			this.pool = null;
+			this.chunkCount = 1;
+			this.root = null;
+		}
+	}
+	
+	/**
+	 * Gets the number of chunks the range is split into, which is the number
+	 * of buffers a subclass needs to give each chunk its own.
+	 * @return The number of chunks.
+	 */
+	public int getChunkCount() {
+		return chunkCount;
+	}
+	
+	/**
+	 * Runs the loop over a range of indices, and waits for every chunk to
+	 * finish.
+	 * @param count The number of indices, starting from 0.
+	 * @param parallel Whether the work is large enough to be worth running
+	 * on the pool. Smaller amounts of work are run on the calling thread,
+	 * where they finish sooner than it takes to hand them to another thread.
+	 */
+	public void run(int count, boolean parallel) {
+		this.count = count;
+		if(root != null && parallel) {
+			root.reinitialize();
+			pool.invoke(root);
+		} else {
+			runChunks(0, chunkCount);
+		}
+	}
+	
+	/**
+	 * Runs a range of chunks, one after another.
+	 * @param from The first chunk.
+	 * @param to The chunk after the last chunk.
+	 */
+	private void runChunks(int from, int to) {
+		for(int chunk = from; chunk < to; chunk++) {
+			runChunk(chunk, (int) ((long) count * chunk / chunkCount), (int) ((long) count * (chunk + 1) / chunkCount));
+		}
+	}
+	
+	/**
+	 * Runs a single chunk of the loop. This is called on one of the pool's
+	 * threads, so it must only write to state that belongs to the chunk.
+	 * @param chunk The number of the chunk.
+	 * @param from The first index.
+	 * @param to The index after the last index.
+	 */
+	protected abstract void runChunk(int chunk, int from, int to);
+	
+	/**
+	 * The task that runs a range of the chunks. Ranges with more than one
+	 * chunk are split in half, and the halves are created along with the task
+	 * so that they can be reused.
+	 */
+	private class ChunkTask extends RecursiveAction {
+		
+		/**
+		 * The Serial Version Unique Identifier.
+		 */
+		private static final long serialVersionUID = -6630271520317740512L;
+		
+		/**
+		 * The first chunk.
+		 */
+		private final int from;
+		
+		/**
+		 * The chunk after the last chunk.
+		 */
+		private final int to;
+		
+		/**
+		 * The first half of the range, or null if there is only one chunk.
+		 */
+		private final ChunkTask left;
+		
+		/**
+		 * The second half of the range, or null if there is only one chunk.
+		 */
+		private final ChunkTask right;
+		
+		/**
+		 * Creates a new ChunkTask.
+		 * @param from The first chunk.
+		 * @param to The chunk after the last chunk.
+		 */
+		private ChunkTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+			if(to - from > 1) {
+				int middle = (from + to) >>> 1;
+				this.left = new ChunkTask(from, middle);
+				this.right = new ChunkTask(middle, to);
+			} else {
+				this.left = null;
+				this.right = null;
+			}
+		}
+		
+		@Override
+		protected void compute() {
+			if(left == null) {
+				runChunks(from, to);
+			} else {
+				left.reinitialize();
+				right.reinitialize();
+				invokeAll(left, right);
+			}
+		}
+	
+	}
+
+}
@@ -0,0 +1,93 @@
+package org.psnbtech.util;
+
+/**
+ * <p>The {@code Torus} class handles distance calculations in a world that
+ * wraps around at its edges, where an object leaving one side of the world
+ * re-appears on the opposite side.</p>
+ *
+ * <p>Rather than checking each of the mirrored copies of a position, the
+ * difference along each axis is folded into the range {@code [-size / 2,
+ * size / 2]} by subtracting the nearest multiple of the world size. This
+ * takes the same amount of work regardless of whether the objects are near
+ * an edge, and doesn't involve any branching.</p>
+ * @author Brendan Jones
+ *
+ */
+public class Torus {
+
+	/**
+	 * The size of the world.
+	 */
+	private final double size;
+
+	/**
+	 * The reciprocal of the size of the world, so we can multiply rather than
+	 * divide.
+	 */
+	private final double inverseSize;
+
+	/**
+	 * Creates a new Torus.
+	 * @param size The size of the world along each axis.
+	 */
+	public Torus(double size) {
+		this.size = size;
+		this.inverseSize = 1.0 / size;
+	}
+
+	/**
+	 * Gets the size of the world.
+	 * @return The size.
+	 */
+	public double getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the shortest signed difference from one coordinate to another,
+	 * taking wrapping into account.
+	 * @param from The coordinate to measure from.
+	 * @param to The coordinate to measure to.
+	 * @return The difference, between {@code -size / 2} and {@code size / 2}.
+	 */
+	public double getDelta(double from, double to) {
+		double delta = to - from;
+		return delta - size * Math.rint(delta * inverseSize);
+	}
+
+	/**
+	 * Gets the shortest squared distance between two points, taking wrapping
+	 * into account.
+	 * @param x1 The x coordinate of the first point.
+	 * @param y1 The y coordinate of the first point.
+	 * @param x2 The x coordinate of the second point.
+	 * @param y2 The y coordinate of the second point.
+	 * @return The squared distance.
+	 */
+	public double getDistanceSquared(double x1, double y1, double x2, double y2) {
+		double dx = getDelta(x1, x2);
+		double dy = getDelta(y1, y2);
+		return (dx * dx + dy * dy);
+	}
+
+	/**
+	 * Gets the shortest squared distance between two vectors, taking wrapping
+	 * into account.
+	 * @param a The first vector.
+	 * @param b The second vector.
+	 * @return The squared distance.
+	 */
+	public double getDistanceSquared(Vector2 a, Vector2 b) {
+		return getDistanceSquared(a.x, a.y, b.x, b.y);
+	}
+
+	/**
+	 * Wraps a coordinate so that it lies within {@code [0, size)}.
+	 * @param value The coordinate.
+	 * @return The wrapped coordinate.
+	 */
+	public double wrap(double value) {
+		return value - size * Math.floor(value * inverseSize);
+	}
+
+}
@@ -0,0 +1,72 @@
+package org.psnbtech.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Reads and writes unsigned variable length integers. Each byte holds seven
+ * bits of the value, starting with the lowest, and the top bit is set on
+ * every byte except the last. Small values, which make up most of a replay,
+ * only take a single byte.</p>
+ * 
+ * <p>Signed values are zigzag encoded first, so that small negative values
+ * are just as short as small positive ones.</p>
+ * @author Brendan Jones
+ *
+ */
+public class Varint {
+	
+	/**
+	 * The largest number of bytes a varint can take.
+	 */
+	public static final int MAX_LENGTH = 10;
+	
+	/**
+	 * Writes a varint to a buffer.
+	 * @param out The buffer to write to.
+	 * @param value The value, which must not be negative.
+	 */
+	public static void write(ByteBuffer out, long value) {
+		while((value & ~0x7FL) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+	
+	/**
+	 * Reads a varint from a buffer.
+	 * @param in The buffer to read from.
+	 * @return The value.
+	 */
+	public static long read(ByteBuffer in) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0);
+		return value;
+	}
+	
+	/**
+	 * Writes a signed value to a buffer as a zigzag encoded varint.
+	 * @param out The buffer to write to.
+	 * @param value The value.
+	 */
+	public static void writeSigned(ByteBuffer out, long value) {
+		write(out, (value << 1) ^ (value >> 63));
+	}
+	
+	/**
+	 * Reads a signed value written by {@code writeSigned} from a buffer.
+	 * @param in The buffer to read from.
+	 * @return The value.
+	 */
+	public static long readSigned(ByteBuffer in) {
+		long value = read(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -1,7 +1,14 @@
 package org.psnbtech.util;
 
 /**
- * Vector2 represents a 2-dimensional vector.
+ * <p>Vector2 represents a 2-dimensional vector.</p>
+ * 
+ * <p>Every instance method modifies this vector in place and returns it for
+ * chaining, rather than creating a new vector. This allows vectors to be
+ * reused, so that code which runs every frame doesn't create any garbage.</p>
+ * 
+ * <p>For loops over large amounts of data, the static methods operate on
+ * plain {@code double} components and don't require a vector at all.</p>
  * @author Brendan Jones
  */
 public class Vector2 {
@@ -56,6 +63,42 @@ public class Vector2 {
 		return this;
 	}
 	
+	/**
+	 * Copies the components of another vector into this one.
+	 * @param vec The vector to copy.
+	 * @return This vector for chaining.
+	 */
+	public Vector2 set(Vector2 vec) {
+		this.x = vec.x;
+		this.y = vec.y;
+		return this;
+	}
+	
+	/**
+	 * Sets this vector to point in the direction of an angle. The length of
+	 * this vector will be 1.
+	 * @param angle The angle.
+	 * @return This vector for chaining.
+	 */
+	public Vector2 setFromAngle(double angle) {
+		this.x = Math.cos(angle);
+		this.y = Math.sin(angle);
+		return this;
+	}
+	
+	/**
+	 * Sets this vector to point in the direction of an angle, with the desired
+	 * length.
+	 * @param angle The angle.
+	 * @param length The length.
+	 * @return This vector for chaining.
+	 */
+	public Vector2 setFromAngle(double angle, double length) {
+		this.x = Math.cos(angle) * length;
+		this.y = Math.sin(angle) * length;
+		return this;
+	}
+	
 	/**
 	 * Adds the components of a vector to this one.
 	 * @param vec The vector to add.
@@ -67,6 +110,43 @@ public class Vector2 {
 		return this;
 	}
 	
+	/**
+	 * Adds values to the components of this vector.
+	 * @param x The value to add to the x component.
+	 * @param y The value to add to the y component.
+	 * @return This vector for chaining.
+	 */
+	public Vector2 add(double x, double y) {
+		this.x += x;
+		this.y += y;
+		return this;
+	}
+	
+	/**
+	 * Adds the components of a vector, multiplied by a scalar, to this one.
+	 * This is equivalent to {@code add(new Vector2(vec).scale(scalar))}
+	 * without creating a temporary vector.
+	 * @param vec The vector to add.
+	 * @param scalar The amount to scale the vector by.
+	 * @return This vector for chaining.
+	 */
+	public Vector2 addScaled(Vector2 vec, double scalar) {
+		this.x += vec.x * scalar;
+		this.y += vec.y * scalar;
+		return this;
+	}
+	
+	/**
+	 * Subtracts the components of a vector from this one.
+	 * @param vec The vector to subtract.
+	 * @return This vector for chaining.
+	 */
+	public Vector2 subtract(Vector2 vec) {
+		this.x -= vec.x;
+		this.y -= vec.y;
+		return this;
+	}
+	
 	/**
 	 * Scales the components of this vector.
 	 * @param scalar The scalar value.
@@ -92,6 +172,26 @@ public class Vector2 {
 		return this;
 	}
 	
+	/**
+	 * Wraps the components of this vector so that they lie within the world,
+	 * in the same way that Entities wrap around its edges.
+	 * @param torus The Torus of the world.
+	 * @return This vector for chaining.
+	 */
+	public Vector2 wrap(Torus torus) {
+		this.x = torus.wrap(x);
+		this.y = torus.wrap(y);
+		return this;
+	}
+	
+	/**
+	 * Gets the length of this Vector.
+	 * @return The length.
+	 */
+	public double getLength() {
+		return Math.sqrt(getLengthSquared());
+	}
+	
 	/**
 	 * Gets the squared length of this Vector.
 	 * @return The squared length.
@@ -106,8 +206,30 @@ public class Vector2 {
 	 * @return The squared distance.
 	 */
 	public double getDistanceToSquared(Vector2 vec) {
-		double dx = this.x - vec.x;
-		double dy = this.y - vec.y;
+		return getDistanceSquared(x, y, vec.x, vec.y);
+	}
+	
+	/**
+	 * Gets the squared length of a vector.
+	 * @param x The x component.
+	 * @param y The y component.
+	 * @return The squared length.
+	 */
+	public static double getLengthSquared(double x, double y) {
+		return (x * x + y * y);
+	}
+	
+	/**
+	 * Gets the squared distance between two points.
+	 * @param x1 The x coordinate of the first point.
+	 * @param y1 The y coordinate of the first point.
+	 * @param x2 The x coordinate of the second point.
+	 * @param y2 The y coordinate of the second point.
+	 * @return The squared distance.
+	 */
+	public static double getDistanceSquared(double x1, double y1, double x2, double y2) {
+		double dx = x1 - x2;
+		double dy = y1 - y2;
 		return (dx * dx + dy * dy);
 	}
 	